@@ -0,0 +1,119 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * PackedLife row step using the Vector API, advancing as many 64-cell
+ * words per instruction as the CPU's widest vector holds (4 with AVX2,
+ * 8 with AVX-512). It is the same adder network as PackedLife.stepRow,
+ * applied lane-wise; the neighbor words are unaligned loads one word to
+ * either side.
+ *
+ * The module is still incubating in JDK 17, so this source is kept apart
+ * from submit/ and compiled and run with it enabled:
+ *   javac --add-modules jdk.incubator.vector -cp out -d out simd/*.java
+ *   java --add-modules jdk.incubator.vector -cp out:... PackedLife
+ * PackedLife loads it by name and falls back to the scalar loop when the
+ * class or the module is missing.
+ */
+final class VectorRowStepper implements RowStepper {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Creates the stepper, refusing when vectors hold a single long and
+     * could not beat the scalar loop.
+     */
+    VectorRowStepper() {
+        if (SPECIES.length() < 2) {
+            throw new UnsupportedOperationException("vectors hold one long");
+        }
+    }
+
+    /**
+     * Computes one row a vector of words at a time.
+     * @param src current generation
+     * @param above index of the row above
+     * @param row index of the row being computed
+     * @param below index of the row below
+     * @param dst buffer receiving the new row at the same index
+     * @param words number of data words in the row
+     * @param tailMask valid bits of the last data word
+     * @return non-zero if any cell of the row changed
+     */
+    @Override
+    public long stepRow(long[] src, int above, int row, int below,
+            long[] dst, int words, long tailMask) {
+        int lanes = SPECIES.length();
+        // a partly used last word needs its tail masked, which is left to
+        // the scalar loop
+        int end = tailMask == -1L ? words : words - 1;
+        LongVector diff = LongVector.zero(SPECIES);
+        int i = 1;
+        // kept in one method so the JIT inlines everything and the vectors
+        // stay in registers
+        while (i <= end && end >= lanes) {
+            // the last vector may overlap the one before, rewriting a few
+            // words with the same values
+            int at = Math.min(i, end - lanes + 1);
+            LongVector a = LongVector.fromArray(SPECIES, src, above + at);
+            LongVector m = LongVector.fromArray(SPECIES, src, row + at);
+            LongVector b = LongVector.fromArray(SPECIES, src, below + at);
+
+            LongVector aw = west(a, src, above + at - 1);
+            LongVector ae = east(a, src, above + at + 1);
+            LongVector mw = west(m, src, row + at - 1);
+            LongVector me = east(m, src, row + at + 1);
+            LongVector bw = west(b, src, below + at - 1);
+            LongVector be = east(b, src, below + at + 1);
+
+            LongVector a0 = aw.lanewise(VectorOperators.XOR, a).lanewise(VectorOperators.XOR, ae);
+            LongVector a1 = aw.and(a).or(ae.and(aw.lanewise(VectorOperators.XOR, a)));
+            LongVector m0 = mw.lanewise(VectorOperators.XOR, me);
+            LongVector m1 = mw.and(me);
+            LongVector b0 = bw.lanewise(VectorOperators.XOR, b).lanewise(VectorOperators.XOR, be);
+            LongVector b1 = bw.and(b).or(be.and(bw.lanewise(VectorOperators.XOR, b)));
+
+            LongVector x0 = a0.lanewise(VectorOperators.XOR, m0).lanewise(VectorOperators.XOR, b0);
+            LongVector c0 = a0.and(m0).or(b0.and(a0.lanewise(VectorOperators.XOR, m0)));
+
+            LongVector two = a1.lanewise(VectorOperators.XOR, m1)
+                    .lanewise(VectorOperators.XOR, b1)
+                    .lanewise(VectorOperators.XOR, c0)
+                    .lanewise(VectorOperators.AND_NOT, a1.and(m1).or(b1.and(c0)));
+
+            LongVector out = two.and(x0.or(m));
+            out.intoArray(dst, row + at);
+            diff = diff.or(out.lanewise(VectorOperators.XOR, m));
+            i = at + lanes;
+        }
+        long rest = PackedLife.stepWords(src, above, row, below, dst, i, words, tailMask);
+        return diff.reduceLanes(VectorOperators.OR) | rest;
+    }
+
+    /**
+     * Shifts words so each cell lines up with its west neighbor's column,
+     * carrying in the top bit of the word before.
+     * @param v words
+     * @param src cell buffer
+     * @param before index of the word before the first lane
+     * @return west neighbors
+     */
+    private static LongVector west(LongVector v, long[] src, int before) {
+        return v.lanewise(VectorOperators.LSHL, 1).or(
+                LongVector.fromArray(SPECIES, src, before).lanewise(VectorOperators.LSHR, 63));
+    }
+
+    /**
+     * Shifts words so each cell lines up with its east neighbor's column,
+     * carrying in the bottom bit of the word after.
+     * @param v words
+     * @param src cell buffer
+     * @param after index of the word after the first lane
+     * @return east neighbors
+     */
+    private static LongVector east(LongVector v, long[] src, int after) {
+        return v.lanewise(VectorOperators.LSHR, 1).or(
+                LongVector.fromArray(SPECIES, src, after).lanewise(VectorOperators.LSHL, 63));
+    }
+}
@@ -0,0 +1,546 @@
+import itsc2214.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmarks for Project1: stepping, loading and neighbor counting.
+ * Each benchmark is warmed up so the JIT has compiled it, then timed over
+ * several iterations. Time and heap bytes allocated per operation are
+ * measured on the benchmark thread, which is what a GC allocation
+ * profiler reports as alloc.rate.norm. Results print as a table and can
+ * be written as JMH-style JSON to track regressions between runs.
+ *
+ * Usage: java Project1Bench [--quick] [--threads n] [--json file] [filter]
+ * Run with --add-modules jdk.incubator.vector and simd/ compiled to
+ * include the Vector API PackedLife step.
+ *   --quick    small grids and short iterations, for a smoke test
+ *   --threads  step on a ForkJoinPool of n threads
+ *   --json     write results to a JSON file
+ *   filter     only run benchmarks whose name contains this text
+ */
+public class Project1Bench {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long iterationNanos = 500_000_000L;
+
+    /**
+     * One unit of benchmarked work.
+     */
+    interface Op {
+        /**
+         * Runs the work once.
+         * @throws Exception if the work fails
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * A benchmark with its parameters.
+     */
+    static final class Bench {
+        final String name;
+        final Map<String, String> params = new LinkedHashMap<>();
+        final double cellsPerOp;
+        final Op setup;   // runs before every iteration, not timed
+        final Op op;
+
+        /**
+         * Creates a benchmark.
+         * @param name benchmark name
+         * @param cellsPerOp cells processed by one operation
+         * @param setup work run before each iteration, or null
+         * @param op work being measured
+         */
+        Bench(String name, double cellsPerOp, Op setup, Op op) {
+            this.name = name;
+            this.cellsPerOp = cellsPerOp;
+            this.setup = setup;
+            this.op = op;
+        }
+
+        /**
+         * Adds a parameter shown in the results.
+         * @param key parameter name
+         * @param value parameter value
+         * @return this benchmark
+         */
+        Bench param(String key, Object value) {
+            params.put(key, String.valueOf(value));
+            return this;
+        }
+    }
+
+    /**
+     * Measured numbers for one benchmark.
+     */
+    static final class Result {
+        final Bench bench;
+        final double opsPerSecond;
+        final double error;        // half-width of the 99.9% interval
+        final double bytesPerOp;
+
+        /**
+         * Creates a result.
+         * @param bench benchmark measured
+         * @param opsPerSecond mean throughput
+         * @param error error of the mean
+         * @param bytesPerOp heap bytes allocated per operation
+         */
+        Result(Bench bench, double opsPerSecond, double error, double bytesPerOp) {
+            this.bench = bench;
+            this.opsPerSecond = opsPerSecond;
+            this.error = error;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args options, see the class comment
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        boolean quick = false;
+        int threads = 1;
+        String json = null;
+        String filter = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--json":
+                    json = args[++i];
+                    break;
+                default:
+                    filter = args[i];
+            }
+        }
+        if (quick) {
+            iterationNanos = 100_000_000L;
+        }
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        List<Bench> benches = new ArrayList<>();
+        addStepBenches(benches, quick, pool);
+        addRuleBenches(benches, pool);
+        addMetricsBenches(benches, quick, pool);
+        addPackedBenches(benches, quick);
+        addNeighborBench(benches);
+        addLoadBenches(benches, quick);
+
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-20s %-36s %14s %12s %12s%n",
+            "benchmark", "params", "ops/s", "cells/s", "B/op");
+        for (Bench bench : benches) {
+            if (!bench.name.contains(filter)) {
+                continue;
+            }
+            Result r = measure(bench);
+            results.add(r);
+            System.out.printf("%-20s %-36s %14.2f %12.3g %12.1f%n",
+                bench.name, bench.params, r.opsPerSecond,
+                r.opsPerSecond * bench.cellsPerOp, r.bytesPerOp);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (json != null) {
+            writeJson(results, json, threads);
+        }
+    }
+
+    /**
+     * Step throughput across grid sizes and densities.
+     * @param benches list to add to
+     * @param quick only use small grids
+     * @param pool pool to step on, or null
+     */
+    private static void addStepBenches(List<Bench> benches, boolean quick, ForkJoinPool pool) {
+        int[] sizes = quick ? new int[] {3, 64, 512} : new int[] {3, 64, 512, 2048, 16384};
+        double[] densities = {0.1, 0.3, 0.5};
+        for (int size : sizes) {
+            // created on first use and shared by the densities, so large
+            // grids that the filter skips are never allocated
+            Project1[] game = new Project1[1];
+            for (double density : densities) {
+                // reseeding every iteration keeps soups from settling down
+                benches.add(new Bench("step", (double) size * size,
+                    () -> {
+                        if (game[0] == null) {
+                            game[0] = new Project1(size, size);
+                            game[0].setPool(pool);
+                        }
+                        game[0].randomInitialize(density);
+                    },
+                    () -> game[0].nextGeneration())
+                    .param("size", size + "x" + size)
+                    .param("density", density));
+            }
+        }
+    }
+
+    /**
+     * Project1 stepping with and without LifeMetrics attached, to show
+     * what timing every generation costs.
+     * @param benches list to add to
+     * @param quick only use small grids
+     * @param pool pool to step on, or null
+     */
+    private static void addMetricsBenches(List<Bench> benches, boolean quick,
+            ForkJoinPool pool) {
+        int[] sizes = quick ? new int[] {64, 512} : new int[] {64, 512, 2048};
+        for (int size : sizes) {
+            for (boolean on : new boolean[] {false, true}) {
+                Project1[] game = new Project1[1];
+                benches.add(new Bench("metrics", (double) size * size,
+                    () -> {
+                        if (game[0] == null) {
+                            game[0] = new Project1(size, size);
+                            game[0].setPool(pool);
+                            game[0].setMetrics(on ? new LifeMetrics() : null);
+                        }
+                        game[0].randomInitialize(0.3);
+                    },
+                    () -> game[0].nextGeneration())
+                    .param("size", size + "x" + size)
+                    .param("metrics", on ? "on" : "off"));
+            }
+        }
+    }
+
+    /**
+     * PackedLife with the scalar and, when loaded, the Vector API row step.
+     * @param benches list to add to
+     * @param quick only use small grids
+     */
+    private static void addPackedBenches(List<Bench> benches, boolean quick) {
+        int[] sizes = quick ? new int[] {512} : new int[] {512, 2048, 16384};
+        for (int size : sizes) {
+            for (boolean vector : new boolean[] {false, true}) {
+                if (vector && !PackedLife.isVectorAvailable()) {
+                    continue;
+                }
+                PackedLife[] game = new PackedLife[1];
+                benches.add(new Bench("packed", (double) size * size,
+                    () -> {
+                        if (game[0] == null) {
+                            game[0] = new PackedLife(size, size);
+                            game[0].setVectorized(vector);
+                        }
+                        game[0].randomInitialize(0.3);
+                    },
+                    () -> game[0].nextGeneration())
+                    .param("size", size + "x" + size)
+                    .param("impl", vector ? "vector" : "scalar"));
+            }
+        }
+    }
+
+    /**
+     * The B/S lookup table against the hard-coded Conway rule. The
+     * reference kernels share one loop and differ only in how the rule is
+     * applied; Project1 is stepped under two rules to show a rule other
+     * than Conway's costs the same.
+     * @param benches list to add to
+     * @param pool pool to step on, or null
+     */
+    private static void addRuleBenches(List<Bench> benches, ForkJoinPool pool) {
+        int size = 512;
+        boolean[][][] grids = new boolean[2][size][size];
+        Op seed = () -> {
+            java.util.Random rand = new java.util.Random(size);
+            for (boolean[] row : grids[0]) {
+                for (int j = 0; j < size; j++) {
+                    row[j] = rand.nextDouble() < 0.3;
+                }
+            }
+        };
+        benches.add(new Bench("rule", (double) size * size, seed,
+            () -> {
+                hardCodedStep(grids[0], grids[1]);
+                boolean[][] tmp = grids[0];
+                grids[0] = grids[1];
+                grids[1] = tmp;
+            })
+            .param("impl", "hard-coded")
+            .param("rule", "B3/S23"));
+        boolean[] table = LifeRule.CONWAY.table();
+        benches.add(new Bench("rule", (double) size * size, seed,
+            () -> {
+                tableStep(grids[0], grids[1], table);
+                boolean[][] tmp = grids[0];
+                grids[0] = grids[1];
+                grids[1] = tmp;
+            })
+            .param("impl", "table")
+            .param("rule", "B3/S23"));
+
+        for (LifeRule rule : new LifeRule[] {LifeRule.CONWAY, LifeRule.HIGHLIFE}) {
+            Project1 game = new Project1(size, size);
+            game.setPool(pool);
+            game.setRule(rule);
+            benches.add(new Bench("rule", (double) size * size,
+                () -> game.randomInitialize(0.3),
+                game::nextGeneration)
+                .param("impl", "Project1")
+                .param("rule", rule));
+        }
+    }
+
+    /**
+     * Steps a whole grid applying Conway's rule with branches, as Project1
+     * did before rules were configurable.
+     * @param grid current generation
+     * @param out receives the next generation
+     */
+    private static void hardCodedStep(boolean[][] grid, boolean[][] out) {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int neighbors = neighbors(grid, i, j);
+                if (grid[i][j]) {
+                    out[i][j] = neighbors == 2 || neighbors == 3;
+                } else {
+                    out[i][j] = neighbors == 3;
+                }
+            }
+        }
+    }
+
+    /**
+     * Steps a whole grid looking the rule up in a table, as Project1 does.
+     * @param grid current generation
+     * @param out receives the next generation
+     * @param table rule lookup table
+     */
+    private static void tableStep(boolean[][] grid, boolean[][] out, boolean[] table) {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int neighbors = neighbors(grid, i, j);
+                out[i][j] = table[(grid[i][j] ? LifeRule.COUNTS : 0) + neighbors];
+            }
+        }
+    }
+
+    /**
+     * Counts live neighbors the way Project1 does.
+     * @param grid cells
+     * @param i row
+     * @param j column
+     * @return live neighbors
+     */
+    private static int neighbors(boolean[][] grid, int i, int j) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                int r = i + dr;
+                int c = j + dc;
+                if ((dr != 0 || dc != 0) && r >= 0 && r < grid.length
+                        && c >= 0 && c < grid[0].length && grid[r][c]) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * countLiveNeighbors over every cell of a grid.
+     * @param benches list to add to
+     */
+    private static void addNeighborBench(List<Bench> benches) {
+        int size = 512;
+        Project1 game = new Project1(size, size);
+        int[] sink = new int[1];
+        benches.add(new Bench("countLiveNeighbors", (double) size * size,
+            () -> game.randomInitialize(0.3),
+            () -> {
+                int total = 0;
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        total += game.countLiveNeighbors(i, j);
+                    }
+                }
+                sink[0] += total;
+            })
+            .param("size", size + "x" + size));
+    }
+
+    /**
+     * loadFromFile on the data/ patterns and on generated large files.
+     * @param benches list to add to
+     * @param quick only use small generated files
+     * @throws IOException if a generated file cannot be written
+     */
+    private static void addLoadBenches(List<Bench> benches, boolean quick) throws IOException {
+        File[] patterns = new File("data").listFiles((dir, name) -> name.endsWith(".txt"));
+        if (patterns != null) {
+            java.util.Arrays.sort(patterns);
+            for (File file : patterns) {
+                Project1 game = new Project1();
+                try {
+                    game.loadFromFile(file.getPath());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("skipping " + e.getMessage());
+                    continue;
+                }
+                benches.add(new Bench("loadFromFile",
+                    (double) game.numRows() * game.numCols(), null,
+                    () -> game.loadFromFile(file.getPath()))
+                    .param("file", file.getName()));
+            }
+        }
+
+        int[] sizes = quick ? new int[] {256} : new int[] {256, 2048, 8192};
+        for (int size : sizes) {
+            File file = generate(size);
+            Project1 game = new Project1();
+            benches.add(new Bench("loadFromFile", (double) size * size, null,
+                () -> game.loadFromFile(file.getPath()))
+                .param("file", "generated " + size + "x" + size));
+        }
+    }
+
+    /**
+     * Writes a random pattern file that is deleted on exit.
+     * @param size rows and columns
+     * @return the file
+     * @throws IOException if it cannot be written
+     */
+    private static File generate(int size) throws IOException {
+        File file = File.createTempFile("bench" + size + "-", ".txt");
+        file.deleteOnExit();
+        java.util.Random rand = new java.util.Random(size);
+        try (PrintWriter out = new PrintWriter(new java.io.BufferedWriter(
+                new java.io.FileWriter(file), 1 << 16))) {
+            out.println(size + " " + size);
+            char[] line = new char[size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    line[j] = rand.nextInt(4) == 0 ? 'O' : '.';
+                }
+                out.println(line);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Warms up and measures one benchmark.
+     * @param bench benchmark to run
+     * @return measured result
+     * @throws Exception if the benchmark fails
+     */
+    private static Result measure(Bench bench) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(bench, null);
+        }
+        double[] rates = new double[MEASURE_ITERATIONS];
+        long[] totals = new long[2];  // operations, bytes
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            rates[i] = iteration(bench, totals);
+        }
+
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate / rates.length;
+        }
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean) / (rates.length - 1);
+        }
+        // t-distribution quantile for 99.9% with 4 degrees of freedom
+        double error = 8.610 * Math.sqrt(variance / rates.length);
+        return new Result(bench, mean, error, (double) totals[1] / totals[0]);
+    }
+
+    /**
+     * Runs operations for one iteration's time budget.
+     * @param bench benchmark to run
+     * @param totals accumulates operations and bytes, or null while warming up
+     * @return operations per second
+     * @throws Exception if the benchmark fails
+     */
+    private static double iteration(Bench bench, long[] totals) throws Exception {
+        if (bench.setup != null) {
+            bench.setup.run();
+        }
+        long id = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        long ops = 0;
+        long elapsed;
+        do {
+            bench.op.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long bytes = THREADS.getThreadAllocatedBytes(id) - bytesBefore;
+        if (totals != null) {
+            totals[0] += ops;
+            totals[1] += bytes;
+        }
+        return ops * 1e9 / elapsed;
+    }
+
+    /**
+     * Writes results in the JSON layout JMH uses, so existing tooling can
+     * compare runs.
+     * @param results measured results
+     * @param filename output file
+     * @param threads threads used for stepping
+     * @throws FileNotFoundException if the file cannot be created
+     */
+    private static void writeJson(List<Result> results, String filename, int threads)
+            throws FileNotFoundException {
+        try (PrintWriter out = new PrintWriter(filename)) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.println("  {");
+                out.println("    \"benchmark\": \"Project1Bench." + r.bench.name + "\",");
+                out.println("    \"mode\": \"thrpt\",");
+                out.println("    \"threads\": " + threads + ",");
+                out.println("    \"warmupIterations\": " + WARMUP_ITERATIONS + ",");
+                out.println("    \"measurementIterations\": " + MEASURE_ITERATIONS + ",");
+                out.print("    \"params\": {");
+                int k = 0;
+                for (Map.Entry<String, String> p : r.bench.params.entrySet()) {
+                    out.print((k++ > 0 ? ", " : "") + "\"" + p.getKey() + "\": \""
+                        + p.getValue().replace("\"", "\\\"") + "\"");
+                }
+                out.println("},");
+                out.println("    \"primaryMetric\": {\"score\": " + r.opsPerSecond
+                    + ", \"scoreError\": " + r.error + ", \"scoreUnit\": \"ops/s\"},");
+                out.println("    \"secondaryMetrics\": {");
+                out.println("      \"cells\": {\"score\": " + r.opsPerSecond * r.bench.cellsPerOp
+                    + ", \"scoreUnit\": \"cells/s\"},");
+                out.println("      \"gc.alloc.rate.norm\": {\"score\": " + r.bytesPerOp
+                    + ", \"scoreUnit\": \"B/op\"}");
+                out.println("    }");
+                out.println("  }" + (i + 1 < results.size() ? "," : ""));
+            }
+            out.println("]");
+        }
+    }
+}
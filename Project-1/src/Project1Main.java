@@ -1,5 +1,9 @@
 import itsc2214.*;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Implements Conway's Game of Life using a 2D array.
@@ -13,21 +17,27 @@ public class Project1Main {
     /**
      * Displays the current state of the grid in the console.
      * 'O' represents a live cell, and '.' represents a dead cell.
+     * The whole screen is built first and printed at once.
      */
     public static void display(GameOfLife game, int generation) {
-        System.out.print("\033[H\033[2J");      // clear the screen (terminal window)
-        System.out.flush();  // Recommended to ensure the output is sent immediately
-        System.out.println("Generation " + (generation));
         int rows = game.numRows();
         int cols = game.numCols();
+        StringBuilder screen = new StringBuilder((rows + 2) * (cols + 1) + 32);
+        screen.append("\033[H\033[2J");      // clear the screen (terminal window)
+        screen.append("Generation ").append(generation).append('\n');
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                System.out.print(game.isAlive(r,c) ? "O" : ".");
+                screen.append(game.isAlive(r,c) ? 'O' : '.');
             }
-            System.out.println();
+            screen.append('\n');
         }
+        System.out.print(screen);
+        System.out.flush();  // Recommended to ensure the output is sent immediately
     }
 
+    /** Generations shown per second by default. */
+    public static final double DEFAULT_FPS = 2;
+
     /**
      * Runs the Game of Life simulation for a specified number of generations.
      * Displays the grid in the console for each generation.
@@ -35,21 +45,61 @@ public class Project1Main {
      * @param generations The number of generations to simulate
      */
     public static void simulate(GameOfLife game, int generations) {
-        for (int i = 0; i < generations; i++) {
-            display(game, i+1);
-            game.nextGeneration();
-            System.out.println();
-            // Should we Terminate early if there is nothing
-            if (game.isStillLife()) {
-                System.out.println("Finished early, no change.");
-                return;
+        simulate(game, generations, DEFAULT_FPS);
+    }
+
+    /**
+     * Runs the Game of Life simulation at a target frame rate.
+     * Drawing happens on the renderer's own thread, so a slow terminal
+     * drops frames instead of slowing the simulation down.
+     *
+     * @param generations The number of generations to simulate
+     * @param fps generations per second, or 0 to run as fast as possible
+     */
+    public static void simulate(GameOfLife game, int generations, double fps) {
+        TerminalRenderer renderer =
+            new TerminalRenderer(new FileOutputStream(FileDescriptor.out));
+        long interval = fps > 0 ? (long) (1e9 / fps) : 0;
+        long next = System.nanoTime();
+        String result = null;
+        try {
+            for (int i = 0; i < generations; i++) {
+                renderer.offer(game, i + 1, null);
+                game.nextGeneration();
+                // Should we Terminate early if there is nothing
+                if (game.isStillLife()) {
+                    result = "Finished early, no change.";
+                    break;
+                }
+                // oscillators like the blinker never stop changing, so look
+                // for a return to an earlier generation
+                if (game instanceof Project1 && ((Project1) game).getCyclePeriod() > 1) {
+                    Project1 p = (Project1) game;
+                    result = "Finished early, entered a cycle of period "
+                        + p.getCyclePeriod() + " at generation " + p.getCycleStart() + ".";
+                    break;
+                }
+                // wait for the next frame time rather than a fixed sleep,
+                // so the time spent stepping counts towards the interval
+                next += interval;
+                long wait;
+                while ((wait = next - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
             }
+        } finally {
             try {
-                Thread.sleep(500); // Pause between generations
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                renderer.close();
+            } catch (IOException e) {
+                System.err.println("Could not draw: " + e.getMessage());
             }
         }
+        if (result != null) {
+            System.out.println(result);
+        }
     }
 
     /**
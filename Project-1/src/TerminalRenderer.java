@@ -0,0 +1,295 @@
+import itsc2214.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws Game of Life generations on an ANSI terminal from its own thread.
+ *
+ * The simulation hands over a copy of each generation with offer(), which
+ * never waits for the terminal. Frames wait in a small bounded queue; when
+ * the terminal falls behind, the oldest waiting frame is dropped, so the
+ * picture stays current instead of lagging. The drawing thread builds a
+ * frame in one reusable byte buffer holding only the rows that changed
+ * since the last frame, each placed with a cursor-positioning escape, and
+ * writes it with a single write call. That keeps the output small and
+ * stops the flicker of clearing and redrawing the whole screen.
+ */
+public class TerminalRenderer implements AutoCloseable {
+
+    private static final byte[] CLEAR = ascii("\033[H\033[2J");
+    private static final byte[] HIDE_CURSOR = ascii("\033[?25l");
+    private static final byte[] SHOW_CURSOR = ascii("\033[?25h");
+
+    /** Frames that may wait for the drawing thread. */
+    private static final int QUEUE_FRAMES = 2;
+
+    /**
+     * A copy of one generation as the bytes of each row.
+     */
+    private static final class Frame {
+        long generation;
+        int rows;
+        int cols;
+        byte[][] cells = new byte[0][];
+        String status;
+    }
+
+    private final OutputStream out;
+    private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+    // spare frames, so no grid copies are allocated while running
+    private final BlockingQueue<Frame> free = new ArrayBlockingQueue<>(QUEUE_FRAMES + 2);
+    private final Frame end = new Frame();
+    private final Thread thread;
+
+    private byte[] buffer = new byte[1 << 12];
+    private int length;
+    private byte[][] shown = new byte[0][];  // rows currently on the screen
+    private volatile long drawn;
+    private volatile long dropped;
+    private volatile IOException failure;
+
+    /**
+     * Starts a renderer writing to a stream, typically
+     * new FileOutputStream(FileDescriptor.out) so each frame is one write
+     * to the terminal.
+     * @param out terminal output
+     */
+    public TerminalRenderer(OutputStream out) {
+        this.out = out;
+        for (int i = 0; i < QUEUE_FRAMES + 2; i++) {
+            free.add(new Frame());
+        }
+        thread = new Thread(this::drawLoop, "terminal-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hands over the current generation to be drawn. Returns at once; if
+     * the terminal is behind, an older waiting frame is dropped. Frames
+     * must all be offered from one thread.
+     * @param game grid to draw
+     * @param generation generation number shown above the grid
+     * @param status extra text for the status line, or null
+     */
+    public void offer(GameOfLife game, long generation, String status) {
+        Frame frame = free.poll();
+        if (frame == null) {
+            // every spare frame is queued or being drawn
+            Frame old = queue.poll();
+            if (old == null) {
+                dropped++;
+                return;
+            }
+            frame = old;
+            dropped++;
+        }
+        copy(game, frame);
+        frame.generation = generation;
+        frame.status = status;
+        while (!queue.offer(frame)) {
+            Frame old = queue.poll();
+            if (old != null) {
+                free.offer(old);
+                dropped++;
+            }
+        }
+    }
+
+    /**
+     * Copies the cells of a game into a frame, reusing its rows.
+     * @param game grid to copy
+     * @param frame frame to fill
+     */
+    private static void copy(GameOfLife game, Frame frame) {
+        int rows = game.numRows();
+        int cols = game.numCols();
+        if (frame.cells.length != rows || rows > 0 && frame.cells[0].length != cols) {
+            frame.cells = new byte[rows][cols];
+        }
+        frame.rows = rows;
+        frame.cols = cols;
+        for (int r = 0; r < rows; r++) {
+            byte[] row = frame.cells[r];
+            for (int c = 0; c < cols; c++) {
+                row[c] = game.isAlive(r, c) ? (byte) 'O' : (byte) '.';
+            }
+        }
+    }
+
+    /**
+     * Gets the number of frames written to the terminal.
+     * @return frames drawn
+     */
+    public long framesDrawn() {
+        return drawn;
+    }
+
+    /**
+     * Gets the number of frames dropped because the terminal was behind.
+     * @return frames dropped
+     */
+    public long framesDropped() {
+        return dropped;
+    }
+
+    /**
+     * Draws the frames still waiting, then stops the drawing thread and
+     * shows the cursor again.
+     * @throws IOException if writing to the terminal failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            // the drawing thread stops taking frames if the terminal failed
+            while (!queue.offer(end, 10, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive()) {
+                    break;
+                }
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Body of the drawing thread.
+     */
+    private void drawLoop() {
+        try {
+            while (true) {
+                Frame frame = queue.take();
+                if (frame == end) {
+                    break;
+                }
+                draw(frame);
+                free.offer(frame);
+                drawn++;
+            }
+            length = 0;
+            append(SHOW_CURSOR);
+            append((byte) '\n');
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+            queue.clear();  // nothing more can be shown
+        }
+    }
+
+    /**
+     * Writes the rows that differ from the screen, plus the status line.
+     * @param frame frame to draw
+     * @throws IOException if the terminal write fails
+     */
+    private void draw(Frame frame) throws IOException {
+        length = 0;
+        boolean full = shown.length != frame.rows
+                || frame.rows > 0 && shown[0].length != frame.cols;
+        if (full) {
+            shown = new byte[frame.rows][];
+            append(HIDE_CURSOR);
+            append(CLEAR);
+        }
+        moveTo(1);
+        append(ascii("Generation " + frame.generation
+                + (frame.status == null ? "" : "  " + frame.status) + "\033[K"));
+        for (int r = 0; r < frame.rows; r++) {
+            byte[] row = frame.cells[r];
+            if (shown[r] != null && Arrays.equals(shown[r], row)) {
+                continue;
+            }
+            moveTo(r + 2);
+            append(row);
+            if (shown[r] == null) {
+                shown[r] = row.clone();
+            } else {
+                System.arraycopy(row, 0, shown[r], 0, row.length);
+            }
+        }
+        moveTo(frame.rows + 2);
+        flush();
+    }
+
+    /**
+     * Appends a cursor move to the start of a screen line.
+     * @param line line number, 1 at the top
+     */
+    private void moveTo(int line) {
+        append((byte) 27);
+        append((byte) '[');
+        appendInt(line);
+        append((byte) ';');
+        append((byte) '1');
+        append((byte) 'H');
+    }
+
+    /**
+     * Appends a number in decimal.
+     * @param n non-negative number
+     */
+    private void appendInt(int n) {
+        if (n >= 10) {
+            appendInt(n / 10);
+        }
+        append((byte) ('0' + n % 10));
+    }
+
+    /**
+     * Appends bytes, growing the buffer if needed.
+     * @param bytes bytes to add
+     */
+    private void append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Appends one byte.
+     * @param b byte to add
+     */
+    private void append(byte b) {
+        ensure(1);
+        buffer[length++] = b;
+    }
+
+    /**
+     * Makes room in the buffer.
+     * @param extra bytes about to be added
+     */
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    /**
+     * Writes the whole buffer in one call.
+     * @throws IOException if the terminal write fails
+     */
+    private void flush() throws IOException {
+        out.write(buffer, 0, length);
+        out.flush();
+    }
+
+    /**
+     * Encodes text as ASCII bytes.
+     * @param s text
+     * @return bytes
+     */
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,402 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs many random soups, each from its own seed, until they settle into a
+ * still life or oscillator or reach a generation cap. Simulations run as
+ * independent tasks on a work-stealing pool and each result is passed to a
+ * sink as soon as it is known, so a CSV or JSON Lines file grows while the
+ * batch runs.
+ *
+ * At most maxInFlight jobs are submitted but unfinished at any time. When
+ * the sink is slower than the simulations, submitting waits instead of
+ * queueing every job in memory, so a batch of millions of seeds can be
+ * read lazily from a file.
+ */
+public class BatchRunner {
+
+    /**
+     * One simulation to run.
+     */
+    public static final class Job {
+        final long seed;
+        final double density;
+
+        /**
+         * Creates a job.
+         * @param seed seed for randomInitialize
+         * @param density chance for each cell to start alive
+         */
+        public Job(long seed, double density) {
+            this.seed = seed;
+            this.density = density;
+        }
+    }
+
+    /**
+     * Outcome of one simulation.
+     */
+    public static final class Result {
+        /** Seed the soup was made from. */
+        public final long seed;
+        /** Starting chance for each cell to be alive. */
+        public final double density;
+        /** Live cells when the simulation stopped. */
+        public final long population;
+        /** Generation the cycle started, or the cap if none was found. */
+        public final long generations;
+        /** Period of the cycle, 1 for a still life, 0 if none was found. */
+        public final int period;
+
+        /**
+         * Creates a result.
+         * @param seed seed of the soup
+         * @param density starting density
+         * @param population final live cells
+         * @param generations generations to stabilize
+         * @param period cycle period, or 0
+         */
+        public Result(long seed, double density, long population, long generations,
+                int period) {
+            this.seed = seed;
+            this.density = density;
+            this.population = population;
+            this.generations = generations;
+            this.period = period;
+        }
+    }
+
+    /**
+     * Receives results. Calls are made one at a time, in completion order.
+     */
+    public interface ResultSink {
+        /**
+         * Takes one result.
+         * @param result finished simulation
+         * @throws IOException if the result cannot be written
+         */
+        void accept(Result result) throws IOException;
+    }
+
+    private final int maxGenerations;
+    private final int threads;
+    private int maxInFlight;
+    private LifeRule rule = LifeRule.CONWAY;
+
+    // one grid per worker thread, reused for every job it runs
+    private final ThreadLocal<Project1> games;
+
+    /**
+     * Creates a runner.
+     * @param rows rows of every grid
+     * @param cols columns of every grid
+     * @param maxGenerations cap on generations per simulation
+     * @param threads simulations run at the same time
+     */
+    public BatchRunner(int rows, int cols, int maxGenerations, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.maxGenerations = maxGenerations;
+        this.threads = threads;
+        this.maxInFlight = 2 * threads;
+        this.games = ThreadLocal.withInitial(() -> new Project1(rows, cols));
+    }
+
+    /**
+     * Sets how many jobs may be submitted but unfinished.
+     * @param maxInFlight limit, at least 1
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sets the rule every simulation runs under.
+     * @param rule Life-like rule
+     */
+    public void setRule(LifeRule rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * Runs every job and passes each result to the sink. Jobs are taken
+     * from the iterator only as capacity frees up. If a simulation, the
+     * sink or the iterator fails, no more jobs are started and the first
+     * error is thrown once the running ones finish.
+     * @param jobs jobs to run
+     * @param sink receiver of the results
+     * @return number of results written
+     * @throws IOException if the sink fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long run(Iterator<Job> jobs, ResultSink sink)
+            throws IOException, InterruptedException {
+        Semaphore permits = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long[] written = new long[1];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (failure.get() == null) {
+                permits.acquire();
+                Job job = null;
+                try {
+                    job = jobs.hasNext() ? jobs.next() : null;
+                } catch (Throwable t) {
+                    // a bad job line; the running jobs still finish first
+                    failure.compareAndSet(null, t);
+                }
+                if (job == null) {
+                    permits.release();
+                    break;
+                }
+                Job next = job;
+                pool.execute(() -> {
+                    try {
+                        Result result = simulate(next);
+                        synchronized (sink) {
+                            if (failure.get() == null) {
+                                sink.accept(result);
+                                written[0]++;
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            // every permit is back once the last job has finished
+            permits.acquire(maxInFlight);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        synchronized (sink) {
+            return written[0];
+        }
+    }
+
+    /**
+     * Runs one simulation on this thread's grid.
+     * @param job seed and density
+     * @return outcome
+     */
+    Result simulate(Job job) {
+        Project1 game = games.get();
+        game.setRule(rule);
+        game.randomInitialize(job.density, job.seed);
+        while (game.getCyclePeriod() == 0 && game.getGeneration() < maxGenerations) {
+            game.nextGeneration();
+        }
+        long population = game.getPopulation();
+        int period = game.getCyclePeriod();
+        long generations = period == 0 ? game.getGeneration() : game.getCycleStart();
+        return new Result(job.seed, job.density, population, generations, period);
+    }
+
+    /**
+     * Makes a sink writing one CSV line per result after a header line.
+     * The writer is flushed after every line and not closed.
+     * @param out destination
+     * @return the sink
+     * @throws IOException if the header cannot be written
+     */
+    public static ResultSink csv(Writer out) throws IOException {
+        out.write("seed,density,population,generations,period\n");
+        return r -> {
+            out.write(r.seed + "," + r.density + "," + r.population + ","
+                    + r.generations + "," + r.period + "\n");
+            out.flush();
+        };
+    }
+
+    /**
+     * Makes a sink writing one JSON object per line. The writer is
+     * flushed after every line and not closed.
+     * @param out destination
+     * @return the sink
+     */
+    public static ResultSink jsonLines(Writer out) {
+        return r -> {
+            out.write("{\"seed\": " + r.seed + ", \"density\": " + r.density
+                    + ", \"population\": " + r.population + ", \"generations\": "
+                    + r.generations + ", \"period\": " + r.period + "}\n");
+            out.flush();
+        };
+    }
+
+    /**
+     * Makes jobs for seeds first to last with one density.
+     * @param first first seed
+     * @param last last seed, inclusive
+     * @param density starting density
+     * @return lazy iterator over the jobs
+     */
+    public static Iterator<Job> range(long first, long last, double density) {
+        return new Iterator<Job>() {
+            private long next = first;
+            private boolean done = first > last;
+
+            @Override
+            public boolean hasNext() {
+                return !done;
+            }
+
+            @Override
+            public Job next() {
+                if (done) {
+                    throw new java.util.NoSuchElementException();
+                }
+                long seed = next;
+                done = seed == last;
+                next++;
+                return new Job(seed, density);
+            }
+        };
+    }
+
+    /**
+     * Reads jobs lazily from lines of "seed" or "seed density", skipping
+     * blank lines and lines starting with #.
+     * @param in lines to read, closed at the end
+     * @param density density for lines without one
+     * @return lazy iterator over the jobs
+     */
+    public static Iterator<Job> lines(BufferedReader in, double density) {
+        return new Iterator<Job>() {
+            private String line = advance();
+
+            private String advance() {
+                try {
+                    String s;
+                    while ((s = in.readLine()) != null) {
+                        s = s.trim();
+                        if (!s.isEmpty() && !s.startsWith("#")) {
+                            return s;
+                        }
+                    }
+                    in.close();
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return line != null;
+            }
+
+            @Override
+            public Job next() {
+                if (line == null) {
+                    throw new java.util.NoSuchElementException();
+                }
+                String[] parts = line.split("\\s+");
+                line = advance();
+                return new Job(Long.parseLong(parts[0]),
+                        parts.length > 1 ? Double.parseDouble(parts[1]) : density);
+            }
+        };
+    }
+
+    /**
+     * Runs a batch from the command line.
+     * Usage: java BatchRunner [--size rows cols] [--max generations]
+     *   [--threads n] [--in-flight n] [--density p] [--rule B3/S23]
+     *   [--jsonl] [--out file] (--seeds first last | --seed-file file)
+     * @param args options as above
+     * @throws Exception if the batch fails
+     */
+    public static void main(String[] args) throws Exception {
+        int rows = 64;
+        int cols = 64;
+        int max = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int inFlight = 0;
+        double density = 0.3;
+        String rule = "B3/S23";
+        boolean jsonl = false;
+        String out = null;
+        String seedFile = null;
+        long first = 0;
+        long last = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size":
+                    rows = Integer.parseInt(args[++i]);
+                    cols = Integer.parseInt(args[++i]);
+                    break;
+                case "--max":
+                    max = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--in-flight":
+                    inFlight = Integer.parseInt(args[++i]);
+                    break;
+                case "--density":
+                    density = Double.parseDouble(args[++i]);
+                    break;
+                case "--rule":
+                    rule = args[++i];
+                    break;
+                case "--jsonl":
+                    jsonl = true;
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--seeds":
+                    first = Long.parseLong(args[++i]);
+                    last = Long.parseLong(args[++i]);
+                    break;
+                case "--seed-file":
+                    seedFile = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        Iterator<Job> jobs = seedFile != null
+                ? lines(new BufferedReader(new FileReader(seedFile)), density)
+                : range(first, last, density);
+
+        BatchRunner runner = new BatchRunner(rows, cols, max, threads);
+        runner.setRule(LifeRule.parse(rule));
+        if (inFlight > 0) {
+            runner.setMaxInFlight(inFlight);
+        }
+        try (Writer w = new BufferedWriter(out == null
+                ? new OutputStreamWriter(System.out) : new FileWriter(out))) {
+            long start = System.nanoTime();
+            long count = runner.run(jobs, jsonl ? jsonLines(w) : csv(w));
+            System.err.printf("%d simulations in %.2f s%n", count,
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
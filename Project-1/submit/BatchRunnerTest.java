@@ -0,0 +1,176 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for the batch runner.
+ */
+public class BatchRunnerTest {
+
+    /**
+     * The same seed always gives the same grid.
+     */
+    @Test
+    public void testSeededInitialize() {
+        Project1 a = new Project1(20, 30);
+        Project1 b = new Project1(20, 30);
+        a.randomInitialize(0.4, 12345L);
+        b.randomInitialize(0.4, 12345L);
+        assertEquals(a.getHash(), b.getHash());
+        b.randomInitialize(0.4, 12346L);
+        assertNotEquals(a.getHash(), b.getHash());
+    }
+
+    /**
+     * Every seed is reported once and matches running it alone.
+     */
+    @Test
+    public void testMatchesSequential() throws Exception {
+        BatchRunner runner = new BatchRunner(24, 24, 300, 4);
+        Map<Long, BatchRunner.Result> results = new HashMap<>();
+        long count = runner.run(BatchRunner.range(1, 120, 0.35), r -> {
+            assertNull("seed " + r.seed + " reported twice", results.put(r.seed, r));
+        });
+        assertEquals(120, count);
+        assertEquals(120, results.size());
+
+        for (long seed = 1; seed <= 120; seed += 7) {
+            Project1 game = new Project1(24, 24);
+            game.randomInitialize(0.35, seed);
+            while (game.getCyclePeriod() == 0 && game.getGeneration() < 300) {
+                game.nextGeneration();
+            }
+            BatchRunner.Result r = results.get(seed);
+            assertEquals(game.getCyclePeriod(), r.period);
+            if (r.period != 0) {
+                assertEquals(game.getCycleStart(), r.generations);
+            }
+            long population = 0;
+            for (int i = 0; i < 24; i++) {
+                for (int j = 0; j < 24; j++) {
+                    population += game.isAlive(i, j) ? 1 : 0;
+                }
+            }
+            assertEquals(population, r.population);
+        }
+    }
+
+    /**
+     * No more jobs are taken than the in-flight limit allows.
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        BatchRunner runner = new BatchRunner(16, 16, 50, 3);
+        runner.setMaxInFlight(2);
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        int[] most = new int[1];
+        Iterator<BatchRunner.Job> seeds = BatchRunner.range(0, 59, 0.3);
+        Iterator<BatchRunner.Job> counted = new Iterator<BatchRunner.Job>() {
+            @Override
+            public boolean hasNext() {
+                return seeds.hasNext();
+            }
+
+            @Override
+            public BatchRunner.Job next() {
+                int inFlight = taken.incrementAndGet() - done.get();
+                synchronized (most) {
+                    most[0] = Math.max(most[0], inFlight);
+                }
+                return seeds.next();
+            }
+        };
+        runner.run(counted, r -> {
+            done.incrementAndGet();
+        });
+        assertEquals(60, done.get());
+        assertTrue("in flight " + most[0], most[0] <= 2);
+    }
+
+    /**
+     * Results stream as CSV and JSON Lines.
+     */
+    @Test
+    public void testFormats() throws Exception {
+        BatchRunner runner = new BatchRunner(8, 8, 100, 1);
+        StringWriter csv = new StringWriter();
+        runner.run(BatchRunner.range(5, 6, 0.5), BatchRunner.csv(csv));
+        String[] lines = csv.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("seed,density,population,generations,period", lines[0]);
+        assertTrue(lines[1], lines[1].matches("[56],0\\.5,\\d+,\\d+,\\d+"));
+
+        StringWriter json = new StringWriter();
+        runner.run(BatchRunner.lines(new BufferedReader(new StringReader(
+            "# seeds\n7 0.25\n\n8\n")), 0.5), BatchRunner.jsonLines(json));
+        String text = json.toString();
+        assertTrue(text, text.contains("\"seed\": 7, \"density\": 0.25,"));
+        assertTrue(text, text.contains("\"seed\": 8, \"density\": 0.5,"));
+    }
+
+    /**
+     * A failing sink stops the batch and its error is thrown.
+     */
+    @Test
+    public void testSinkFailure() throws Exception {
+        BatchRunner runner = new BatchRunner(8, 8, 20, 2);
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            runner.run(BatchRunner.range(0, 100000, 0.3), r -> {
+                if (calls.incrementAndGet() == 3) {
+                    throw new IOException("disk full");
+                }
+            });
+            fail("the sink error should be thrown");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        assertTrue(calls.get() < 100);
+    }
+
+    /**
+     * A malformed job line stops the batch, but only once the jobs
+     * already running have finished, so the sink is never called after
+     * the error is thrown.
+     */
+    @Test(timeout = 20000)
+    public void testJobFailure() throws Exception {
+        BatchRunner runner = new BatchRunner(16, 16, 200, 2);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger late = new AtomicInteger();
+        boolean[] returned = new boolean[1];
+        try {
+            runner.run(BatchRunner.lines(new BufferedReader(new StringReader(
+                "1\n2\n3\n4\nnot-a-seed\n5\n")), 0.4), r -> {
+                    calls.incrementAndGet();
+                    try {
+                        Thread.sleep(50);  // a slow disk
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    synchronized (returned) {
+                        if (returned[0]) {
+                            late.incrementAndGet();
+                        }
+                    }
+                });
+            fail("the bad seed should be thrown");
+        } catch (NumberFormatException e) {
+            synchronized (returned) {
+                returned[0] = true;
+            }
+        }
+        int seen = calls.get();
+        Thread.sleep(300);
+        assertEquals(seen, calls.get());
+        assertEquals(0, late.get());
+        assertTrue(seen <= 4);
+
+        // a later batch on the same runner still has all its capacity
+        assertEquals(3, runner.run(BatchRunner.range(1, 3, 0.4), r -> { }));
+    }
+}
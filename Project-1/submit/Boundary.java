@@ -0,0 +1,14 @@
+/**
+ * What a Project1 grid has beyond its edges.
+ */
+public enum Boundary {
+    /** Cells outside the grid are always dead. */
+    DEAD,
+    /** Opposite edges are joined, making the grid a torus. */
+    TORUS,
+    /**
+     * Left and right edges are joined; top and bottom are joined with
+     * left and right swapped, making the grid a Klein bottle.
+     */
+    KLEIN
+}
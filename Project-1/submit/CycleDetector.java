@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * Detects when a simulation returns to an earlier state, given one hash of
+ * the whole grid per generation. The hashes of the last few generations
+ * are kept in a ring, indexed by an open-addressing table, so each
+ * generation costs O(1) however long the run is.
+ *
+ * A repeated hash is taken as a repeated grid. With 64-bit Zobrist
+ * hashes a false match is vanishingly unlikely, but not impossible.
+ * Cycles longer than the history are not seen.
+ */
+public class CycleDetector {
+
+    /** Generations remembered by default. */
+    public static final int DEFAULT_HISTORY = 256;
+
+    private final long[] ring;      // hash recorded at position recorded % length
+    private final long[] ringGen;   // generation recorded at the same position
+    private final long[] slotHash;  // index from hash to generation
+    private final long[] slotGen;   // -1 marks an empty slot
+    private final int mask;
+    private long recorded;
+    private int period;
+    private long start;
+
+    /**
+     * Creates a detector remembering DEFAULT_HISTORY generations.
+     */
+    public CycleDetector() {
+        this(DEFAULT_HISTORY);
+    }
+
+    /**
+     * Creates a detector.
+     * @param history generations remembered, the longest period found
+     */
+    public CycleDetector(int history) {
+        if (history < 1) {
+            throw new IllegalArgumentException("history must be positive: " + history);
+        }
+        ring = new long[history];
+        ringGen = new long[history];
+        // at most history entries, so the table stays under half full
+        int slots = Integer.highestOneBit(history) << 2;
+        slotHash = new long[slots];
+        slotGen = new long[slots];
+        mask = slots - 1;
+        reset();
+    }
+
+    /**
+     * Forgets every generation, for a new pattern.
+     */
+    public void reset() {
+        Arrays.fill(slotGen, -1);
+        recorded = 0;
+        period = 0;
+        start = 0;
+    }
+
+    /**
+     * Records the hash of the next generation. Once a cycle is found the
+     * answer is kept, since a deterministic rule repeats it forever.
+     * @param hash hash of the grid
+     * @param generation generation number, increasing by one per call
+     * @return period of the cycle, or 0 if none found yet
+     */
+    public int record(long hash, long generation) {
+        if (period != 0) {
+            return period;
+        }
+        int i = slot(hash);
+        while (slotGen[i] >= 0) {
+            if (slotHash[i] == hash) {
+                period = (int) (generation - slotGen[i]);
+                start = slotGen[i];
+                return period;
+            }
+            i = (i + 1) & mask;
+        }
+        int pos = (int) (recorded % ring.length);
+        if (recorded >= ring.length) {
+            remove(ring[pos], ringGen[pos]);
+            i = slot(hash);
+            while (slotGen[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+        }
+        slotHash[i] = hash;
+        slotGen[i] = generation;
+        ring[pos] = hash;
+        ringGen[pos] = generation;
+        recorded++;
+        return 0;
+    }
+
+    /**
+     * Gets the period of the cycle found.
+     * @return period, 1 for a still life, or 0 if no cycle was found
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Gets the first generation of the cycle found.
+     * @return generation the cycle was entered, or 0 if none was found
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Removes an expired generation, shifting later entries of its probe
+     * run back so lookups never stop early at the hole.
+     * @param hash hash of the expired generation
+     * @param generation expired generation
+     */
+    private void remove(long hash, long generation) {
+        int i = slot(hash);
+        while (slotGen[i] != generation) {
+            if (slotGen[i] < 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slotGen[j] < 0) {
+                break;
+            }
+            int home = slot(slotHash[j]);
+            // the entry may fill the hole unless its home is after the hole
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                slotHash[i] = slotHash[j];
+                slotGen[i] = slotGen[j];
+                i = j;
+            }
+        }
+        slotGen[i] = -1;
+    }
+
+    /**
+     * Picks the home slot of a hash.
+     * @param hash grid hash, already well mixed
+     * @return slot index
+     */
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the hash history used to find cycles.
+ */
+public class CycleDetectorTest {
+
+    /**
+     * A repeated hash reports the distance back to its first occurrence.
+     */
+    @Test
+    public void testFindsPeriod() {
+        CycleDetector d = new CycleDetector();
+        long[] hashes = {11, 22, 33, 44, 55, 33};
+        for (int g = 0; g < 5; g++) {
+            assertEquals(0, d.record(hashes[g], g));
+        }
+        assertEquals(3, d.record(hashes[5], 5));
+        assertEquals(3, d.getPeriod());
+        assertEquals(2, d.getStart());
+        // the answer is kept
+        assertEquals(3, d.record(99, 6));
+        d.reset();
+        assertEquals(0, d.getPeriod());
+        assertEquals(0, d.record(33, 0));
+    }
+
+    /**
+     * Generations older than the history are forgotten.
+     */
+    @Test
+    public void testHistoryIsBounded() {
+        CycleDetector d = new CycleDetector(4);
+        for (int g = 0; g < 10; g++) {
+            assertEquals(0, d.record(1000 + g, g));
+        }
+        assertEquals(0, d.record(1005, 10));   // period 5 is past the history
+        assertEquals(4, d.record(1007, 11));
+        assertEquals(7, d.getStart());
+    }
+
+    /**
+     * Expiring entries whose hashes share slots keeps the others findable.
+     */
+    @Test
+    public void testCollidingHashes() {
+        int history = 8;
+        CycleDetector d = new CycleDetector(history);
+        // every hash below lands in slot 0 of the 32-slot table
+        long step = 1L << 40 | 1L << 8;
+        long g = 0;
+        for (int round = 0; round < 50; round++) {
+            assertEquals(0, d.record(step * (round + 1), g++));
+        }
+        // the last eight are still there, older ones are gone
+        assertEquals(0, d.record(step * 40, g));
+        CycleDetector e = new CycleDetector(history);
+        g = 0;
+        for (int round = 0; round < 50; round++) {
+            e.record(step * (round + 1), g++);
+        }
+        assertEquals(3, e.record(step * 48, g));
+    }
+}
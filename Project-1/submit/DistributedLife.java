@@ -0,0 +1,572 @@
+import itsc2214.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Runs a Game of Life grid split into blocks, each owned by a LifeWorker
+ * in its own thread, process or machine, for grids too large for one JVM.
+ * This class is the coordinator: it hands out the blocks, tells the
+ * workers how many generations to compute and answers queries by asking
+ * the worker that owns a cell. Between generations the workers trade the
+ * edges of their blocks directly, so each generation sends only the cells
+ * on block edges over the transport.
+ *
+ * Patterns are streamed to the workers one band of blocks at a time, so
+ * the coordinator never holds the whole grid. Generations match Project1
+ * with the same rule and a DEAD or TORUS boundary.
+ */
+public class DistributedLife implements GameOfLife, AutoCloseable {
+
+    private final HaloTransport transport;
+    private final String[] workers;
+    private int rows;
+    private int cols;
+    private int layoutRows;
+    private int layoutCols;
+    private int[] rowStarts = {0};
+    private int[] colStarts = {0};
+    private LifeRule rule = LifeRule.CONWAY;
+    private Boundary boundary = Boundary.DEAD;
+    private boolean stepped;  // a generation has been computed since loading
+    private boolean changed;  // the last generation flipped at least one cell
+    private long population;
+    private long generation;
+
+    /**
+     * Connects to running workers and gives them an all-dead grid.
+     * @param transport the coordinator's end of the transport
+     * @param workers addresses of the workers
+     * @param rows number of rows
+     * @param cols number of columns
+     * @throws IOException if a worker cannot be reached
+     */
+    public DistributedLife(HaloTransport transport, List<String> workers, int rows, int cols)
+            throws IOException {
+        this.transport = transport;
+        this.workers = workers.toArray(new String[0]);
+        transport.setId(HaloTransport.COORDINATOR);
+        for (int i = 0; i < this.workers.length; i++) {
+            transport.connect(i, this.workers[i]);
+        }
+        allocate(rows, cols);
+    }
+
+    /**
+     * Picks how to split a grid into one block per worker, keeping the
+     * cells on block edges, which are sent every generation, fewest.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param workers number of workers
+     * @return blocks down and across
+     * @throws IllegalArgumentException if the grid has too few cells
+     */
+    static int[] layout(int rows, int cols, int workers) {
+        int[] best = null;
+        long bestEdges = Long.MAX_VALUE;
+        for (int down = 1; down <= workers; down++) {
+            int across = workers / down;
+            if (down * across != workers || down > rows || across > cols) {
+                continue;
+            }
+            long edges = (long) down * cols + (long) across * rows;
+            if (edges < bestEdges) {
+                bestEdges = edges;
+                best = new int[] {down, across};
+            }
+        }
+        if (best == null) {
+            throw new IllegalArgumentException("cannot split a " + rows + "x" + cols
+                    + " grid into " + workers + " blocks");
+        }
+        return best;
+    }
+
+    /**
+     * Lays out a new all-dead grid over the workers.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    private void allocate(int rows, int cols) {
+        int[] layout = layout(rows, cols, workers.length);
+        this.rows = rows;
+        this.cols = cols;
+        layoutRows = layout[0];
+        layoutCols = layout[1];
+        rowStarts = new int[layoutRows + 1];
+        colStarts = new int[layoutCols + 1];
+        for (int i = 0; i <= layoutRows; i++) {
+            rowStarts[i] = LifeWorker.split(rows, layoutRows, i);
+        }
+        for (int i = 0; i <= layoutCols; i++) {
+            colStarts[i] = LifeWorker.split(cols, layoutCols, i);
+        }
+
+        byte[][] addresses = new byte[workers.length][];
+        int length = 1 + 4 * 6 + 1;
+        for (int i = 0; i < workers.length; i++) {
+            addresses[i] = workers[i].getBytes(StandardCharsets.UTF_8);
+            length += 4 + addresses[i].length;
+        }
+        for (int i = 0; i < workers.length; i++) {
+            ByteBuffer config = ByteBuffer.allocate(length).put(LifeWorker.CONFIG)
+                    .putInt(i).putInt(rows).putInt(cols).putInt(layoutRows).putInt(layoutCols)
+                    .putInt(rule.bits()).put((byte) boundary.ordinal());
+            for (byte[] a : addresses) {
+                config.putInt(a.length).put(a);
+            }
+            send(i, config);
+        }
+        awaitAll(LifeWorker.READY);
+        population = 0;
+        restart();
+    }
+
+    /**
+     * Starts counting generations from a newly loaded grid.
+     */
+    private void restart() {
+        stepped = false;
+        changed = false;
+        generation = 0;
+    }
+
+    /**
+     * Sends a pattern to the workers as it is read, one band of blocks at
+     * a time. Cells must arrive row by row.
+     */
+    private final class Scatter implements PatternSink {
+        private int band = -1;
+        private byte[][] blocks = new byte[0][];
+        private long live;
+        private boolean sized;  // the workers were sent the new layout
+
+        @Override
+        public void resize(int rows, int cols) {
+            allocate(rows, cols);
+            sized = true;
+        }
+
+        @Override
+        public void setAlive(int r, int c) {
+            int target = owner(rowStarts, r);
+            if (target != band) {
+                moveTo(target);
+            }
+            int bc = owner(colStarts, c);
+            int width = colStarts[bc + 1] - colStarts[bc];
+            int bit = (r - rowStarts[band]) * width + c - colStarts[bc];
+            byte[] block = blocks[bc];
+            int at = 1 + (bit >>> 3);
+            if ((block[at] & 1 << (bit & 7)) == 0) {
+                block[at] |= 1 << (bit & 7);
+                live++;
+            }
+        }
+
+        /**
+         * Sends every band before the given one, including empty ones.
+         * @param target band to fill next, or layoutRows at the end
+         */
+        private void moveTo(int target) {
+            if (target < band) {
+                throw new IllegalStateException("cells must arrive row by row");
+            }
+            while (band < target) {
+                if (band >= 0) {
+                    for (int bc = 0; bc < layoutCols; bc++) {
+                        send(band * layoutCols + bc, ByteBuffer.wrap(blocks[bc]));
+                    }
+                }
+                band++;
+                if (band < layoutRows) {
+                    int height = rowStarts[band + 1] - rowStarts[band];
+                    blocks = new byte[layoutCols][];
+                    for (int bc = 0; bc < layoutCols; bc++) {
+                        int width = colStarts[bc + 1] - colStarts[bc];
+                        blocks[bc] = new byte[1 + (int) (((long) height * width + 7) / 8)];
+                        blocks[bc][0] = LifeWorker.LOAD;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether the workers were given the new grid's layout, so
+         * the old grid is already gone from them.
+         * @return true once resize has run
+         */
+        boolean isSized() {
+            return sized;
+        }
+
+        /**
+         * Sends the remaining bands and waits until every worker has its
+         * block, so that every worker has answered before the next
+         * command.
+         */
+        void finish() {
+            moveTo(layoutRows);
+            awaitAll(LifeWorker.READY);
+            population = live;
+            restart();
+        }
+    }
+
+    /**
+     * Randomly initialize live cells based on probability.
+     * @param aliveProbability chance for each cell to be alive
+     */
+    @Override
+    public void randomInitialize(double aliveProbability) {
+        randomInitialize(aliveProbability, new Random());
+    }
+
+    /**
+     * Randomly initialize live cells from a seed, giving the same grid as
+     * Project1 with the same seed.
+     * @param aliveProbability chance for each cell to be alive
+     * @param seed seed for the random numbers
+     */
+    public void randomInitialize(double aliveProbability, long seed) {
+        randomInitialize(aliveProbability, new Random(seed));
+    }
+
+    /**
+     * Randomly initialize live cells based on probability.
+     * @param aliveProbability chance for each cell to be alive
+     * @param rand source of random numbers
+     */
+    private void randomInitialize(double aliveProbability, Random rand) {
+        Scatter scatter = new Scatter();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (rand.nextDouble() < aliveProbability) {
+                    scatter.setAlive(i, j);
+                }
+            }
+        }
+        scatter.finish();
+    }
+
+    /**
+     * Sets the grid configuration from string values.
+     * @param data string representation of the grid
+     */
+    @Override
+    public void loadFromString(String data) {
+        Scanner scan = new Scanner(data);
+        int rows = scan.nextInt();
+        int cols = scan.nextInt();
+        scan.nextLine();
+
+        // check everything before the workers are touched, so a bad
+        // pattern leaves the running grid as it was
+        layout(rows, cols, workers.length);
+        String[] lines = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            lines[i] = scan.nextLine().trim();
+            if (lines[i].length() < cols) {
+                throw new IllegalArgumentException("row " + i + " is shorter than "
+                        + cols + " cells");
+            }
+        }
+
+        Scatter scatter = new Scatter();
+        scatter.resize(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (lines[i].charAt(j) == 'O') {
+                    scatter.setAlive(i, j);
+                }
+            }
+        }
+        scatter.finish();
+    }
+
+    /**
+     * Streams a pattern file to the workers without reading it whole.
+     * The file is parsed once to check it before any of it is sent, so a
+     * missing or malformed file leaves the running grid as it was.
+     * @param filename input file path
+     * @throws FileNotFoundException if file not found
+     * @throws IllegalArgumentException if a row is short or missing
+     */
+    @Override
+    public void loadFromFile(String filename) throws FileNotFoundException {
+        try {
+            MappedPatternLoader.load(filename, new PatternSink() {
+                @Override
+                public void resize(int rows, int cols) {
+                    layout(rows, cols, workers.length);
+                }
+
+                @Override
+                public void setAlive(int r, int c) {
+                }
+            });
+            Scatter scatter = new Scatter();
+            try {
+                MappedPatternLoader.load(filename, scatter);
+            } catch (IOException | RuntimeException e) {
+                // the file changed since it was checked; the workers hold
+                // part of it and must still answer before the next command
+                if (scatter.isSized()) {
+                    scatter.finish();
+                }
+                throw e;
+            }
+            scatter.finish();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Computes the next generation on every worker.
+     */
+    @Override
+    public void nextGeneration() {
+        step(1);
+    }
+
+    /**
+     * Computes several generations. The workers go through them without
+     * waiting for the coordinator in between.
+     * @param generations number of generations, at least 1
+     */
+    public void step(int generations) {
+        if (generations < 1) {
+            throw new IllegalArgumentException("generations must be positive: " + generations);
+        }
+        for (int i = 0; i < workers.length; i++) {
+            send(i, ByteBuffer.allocate(5).put(LifeWorker.STEP).putInt(generations));
+        }
+        boolean any = false;
+        long live = 0;
+        for (int i = 0; i < workers.length; i++) {
+            ByteBuffer reply = await(i, LifeWorker.STEPPED);
+            any |= reply.get() != 0;
+            live += reply.getLong();
+        }
+        changed = any;
+        population = live;
+        stepped = true;
+        generation += generations;
+    }
+
+    /**
+     * Counts the live neighbors of a cell, across the edges on a torus.
+     * @param r row index
+     * @param c column index
+     * @return number of live neighbors
+     */
+    @Override
+    public int countLiveNeighbors(int r, int c) {
+        boolean inside = r >= 0 && r < rows && c >= 0 && c < cols;
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) {
+                    continue;
+                }
+                int nr = r + dr;
+                int nc = c + dc;
+                if (inside && boundary == Boundary.TORUS) {
+                    nr = (nr + rows) % rows;
+                    nc = (nc + cols) % cols;
+                }
+                if (isAlive(nr, nc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a cell is alive by asking the worker that owns it.
+     * @param r row index
+     * @param c column index
+     * @return true if the cell is alive, false if dead or outside the grid
+     */
+    @Override
+    public boolean isAlive(int r, int c) {
+        if (r < 0 || r >= rows || c < 0 || c >= cols) {
+            return false;
+        }
+        int owner = owner(rowStarts, r) * layoutCols + owner(colStarts, c);
+        send(owner, ByteBuffer.allocate(9).put(LifeWorker.CELL).putInt(r).putInt(c));
+        return await(owner, LifeWorker.ALIVE).get() != 0;
+    }
+
+    /**
+     * Checks whether the last generation changed no cell on any worker.
+     * @return true if the grid is a still life
+     */
+    @Override
+    public boolean isStillLife() {
+        return stepped && !changed;
+    }
+
+    /**
+     * Sets the rule used from the next generation on.
+     * @param rule Life-like rule
+     */
+    public void setRule(LifeRule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("rule is null");
+        }
+        this.rule = rule;
+        for (int i = 0; i < workers.length; i++) {
+            send(i, ByteBuffer.allocate(5).put(LifeWorker.RULE).putInt(rule.bits()));
+        }
+        awaitAll(LifeWorker.READY);
+    }
+
+    /**
+     * Gets the rule used to compute generations.
+     * @return current rule
+     */
+    public LifeRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Sets what lies beyond the edges of the grid.
+     * @param boundary DEAD or TORUS
+     * @throws IllegalArgumentException for KLEIN, which is not supported
+     */
+    public void setBoundary(Boundary boundary) {
+        if (boundary == null || boundary == Boundary.KLEIN) {
+            throw new IllegalArgumentException("unsupported boundary " + boundary);
+        }
+        this.boundary = boundary;
+        for (int i = 0; i < workers.length; i++) {
+            send(i, ByteBuffer.allocate(2).put(LifeWorker.BOUNDARY)
+                    .put((byte) boundary.ordinal()));
+        }
+        awaitAll(LifeWorker.READY);
+    }
+
+    /**
+     * Gets what lies beyond the edges of the grid.
+     * @return current boundary
+     */
+    public Boundary getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Gets the number of live cells, as reported by the workers after
+     * the last load or generation.
+     * @return live cells
+     */
+    public long getPopulation() {
+        return population;
+    }
+
+    /**
+     * Gets the number of generations computed since the grid was loaded.
+     * @return generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int numRows() {
+        return rows;
+    }
+
+    @Override
+    public int numCols() {
+        return cols;
+    }
+
+    /**
+     * Shuts the workers down and closes the transport.
+     * @throws IOException if the transport fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int i = 0; i < workers.length; i++) {
+                send(i, ByteBuffer.allocate(1).put(LifeWorker.SHUTDOWN));
+            }
+            awaitAll(LifeWorker.READY);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Finds the part of a split that holds a position.
+     * @param starts first position of each part, then the end
+     * @param position position to look up
+     * @return part index
+     */
+    private static int owner(int[] starts, int position) {
+        int i = Arrays.binarySearch(starts, position);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Sends a command to a worker.
+     * @param worker worker id
+     * @param message command, filled up to its capacity
+     */
+    private void send(int worker, ByteBuffer message) {
+        try {
+            transport.send(worker, message.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for a worker's reply.
+     * @param worker worker id
+     * @param expected reply code
+     * @return the rest of the reply
+     * @throws IllegalStateException if the worker failed
+     */
+    private ByteBuffer await(int worker, byte expected) {
+        ByteBuffer reply;
+        try {
+            reply = ByteBuffer.wrap(transport.receive(worker));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte code = reply.get();
+        if (code == LifeWorker.FAILED) {
+            byte[] text = new byte[reply.remaining()];
+            reply.get(text);
+            throw new IllegalStateException("worker " + worker + " failed: "
+                    + new String(text, StandardCharsets.UTF_8));
+        }
+        if (code != expected) {
+            throw new IllegalStateException("worker " + worker + " sent reply " + code
+                    + " instead of " + expected);
+        }
+        return reply;
+    }
+
+    /**
+     * Waits for the same reply from every worker.
+     * @param expected reply code
+     */
+    private void awaitAll(byte expected) {
+        for (int i = 0; i < workers.length; i++) {
+            await(i, expected);
+        }
+    }
+}
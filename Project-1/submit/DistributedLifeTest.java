@@ -0,0 +1,328 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for running a grid split over workers.
+ */
+public class DistributedLifeTest {
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final List<Throwable> failures = new ArrayList<>();
+
+    /**
+     * Checks the worker threads ended cleanly.
+     * @throws InterruptedException if interrupted while joining
+     */
+    @After
+    public void joinWorkers() throws InterruptedException {
+        for (Thread t : threads) {
+            t.join(10_000);
+            assertFalse(t.isAlive());
+        }
+        synchronized (failures) {
+            assertEquals("worker failures", new ArrayList<>(), failures);
+        }
+    }
+
+    /**
+     * Workers on threads over queues match Project1 under two rules and
+     * both supported boundaries, generation by generation and several at
+     * a time.
+     * @throws IOException if the transport fails
+     */
+    @Test
+    public void testMatchesProject1() throws IOException {
+        for (LifeRule rule : new LifeRule[] {LifeRule.CONWAY, LifeRule.HIGHLIFE}) {
+            for (Boundary b : new Boundary[] {Boundary.DEAD, Boundary.TORUS}) {
+                List<String> workers = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    workers.add(startWorker(new MemoryTransport()));
+                }
+                try (DistributedLife game =
+                        new DistributedLife(new MemoryTransport(), workers, 37, 53)) {
+                    Project1 expected = new Project1(37, 53);
+                    game.setRule(rule);
+                    expected.setRule(rule);
+                    game.setBoundary(b);
+                    expected.setBoundary(b);
+                    game.randomInitialize(0.35, 5);
+                    expected.randomInitialize(0.35, 5);
+                    String at = rule + " " + b;
+                    assertSame(expected, game, at + " start");
+                    for (int g = 1; g <= 3; g++) {
+                        game.nextGeneration();
+                        expected.nextGeneration();
+                        assertSame(expected, game, at + " generation " + g);
+                    }
+                    for (int k = 0; k < 4; k++) {
+                        game.step(15);
+                        for (int g = 0; g < 15; g++) {
+                            expected.nextGeneration();
+                        }
+                        assertSame(expected, game, at + " generation " + game.getGeneration());
+                    }
+                    assertEquals(63, game.getGeneration());
+                }
+            }
+        }
+    }
+
+    /**
+     * Workers on threads over loopback sockets run a glider across the
+     * edges of a torus, and a block settles into a still life.
+     * @throws IOException if the transport fails
+     */
+    @Test
+    public void testSocketWorkers() throws IOException {
+        List<String> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            workers.add(startWorker(new SocketTransport(0)));
+        }
+        try (DistributedLife game = new DistributedLife(new SocketTransport(0), workers, 20, 20)) {
+            Project1 expected = new Project1(20, 20);
+            game.setBoundary(Boundary.TORUS);
+            expected.setBoundary(Boundary.TORUS);
+            StringBuilder glider = new StringBuilder("20 20\n");
+            for (int r = 0; r < 20; r++) {
+                String row = r == 0 ? ".O" : r == 1 ? "..O" : r == 2 ? "OOO" : "";
+                glider.append(row).append(".".repeat(20 - row.length())).append('\n');
+            }
+            game.loadFromString(glider.toString());
+            expected.loadFromString(glider.toString());
+            for (int g = 1; g <= 80; g++) {
+                game.nextGeneration();
+                expected.nextGeneration();
+                if (g % 10 == 0) {
+                    assertSame(expected, game, "generation " + g);
+                }
+            }
+            // the glider is back where it started
+            assertTrue(game.isAlive(0, 1));
+            assertEquals(5, game.getPopulation());
+            assertFalse(game.isStillLife());
+            assertEquals(expected.countLiveNeighbors(19, 19), game.countLiveNeighbors(19, 19));
+
+            game.setBoundary(Boundary.DEAD);
+            game.loadFromString("4 4\n....\n.OO.\n.OO.\n....\n");
+            assertFalse(game.isStillLife());
+            game.nextGeneration();
+            assertTrue(game.isStillLife());
+            assertEquals(4, game.getPopulation());
+        }
+    }
+
+    /**
+     * Separate worker processes on this machine, loaded from a file,
+     * give the same generations as Project1 and exit when closed.
+     * @throws Exception if a process or the transport fails
+     */
+    @Test
+    public void testWorkerProcesses() throws Exception {
+        File pattern = File.createTempFile("soup", ".txt");
+        pattern.deleteOnExit();
+        Project1 expected = new Project1(30, 41);
+        expected.randomInitialize(0.3, 9);
+        try (PrintWriter out = new PrintWriter(pattern, "UTF-8")) {
+            out.println("30 41");
+            for (int r = 0; r < 30; r++) {
+                for (int c = 0; c < 41; c++) {
+                    out.print(expected.isAlive(r, c) ? 'O' : '.');
+                }
+                out.println();
+            }
+        }
+
+        String java = System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        List<String> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Process p = new ProcessBuilder(java, "-cp",
+                        System.getProperty("java.class.path"), "LifeWorker")
+                        .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                processes.add(p);
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+                String line = in.readLine();
+                assertNotNull("worker did not start", line);
+                workers.add(line.substring(line.lastIndexOf(' ') + 1));
+            }
+            try (DistributedLife game =
+                    new DistributedLife(new SocketTransport(0), workers, 3, 3)) {
+                game.loadFromFile(pattern.getPath());
+                assertSame(expected, game, "loaded");
+                game.step(25);
+                for (int g = 0; g < 25; g++) {
+                    expected.nextGeneration();
+                }
+                assertSame(expected, game, "generation 25");
+            }
+            for (Process p : processes) {
+                assertTrue(p.waitFor(10, TimeUnit.SECONDS));
+                assertEquals(0, p.exitValue());
+            }
+        } finally {
+            for (Process p : processes) {
+                p.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * The layout keeps block edges short and rejects grids with fewer
+     * rows or columns than blocks.
+     * @throws IOException if the transport fails
+     */
+    @Test
+    public void testLayout() throws IOException {
+        assertArrayEquals(new int[] {2, 2}, DistributedLife.layout(100, 100, 4));
+        assertArrayEquals(new int[] {1, 4}, DistributedLife.layout(10, 1000, 4));
+        assertArrayEquals(new int[] {3, 1}, DistributedLife.layout(50, 2, 3));
+        try {
+            DistributedLife.layout(2, 2, 3);
+            fail("3 blocks do not fit in a 2x2 grid");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("2x2"));
+        }
+
+        List<String> workers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            workers.add(startWorker(new MemoryTransport()));
+        }
+        try (DistributedLife game = new DistributedLife(new MemoryTransport(), workers, 4, 4)) {
+            try {
+                game.setBoundary(Boundary.KLEIN);
+                fail("KLEIN is not supported");
+            } catch (IllegalArgumentException e) {
+                assertEquals(Boundary.DEAD, game.getBoundary());
+            }
+            try {
+                game.loadFromString("1 1\nO\n");
+                fail("1x1 cannot be split in two");
+            } catch (IllegalArgumentException e) {
+                assertEquals(4, game.numRows());
+            }
+            // the workers still answer
+            game.loadFromString("4 4\nOOOO\n....\n....\n....\n");
+            assertTrue(game.isAlive(0, 3));
+            assertFalse(game.isAlive(4, 0));
+            assertEquals(4, game.getPopulation());
+        }
+    }
+
+    /**
+     * A missing file, a malformed file or string, or a grid too small to
+     * split fails to load and leaves the running grid on the workers as it
+     * was, generation included, and the workers keep answering.
+     * @throws IOException if the transport fails
+     */
+    @Test
+    public void testFailedLoadKeepsGrid() throws IOException {
+        File bad = File.createTempFile("short", ".txt");
+        bad.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(bad, "UTF-8")) {
+            out.println("3 4");
+            out.println("OOOO");
+            out.println("OO");
+        }
+
+        List<String> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            workers.add(startWorker(new MemoryTransport()));
+        }
+        try (DistributedLife game = new DistributedLife(new MemoryTransport(), workers, 20, 24)) {
+            Project1 expected = new Project1(20, 24);
+            game.randomInitialize(0.4, 3);
+            expected.randomInitialize(0.4, 3);
+            game.step(3);
+            for (int g = 0; g < 3; g++) {
+                expected.nextGeneration();
+            }
+
+            try {
+                game.loadFromFile(new File(bad.getParentFile(), "missing-" + bad.getName())
+                        .getPath());
+                fail("the file does not exist");
+            } catch (FileNotFoundException e) {
+                assertSame(expected, game, "after a missing file");
+            }
+            try {
+                game.loadFromFile(bad.getPath());
+                fail("the file is short a row");
+            } catch (IllegalArgumentException e) {
+                assertSame(expected, game, "after a malformed file");
+            }
+            try {
+                game.loadFromString("3 4\nOOOO\nOO\n....\n");
+                fail("a row is short");
+            } catch (IllegalArgumentException e) {
+                assertSame(expected, game, "after a malformed string");
+            }
+            try {
+                game.loadFromString("1 1\nO\n");
+                fail("1x1 cannot be split in four");
+            } catch (IllegalArgumentException e) {
+                assertSame(expected, game, "after an unsplittable grid");
+            }
+            assertEquals(3, game.getGeneration());
+
+            game.step(10);
+            for (int g = 0; g < 10; g++) {
+                expected.nextGeneration();
+            }
+            assertSame(expected, game, "generation 13");
+        }
+    }
+
+    /**
+     * Starts a worker on its own thread.
+     * @param transport worker's end of the transport
+     * @return its address
+     */
+    private String startWorker(HaloTransport transport) {
+        Thread t = new Thread(() -> {
+            try {
+                new LifeWorker(transport).run();
+            } catch (Throwable e) {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        threads.add(t);
+        return transport.address();
+    }
+
+    /**
+     * Checks every cell, the population and the still-life flag match.
+     * @param expected single-node grid
+     * @param game distributed grid
+     * @param at description for failures
+     */
+    private static void assertSame(Project1 expected, DistributedLife game, String at) {
+        assertEquals(at, expected.numRows(), game.numRows());
+        assertEquals(at, expected.numCols(), game.numCols());
+        for (int r = 0; r < expected.numRows(); r++) {
+            for (int c = 0; c < expected.numCols(); c++) {
+                assertEquals(at + " cell " + r + "," + c, expected.isAlive(r, c),
+                        game.isAlive(r, c));
+            }
+        }
+        assertEquals(at, expected.getPopulation(), game.getPopulation());
+        assertEquals(at, expected.isStillLife(), game.isStillLife());
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Carries messages between the nodes of a DistributedLife run: one
+ * coordinator and its LifeWorkers. Every node has an id, workers counting
+ * from 0 and the coordinator being COORDINATOR. Messages between two nodes
+ * arrive whole and in the order they were sent, and send returns without
+ * waiting for the receiver, so neighbors can send their halos first and
+ * receive afterwards without deadlocking.
+ */
+public interface HaloTransport extends Closeable {
+
+    /** Id of the coordinator. */
+    int COORDINATOR = -1;
+
+    /**
+     * Gets the address other nodes connect to, as passed to connect.
+     * @return address of this node
+     */
+    String address();
+
+    /**
+     * Sets the id this node gives when it connects to another.
+     * @param id node id
+     */
+    void setId(int id);
+
+    /**
+     * Links this node to another, unless already linked. Only one of two
+     * nodes connects; the other learns of the link from it.
+     * @param peer id of the other node
+     * @param address address of the other node
+     * @throws IOException if the node cannot be reached
+     */
+    void connect(int peer, String address) throws IOException;
+
+    /**
+     * Sends a message to a linked node, or to this node itself.
+     * @param peer receiver id
+     * @param message bytes to deliver, not changed afterwards
+     * @throws IOException if the link failed
+     */
+    void send(int peer, byte[] message) throws IOException;
+
+    /**
+     * Waits for the next message from a node.
+     * @param peer sender id
+     * @return message bytes
+     * @throws IOException if the link failed or the wait was interrupted
+     */
+    byte[] receive(int peer) throws IOException;
+}
@@ -0,0 +1,649 @@
+import itsc2214.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Implements Conway's Game of Life with Gosper's HashLife algorithm.
+ * The plane is a quadtree of canonical nodes: equal squares are the same
+ * object, so the future of each square is computed once and cached. That
+ * lets advance(n) jump 2^k generations at a time for regular patterns.
+ *
+ * Unlike Project1 the plane is unbounded, so patterns keep evolving past
+ * the loaded rows and columns instead of dying at the edge. isAlive,
+ * numRows and numCols describe the window that was loaded, with row r and
+ * column c at plane coordinates (r, c).
+ */
+public class HashLife implements GameOfLife {
+
+    /** Default number of step results kept before the oldest are evicted. */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 20;
+
+    /** Largest level the tree may grow to, so coordinates fit in a long. */
+    private static final int MAX_LEVEL = 62;
+
+    private static final Node DEAD = new Node(false);
+    private static final Node ALIVE = new Node(true);
+
+    private final int cacheSize;
+    private final Map<Node, Node> nodes = new HashMap<>();
+    private final Map<StepKey, Node> results;
+    private final ArrayList<Node> emptyNodes = new ArrayList<>();
+
+    private int rows;
+    private int cols;
+    private Node root;
+    private Node previousRoot;  // null until the first advance
+    private long generation;
+
+    /**
+     * Default constructor (3x3 window).
+     */
+    public HashLife() {
+        this(3, 3);
+    }
+
+    /**
+     * Constructor with custom window dimensions.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public HashLife(int rows, int cols) {
+        this(rows, cols, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor with custom window dimensions and cache bound.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param cacheSize most step results kept in the cache
+     */
+    public HashLife(int rows, int cols, int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cache size must be positive");
+        }
+        this.cacheSize = cacheSize;
+        this.results = new LinkedHashMap<StepKey, Node>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StepKey, Node> eldest) {
+                return size() > HashLife.this.cacheSize;
+            }
+        };
+        load(new boolean[rows][cols]);
+    }
+
+    /**
+     * Randomly initialize live cells of the window based on probability.
+     * @param aliveProbability chance for each cell to be alive
+     */
+    @Override
+    public void randomInitialize(double aliveProbability) {
+        Random rand = new Random();
+        boolean[][] cells = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                cells[i][j] = rand.nextDouble() < aliveProbability;
+            }
+        }
+        load(cells);
+    }
+
+    /**
+     * Sets the grid configuration from string values.
+     * @param data string representation of the grid
+     */
+    @Override
+    public void loadFromString(String data) {
+        Scanner scan = new Scanner(data);
+
+        int r = scan.nextInt();
+        int c = scan.nextInt();
+        scan.nextLine();
+
+        boolean[][] cells = new boolean[r][c];
+        for (int i = 0; i < r; i++) {
+            String line = scan.nextLine().trim();
+            for (int j = 0; j < c; j++) {
+                cells[i][j] = line.charAt(j) == 'O';
+            }
+        }
+        load(cells);
+    }
+
+    /**
+     * Loads file and reads it into String which then builds the grid.
+     * @param filename input file path
+     * @throws FileNotFoundException if file not found
+     */
+    @Override
+    public void loadFromFile(String filename) throws FileNotFoundException {
+        StringBuilder build = new StringBuilder();
+        Scanner scan = new Scanner(new File(filename));
+
+        while (scan.hasNextLine()) {
+            build.append(scan.nextLine()).append("\n");
+        }
+        scan.close();
+        loadFromString(build.toString());
+    }
+
+    /**
+     * Replaces the plane with the given cells, dropping all cached results.
+     * @param cells window contents, row by row
+     */
+    private void load(boolean[][] cells) {
+        rows = cells.length;
+        cols = rows == 0 ? 0 : cells[0].length;
+        nodes.clear();
+        results.clear();
+        emptyNodes.clear();
+
+        // the window sits in the south-east quadrant of a root centered on 0
+        int level = 3;
+        while ((1L << (level - 1)) < Math.max(rows, cols)) {
+            level++;
+        }
+        Node e = empty(level - 1);
+        root = join(e, e, e, build(cells, level - 1, 0, 0));
+        previousRoot = null;
+        generation = 0;
+    }
+
+    /**
+     * Builds the node covering a square of the window.
+     * @param cells window contents
+     * @param level level of the node to build
+     * @param r top row of the square
+     * @param c left column of the square
+     * @return canonical node for the square
+     */
+    private Node build(boolean[][] cells, int level, int r, int c) {
+        if (r >= rows || c >= cols) {
+            return empty(level);
+        }
+        if (level == 0) {
+            return cells[r][c] ? ALIVE : DEAD;
+        }
+        int half = 1 << (level - 1);
+        return join(build(cells, level - 1, r, c),
+                build(cells, level - 1, r, c + half),
+                build(cells, level - 1, r + half, c),
+                build(cells, level - 1, r + half, c + half));
+    }
+
+    /**
+     * Computes the next generation.
+     */
+    @Override
+    public void nextGeneration() {
+        advance(1);
+    }
+
+    /**
+     * Advances the pattern by any number of generations. Each set bit of
+     * the count is one jump of 2^k generations, so the cost depends on
+     * how regular the pattern is rather than on the count.
+     * @param generations number of generations to advance
+     */
+    public void advance(long generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("cannot advance backwards");
+        }
+        if (nodes.size() > 4L * cacheSize) {
+            collect();
+        }
+        previousRoot = root;
+        for (int j = 0; j < 63 && (generations >>> j) != 0; j++) {
+            if ((generations >>> j & 1) == 0) {
+                continue;
+            }
+            // grow until the pattern and everything it can reach in 2^j
+            // generations fits in the center half that successor returns
+            while (root.level < j + 3 || innerPopulation(root) != root.population) {
+                if (root.level >= MAX_LEVEL) {
+                    throw new IllegalStateException("pattern grew too large");
+                }
+                root = expand(root);
+            }
+            root = successor(root, j);
+        }
+        generation += generations;
+    }
+
+    /**
+     * Gets the number of generations computed since loading.
+     * @return generation count
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the number of live cells on the whole plane.
+     * @return live cell count
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * Checks a cell anywhere on the plane, including outside the window.
+     * @param r row coordinate
+     * @param c column coordinate
+     * @return true if alive, false if dead
+     */
+    public boolean isAliveAt(long r, long c) {
+        Node node = root;
+        long half = 1L << (node.level - 1);
+        long y = r + half;
+        long x = c + half;
+        if (y < 0 || x < 0 || y >= 2 * half || x >= 2 * half) {
+            return false;
+        }
+        while (node.level > 0) {
+            if (node.population == 0) {
+                return false;
+            }
+            half = 1L << (node.level - 1);
+            if (y < half) {
+                node = x < half ? node.nw : node.ne;
+            } else {
+                node = x < half ? node.sw : node.se;
+                y -= half;
+            }
+            if (x >= half) {
+                x -= half;
+            }
+        }
+        return node == ALIVE;
+    }
+
+    /**
+     * Counts the amount of live neighbors around a cell.
+     * @param r row index
+     * @param c column index
+     * @return number of live neighbors
+     */
+    @Override
+    public int countLiveNeighbors(int r, int c) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && isAliveAt((long) r + dr, (long) c + dc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the element in row r and column c of the window is alive.
+     * @param r row index
+     * @param c column index
+     * @return true if alive, false if dead or outside the window
+     */
+    @Override
+    public boolean isAlive(int r, int c) {
+        if (r < 0 || c < 0 || r >= rows || c >= cols) {
+            return false;
+        }
+        return isAliveAt(r, c);
+    }
+
+    /**
+     * Checks if the last advance left the plane unchanged. Canonical nodes
+     * make this a pointer comparison once both trees have the same level.
+     * @return true if still life, false otherwise
+     */
+    @Override
+    public boolean isStillLife() {
+        if (previousRoot == null) {
+            return false;
+        }
+        Node before = previousRoot;
+        Node after = root;
+        while (before.level < after.level) {
+            before = expand(before);
+        }
+        while (after.level < before.level) {
+            after = expand(after);
+        }
+        return before == after;
+    }
+
+    /**
+     * Gets the number of columns in the window.
+     * @return number of columns
+     */
+    @Override
+    public int numCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of rows in the window.
+     * @return number of rows
+     */
+    @Override
+    public int numRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of step results currently cached.
+     * @return cache size
+     */
+    public int cachedResults() {
+        return results.size();
+    }
+
+    /**
+     * Returns the canonical node with the given quadrants.
+     * @param nw north-west quadrant
+     * @param ne north-east quadrant
+     * @param sw south-west quadrant
+     * @param se south-east quadrant
+     * @return canonical node one level above the quadrants
+     */
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        Node probe = new Node(nw, ne, sw, se);
+        Node found = nodes.putIfAbsent(probe, probe);
+        return found == null ? probe : found;
+    }
+
+    /**
+     * Returns the canonical empty node of a level.
+     * @param level node level
+     * @return empty node
+     */
+    private Node empty(int level) {
+        while (emptyNodes.size() <= level) {
+            int size = emptyNodes.size();
+            if (size == 0) {
+                emptyNodes.add(DEAD);
+            } else {
+                Node e = emptyNodes.get(size - 1);
+                emptyNodes.add(join(e, e, e, e));
+            }
+        }
+        return emptyNodes.get(level);
+    }
+
+    /**
+     * Wraps a node in a border of empty space one level up, keeping the
+     * same center.
+     * @param node node to expand
+     * @return node twice as wide
+     */
+    private Node expand(Node node) {
+        Node e = empty(node.level - 1);
+        return join(join(e, e, e, node.nw), join(e, e, node.ne, e),
+                join(e, node.sw, e, e), join(node.se, e, e, e));
+    }
+
+    /**
+     * Gets the centered square half as wide as a node.
+     * @param node node of level 2 or more
+     * @return center node
+     */
+    private Node center(Node node) {
+        return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+    }
+
+    /**
+     * Counts live cells in the centered square a quarter as wide as a node.
+     * @param node node of level 3 or more
+     * @return population of the inner square
+     */
+    private static long innerPopulation(Node node) {
+        return node.nw.se.se.population + node.ne.sw.sw.population
+                + node.sw.ne.ne.population + node.se.nw.nw.population;
+    }
+
+    /**
+     * Computes the center half of a node 2^j generations ahead, where j is
+     * capped at level - 2. Results are cached per node and j.
+     * @param node node of level 2 or more
+     * @param j log2 of the generations to advance
+     * @return centered node one level down
+     */
+    private Node successor(Node node, int j) {
+        if (node.population == 0) {
+            return node.nw;
+        }
+        if (node.level == 2) {
+            return life4x4(node);
+        }
+        j = Math.min(j, node.level - 2);
+        StepKey key = new StepKey(node, j);
+        Node cached = results.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // nine overlapping sub-squares, each half as wide as the node
+        Node n00 = node.nw;
+        Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+        Node n02 = node.ne;
+        Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+        Node n11 = center(node);
+        Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+        Node n20 = node.sw;
+        Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+        Node n22 = node.se;
+
+        Node c00;
+        Node c01;
+        Node c02;
+        Node c10;
+        Node c11;
+        Node c12;
+        Node c20;
+        Node c21;
+        Node c22;
+        if (j == node.level - 2) {
+            // full speed: both halves of the jump are done recursively
+            c00 = successor(n00, j);
+            c01 = successor(n01, j);
+            c02 = successor(n02, j);
+            c10 = successor(n10, j);
+            c11 = successor(n11, j);
+            c12 = successor(n12, j);
+            c20 = successor(n20, j);
+            c21 = successor(n21, j);
+            c22 = successor(n22, j);
+        } else {
+            // slower jump: take the centers unchanged, then advance once
+            c00 = center(n00);
+            c01 = center(n01);
+            c02 = center(n02);
+            c10 = center(n10);
+            c11 = center(n11);
+            c12 = center(n12);
+            c20 = center(n20);
+            c21 = center(n21);
+            c22 = center(n22);
+        }
+
+        Node result = join(successor(join(c00, c01, c10, c11), j),
+                successor(join(c01, c02, c11, c12), j),
+                successor(join(c10, c11, c20, c21), j),
+                successor(join(c11, c12, c21, c22), j));
+        results.put(key, result);
+        return result;
+    }
+
+    /**
+     * Advances the center 2x2 of a 4x4 node by one generation directly.
+     * @param node node of level 2
+     * @return level 1 node one generation ahead
+     */
+    private Node life4x4(Node node) {
+        boolean[][] cells = new boolean[4][4];
+        Node[] quads = {node.nw, node.ne, node.sw, node.se};
+        for (int q = 0; q < 4; q++) {
+            int r = (q / 2) * 2;
+            int c = (q % 2) * 2;
+            cells[r][c] = quads[q].nw == ALIVE;
+            cells[r][c + 1] = quads[q].ne == ALIVE;
+            cells[r + 1][c] = quads[q].sw == ALIVE;
+            cells[r + 1][c + 1] = quads[q].se == ALIVE;
+        }
+        return join(rule(cells, 1, 1), rule(cells, 1, 2),
+                rule(cells, 2, 1), rule(cells, 2, 2));
+    }
+
+    /**
+     * Applies Conway's rule to an interior cell of a 4x4 block.
+     * @param cells block contents
+     * @param r row of the cell
+     * @param c column of the cell
+     * @return leaf for the new state
+     */
+    private static Node rule(boolean[][] cells, int r, int c) {
+        int neighbors = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && cells[r + dr][c + dc]) {
+                    neighbors++;
+                }
+            }
+        }
+        boolean alive = neighbors == 3 || (neighbors == 2 && cells[r][c]);
+        return alive ? ALIVE : DEAD;
+    }
+
+    /**
+     * Drops every node the current trees no longer use. Cached results
+     * may point at dropped nodes, so they are cleared too.
+     */
+    private void collect() {
+        Map<Node, Node> copies = new IdentityHashMap<>();
+        Node keepRoot = root;
+        Node keepPrevious = previousRoot;
+        nodes.clear();
+        results.clear();
+        emptyNodes.clear();
+        root = reintern(keepRoot, copies);
+        previousRoot = keepPrevious == null ? null : reintern(keepPrevious, copies);
+    }
+
+    /**
+     * Rebuilds a tree out of freshly canonical nodes.
+     * @param node node from before the collection
+     * @param copies old nodes already rebuilt
+     * @return canonical replacement
+     */
+    private Node reintern(Node node, Map<Node, Node> copies) {
+        if (node.level == 0) {
+            return node;
+        }
+        Node copy = copies.get(node);
+        if (copy == null) {
+            copy = join(reintern(node.nw, copies), reintern(node.ne, copies),
+                    reintern(node.sw, copies), reintern(node.se, copies));
+            copies.put(node, copy);
+        }
+        return copy;
+    }
+
+    /**
+     * A square of 2^level cells on a side. Two nodes are equal when their
+     * quadrants are the same objects, which is what makes them canonical.
+     */
+    private static final class Node {
+        final Node nw;
+        final Node ne;
+        final Node sw;
+        final Node se;
+        final int level;
+        final long population;
+        final int hash;
+
+        /**
+         * Creates a single cell.
+         * @param alive state of the cell
+         */
+        Node(boolean alive) {
+            nw = null;
+            ne = null;
+            sw = null;
+            se = null;
+            level = 0;
+            population = alive ? 1 : 0;
+            hash = alive ? 1 : 0;
+        }
+
+        /**
+         * Creates a node from four quadrants of the same level.
+         * @param nw north-west quadrant
+         * @param ne north-east quadrant
+         * @param sw south-west quadrant
+         * @param se south-east quadrant
+         */
+        Node(Node nw, Node ne, Node sw, Node se) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            level = nw.level + 1;
+            population = nw.population + ne.population + sw.population + se.population;
+            int h = System.identityHashCode(nw);
+            h = h * 31 + System.identityHashCode(ne);
+            h = h * 31 + System.identityHashCode(sw);
+            h = h * 31 + System.identityHashCode(se);
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Node)) {
+                return false;
+            }
+            Node n = (Node) other;
+            return nw == n.nw && ne == n.ne && sw == n.sw && se == n.se
+                    && level == n.level && population == n.population;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Cache key for advancing a canonical node by 2^j generations.
+     */
+    private static final class StepKey {
+        final Node node;
+        final int j;
+
+        /**
+         * Creates a key.
+         * @param node canonical node
+         * @param j log2 of the generations
+         */
+        StepKey(Node node, int j) {
+            this.node = node;
+            this.j = j;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StepKey
+                    && ((StepKey) other).node == node && ((StepKey) other).j == j;
+        }
+
+        @Override
+        public int hashCode() {
+            return node.hash * 64 + j;
+        }
+    }
+}
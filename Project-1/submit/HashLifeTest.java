@@ -0,0 +1,164 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/**
+ * Test class for the HashLife engine.
+ */
+public class HashLifeTest {
+
+    private static final String GLIDER =
+        "8 8\n" +
+        ".O......\n" +
+        "..O.....\n" +
+        "OOO.....\n" +
+        "........\n" +
+        "........\n" +
+        "........\n" +
+        "........\n" +
+        "........\n";
+
+    private HashLife runner;
+
+    /**
+     * creates a hashlife game with 3x3 window.
+     */
+    @Before
+    public void setup() {
+        runner = new HashLife(3, 3);
+    }
+
+    /**
+     * Checks the window dimensions and bounds of isAlive.
+     */
+    @Test
+    public void testWindow() {
+        assertEquals(3, runner.numRows());
+        assertEquals(3, runner.numCols());
+        runner.loadFromString("2 4\nO...\n...O\n");
+        assertEquals(2, runner.numRows());
+        assertEquals(4, runner.numCols());
+        assertTrue(runner.isAlive(0, 0));
+        assertTrue(runner.isAlive(1, 3));
+        assertFalse(runner.isAlive(1, 2));
+        assertFalse(runner.isAlive(-1, 0));
+        assertFalse(runner.isAlive(0, 4));
+        assertEquals(2, runner.getPopulation());
+    }
+
+    /**
+     * A block is a still life and a blinker is not.
+     */
+    @Test
+    public void testStillLife() {
+        assertFalse(runner.isStillLife());
+        runner.loadFromString("4 4\nOO..\nOO..\n....\n....\n");
+        runner.nextGeneration();
+        assertTrue(runner.isStillLife());
+
+        runner.loadFromString("3 3\n.O.\n.O.\n.O.\n");
+        runner.nextGeneration();
+        assertFalse(runner.isStillLife());
+        assertTrue(runner.isAlive(1, 0));
+        assertTrue(runner.isAlive(1, 2));
+        assertFalse(runner.isAlive(0, 1));
+    }
+
+    /**
+     * A blinker has period two, so any even jump returns it unchanged.
+     */
+    @Test
+    public void testOscillatorJump() {
+        runner.loadFromString("3 3\n.O.\n.O.\n.O.\n");
+        runner.advance(1L << 40);
+        assertEquals(1L << 40, runner.getGeneration());
+        assertTrue(runner.isAlive(0, 1));
+        assertTrue(runner.isAlive(1, 1));
+        assertTrue(runner.isAlive(2, 1));
+        assertEquals(3, runner.getPopulation());
+        runner.advance(3);
+        assertTrue(runner.isAlive(1, 0));
+        assertEquals(3, runner.getPopulation());
+    }
+
+    /**
+     * A glider moves one cell diagonally every four generations.
+     */
+    @Test
+    public void testGliderTravels() {
+        runner.loadFromString(GLIDER);
+        long steps = 1000;
+        runner.advance(4 * steps);
+        assertEquals(5, runner.getPopulation());
+        assertTrue(runner.isAliveAt(steps, steps + 1));
+        assertTrue(runner.isAliveAt(steps + 1, steps + 2));
+        assertTrue(runner.isAliveAt(steps + 2, steps));
+        assertTrue(runner.isAliveAt(steps + 2, steps + 1));
+        assertTrue(runner.isAliveAt(steps + 2, steps + 2));
+    }
+
+    /**
+     * Jumping many generations at once matches stepping one at a time.
+     */
+    @Test
+    public void testAdvanceMatchesSteps() {
+        HashLife stepped = new HashLife();
+        runner.loadFromString(GLIDER);
+        stepped.loadFromString(GLIDER);
+        runner.advance(37);
+        for (int g = 0; g < 37; g++) {
+            stepped.nextGeneration();
+        }
+        for (int i = -5; i < 20; i++) {
+            for (int j = -5; j < 20; j++) {
+                assertEquals(stepped.isAliveAt(i, j), runner.isAliveAt(i, j));
+            }
+        }
+    }
+
+    /**
+     * Away from the edges a soup evolves exactly like Project1, even when
+     * the cache is tiny and evicts constantly.
+     */
+    @Test
+    public void testMatchesProject1() {
+        Random rand = new Random(42);
+        StringBuilder sb = new StringBuilder("64 64\n");
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 64; j++) {
+                boolean inner = i >= 24 && i < 40 && j >= 24 && j < 40;
+                sb.append(inner && rand.nextBoolean() ? 'O' : '.');
+            }
+            sb.append('\n');
+        }
+        Project1 plain = new Project1();
+        plain.loadFromString(sb.toString());
+        HashLife hash = new HashLife(1, 1, 8);
+        hash.loadFromString(sb.toString());
+
+        for (int g = 0; g < 20; g++) {
+            plain.nextGeneration();
+            hash.nextGeneration();
+            assertEquals(plain.isStillLife(), hash.isStillLife());
+            for (int i = 0; i < 64; i++) {
+                for (int j = 0; j < 64; j++) {
+                    assertEquals(plain.isAlive(i, j), hash.isAlive(i, j));
+                    if (i > 0 && j > 0 && i < 63 && j < 63) {
+                        assertEquals(plain.countLiveNeighbors(i, j),
+                                hash.countLiveNeighbors(i, j));
+                    }
+                }
+            }
+        }
+        assertTrue(hash.cachedResults() <= 8);
+    }
+
+    /**
+     * Negative generation counts are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdvanceBackwards() {
+        runner.advance(-1);
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative long values, such as step times in
+ * nanoseconds, laid out like HdrHistogram: values below 128 have a bucket
+ * each, and every power of two above that is split into 64 equal buckets.
+ * Recording is a few shifts and an array increment, memory is fixed at
+ * about 30 KB, and any percentile is reported within 1/64 (1.6%) of the
+ * true value over the whole long range.
+ */
+public class LatencyHistogram {
+
+    /** Bits of each value kept exactly; the rest are rounded down. */
+    private static final int SUB_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Maps a value to its bucket.
+     * @param value non-negative value
+     * @return bucket index
+     */
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the lowest value that falls in a bucket.
+     * @param index bucket index
+     * @return smallest value in the bucket
+     */
+    static long lowestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long sub = index - (shift << SUB_BITS);
+        return sub << shift;
+    }
+
+    /**
+     * Gets the highest value that falls in a bucket.
+     * @param index bucket index
+     * @return largest value in the bucket
+     */
+    static long highestValue(int index) {
+        return index + 1 < BUCKETS ? lowestValue(index + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Records one value.
+     * @param value value to record, negative values count as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Gets the number of values recorded.
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the smallest value recorded, exactly.
+     * @return minimum, or 0 if empty
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Gets the largest value recorded, exactly.
+     * @return maximum, or 0 if empty
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean of the values recorded, exactly.
+     * @return mean, or 0 if empty
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the value at a percentile: at least that percentage of the
+     * values recorded are no larger. The answer is the top of the bucket
+     * holding it, capped at the maximum, so it never understates.
+     * @param percentile 0 to 100
+     * @return value at the percentile, or 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double p = Math.min(100, Math.max(0, percentile));
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets every value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Makes an independent copy.
+     * @return copy holding the same values
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram h = new LatencyHistogram();
+        System.arraycopy(counts, 0, h.counts, 0, counts.length);
+        h.count = count;
+        h.sum = sum;
+        h.min = min;
+        h.max = max;
+        return h;
+    }
+}
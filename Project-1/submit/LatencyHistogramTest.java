@@ -0,0 +1,84 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test class for the step time histogram.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Buckets cover every value once, in order, and small values exactly.
+     */
+    @Test
+    public void testBuckets() {
+        assertEquals(0, LatencyHistogram.index(0));
+        assertEquals(127, LatencyHistogram.index(127));
+        long last = -1;
+        for (int i = 0; i <= LatencyHistogram.index(Long.MAX_VALUE); i++) {
+            long low = LatencyHistogram.lowestValue(i);
+            assertEquals(last + 1, low);
+            assertEquals(i, LatencyHistogram.index(low));
+            long high = LatencyHistogram.highestValue(i);
+            assertEquals(i, LatencyHistogram.index(high));
+            // no bucket is wider than 1/64 of its values
+            assertTrue(high - low <= low / 64);
+            last = high;
+        }
+        assertEquals(Long.MAX_VALUE, last);
+    }
+
+    /**
+     * Percentiles of random values are within the bucket precision.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(50));
+        assertEquals(0, h.getMin());
+
+        Random rand = new Random(3);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // spread over several powers of two, like step times
+            values[i] = (long) Math.exp(rand.nextDouble() * 20);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, h.getCount());
+        assertEquals(values[0], h.getMin());
+        assertEquals(values[values.length - 1], h.getMax());
+        assertEquals(Arrays.stream(values).average().getAsDouble(), h.getMean(), 1e-6);
+        for (double p : new double[] {1, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long got = h.getValueAtPercentile(p);
+            assertTrue(p + ": " + got + " vs " + exact, got >= exact);
+            assertTrue(p + ": " + got + " vs " + exact, got <= exact + exact / 64);
+        }
+        assertEquals(values[values.length - 1], h.getValueAtPercentile(100));
+    }
+
+    /**
+     * Copies are independent and reset forgets everything.
+     */
+    @Test
+    public void testCopyAndReset() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(5);
+        h.record(1_000_000);
+        h.record(-3);
+        LatencyHistogram copy = h.copy();
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getMean(), 0);
+        assertEquals(3, copy.getCount());
+        assertEquals(0, copy.getMin());
+        assertEquals(5, copy.getValueAtPercentile(60));
+        assertEquals(1_000_000, copy.getValueAtPercentile(100));
+        h.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, h.getValueAtPercentile(50));
+    }
+}
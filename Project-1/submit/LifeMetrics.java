@@ -0,0 +1,163 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and a step time histogram for a Project1 grid. Attach it with
+ * setMetrics and every generation records its time, the cells it covered
+ * and the grid's population, births and deaths, which the grid keeps up to
+ * date from the cells that flip, so nothing is scanned here. Recording is
+ * one uncontended lock and a histogram increment per generation.
+ *
+ * Values can be pulled with the getters from any thread, or through JMX
+ * once registered.
+ */
+public class LifeMetrics implements LifeMetricsMBean {
+
+    private final LatencyHistogram steps = new LatencyHistogram();
+    private long stepNanos;
+    private long cells;
+    private long generation;
+    private long population;
+    private long births;
+    private long deaths;
+    private long totalBirths;
+    private long totalDeaths;
+    private ObjectName name;
+
+    /**
+     * Records one generation. Called by Project1 after each step.
+     * @param nanos time the step took
+     * @param gridCells cells in the grid
+     * @param game grid that stepped
+     */
+    synchronized void recordStep(long nanos, long gridCells, Project1 game) {
+        steps.record(nanos);
+        stepNanos += nanos;
+        cells += gridCells;
+        generation = game.getGeneration();
+        population = game.getPopulation();
+        births = game.getBirths();
+        deaths = game.getDeaths();
+        totalBirths += births;
+        totalDeaths += deaths;
+    }
+
+    @Override
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public synchronized long getPopulation() {
+        return population;
+    }
+
+    @Override
+    public synchronized long getBirths() {
+        return births;
+    }
+
+    @Override
+    public synchronized long getDeaths() {
+        return deaths;
+    }
+
+    @Override
+    public synchronized long getTotalBirths() {
+        return totalBirths;
+    }
+
+    @Override
+    public synchronized long getTotalDeaths() {
+        return totalDeaths;
+    }
+
+    @Override
+    public synchronized long getSteps() {
+        return steps.getCount();
+    }
+
+    @Override
+    public synchronized long getStepNanosMin() {
+        return steps.getMin();
+    }
+
+    @Override
+    public synchronized double getStepNanosMean() {
+        return steps.getMean();
+    }
+
+    @Override
+    public synchronized long getStepNanosP50() {
+        return steps.getValueAtPercentile(50);
+    }
+
+    @Override
+    public synchronized long getStepNanosP99() {
+        return steps.getValueAtPercentile(99);
+    }
+
+    @Override
+    public synchronized long getStepNanosP999() {
+        return steps.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public synchronized long getStepNanosMax() {
+        return steps.getMax();
+    }
+
+    @Override
+    public synchronized double getCellsPerSecond() {
+        return stepNanos == 0 ? 0 : cells * 1e9 / stepNanos;
+    }
+
+    /**
+     * Gets a copy of the step time histogram, for percentiles other than
+     * the ones exposed as attributes.
+     * @return histogram of step nanoseconds
+     */
+    public synchronized LatencyHistogram getStepHistogram() {
+        return steps.copy();
+    }
+
+    @Override
+    public synchronized void reset() {
+        steps.reset();
+        stepNanos = 0;
+        cells = 0;
+        totalBirths = 0;
+        totalDeaths = 0;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * life:type=Project1,name=the given name.
+     * @param gridName name telling this grid apart from others
+     * @return the name registered under
+     * @throws JMException if the name is taken or malformed
+     */
+    public synchronized ObjectName register(String gridName) throws JMException {
+        ObjectName objectName = new ObjectName("life:type=Project1,name="
+                + ObjectName.quote(gridName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        name = objectName;
+        return objectName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if registered.
+     * @throws JMException if the server refuses
+     */
+    public synchronized void unregister() throws JMException {
+        if (name != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            name = null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Management interface of LifeMetrics, so a running simulation can be
+ * watched from JConsole or any other JMX client. Times are in nanoseconds.
+ */
+public interface LifeMetricsMBean {
+
+    /**
+     * Gets the generation of the last recorded step.
+     * @return generation number
+     */
+    long getGeneration();
+
+    /**
+     * Gets the live cells after the last recorded step.
+     * @return population
+     */
+    long getPopulation();
+
+    /**
+     * Gets the cells born in the last recorded step.
+     * @return births
+     */
+    long getBirths();
+
+    /**
+     * Gets the cells that died in the last recorded step.
+     * @return deaths
+     */
+    long getDeaths();
+
+    /**
+     * Gets the cells born over all recorded steps.
+     * @return total births
+     */
+    long getTotalBirths();
+
+    /**
+     * Gets the cells that died over all recorded steps.
+     * @return total deaths
+     */
+    long getTotalDeaths();
+
+    /**
+     * Gets the number of steps recorded.
+     * @return steps
+     */
+    long getSteps();
+
+    /**
+     * Gets the shortest step.
+     * @return nanoseconds
+     */
+    long getStepNanosMin();
+
+    /**
+     * Gets the mean step time.
+     * @return nanoseconds
+     */
+    double getStepNanosMean();
+
+    /**
+     * Gets the median step time.
+     * @return nanoseconds
+     */
+    long getStepNanosP50();
+
+    /**
+     * Gets the 99th percentile step time.
+     * @return nanoseconds
+     */
+    long getStepNanosP99();
+
+    /**
+     * Gets the 99.9th percentile step time.
+     * @return nanoseconds
+     */
+    long getStepNanosP999();
+
+    /**
+     * Gets the longest step.
+     * @return nanoseconds
+     */
+    long getStepNanosMax();
+
+    /**
+     * Gets the grid cells advanced per second of step time.
+     * @return cells per second, 0 before the first step
+     */
+    double getCellsPerSecond();
+
+    /**
+     * Forgets every recorded step.
+     */
+    void reset();
+}
@@ -0,0 +1,78 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Test class for the metrics of a Project1 grid.
+ */
+public class LifeMetricsTest {
+
+    /**
+     * Attached metrics record every generation and follow the grid's
+     * counts; detached, nothing more is recorded.
+     */
+    @Test
+    public void testRecordsSteps() {
+        Project1 game = new Project1(40, 40);
+        game.randomInitialize(0.3, 11);
+        LifeMetrics m = new LifeMetrics();
+        game.setMetrics(m);
+        assertSame(m, game.getMetrics());
+        long births = 0;
+        long deaths = 0;
+        for (int g = 0; g < 20; g++) {
+            game.nextGeneration();
+            births += game.getBirths();
+            deaths += game.getDeaths();
+        }
+        assertEquals(20, m.getSteps());
+        assertEquals(20, m.getGeneration());
+        assertEquals(game.getPopulation(), m.getPopulation());
+        assertEquals(game.getBirths(), m.getBirths());
+        assertEquals(game.getDeaths(), m.getDeaths());
+        assertEquals(births, m.getTotalBirths());
+        assertEquals(deaths, m.getTotalDeaths());
+        assertTrue(m.getStepNanosMin() <= m.getStepNanosP50());
+        assertTrue(m.getStepNanosP50() <= m.getStepNanosP99());
+        assertTrue(m.getStepNanosP999() <= m.getStepNanosMax());
+        assertTrue(m.getCellsPerSecond() > 0);
+        assertEquals(20, m.getStepHistogram().getCount());
+
+        game.setMetrics(null);
+        game.nextGeneration();
+        assertEquals(20, m.getSteps());
+        m.reset();
+        assertEquals(0, m.getSteps());
+        assertEquals(0, m.getTotalBirths());
+        assertEquals(0, m.getCellsPerSecond(), 0);
+    }
+
+    /**
+     * Registered metrics can be read over JMX.
+     * @throws Exception if JMX fails
+     */
+    @Test
+    public void testJmx() throws Exception {
+        Project1 game = new Project1();
+        game.loadFromString("3 3\n.O.\n.O.\n.O.\n");
+        LifeMetrics m = new LifeMetrics();
+        game.setMetrics(m);
+        game.nextGeneration();
+        ObjectName name = m.register("blinker");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(3L, server.getAttribute(name, "Population"));
+            assertEquals(2L, server.getAttribute(name, "Births"));
+            assertEquals(1L, server.getAttribute(name, "Steps"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Steps"));
+        } finally {
+            m.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+        m.unregister();
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+/**
+ * A Life-like cellular automaton rule in B/S notation, such as "B3/S23"
+ * for Conway's Game of Life: a dead cell is born with a neighbor count
+ * listed after B and a live cell survives with a count listed after S.
+ *
+ * The rule is stored as a lookup table indexed by (alive, neighbors), so
+ * a step applies any rule with one array read and no branches. The same
+ * table is also packed into the bits of an int, for step loops that work
+ * on 0 and 1 cell values.
+ */
+public final class LifeRule {
+
+    /** Conway's Game of Life. */
+    public static final LifeRule CONWAY = parse("B3/S23");
+
+    /** HighLife, which also has a replicator. */
+    public static final LifeRule HIGHLIFE = parse("B36/S23");
+
+    /** Day and Night, symmetric under swapping live and dead cells. */
+    public static final LifeRule DAY_AND_NIGHT = parse("B3678/S34678");
+
+    /** Seeds, where every live cell dies each generation. */
+    public static final LifeRule SEEDS = parse("B2/S");
+
+    /** Table entries per state, one for each neighbor count 0 to 8. */
+    static final int COUNTS = 9;
+
+    // next state at index (alive ? COUNTS : 0) + neighbors
+    private final boolean[] table = new boolean[2 * COUNTS];
+    private final int bits;  // the table, bit i set where table[i] is true
+
+    /**
+     * Creates a rule from its birth and survival bit masks.
+     * @param birth bit n set if a dead cell with n neighbors is born
+     * @param survival bit n set if a live cell with n neighbors survives
+     */
+    private LifeRule(int birth, int survival) {
+        for (int n = 0; n < COUNTS; n++) {
+            table[n] = (birth >>> n & 1) != 0;
+            table[COUNTS + n] = (survival >>> n & 1) != 0;
+        }
+        bits = birth | survival << COUNTS;
+    }
+
+    /**
+     * Parses a rulestring. Accepts "B36/S23" in any case, the order
+     * "S23/B36", and the older survival/birth form "23/36".
+     * @param rule rulestring
+     * @return the rule
+     * @throws IllegalArgumentException if the rulestring is malformed
+     */
+    public static LifeRule parse(String rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("rule is null");
+        }
+        String[] parts = rule.trim().split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("expected B/S rule but found " + rule);
+        }
+        int birth;
+        int survival;
+        char first = parts[0].isEmpty() ? ' ' : Character.toUpperCase(parts[0].charAt(0));
+        char second = parts[1].isEmpty() ? ' ' : Character.toUpperCase(parts[1].charAt(0));
+        if (first == 'B' && second == 'S') {
+            birth = counts(parts[0].substring(1), rule);
+            survival = counts(parts[1].substring(1), rule);
+        } else if (first == 'S' && second == 'B') {
+            survival = counts(parts[0].substring(1), rule);
+            birth = counts(parts[1].substring(1), rule);
+        } else {
+            survival = counts(parts[0], rule);
+            birth = counts(parts[1], rule);
+        }
+        return new LifeRule(birth, survival);
+    }
+
+    /**
+     * Turns a list of neighbor counts such as "236" into a bit mask.
+     * @param digits counts, each 0 to 8
+     * @param rule whole rulestring for errors
+     * @return mask with bit n set for each count n
+     */
+    private static int counts(String digits, String rule) {
+        int mask = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int n = digits.charAt(i) - '0';
+            if (n < 0 || n >= COUNTS) {
+                throw new IllegalArgumentException("bad neighbor count '"
+                        + digits.charAt(i) + "' in rule " + rule);
+            }
+            mask |= 1 << n;
+        }
+        return mask;
+    }
+
+    /**
+     * Applies the rule to one cell.
+     * @param alive whether the cell is alive now
+     * @param neighbors number of live neighbors, 0 to 8
+     * @return whether the cell is alive next generation
+     */
+    public boolean next(boolean alive, int neighbors) {
+        return table[(alive ? COUNTS : 0) + neighbors];
+    }
+
+    /**
+     * Gets the lookup table for step loops. Callers must not modify it.
+     * @return next state at index (alive ? 9 : 0) + neighbors
+     */
+    boolean[] table() {
+        return table;
+    }
+
+    /**
+     * Gets the lookup table packed into an int, so the next state of a
+     * cell is bits() >>> (alive * 9 + neighbors) & 1 with alive 0 or 1.
+     * @return table bits
+     */
+    int bits() {
+        return bits;
+    }
+
+    /**
+     * Gets the rule in canonical form, e.g. "B36/S23".
+     * @return rulestring
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("B");
+        for (int n = 0; n < COUNTS; n++) {
+            if (table[n]) {
+                s.append(n);
+            }
+        }
+        s.append("/S");
+        for (int n = 0; n < COUNTS; n++) {
+            if (table[COUNTS + n]) {
+                s.append(n);
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Rules are equal when they have the same transitions.
+     * @param o other object
+     * @return true if o is the same rule
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LifeRule && Arrays.equals(table, ((LifeRule) o).table);
+    }
+
+    /**
+     * Hash consistent with equals.
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(table);
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for B/S rule parsing.
+ */
+public class LifeRuleTest {
+
+    /**
+     * Conway's rule has births on 3 and survival on 2 and 3 only.
+     */
+    @Test
+    public void testConway() {
+        for (int n = 0; n <= 8; n++) {
+            assertEquals("birth " + n, n == 3, LifeRule.CONWAY.next(false, n));
+            assertEquals("survival " + n, n == 2 || n == 3, LifeRule.CONWAY.next(true, n));
+        }
+        assertEquals("B3/S23", LifeRule.CONWAY.toString());
+    }
+
+    /**
+     * The accepted spellings all give the same rule.
+     */
+    @Test
+    public void testNotations() {
+        assertEquals(LifeRule.HIGHLIFE, LifeRule.parse("b36/s23"));
+        assertEquals(LifeRule.HIGHLIFE, LifeRule.parse("S23/B36"));
+        assertEquals(LifeRule.HIGHLIFE, LifeRule.parse("23/36"));
+        assertEquals(LifeRule.HIGHLIFE, LifeRule.parse(" B63/S32 "));
+        assertEquals(LifeRule.HIGHLIFE.hashCode(), LifeRule.parse("B36/S23").hashCode());
+        assertEquals("B2/S", LifeRule.SEEDS.toString());
+        assertEquals("B3678/S34678", LifeRule.DAY_AND_NIGHT.toString());
+        assertFalse(LifeRule.CONWAY.equals(LifeRule.HIGHLIFE));
+    }
+
+    /**
+     * Malformed rulestrings are rejected.
+     */
+    @Test
+    public void testMalformed() {
+        String[] bad = {"", "B3", "B3/S23/", "B9/S23", "B3/Sx", "B3/23", null};
+        for (String rule : bad) {
+            try {
+                LifeRule.parse(rule);
+                fail("should reject " + rule);
+            } catch (IllegalArgumentException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+    }
+}
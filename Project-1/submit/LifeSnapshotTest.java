@@ -0,0 +1,156 @@
+import itsc2214.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Test class for the binary snapshot format.
+ */
+public class LifeSnapshotTest {
+
+    /**
+     * A packed grid survives a round trip through a file, generation included.
+     */
+    @Test
+    public void testPackedRoundTrip() throws IOException {
+        PackedLife game = new PackedLife(70, 130);
+        game.randomInitialize(0.5);
+        File temp = File.createTempFile("life", ".snap");
+        temp.deleteOnExit();
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            LifeSnapshot.write(game, 12345L, out);
+        }
+        assertEquals(LifeSnapshot.HEADER_BYTES + 70 * 3 * 8, temp.length());
+
+        PackedLife copy = new PackedLife();
+        try (FileChannel in = FileChannel.open(temp.toPath())) {
+            assertEquals(12345L, LifeSnapshot.read(in, copy));
+        }
+        assertGridsEqual(game, copy);
+
+        game.nextGeneration();
+        copy.nextGeneration();
+        assertGridsEqual(game, copy);
+    }
+
+    /**
+     * Any engine can be written, and read back through a sink.
+     */
+    @Test
+    public void testProject1ThroughSink() throws IOException {
+        Project1 game = new Project1(9, 65);
+        game.randomInitialize(0.3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LifeSnapshot.write(game, 7, Channels.newChannel(bytes));
+
+        boolean[][][] cells = new boolean[1][][];
+        long generation = LifeSnapshot.read(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())),
+                new PatternSink() {
+                    @Override
+                    public void resize(int rows, int cols) {
+                        cells[0] = new boolean[rows][cols];
+                    }
+
+                    @Override
+                    public void setAlive(int r, int c) {
+                        cells[0][r][c] = true;
+                    }
+                });
+        assertEquals(7, generation);
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 65; j++) {
+                assertEquals(game.isAlive(i, j), cells[0][i][j]);
+            }
+        }
+    }
+
+    /**
+     * A Project1 checkpoint restores into another Project1, which carries
+     * on from the saved generation exactly as the original does.
+     */
+    @Test
+    public void testProject1Checkpoint() throws IOException {
+        Project1 game = new Project1(40, 70);
+        game.randomInitialize(0.4, 2214);
+        for (int g = 0; g < 5; g++) {
+            game.nextGeneration();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LifeSnapshot.write(game, game.getGeneration(), Channels.newChannel(bytes));
+
+        Project1 copy = new Project1(3, 3);
+        assertEquals(5, LifeSnapshot.read(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), copy));
+        assertEquals(5, copy.getGeneration());
+        assertEquals(game.getPopulation(), copy.getPopulation());
+        assertGridsEqual(game, copy);
+        for (int g = 0; g < 30; g++) {
+            game.nextGeneration();
+            copy.nextGeneration();
+            assertGridsEqual(game, copy);
+            assertEquals(game.getGeneration(), copy.getGeneration());
+            assertEquals(game.getPopulation(), copy.getPopulation());
+        }
+    }
+
+    /**
+     * Wrong magic numbers and short streams are rejected.
+     */
+    @Test
+    public void testCorrupt() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LifeSnapshot.write(new PackedLife(4, 4), 0, Channels.newChannel(bytes));
+        byte[] data = bytes.toByteArray();
+
+        byte[] truncated = java.util.Arrays.copyOf(data, data.length - 1);
+        try {
+            LifeSnapshot.read(Channels.newChannel(new ByteArrayInputStream(truncated)),
+                    new PackedLife());
+            fail("truncated snapshot should be rejected");
+        } catch (EOFException e) {
+            assertTrue(e.getMessage().contains("truncated"));
+        }
+
+        data[0] = 'X';
+        try {
+            LifeSnapshot.read(Channels.newChannel(new ByteArrayInputStream(data)),
+                    new PackedLife());
+            fail("bad magic should be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("not a Game of Life snapshot"));
+        }
+    }
+
+    /**
+     * The header starts with "LIFE".
+     */
+    @Test
+    public void testMagic() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LifeSnapshot.write(new PackedLife(1, 1), 0, Channels.newChannel(bytes));
+        assertEquals("LIFE", new String(bytes.toByteArray(), 0, 4, "US-ASCII"));
+        assertEquals(1, ByteBuffer.wrap(bytes.toByteArray(), 4, 4)
+                .order(java.nio.ByteOrder.LITTLE_ENDIAN).getInt());
+    }
+
+    /**
+     * Asserts two grids hold the same cells.
+     * @param expected original grid
+     * @param actual restored grid
+     */
+    private static void assertGridsEqual(GameOfLife expected, GameOfLife actual) {
+        assertEquals(expected.numRows(), actual.numRows());
+        assertEquals(expected.numCols(), actual.numCols());
+        for (int i = 0; i < expected.numRows(); i++) {
+            for (int j = 0; j < expected.numCols(); j++) {
+                assertEquals(expected.isAlive(i, j), actual.isAlive(i, j));
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Owns one rectangular block of a DistributedLife grid and steps it. The
+ * blocks form a grid of their own, layoutRows by layoutCols, numbered row
+ * by row. Before each generation a worker sends the cells along its edges
+ * to the workers owning the eight blocks around it and fills its one-cell
+ * halo from theirs, so only edges cross the transport and the coordinator
+ * is not involved until all the requested generations are done.
+ *
+ * A worker answers the coordinator's commands one at a time, each with one
+ * reply. It can run as a thread, or as a process with main.
+ */
+public class LifeWorker {
+
+    // commands from the coordinator
+    static final byte CONFIG = 1;
+    static final byte LOAD = 2;
+    static final byte STEP = 3;
+    static final byte CELL = 4;
+    static final byte RULE = 5;
+    static final byte BOUNDARY = 6;
+    static final byte SHUTDOWN = 7;
+
+    // replies to the coordinator
+    static final byte READY = 10;
+    static final byte STEPPED = 11;
+    static final byte ALIVE = 12;
+    static final byte FAILED = 13;
+
+    // the eight directions, numbered so that 7 - d is opposite to d
+    private static final int[] DR = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] DC = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    private final HaloTransport transport;
+    private String[] addresses = new String[0];
+    private int id;
+    private int rows;
+    private int cols;
+    private int layoutRows;
+    private int layoutCols;
+    private int top;     // first row of the block in the whole grid
+    private int left;    // first column of the block in the whole grid
+    private int height;
+    private int width;
+    private int ruleBits = LifeRule.CONWAY.bits();
+    private Boundary boundary = Boundary.DEAD;
+
+    // the block with a halo, cell (r, c) of the block at [r + 1][c + 1]
+    private byte[][] grid = new byte[2][2];
+    private byte[][] newgrid = new byte[2][2];
+    private long population;
+
+    // worker owning the block in each direction, or -1 for none
+    private final int[] neighbor = new int[8];
+    // distinct neighbors, and how many halo pieces each sends per generation
+    private int[] peers = new int[0];
+    private int[] pieces = new int[0];
+
+    /**
+     * Creates a worker that takes commands over a transport.
+     * @param transport this worker's end of the transport
+     */
+    public LifeWorker(HaloTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Answers commands until told to shut down, then closes the transport.
+     * @throws IOException if the transport fails
+     */
+    public void run() throws IOException {
+        try {
+            while (true) {
+                ByteBuffer in = ByteBuffer.wrap(transport.receive(HaloTransport.COORDINATOR));
+                byte command = in.get();
+                ByteBuffer reply;
+                try {
+                    reply = handle(command, in);
+                } catch (RuntimeException e) {
+                    byte[] text = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+                    reply = ByteBuffer.allocate(1 + text.length).put(FAILED).put(text);
+                }
+                transport.send(HaloTransport.COORDINATOR, reply.array());
+                if (command == SHUTDOWN) {
+                    return;
+                }
+            }
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Carries out one command.
+     * @param command command code
+     * @param in rest of the message
+     * @return reply to send
+     * @throws IOException if the transport fails
+     */
+    private ByteBuffer handle(byte command, ByteBuffer in) throws IOException {
+        switch (command) {
+            case CONFIG:
+                configure(in);
+                return ready();
+            case LOAD:
+                load(in);
+                return ready();
+            case STEP:
+                return step(in.getInt());
+            case CELL:
+                int r = in.getInt() - top;
+                int c = in.getInt() - left;
+                return ByteBuffer.allocate(2).put(ALIVE).put(grid[r + 1][c + 1]);
+            case RULE:
+                ruleBits = in.getInt();
+                return ready();
+            case BOUNDARY:
+                boundary = Boundary.values()[in.get()];
+                link();
+                return ready();
+            case SHUTDOWN:
+                return ready();
+            default:
+                throw new IllegalArgumentException("unknown command " + command);
+        }
+    }
+
+    /**
+     * Takes this worker's place in a new layout with an all-dead block.
+     * @param in id, grid size, layout, rule, boundary and worker addresses
+     * @throws IOException if a neighbor cannot be reached
+     */
+    private void configure(ByteBuffer in) throws IOException {
+        id = in.getInt();
+        rows = in.getInt();
+        cols = in.getInt();
+        layoutRows = in.getInt();
+        layoutCols = in.getInt();
+        ruleBits = in.getInt();
+        boundary = Boundary.values()[in.get()];
+        addresses = new String[layoutRows * layoutCols];
+        for (int i = 0; i < addresses.length; i++) {
+            byte[] text = new byte[in.getInt()];
+            in.get(text);
+            addresses[i] = new String(text, StandardCharsets.UTF_8);
+        }
+        transport.setId(id);
+
+        int br = id / layoutCols;
+        int bc = id % layoutCols;
+        top = split(rows, layoutRows, br);
+        left = split(cols, layoutCols, bc);
+        height = split(rows, layoutRows, br + 1) - top;
+        width = split(cols, layoutCols, bc + 1) - left;
+        grid = new byte[height + 2][width + 2];
+        newgrid = new byte[height + 2][width + 2];
+        population = 0;
+        link();
+    }
+
+    /**
+     * Works out the neighbors under the current boundary, connects to the
+     * new ones and clears the halo.
+     * @throws IOException if a neighbor cannot be reached
+     */
+    private void link() throws IOException {
+        int br = id / layoutCols;
+        int bc = id % layoutCols;
+        int[] found = new int[8];
+        int[] count = new int[8];
+        int distinct = 0;
+        for (int d = 0; d < 8; d++) {
+            int r = br + DR[d];
+            int c = bc + DC[d];
+            if (boundary == Boundary.TORUS) {
+                r = (r + layoutRows) % layoutRows;
+                c = (c + layoutCols) % layoutCols;
+            } else if (r < 0 || r >= layoutRows || c < 0 || c >= layoutCols) {
+                neighbor[d] = -1;
+                continue;
+            }
+            int n = r * layoutCols + c;
+            neighbor[d] = n;
+            int k = 0;
+            while (k < distinct && found[k] != n) {
+                k++;
+            }
+            if (k == distinct) {
+                found[distinct++] = n;
+            }
+            count[k]++;
+            // of each pair of workers the lower id connects
+            if (n > id) {
+                transport.connect(n, addresses[n]);
+            }
+        }
+        peers = Arrays.copyOf(found, distinct);
+        pieces = Arrays.copyOf(count, distinct);
+        for (byte[][] g : new byte[][][] {grid, newgrid}) {
+            for (int i = 0; i < height + 2; i++) {
+                g[i][0] = 0;
+                g[i][width + 1] = 0;
+            }
+            Arrays.fill(g[0], (byte) 0);
+            Arrays.fill(g[height + 1], (byte) 0);
+        }
+    }
+
+    /**
+     * Replaces the block with cells packed one bit each, row by row.
+     * @param in packed cells
+     */
+    private void load(ByteBuffer in) {
+        population = 0;
+        int bit = 0;
+        for (int r = 1; r <= height; r++) {
+            for (int c = 1; c <= width; c++, bit++) {
+                byte alive = (byte) (in.get(in.position() + (bit >>> 3)) >>> (bit & 7) & 1);
+                grid[r][c] = alive;
+                population += alive;
+            }
+        }
+    }
+
+    /**
+     * Computes generations, exchanging halos before each one.
+     * @param generations generations to compute
+     * @return reply with whether the last generation changed anything,
+     *         and the population
+     * @throws IOException if the transport fails
+     */
+    private ByteBuffer step(int generations) throws IOException {
+        boolean changed = false;
+        for (int g = 0; g < generations; g++) {
+            exchange();
+            changed = stepBlock();
+        }
+        return ByteBuffer.allocate(10).put(STEPPED).put((byte) (changed ? 1 : 0))
+                .putLong(population);
+    }
+
+    /**
+     * Sends this block's edges to its neighbors and fills the halo from
+     * theirs. Every piece is tagged with the direction it was sent in,
+     * and lands on the opposite side of the receiver's halo.
+     * @throws IOException if the transport fails
+     */
+    private void exchange() throws IOException {
+        for (int d = 0; d < 8; d++) {
+            if (neighbor[d] >= 0) {
+                transport.send(neighbor[d], edge(d));
+            }
+        }
+        for (int k = 0; k < peers.length; k++) {
+            for (int i = 0; i < pieces[k]; i++) {
+                byte[] piece = transport.receive(peers[k]);
+                fillHalo(7 - piece[0], piece);
+            }
+        }
+    }
+
+    /**
+     * Packs the cells along one side or corner of the block.
+     * @param d direction of the side
+     * @return direction tag followed by the cells, one bit each
+     */
+    private byte[] edge(int d) {
+        int length = length(d);
+        byte[] piece = new byte[1 + (length + 7) / 8];
+        piece[0] = (byte) d;
+        int r = DR[d] < 0 ? 1 : DR[d] > 0 ? height : 1;
+        int c = DC[d] < 0 ? 1 : DC[d] > 0 ? width : 1;
+        for (int i = 0; i < length; i++) {
+            byte cell = DR[d] == 0 ? grid[r + i][c] : grid[r][c + i];
+            piece[1 + (i >>> 3)] |= cell << (i & 7);
+        }
+        return piece;
+    }
+
+    /**
+     * Unpacks a neighbor's edge into one side or corner of the halo.
+     * @param d direction of the halo side
+     * @param piece tag followed by the cells
+     */
+    private void fillHalo(int d, byte[] piece) {
+        int r = DR[d] < 0 ? 0 : DR[d] > 0 ? height + 1 : 1;
+        int c = DC[d] < 0 ? 0 : DC[d] > 0 ? width + 1 : 1;
+        for (int i = 0, length = length(d); i < length; i++) {
+            byte cell = (byte) (piece[1 + (i >>> 3)] >>> (i & 7) & 1);
+            if (DR[d] == 0) {
+                grid[r + i][c] = cell;
+            } else {
+                grid[r][c + i] = cell;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cells along a side or corner.
+     * @param d direction
+     * @return height for the left and right, width for the top and
+     *         bottom, 1 for a corner
+     */
+    private int length(int d) {
+        return DR[d] == 0 ? height : DC[d] == 0 ? width : 1;
+    }
+
+    /**
+     * Computes the next generation of the block with the same kernel as
+     * Project1.
+     * @return true if any cell flipped
+     */
+    private boolean stepBlock() {
+        int next = ruleBits;
+        long born = 0;
+        long died = 0;
+        for (int i = 1; i <= height; i++) {
+            byte[] up = grid[i - 1];
+            byte[] row = grid[i];
+            byte[] down = grid[i + 1];
+            byte[] out = newgrid[i];
+            for (int j = 0; j < width; j++) {
+                int neighbors = up[j] + up[j + 1] + up[j + 2] + row[j] + row[j + 2]
+                    + down[j] + down[j + 1] + down[j + 2];
+                out[j + 1] = (byte) (next >>> (row[j + 1] * LifeRule.COUNTS + neighbors) & 1);
+            }
+            for (int j = 1; j <= width; j++) {
+                if (row[j] != out[j]) {
+                    born += out[j];
+                    died += row[j];
+                }
+            }
+        }
+        byte[][] tmp = grid;
+        grid = newgrid;
+        newgrid = tmp;
+        population += born - died;
+        return born + died > 0;
+    }
+
+    /**
+     * Makes a reply with no content.
+     * @return READY reply
+     */
+    private static ByteBuffer ready() {
+        return ByteBuffer.allocate(1).put(READY);
+    }
+
+    /**
+     * Gets where a part starts when a length is split into nearly equal
+     * parts.
+     * @param length length to split
+     * @param parts number of parts
+     * @param index part number, or parts for the end
+     * @return first position of the part
+     */
+    static int split(int length, int parts, int index) {
+        return (int) ((long) length * index / parts);
+    }
+
+    /**
+     * Runs a worker process listening on a loopback port and prints the
+     * address to give the coordinator.
+     * Usage: java LifeWorker [port]
+     * @param args optional port, any free port if left out
+     * @throws IOException if the transport fails
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        SocketTransport transport = new SocketTransport(port);
+        System.out.println("LifeWorker listening on " + transport.address());
+        System.out.flush();
+        new LifeWorker(transport).run();
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs using open addressing with linear probing.
+ * Keys are kept densely in insertion order, so they can be walked by
+ * index without an iterator, and every key has a stable index that
+ * callers may use to keep a parallel array of values. There is no
+ * remove; the set is cleared and refilled instead.
+ */
+public class LongHashSet {
+
+    private long[] keys;   // dense, in insertion order
+    private int[] table;   // index + 1 of the key in each slot, 0 when free
+    private int mask;
+    private int size;
+
+    /**
+     * Creates a set sized for a few keys.
+     */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates a set sized for the expected number of keys.
+     * @param expected number of keys to hold before growing
+     */
+    public LongHashSet(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity / 2];
+        table = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Spreads the bits of a key so nearby keys land in different slots.
+     * @param key key to hash
+     * @return mixed hash
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Adds a key if it is not present yet.
+     * @param key key to add
+     * @return index of the key, whether it was added now or before
+     */
+    public int add(long key) {
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == keys.length) {
+            grow();
+            return add(key);
+        }
+        keys[size] = key;
+        table[slot] = ++size;
+        return size - 1;
+    }
+
+    /**
+     * Finds the index of a key.
+     * @param key key to look for
+     * @return index of the key, or -1 if absent
+     */
+    public int indexOf(long key) {
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a key is present.
+     * @param key key to look for
+     * @return true if present
+     */
+    public boolean contains(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Gets the key at an index.
+     * @param index index between 0 and size() - 1
+     * @return key added at that index
+     */
+    public long get(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Gets the number of keys.
+     * @return number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets how many keys fit before the set grows, which is also the
+     * length a parallel value array needs.
+     * @return key capacity
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Removes every key, keeping the allocated capacity.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(table, 0);
+            size = 0;
+        }
+    }
+
+    /**
+     * Doubles the capacity and re-inserts every key in the same order.
+     */
+    private void grow() {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+}
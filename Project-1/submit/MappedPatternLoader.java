@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loads the plain-text pattern format of data/*.txt by memory-mapping the
+ * file and parsing bytes directly into a PatternSink. Large files are
+ * mapped one window at a time, so no copy of the file is ever on the heap.
+ *
+ * The format is a "rows cols" header followed by one line per row where
+ * 'O' is alive and any other character is dead. As with loadFromString,
+ * leading and trailing whitespace of a row is ignored and extra characters
+ * past the last column are allowed. A row that is too short, or a missing
+ * row, is reported with its line number.
+ */
+public final class MappedPatternLoader {
+
+    /** Bytes mapped at a time. */
+    static final int WINDOW = 64 << 20;
+
+    private MappedPatternLoader() {
+    }
+
+    /**
+     * Loads a pattern file into a sink.
+     * @param filename input file path
+     * @param sink receiver of the grid size and live cells
+     * @throws java.io.FileNotFoundException if file not found
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static void load(String filename, PatternSink sink) throws IOException {
+        load(filename, sink, WINDOW);
+    }
+
+    /**
+     * Loads a pattern file into a sink mapping the given bytes at a time.
+     * @param filename input file path
+     * @param sink receiver of the grid size and live cells
+     * @param window bytes mapped at a time
+     * @throws IOException if the file cannot be read
+     */
+    static void load(String filename, PatternSink sink, int window) throws IOException {
+        Parser parser = new Parser(filename, sink);
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+                FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += window) {
+                long length = Math.min(window, size - pos);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+                while (buffer.hasRemaining()) {
+                    parser.accept(buffer.get());
+                }
+            }
+        }
+        parser.finish();
+    }
+
+    /**
+     * Byte-at-a-time parser, so its state carries across mapped windows.
+     */
+    private static final class Parser {
+        private static final int ROWS = 0;      // reading the row count
+        private static final int COLS = 1;      // reading the column count
+        private static final int HEADER = 2;    // skipping the rest of the header line
+        private static final int CELLS = 3;     // reading grid rows
+
+        private final String name;
+        private final PatternSink sink;
+        private int state = ROWS;
+        private boolean inNumber;
+        private long number;
+        private int rows;
+        private int cols;
+        private int line = 1;
+        private int row;
+        private int length;   // characters of the current row so far
+        private int trimmed;  // length up to the last non-blank character
+
+        /**
+         * Creates a parser.
+         * @param name file name used in error messages
+         * @param sink receiver of the grid
+         */
+        Parser(String name, PatternSink sink) {
+            this.name = name;
+            this.sink = sink;
+        }
+
+        /**
+         * Consumes one byte of the file.
+         * @param b next byte
+         */
+        void accept(byte b) {
+            if (state == CELLS) {
+                if (b == '\n') {
+                    endRow();
+                } else if (b <= ' ' && b >= 0) {
+                    // blanks before the first cell are skipped like trim()
+                    if (length > 0) {
+                        length++;
+                    }
+                } else {
+                    if (b == 'O' && length < cols && row < rows) {
+                        sink.setAlive(row, length);
+                    }
+                    length++;
+                    trimmed = length;
+                }
+            } else if (state == HEADER) {
+                if (b == '\n') {
+                    line++;
+                    state = CELLS;
+                }
+            } else {
+                header(b);
+            }
+        }
+
+        /**
+         * Consumes one byte of the "rows cols" header.
+         * @param b next byte
+         */
+        private void header(byte b) {
+            if (b >= '0' && b <= '9') {
+                number = number * 10 + (b - '0');
+                if (number > Integer.MAX_VALUE) {
+                    throw error("grid size is too large");
+                }
+                inNumber = true;
+            } else if (b <= ' ' && b >= 0) {
+                if (inNumber) {
+                    endNumber();
+                }
+                if (b == '\n') {
+                    line++;
+                    if (state == HEADER) {
+                        state = CELLS;
+                    }
+                }
+            } else {
+                throw error("expected the grid size but found '" + (char) b + "'");
+            }
+        }
+
+        /**
+         * Finishes a header number.
+         */
+        private void endNumber() {
+            if (state == ROWS) {
+                rows = (int) number;
+                state = COLS;
+            } else {
+                cols = (int) number;
+                sink.resize(rows, cols);
+                state = HEADER;
+            }
+            number = 0;
+            inNumber = false;
+        }
+
+        /**
+         * Finishes a grid row at the end of its line.
+         */
+        private void endRow() {
+            if (row < rows) {
+                if (trimmed < cols) {
+                    throw error("expected " + cols + " cells but found " + trimmed);
+                }
+                row++;
+            }
+            line++;
+            length = 0;
+            trimmed = 0;
+        }
+
+        /**
+         * Checks the file held the whole grid once every byte is read.
+         */
+        void finish() {
+            if (state == COLS && inNumber) {
+                endNumber();
+            }
+            if (state < HEADER) {
+                throw error("missing the grid size");
+            }
+            if (length > 0 || trimmed > 0) {
+                endRow();
+            }
+            if (row < rows) {
+                throw error("expected " + rows + " rows but found " + row);
+            }
+        }
+
+        /**
+         * Builds an error naming the current line.
+         * @param message what went wrong
+         * @return exception to throw
+         */
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(name + ": line " + line + ": " + message);
+        }
+    }
+}
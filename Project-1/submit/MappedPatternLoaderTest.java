@@ -0,0 +1,135 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+/**
+ * Test class for the memory-mapped pattern loader.
+ */
+public class MappedPatternLoaderTest {
+
+    /**
+     * Writes text to a temporary pattern file.
+     * @param text file contents
+     * @return path of the file
+     */
+    private static String write(String text) throws IOException {
+        File temp = File.createTempFile("pattern", ".txt");
+        temp.deleteOnExit();
+        try (Writer w = new FileWriter(temp)) {
+            w.write(text);
+        }
+        return temp.getAbsolutePath();
+    }
+
+    /**
+     * Records what the loader reports.
+     */
+    private static class GridSink implements PatternSink {
+        boolean[][] cells;
+
+        @Override
+        public void resize(int rows, int cols) {
+            assertNull("resize called twice", cells);
+            cells = new boolean[rows][cols];
+        }
+
+        @Override
+        public void setAlive(int r, int c) {
+            assertFalse("cell reported twice", cells[r][c]);
+            cells[r][c] = true;
+        }
+    }
+
+    /**
+     * Window boundaries anywhere in the file give the same grid.
+     */
+    @Test
+    public void testWindowBoundaries() throws IOException {
+        String path = write("3 4\r\n.O..\r\n  O..O  \r\n...O");
+        for (int window = 1; window <= 8; window++) {
+            GridSink sink = new GridSink();
+            MappedPatternLoader.load(path, sink, window);
+            boolean[][] expected = {
+                {false, true, false, false},
+                {true, false, false, true},
+                {false, false, false, true},
+            };
+            assertArrayEquals(expected, sink.cells);
+        }
+    }
+
+    /**
+     * Loading through Project1 matches loadFromString on the data files.
+     */
+    @Test
+    public void testDataFilesMatchScanner() throws IOException {
+        String[] names = {"blinker", "block", "beehive", "tub", "full", "empty", "example1"};
+        for (String name : names) {
+            File file = new File("data/" + name + ".txt");
+            if (!file.exists()) {
+                continue;
+            }
+            Project1 mapped = new Project1();
+            mapped.loadFromFile(file.getPath());
+            Project1 scanned = new Project1();
+            StringBuilder sb = new StringBuilder();
+            try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    sb.append(line).append('\n');
+                }
+            }
+            scanned.loadFromString(sb.toString());
+            assertEquals(scanned.numRows(), mapped.numRows());
+            assertEquals(scanned.numCols(), mapped.numCols());
+            for (int i = 0; i < scanned.numRows(); i++) {
+                for (int j = 0; j < scanned.numCols(); j++) {
+                    assertEquals(name, scanned.isAlive(i, j), mapped.isAlive(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * A short row is reported with its line number.
+     */
+    @Test
+    public void testShortRow() throws IOException {
+        String path = write("3 3\nO..\n.O\n..O\n");
+        try {
+            new PackedLife().loadFromFile(path);
+            fail("short row should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 3"));
+            assertTrue(e.getMessage(), e.getMessage().contains("expected 3 cells but found 2"));
+        }
+    }
+
+    /**
+     * A missing row and a missing header are reported.
+     */
+    @Test
+    public void testMissingRowsAndHeader() throws IOException {
+        try {
+            new Project1().loadFromFile(write("3 3\nO..\n"));
+            fail("missing row should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("expected 3 rows but found 1"));
+        }
+        try {
+            new Project1().loadFromFile(write("x 3\nO..\n"));
+            fail("bad header should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 1"));
+        }
+    }
+
+    /**
+     * A missing file is still a FileNotFoundException.
+     */
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingFile() throws IOException {
+        new Project1().loadFromFile("data/no-such-pattern.txt");
+    }
+}
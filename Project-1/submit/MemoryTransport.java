@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HaloTransport between nodes in one JVM, handing messages over through
+ * queues. Useful for running workers as threads, in tests or on a single
+ * machine, without the cost of sockets.
+ */
+public class MemoryTransport implements HaloTransport {
+
+    private static final Map<String, MemoryTransport> NODES = new ConcurrentHashMap<>();
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    // put in a queue when the sending node closes, compared by identity
+    private static final byte[] LOST = new byte[0];
+
+    private final String address = "memory:" + COUNTER.getAndIncrement();
+    private final Map<Integer, MemoryTransport> peers = new ConcurrentHashMap<>();
+    private final Map<Integer, BlockingQueue<byte[]>> inboxes = new ConcurrentHashMap<>();
+    private volatile int id = COORDINATOR;
+
+    /**
+     * Creates a node reachable at its address() until closed.
+     */
+    public MemoryTransport() {
+        NODES.put(address, this);
+    }
+
+    @Override
+    public String address() {
+        return address;
+    }
+
+    @Override
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public void connect(int peer, String address) throws IOException {
+        if (peers.containsKey(peer)) {
+            return;
+        }
+        MemoryTransport other = NODES.get(address);
+        if (other == null) {
+            throw new IOException("no node at " + address);
+        }
+        peers.put(peer, other);
+        other.peers.put(id, this);
+    }
+
+    @Override
+    public void send(int peer, byte[] message) throws IOException {
+        if (peer == id) {
+            inbox(peer).add(message);
+            return;
+        }
+        MemoryTransport other = peers.get(peer);
+        if (other == null) {
+            throw new IOException("not connected to node " + peer);
+        }
+        other.inbox(id).add(message);
+    }
+
+    @Override
+    public byte[] receive(int peer) throws IOException {
+        BlockingQueue<byte[]> inbox = inbox(peer);
+        try {
+            byte[] message = inbox.take();
+            if (message == LOST) {
+                inbox.add(LOST);  // later calls fail the same way
+                throw new IOException("lost connection to node " + peer);
+            }
+            return message;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for node " + peer);
+        }
+    }
+
+    /**
+     * Stops being reachable; nodes waiting for a message from this one
+     * get an IOException.
+     */
+    @Override
+    public void close() {
+        NODES.remove(address);
+        for (MemoryTransport other : peers.values()) {
+            other.inbox(id).add(LOST);
+        }
+    }
+
+    /**
+     * Gets the queue of messages from a node.
+     * @param peer sender id
+     * @return its queue
+     */
+    private BlockingQueue<byte[]> inbox(int peer) {
+        return inboxes.computeIfAbsent(peer, p -> new LinkedBlockingQueue<>());
+    }
+}
@@ -0,0 +1,378 @@
+import itsc2214.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Scanner;
+import java.util.Random;
+
+/**
+ * Implements Conway's Game of Life with 64 cells packed into each long.
+ * Column c of a row is bit (c % 64) of word (c / 64), and every row has a
+ * zero guard word on both ends plus a zero guard row above and below, so
+ * the step never needs a bounds check. A whole word of cells is advanced
+ * at once with bitwise adders instead of counting neighbors per cell.
+ *
+ * When the JDK's jdk.incubator.vector module is enabled and
+ * VectorRowStepper from simd/ is on the class path, several words are
+ * advanced per instruction; otherwise the scalar loop is used. Both give
+ * identical results. Setting -Dlife.vector=false forces the scalar loop.
+ */
+public class PackedLife implements GameOfLife {
+
+    private int rows;
+    private int cols;
+    private int words;      // data words per row
+    private int stride;     // words per row including the two guard words
+    private long tailMask;  // valid bits of the last data word in a row
+    private long[] cells;
+    private long[] next;
+    private boolean stepped;
+    private boolean changed;
+
+    /** Scalar row step, always available. */
+    private static final RowStepper SCALAR = PackedLife::stepRow;
+
+    /** Vector API row step, or null when it cannot be loaded. */
+    private static final RowStepper VECTOR = loadVectorStepper();
+
+    private RowStepper stepper = VECTOR != null ? VECTOR : SCALAR;
+
+    /**
+     * Default constructor (3x3 grid).
+     */
+    public PackedLife() {
+        this(3, 3);
+    }
+
+    /**
+     * Constructor with custom dimensions.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public PackedLife(int rows, int cols) {
+        allocate(rows, cols);
+    }
+
+    /**
+     * Allocates both buffers for an all-dead grid of the given size.
+     * @param r number of rows
+     * @param c number of columns
+     */
+    void allocate(int r, int c) {
+        rows = r;
+        cols = c;
+        words = (c + 63) >>> 6;
+        stride = words + 2;
+        int tail = c & 63;
+        tailMask = tail == 0 ? -1L : (1L << tail) - 1;
+        cells = new long[(rows + 2) * stride];
+        next = new long[(rows + 2) * stride];
+        stepped = false;
+        changed = false;
+    }
+
+    /**
+     * Index of the word holding column c of row r.
+     * @param r row index
+     * @param c column index
+     * @return index into the cell buffer
+     */
+    private int wordIndex(int r, int c) {
+        return (r + 1) * stride + 1 + (c >>> 6);
+    }
+
+    /**
+     * Sets a single cell in the current generation.
+     * @param r row index
+     * @param c column index
+     * @param alive new state of the cell
+     */
+    private void set(int r, int c, boolean alive) {
+        int i = wordIndex(r, c);
+        long bit = 1L << c; // shift distance is taken mod 64
+        if (alive) {
+            cells[i] |= bit;
+        } else {
+            cells[i] &= ~bit;
+        }
+    }
+
+    /**
+     * Randomly initialize live cells based on probability.
+     * @param aliveProbability chance for each cell to be alive
+     */
+    @Override
+    public void randomInitialize(double aliveProbability) {
+        Random rand = new Random();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                set(i, j, rand.nextDouble() < aliveProbability);
+            }
+        }
+        stepped = false;
+    }
+
+    /**
+     * Counts the amount of live neighbors around a cell.
+     * @param r row index
+     * @param c column index
+     * @return number of live neighbors
+     */
+    @Override
+    public int countLiveNeighbors(int r, int c) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && isAlive(r + dr, c + dc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the element in row r and column c is alive.
+     * @param r row index
+     * @param c column index
+     * @return true if alive, false if dead
+     */
+    @Override
+    public boolean isAlive(int r, int c) {
+        if (r < 0 || c < 0 || r >= rows || c >= cols) {
+            return false;
+        }
+        return (cells[wordIndex(r, c)] >>> c & 1L) != 0;
+    }
+
+    /**
+     * Checks if the last generation left the grid unchanged.
+     * @return true if still life, false otherwise
+     */
+    @Override
+    public boolean isStillLife() {
+        return stepped && !changed;
+    }
+
+    /**
+     * Sets the grid configuration from string values.
+     * @param data string representation of the grid
+     */
+    @Override
+    public void loadFromString(String data) {
+        Scanner scan = new Scanner(data);
+
+        int r = scan.nextInt();
+        int c = scan.nextInt();
+        scan.nextLine();
+
+        allocate(r, c);
+        for (int i = 0; i < r; i++) {
+            String line = scan.nextLine().trim();
+            for (int j = 0; j < c; j++) {
+                set(i, j, line.charAt(j) == 'O');
+            }
+        }
+    }
+
+    /**
+     * Loads a pattern file by memory-mapping it and parsing the cells
+     * straight into the grid, without building an intermediate String.
+     * @param filename input file path
+     * @throws FileNotFoundException if file not found
+     * @throws IllegalArgumentException if a row is short or missing
+     */
+    @Override
+    public void loadFromFile(String filename) throws FileNotFoundException {
+        try {
+            MappedPatternLoader.load(filename, new PatternSink() {
+                @Override
+                public void resize(int rows, int cols) {
+                    allocate(rows, cols);
+                }
+
+                @Override
+                public void setAlive(int r, int c) {
+                    set(r, c, true);
+                }
+            });
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Computes the next generation one 64-cell word at a time.
+     */
+    @Override
+    public void nextGeneration() {
+        long diff = 0;
+        for (int r = 1; r <= rows; r++) {
+            int row = r * stride;
+            diff |= stepper.stepRow(cells, row - stride, row, row + stride,
+                    next, words, tailMask);
+        }
+
+        long[] tmp = cells;
+        cells = next;
+        next = tmp;
+        stepped = true;
+        changed = diff != 0;
+    }
+
+    /**
+     * Computes one row of the next generation. Each argument row starts at
+     * its left guard word, so word i reads its neighbors at i - 1 and i + 1.
+     * @param src current generation
+     * @param above index of the row above
+     * @param row index of the row being computed
+     * @param below index of the row below
+     * @param dst buffer receiving the new row at the same index
+     * @param words number of data words in the row
+     * @param tailMask valid bits of the last data word
+     * @return non-zero if any cell of the row changed
+     */
+    static long stepRow(long[] src, int above, int row, int below,
+            long[] dst, int words, long tailMask) {
+        return stepWords(src, above, row, below, dst, 1, words, tailMask);
+    }
+
+    /**
+     * Computes words from through words of one row, as stepRow does for
+     * the whole row. Lets a vector loop finish the words it cannot fill
+     * a full vector with.
+     * @param src current generation
+     * @param above index of the row above
+     * @param row index of the row being computed
+     * @param below index of the row below
+     * @param dst buffer receiving the new row at the same index
+     * @param from first word to compute, 1 for the whole row
+     * @param words number of data words in the row
+     * @param tailMask valid bits of the last data word
+     * @return non-zero if any computed cell changed
+     */
+    static long stepWords(long[] src, int above, int row, int below,
+            long[] dst, int from, int words, long tailMask) {
+        long diff = 0;
+        for (int i = from; i <= words; i++) {
+            long a = src[above + i];
+            long m = src[row + i];
+            long b = src[below + i];
+
+            // neighbor bitboards shifted into line with the center word
+            long aw = (a << 1) | (src[above + i - 1] >>> 63);
+            long ae = (a >>> 1) | (src[above + i + 1] << 63);
+            long mw = (m << 1) | (src[row + i - 1] >>> 63);
+            long me = (m >>> 1) | (src[row + i + 1] << 63);
+            long bw = (b << 1) | (src[below + i - 1] >>> 63);
+            long be = (b >>> 1) | (src[below + i + 1] << 63);
+
+            // per-row sums as two bit planes (ones and twos)
+            long a0 = aw ^ a ^ ae;
+            long a1 = (aw & a) | (ae & (aw ^ a));
+            long m0 = mw ^ me;
+            long m1 = mw & me;
+            long b0 = bw ^ b ^ be;
+            long b1 = (bw & b) | (be & (bw ^ b));
+
+            // count = x0 + 2 * (a1 + m1 + b1 + c0)
+            long x0 = a0 ^ m0 ^ b0;
+            long c0 = (a0 & m0) | (b0 & (a0 ^ m0));
+
+            // exactly one of the four twos means a count of 2 or 3
+            long two = (a1 ^ m1 ^ b1 ^ c0) & ~((a1 & m1) | (b1 & c0));
+
+            // alive with 2 or 3 neighbors, or dead with exactly 3
+            long out = two & (x0 | m) & (i == words ? tailMask : -1L);
+            dst[row + i] = out;
+            diff |= out ^ m;
+        }
+        return diff;
+    }
+
+    /**
+     * Loads the Vector API row step if the module and class are present.
+     * @return the stepper, or null to use the scalar loop
+     */
+    private static RowStepper loadVectorStepper() {
+        if ("false".equals(System.getProperty("life.vector"))) {
+            return null;
+        }
+        try {
+            return Class.forName("VectorRowStepper").asSubclass(RowStepper.class)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // not compiled in, or run without --add-modules jdk.incubator.vector
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the Vector API row step was loaded.
+     * @return true if grids step with vector instructions by default
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Chooses between the vector and scalar row step for this grid.
+     * Asking for vectors when they are unavailable keeps the scalar loop.
+     * @param vector true to use the Vector API if it was loaded
+     */
+    void setVectorized(boolean vector) {
+        stepper = vector && VECTOR != null ? VECTOR : SCALAR;
+    }
+
+    /**
+     * Gets the number of data words in each row, (numCols() + 63) / 64.
+     * @return words per row
+     */
+    int wordsPerRow() {
+        return words;
+    }
+
+    /**
+     * Copies the packed words of a row, column c in bit c % 64 of word c / 64.
+     * @param r row index
+     * @param dst array receiving wordsPerRow() words
+     */
+    void getRow(int r, long[] dst) {
+        System.arraycopy(cells, (r + 1) * stride + 1, dst, 0, words);
+    }
+
+    /**
+     * Replaces the packed words of a row; bits past the last column are
+     * cleared.
+     * @param r row index
+     * @param src array holding wordsPerRow() words
+     */
+    void setRow(int r, long[] src) {
+        int row = (r + 1) * stride + 1;
+        System.arraycopy(src, 0, cells, row, words);
+        if (words > 0) {
+            cells[row + words - 1] &= tailMask;
+        }
+        stepped = false;
+    }
+
+    /**
+     * Gets the number of columns in the grid.
+     * @return number of columns
+     */
+    @Override
+    public int numCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of rows in the grid.
+     * @return number of rows
+     */
+    @Override
+    public int numRows() {
+        return rows;
+    }
+}
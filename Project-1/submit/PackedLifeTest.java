@@ -0,0 +1,223 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+/**
+ * Test class for the bit-packed Game of Life.
+ */
+public class PackedLifeTest {
+
+    private PackedLife runner;
+
+    /**
+     * creates a packed game of life with 3x3 grid.
+     */
+    @Before
+    public void setup() {
+        runner = new PackedLife(3, 3);
+    }
+
+    /**
+     * Checks basic setup of 3x3 and the default constructor.
+     */
+    @Test
+    public void testDimensions() {
+        assertEquals(3, runner.numRows());
+        assertEquals(3, runner.numCols());
+        PackedLife run = new PackedLife();
+        assertEquals(3, run.numRows());
+        assertEquals(3, run.numCols());
+    }
+
+    /**
+     * A lonely cell dies after one generation.
+     */
+    @Test
+    public void testSmallGrid() {
+        runner.loadFromString("3 3\nO..\n...\n...\n");
+        assertTrue("Position 0,0 should be alive", runner.isAlive(0, 0));
+        runner.nextGeneration();
+        assertFalse("Position 0,0 should NOT be alive", runner.isAlive(0, 0));
+    }
+
+    /**
+     * Test loading from a temporary file.
+     */
+    @Test
+    public void filetest() throws Exception {
+        File temp = File.createTempFile("glider", ".txt");
+        PrintWriter pw = new PrintWriter(temp);
+        pw.println("3 3");
+        pw.println("O..");
+        pw.println(".O.");
+        pw.println("..O");
+        pw.close();
+
+        runner.loadFromFile(temp.getAbsolutePath());
+        assertTrue("Position (0,0) should be alive", runner.isAlive(0, 0));
+        runner.nextGeneration();
+        assertTrue("Position (1,1) should be alive", runner.isAlive(1, 1));
+        assertFalse("Position (0,0) should NOT be alive", runner.isAlive(0, 0));
+    }
+
+    /**
+     * Test still life detection.
+     */
+    @Test
+    public void countStillLifeTest() {
+        assertFalse("No generation computed yet", runner.isStillLife());
+        runner.loadFromString("4 4\nOO..\nOO..\n....\n....\n");
+        runner.nextGeneration();
+        assertTrue(runner.isStillLife());
+
+        runner.loadFromString("4 4\n....\n.O..\n.O..\n.O..\n");
+        runner.nextGeneration();
+        assertFalse(runner.isStillLife());
+    }
+
+    /**
+     * Test random initialization at probability 0 and 1.
+     */
+    @Test
+    public void testRandomInt() {
+        runner.randomInitialize(0);
+        assertEquals(0, population(runner));
+        runner.randomInitialize(1);
+        assertEquals(9, population(runner));
+    }
+
+    /**
+     * Tests the isAlive method and neighbor counts on the edges.
+     */
+    @Test
+    public void testIsAliveAndNeighbors() {
+        runner.loadFromString("2 2\nO.\n.O");
+        assertFalse(runner.isAlive(-1, 0));
+        assertFalse(runner.isAlive(0, -1));
+        assertFalse(runner.isAlive(2, 0));
+        assertFalse(runner.isAlive(0, 2));
+        assertTrue(runner.isAlive(0, 0));
+        assertFalse(runner.isAlive(0, 1));
+        assertEquals(2, runner.countLiveNeighbors(1, 0));
+        assertEquals(1, runner.countLiveNeighbors(0, 0));
+    }
+
+    /**
+     * Random soups across word boundaries must evolve exactly like Project1.
+     */
+    @Test
+    public void testMatchesProject1() {
+        int[][] sizes = {{1, 1}, {5, 63}, {7, 64}, {9, 65}, {40, 130}};
+        for (int[] size : sizes) {
+            Project1 plain = new Project1(size[0], size[1]);
+            plain.randomInitialize(0.35);
+            PackedLife packed = new PackedLife();
+            packed.loadFromString(toText(plain));
+
+            for (int g = 0; g < 40; g++) {
+                assertGridsEqual(plain, packed);
+                plain.nextGeneration();
+                packed.nextGeneration();
+                assertEquals(plain.isStillLife(), packed.isStillLife());
+            }
+            assertGridsEqual(plain, packed);
+        }
+    }
+
+    /**
+     * The vector and scalar row steps give exactly Project1's cells on
+     * every data file and on soups whose widths end a vector early, on a
+     * vector boundary and in a partial word. Without the Vector API both
+     * runs use the scalar loop.
+     */
+    @Test
+    public void testVectorMatchesProject1() throws IOException {
+        java.util.List<Project1> starts = new java.util.ArrayList<>();
+        File[] files = new File("data").listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files != null) {
+            for (File file : files) {
+                Project1 game = new Project1();
+                try {
+                    game.loadFromFile(file.getPath());
+                } catch (IllegalArgumentException e) {
+                    continue;   // a malformed pattern such as beacon.txt
+                }
+                starts.add(game);
+            }
+        }
+        int[] widths = {1, 64, 127, 128, 256, 300, 512, 577, 1000};
+        for (int w = 0; w < widths.length; w++) {
+            Project1 game = new Project1(23, widths[w]);
+            game.randomInitialize(0.3, w);
+            starts.add(game);
+        }
+
+        for (Project1 plain : starts) {
+            PackedLife vector = new PackedLife();
+            vector.loadFromString(toText(plain));
+            vector.setVectorized(true);
+            PackedLife scalar = new PackedLife();
+            scalar.loadFromString(toText(plain));
+            scalar.setVectorized(false);
+            for (int g = 0; g < 30; g++) {
+                plain.nextGeneration();
+                vector.nextGeneration();
+                scalar.nextGeneration();
+                assertGridsEqual(plain, vector);
+                assertGridsEqual(plain, scalar);
+                assertEquals(plain.isStillLife(), vector.isStillLife());
+            }
+        }
+    }
+
+    /**
+     * Counts live cells through the interface.
+     * @param game game to count
+     * @return number of live cells
+     */
+    private static int population(PackedLife game) {
+        int count = 0;
+        for (int i = 0; i < game.numRows(); i++) {
+            for (int j = 0; j < game.numCols(); j++) {
+                if (game.isAlive(i, j)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a grid in the loadFromString format.
+     * @param game game to describe
+     * @return text form of the grid
+     */
+    private static String toText(Project1 game) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(game.numRows()).append(' ').append(game.numCols()).append('\n');
+        for (int i = 0; i < game.numRows(); i++) {
+            for (int j = 0; j < game.numCols(); j++) {
+                sb.append(game.isAlive(i, j) ? 'O' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Asserts both engines hold the same cells.
+     * @param expected reference engine
+     * @param actual packed engine
+     */
+    private static void assertGridsEqual(Project1 expected, PackedLife actual) {
+        assertEquals(expected.numRows(), actual.numRows());
+        assertEquals(expected.numCols(), actual.numCols());
+        for (int i = 0; i < expected.numRows(); i++) {
+            for (int j = 0; j < expected.numCols(); j++) {
+                assertEquals("cell " + i + "," + j,
+                        expected.isAlive(i, j), actual.isAlive(i, j));
+            }
+        }
+    }
+}
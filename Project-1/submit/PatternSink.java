@@ -0,0 +1,21 @@
+/**
+ * Receives a Game of Life pattern from a reader, so a grid can be filled
+ * straight from the file without an intermediate String.
+ */
+public interface PatternSink {
+
+    /**
+     * Called once with the size from the header, before any cell.
+     * The sink should hold an all-dead grid of this size afterwards.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    void resize(int rows, int cols);
+
+    /**
+     * Marks one cell alive. Dead cells are not reported.
+     * @param r row index
+     * @param c column index
+     */
+    void setAlive(int r, int c);
+}
@@ -1,17 +1,65 @@
 import itsc2214.*;
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Scanner;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * Implements Conway's Game of Life using a 2D array.
+ * Implements Conway's Game of Life using a 2D array. Other Life-like
+ * rules such as HighLife can be set with setRule.
+ * The grid is split into square tiles and a generation only steps the
+ * tiles that changed, or touch one that changed, in the generation before.
+ * A Zobrist hash of the grid is updated for every cell that flips, so
+ * returning to an earlier state, such as a blinker's, is found in O(1)
+ * per generation.
+ *
+ * The grid keeps a one-cell halo around its edges, refreshed once per
+ * generation from the opposite edges for a wrapping Boundary, so counting
+ * neighbors needs no bounds checks.
  */
 public class Project1 implements GameOfLife {
 
-    private boolean[][] grid;
-    private boolean[][] newgrid;
-    private boolean[][] previousGrid;
+    // cell (r, c) is stored at [r + 1][c + 1] as 1 if alive and 0 if dead,
+    // and the outer ring holds what lies across each edge
+    private byte[][] grid;
+    private byte[][] newgrid;
+    private int rows;
+    private int cols;
+    private Boundary boundary = Boundary.DEAD;
+    private boolean stepped;  // a generation has been computed since loading
+    private boolean changed;  // the last generation flipped at least one cell
+    private ForkJoinPool pool; // null steps on the calling thread
+    private LifeRule rule = LifeRule.CONWAY;
+    private long generation;  // generations computed since loading
+    private long hash;        // XOR of cellKey over the live cells
+    private final CycleDetector cycles = new CycleDetector();
+    private long population;  // live cells, updated from the flips
+    private long births;      // cells born in the last generation
+    private long deaths;      // cells that died in the last generation
+    private LifeMetrics metrics; // null leaves steps untimed
+
+    // tile bookkeeping, tiles are numbered row by row
+    private int tileRows;
+    private int tileCols;
+    private boolean[] tileChanged;  // set by the step for every stepped tile
+    private long[] tileHash;        // hash change of each stepped tile
+    private int[] tileBirths;       // births in each stepped tile
+    private int[] tileDeaths;       // deaths in each stepped tile
+    private int[] activeTiles;      // tiles to step in the next generation
+    private int[] nextActive;       // spare list, swapped with activeTiles
+    private int activeCount;
+    private int[] listedMark;       // equals markStamp once a tile is listed
+    private int markStamp;
+
+    /** Cells per side of a tile. */
+    private static final int TILE = 32;
+
+    /** Fewest active tiles a parallel band is split into. */
+    private static final int MIN_BAND_TILES = 4;
 
     /**
      * Randomly initialize live cells based on probability.
@@ -19,39 +67,66 @@ public class Project1 implements GameOfLife {
      */
     @Override
     public void randomInitialize(double aliveProbability) {
-        Random rand = new Random();
-        for (int i = 0; i < grid.length; i++) {
-            for (int j = 0; j < grid[i].length; j++) {
+        randomInitialize(aliveProbability, new Random());
+    }
+
+    /**
+     * Randomly initialize live cells from a fixed seed, so the same seed
+     * always gives the same grid.
+     * @param aliveProbability chance for each cell to be alive
+     * @param seed seed for the random numbers
+     */
+    public void randomInitialize(double aliveProbability, long seed) {
+        randomInitialize(aliveProbability, new Random(seed));
+    }
+
+    /**
+     * Randomly initialize live cells.
+     * @param aliveProbability chance for each cell to be alive
+     * @param rand source of random numbers
+     */
+    private void randomInitialize(double aliveProbability, Random rand) {
+        hash = 0;
+        population = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
                 double value = rand.nextDouble();
-                grid[i][j] = value < aliveProbability;
+                boolean alive = value < aliveProbability;
+                grid[i + 1][j + 1] = (byte) (alive ? 1 : 0);
+                if (alive) {
+                    hash ^= cellKey(i, j);
+                    population++;
+                }
             }
         }
+        activateAll();
+        restart();
     }
 
     /**
-     * Counts the amount of live neighbors around a cell.
+     * Counts the amount of live neighbors around a cell, across the edges
+     * for a wrapping boundary.
      * @param r row index
      * @param c column index
      * @return number of live neighbors
      */
     @Override
     public int countLiveNeighbors(int r, int c) {
-        int count = 0;
-        int[] d = {-1, 0, 1};
-
-        for (int dr : d) {
-            for (int dc : d) {
-                if (dr == 0 && dc == 0) {
-                    continue;
-                }
-                int newRow = r + dr;
-                int newCol = c + dc;
+        if (r >= 0 && r < rows && c >= 0 && c < cols) {
+            // padded column c + 1 holds cell c, so its neighbors are c to c + 2
+            byte[] up = grid[r];
+            byte[] row = grid[r + 1];
+            byte[] down = grid[r + 2];
+            return up[c] + up[c + 1] + up[c + 2] + row[c] + row[c + 2]
+                + down[c] + down[c + 1] + down[c + 2];
+        }
 
-                if (newRow >= 0 && newRow < grid.length
-                        && newCol >= 0 && newCol < grid[0].length) {
-                    if (grid[newRow][newCol]) {
-                        count++;
-                    }
+        // a position outside the grid only counts the cells inside it
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && isAlive(r + dr, c + dc)) {
+                    count++;
                 }
             }
         }
@@ -67,10 +142,10 @@ public class Project1 implements GameOfLife {
     @Override
     public boolean isAlive(int r, int c) {
         if (r < 0 || c < 0
-                || r >= grid.length
-                || c >= grid[0].length) {
+                || r >= rows
+                || c >= cols) {
             return false;
-        } else if (grid[r][c]) {
+        } else if (grid[r + 1][c + 1] != 0) {
             return true;
         }
         return false;
@@ -82,18 +157,7 @@ public class Project1 implements GameOfLife {
      */
     @Override
     public boolean isStillLife() {
-        if (previousGrid == null) {
-            return false; // no previous state yet
-        }
-
-        for (int i = 0; i < grid.length; i++) {
-            for (int j = 0; j < grid[i].length; j++) {
-                if (grid[i][j] != previousGrid[i][j]) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return stepped && !changed; // no previous state until the first step
     }
 
     /**
@@ -109,63 +173,506 @@ public class Project1 implements GameOfLife {
         int cols = scan.nextInt();
         scan.nextLine(); // move to the next line
 
-        grid = new boolean[rows][cols];
+        allocate(rows, cols);
 
         // Read each row of the grid
         for (int i = 0; i < rows; i++) {
             String line = scan.nextLine().trim();
             for (int j = 0; j < cols; j++) {
-                grid[i][j] = line.charAt(j) == 'O';
+                if (line.charAt(j) == 'O') {
+                    grid[i + 1][j + 1] = 1;
+                    hash ^= cellKey(i, j);
+                    population++;
+                }
             }
         }
+        restart();
     }
 
     /**
-     * Loads file and reads it into String which then builds the grid.
+     * Loads a pattern file by memory-mapping it and parsing the cells
+     * straight into the grid, without building an intermediate String.
      * @param filename input file path
      * @throws FileNotFoundException if file not found
+     * @throws IllegalArgumentException if a row is short or missing
      */
     @Override
     public void loadFromFile(String filename) throws FileNotFoundException {
-        StringBuilder build = new StringBuilder();
-        File file = new File(filename);
-        Scanner scan = new Scanner(file);
-
-        while (scan.hasNextLine()) {
-            String line = scan.nextLine();
-            build.append(line).append("\n");
+        try {
+            MappedPatternLoader.load(filename, loader());
+            restart();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        scan.close();
-        loadFromString(build.toString());
     }
 
     /**
-     * Computes the next generation of the grid based on Conway's rules.
+     * Makes a sink that replaces the grid with the cells it is given, for
+     * loading files and restoring saved grids. Once the cells are in,
+     * {@link #restore(long)} starts counting generations from them.
+     * @return sink filling this grid
+     */
+    PatternSink loader() {
+        return new PatternSink() {
+            @Override
+            public void resize(int rows, int cols) {
+                allocate(rows, cols);
+            }
+
+            @Override
+            public void setAlive(int r, int c) {
+                if (grid[r + 1][c + 1] == 0) {
+                    grid[r + 1][c + 1] = 1;
+                    hash ^= cellKey(r, c);
+                    population++;
+                }
+            }
+        };
+    }
+
+    /**
+     * Continues from a grid filled through {@link #loader()} as if it had
+     * been computed for some generations, so a restored checkpoint counts
+     * on from where it was saved.
+     * @param generation generation number of the filled grid
+     */
+    void restore(long generation) {
+        restart();
+        this.generation = generation;
+        cycles.reset();
+        cycles.record(hash, generation);
+    }
+
+    /**
+     * Computes the next generation of the grid using the current rule.
+     * Writes into the spare buffer and swaps, so no arrays are allocated.
+     * A tile whose neighborhood did not change last generation stays the
+     * same, and the spare buffer already holds it from two generations
+     * ago, so it is skipped entirely. With a pool set, bands of active
+     * tiles are computed concurrently. The population, births and deaths
+     * are totalled from the cells that flipped, and the step is timed
+     * only while metrics are attached.
      */
     @Override
     public void nextGeneration() {
-        // save current state for reference
-        previousGrid = new boolean[grid.length][grid[0].length];
-        for (int i = 0; i < grid.length; i++) {
-            System.arraycopy(grid[i], 0, previousGrid[i], 0, grid[i].length);
-        }
-
-        // compute next generation
-        newgrid = new boolean[grid.length][grid[0].length];
-        for (int i = 0; i < grid.length; i++) {
-            for (int j = 0; j < grid[i].length; j++) {
-                int neighbors = countLiveNeighbors(i, j);
-
-                if (grid[i][j]) {
-                    newgrid[i][j] = neighbors == 2 || neighbors == 3;
-                } else {
-                    newgrid[i][j] = neighbors == 3;
+        long start = metrics == null ? 0 : System.nanoTime();
+        if (pool == null || activeCount < 2 * MIN_BAND_TILES) {
+            stepTiles(0, activeCount);
+        } else {
+            int bands = pool.getParallelism() * 4;
+            int band = Math.max(MIN_BAND_TILES, activeCount / bands);
+            pool.invoke(new StepBand(0, activeCount, band));
+        }
+
+        // now move forward: newgrid becomes grid, the old grid is reused
+        byte[][] tmp = grid;
+        grid = newgrid;
+        newgrid = tmp;
+        fillHalo(grid);
+        stepped = true;
+        changed = listNextActive();
+        generation++;
+        cycles.record(hash, generation);
+        if (metrics != null) {
+            metrics.recordStep(System.nanoTime() - start, (long) rows * cols, this);
+        }
+    }
+
+    /**
+     * Computes the tiles at positions [from, to) of the active list into
+     * newgrid. Only reads grid, so separate bands can run at the same time.
+     * @param from first position in the active list
+     * @param to one past the last position
+     */
+    private void stepTiles(int from, int to) {
+        int next = rule.bits();
+        for (int k = from; k < to; k++) {
+            int t = activeTiles[k];
+            int top = (t / tileCols) * TILE;
+            int left = (t % tileCols) * TILE;
+            int bottom = Math.min(top + TILE, rows);
+            int right = Math.min(left + TILE, cols);
+
+            boolean diff = false;
+            long flipped = 0;
+            int born = 0;
+            int died = 0;
+            for (int i = top; i < bottom; i++) {
+                byte[] up = grid[i];
+                byte[] row = grid[i + 1];
+                byte[] down = grid[i + 2];
+                byte[] out = newgrid[i + 1];
+                // the halo makes every cell an interior cell: no checks,
+                // no branches, so the JIT is free to unroll and vectorize
+                for (int j = left; j < right; j++) {
+                    int neighbors = up[j] + up[j + 1] + up[j + 2] + row[j] + row[j + 2]
+                        + down[j] + down[j + 1] + down[j + 2];
+                    out[j + 1] = (byte) (next >>> (row[j + 1] * LifeRule.COUNTS + neighbors) & 1);
+                }
+                int flips = 0;
+                for (int j = left + 1; j <= right; j++) {
+                    flips |= row[j] ^ out[j];
+                }
+                if (flips != 0) {
+                    diff = true;
+                    for (int j = left + 1; j <= right; j++) {
+                        if (row[j] != out[j]) {
+                            flipped ^= cellKey(i, j - 1);
+                            born += out[j];
+                            died += row[j];
+                        }
+                    }
                 }
             }
+            tileChanged[t] = diff;
+            tileHash[t] = flipped;
+            tileBirths[t] = born;
+            tileDeaths[t] = died;
         }
+    }
 
-        // now move forward: newgrid becomes grid
-        grid = newgrid;
+    /**
+     * Lists every tile that changed or touches one that changed as the
+     * tiles to step next, and folds the changed tiles into the grid hash
+     * and the counts of births and deaths.
+     * Costs time in the number of active tiles only.
+     * @return true if any tile changed
+     */
+    private boolean listNextActive() {
+        if (++markStamp == 0) {
+            Arrays.fill(listedMark, 0);
+            markStamp = 1;
+        }
+        int count = 0;
+        boolean edgeChanged = false;
+        long born = 0;
+        long died = 0;
+        for (int k = 0; k < activeCount; k++) {
+            int t = activeTiles[k];
+            if (!tileChanged[t]) {
+                continue;
+            }
+            hash ^= tileHash[t];
+            born += tileBirths[t];
+            died += tileDeaths[t];
+            int tr = t / tileCols;
+            int tc = t % tileCols;
+            for (int r = Math.max(0, tr - 1); r <= Math.min(tileRows - 1, tr + 1); r++) {
+                for (int c = Math.max(0, tc - 1); c <= Math.min(tileCols - 1, tc + 1); c++) {
+                    count = list(r * tileCols + c, count);
+                }
+            }
+            edgeChanged |= tr == 0 || tc == 0 || tr == tileRows - 1 || tc == tileCols - 1;
+        }
+        if (edgeChanged && boundary != Boundary.DEAD) {
+            // an edge change reaches across the boundary; rather than work
+            // out where for each topology, step every edge tile
+            for (int c = 0; c < tileCols; c++) {
+                count = list(c, count);
+                count = list((tileRows - 1) * tileCols + c, count);
+            }
+            for (int r = 0; r < tileRows; r++) {
+                count = list(r * tileCols, count);
+                count = list(r * tileCols + tileCols - 1, count);
+            }
+        }
+        births = born;
+        deaths = died;
+        population += born - died;
+        int[] tmp = activeTiles;
+        activeTiles = nextActive;
+        nextActive = tmp;
+        activeCount = count;
+        return count > 0;
+    }
+
+    /**
+     * Adds a tile to the next active list unless it is already listed.
+     * @param tile tile number
+     * @param count tiles listed so far
+     * @return tiles listed now
+     */
+    private int list(int tile, int count) {
+        if (listedMark[tile] != markStamp) {
+            listedMark[tile] = markStamp;
+            nextActive[count++] = tile;
+        }
+        return count;
+    }
+
+    /**
+     * Copies the edges across the boundary into the halo of a grid. A
+     * dead boundary leaves the halo all dead.
+     * @param g grid to refresh
+     */
+    private void fillHalo(byte[][] g) {
+        if (boundary == Boundary.DEAD || rows == 0 || cols == 0) {
+            return;
+        }
+        for (int i = 1; i <= rows; i++) {
+            g[i][0] = g[i][cols];
+            g[i][cols + 1] = g[i][1];
+        }
+        if (boundary == Boundary.TORUS) {
+            System.arraycopy(g[rows], 0, g[0], 0, cols + 2);
+            System.arraycopy(g[1], 0, g[rows + 1], 0, cols + 2);
+        } else {
+            // across the top or bottom of a Klein bottle, left and right swap
+            for (int j = 0; j < cols + 2; j++) {
+                g[0][j] = g[rows][cols + 1 - j];
+                g[rows + 1][j] = g[1][cols + 1 - j];
+            }
+        }
+    }
+
+    /**
+     * Marks every tile active, needed whenever cells are set directly
+     * because the spare buffer no longer matches the grid.
+     */
+    private void activateAll() {
+        activeCount = tileRows * tileCols;
+        for (int t = 0; t < activeCount; t++) {
+            activeTiles[t] = t;
+        }
+    }
+
+    /**
+     * Allocates both grids and the tile lists for a new size.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    private void allocate(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        grid = new byte[rows + 2][cols + 2];
+        newgrid = new byte[rows + 2][cols + 2];
+        tileRows = (rows + TILE - 1) / TILE;
+        tileCols = (cols + TILE - 1) / TILE;
+        int tiles = tileRows * tileCols;
+        tileChanged = new boolean[tiles];
+        tileHash = new long[tiles];
+        tileBirths = new int[tiles];
+        tileDeaths = new int[tiles];
+        activeTiles = new int[tiles];
+        nextActive = new int[tiles];
+        listedMark = new int[tiles];
+        markStamp = 0;
+        hash = 0;
+        population = 0;
+        activateAll();
+        restart();
+    }
+
+    /**
+     * Starts counting generations and looking for cycles from the
+     * current grid, after its cells were set directly.
+     */
+    private void restart() {
+        fillHalo(grid);
+        stepped = false;
+        generation = 0;
+        births = 0;
+        deaths = 0;
+        cycles.reset();
+        cycles.record(hash, 0);
+    }
+
+    /**
+     * Gets the random key of a cell for the Zobrist hash. Keys are mixed
+     * from the cell's position when needed instead of stored in a table
+     * as large as the grid.
+     * @param r row index
+     * @param c column index
+     * @return 64-bit key
+     */
+    private long cellKey(int r, int c) {
+        // splitmix64 finalizer
+        long z = ((long) r * cols + c + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Sets the rule used from the next generation on.
+     * @param rule Life-like rule, for example LifeRule.HIGHLIFE
+     */
+    public void setRule(LifeRule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("rule is null");
+        }
+        this.rule = rule;
+        activateAll(); // tiles settled under the old rule may change now
+        cycles.reset(); // earlier states repeat differently under a new rule
+        cycles.record(hash, generation);
+    }
+
+    /**
+     * Gets the rule used to compute generations.
+     * @return current rule, Conway's B3/S23 by default
+     */
+    public LifeRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Sets what lies beyond the edges of the grid from the next
+     * generation on.
+     * @param boundary DEAD, the default, TORUS or KLEIN
+     */
+    public void setBoundary(Boundary boundary) {
+        if (boundary == null) {
+            throw new IllegalArgumentException("boundary is null");
+        }
+        this.boundary = boundary;
+        for (byte[][] g : new byte[][][] {grid, newgrid}) {
+            // a dead boundary needs an all-dead halo, the others refill it
+            Arrays.fill(g[0], (byte) 0);
+            Arrays.fill(g[rows + 1], (byte) 0);
+            for (int i = 1; i <= rows; i++) {
+                g[i][0] = 0;
+                g[i][cols + 1] = 0;
+            }
+        }
+        fillHalo(grid);
+        activateAll();
+        cycles.reset();
+        cycles.record(hash, generation);
+    }
+
+    /**
+     * Gets what lies beyond the edges of the grid.
+     * @return current boundary
+     */
+    public Boundary getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Gets the number of generations computed since the grid was loaded
+     * or randomly initialized.
+     * @return generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the period of the cycle the grid has entered, found by
+     * comparing the hash of each generation with the recent ones.
+     * @return 1 for a still life, p for an oscillator of period p, or 0
+     *     if no repeat was seen in the last CycleDetector.DEFAULT_HISTORY
+     *     generations
+     */
+    public int getCyclePeriod() {
+        return cycles.getPeriod();
+    }
+
+    /**
+     * Gets the generation at which the grid entered its cycle.
+     * @return first generation of the cycle, or 0 if none was found
+     */
+    public long getCycleStart() {
+        return cycles.getStart();
+    }
+
+    /**
+     * Gets the Zobrist hash of the grid, equal for equal grids of the
+     * same size.
+     * @return hash of the live cells
+     */
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the number of live cells. Kept up to date as cells flip, so
+     * this takes constant time.
+     * @return live cells
+     */
+    public long getPopulation() {
+        return population;
+    }
+
+    /**
+     * Gets the number of cells born in the last generation.
+     * @return births, 0 before the first generation
+     */
+    public long getBirths() {
+        return births;
+    }
+
+    /**
+     * Gets the number of cells that died in the last generation.
+     * @return deaths, 0 before the first generation
+     */
+    public long getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * Attaches metrics that time every generation from now on. Without
+     * metrics, generations are not timed at all.
+     * @param metrics metrics to record into, or null to stop timing
+     */
+    public void setMetrics(LifeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the metrics generations are recorded into.
+     * @return attached metrics, or null
+     */
+    public LifeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the pool used to compute bands of active tiles in parallel.
+     * The result is identical to stepping on one thread.
+     * @param pool pool to step on, or null to step on the calling thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Splits a range of the active list in half until it is one band,
+     * then steps its tiles.
+     */
+    private final class StepBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int band;
+
+        /**
+         * Creates a task for active list positions [from, to).
+         * @param from first position
+         * @param to one past the last position
+         * @param band tiles per band
+         */
+        StepBand(int from, int to, int band) {
+            this.from = from;
+            this.to = to;
+            this.band = band;
+        }
+
+        /**
+         * Steps the tiles, splitting in half when above the band size.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= band) {
+                stepTiles(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new StepBand(from, mid, band), new StepBand(mid, to, band));
+            }
+        }
     }
 
     /**
@@ -174,7 +681,7 @@ public class Project1 implements GameOfLife {
      */
     @Override
     public int numCols() {
-        return grid[0].length;
+        return cols;
     }
 
     /**
@@ -183,25 +690,26 @@ public class Project1 implements GameOfLife {
      */
     @Override
     public int numRows() {
-        return grid.length;
+        return rows;
     }
 
     /**
-     * Prints the grid to the console.
+     * Prints the grid to the console, built as one string and printed
+     * with a single call.
      * @param game GameOfLife instance
      */
     public static void printGrid(GameOfLife game) {
+        String newline = System.lineSeparator();
+        StringBuilder text = new StringBuilder(
+            (game.numRows() + 1) * (game.numCols() + newline.length()));
         for (int i = 0; i < game.numRows(); i++) {
             for (int j = 0; j < game.numCols(); j++) {
-                if (game.isAlive(i, j)) {
-                    System.out.print("O");
-                } else {
-                    System.out.print(".");
-                }
+                text.append(game.isAlive(i, j) ? 'O' : '.');
             }
-            System.out.println();
+            text.append(newline);
         }
-        System.out.println();
+        text.append(newline);
+        System.out.print(text);
     }
 
     /**
@@ -231,8 +739,7 @@ public class Project1 implements GameOfLife {
     public Project1() {
         int rows = 3;
         int cols = 3;
-        grid = new boolean[rows][cols];
-        newgrid = new boolean[rows][cols];
+        allocate(rows, cols);
     }
 
     /**
@@ -242,7 +749,6 @@ public class Project1 implements GameOfLife {
      * @param cols number of columns
      */
     public Project1(int rows, int cols) {
-        grid = new boolean[rows][cols];
-        newgrid = new boolean[rows][cols];
+        allocate(rows, cols);
     }
 }
@@ -2,6 +2,7 @@ import org.junit.*;
 import static org.junit.Assert.*;
 
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Test class for Project 1 file 
@@ -190,4 +191,352 @@ public class Project1Test {
         game.loadFromString("2 2\nO.\n.O");
         Project1.printGrid(game); // executes both branches (O and .)
     }
+
+    /**
+     * Tests that stepping row bands on a pool matches one thread exactly.
+     */
+    @Test
+    public void testParallelMatchesSequential() {
+        Project1 sequential = new Project1(150, 70);
+        sequential.randomInitialize(0.4);
+        Project1 parallel = new Project1();
+        parallel.loadFromString(toText(sequential));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setPool(pool);
+        try {
+            for (int g = 0; g < 30; g++) {
+                sequential.nextGeneration();
+                parallel.nextGeneration();
+                assertEquals(sequential.isStillLife(), parallel.isStillLife());
+                for (int i = 0; i < 150; i++) {
+                    for (int j = 0; j < 70; j++) {
+                        assertEquals(sequential.isAlive(i, j), parallel.isAlive(i, j));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that skipping quiet tiles never changes the result, using a
+     * soup that settles into islands on a grid of partial tiles.
+     */
+    @Test
+    public void testActiveTilesMatchPacked() {
+        Project1 game = new Project1(100, 90);
+        game.randomInitialize(0.3);
+        PackedLife packed = new PackedLife();
+        packed.loadFromString(toText(game));
+
+        for (int g = 0; g < 300; g++) {
+            game.nextGeneration();
+            packed.nextGeneration();
+            assertEquals(packed.isStillLife(), game.isStillLife());
+            for (int i = 0; i < 100; i++) {
+                for (int j = 0; j < 90; j++) {
+                    assertEquals(packed.isAlive(i, j), game.isAlive(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Other rules step the same as applying the rule to every cell.
+     */
+    @Test
+    public void testRules() {
+        LifeRule[] rules = {LifeRule.HIGHLIFE, LifeRule.DAY_AND_NIGHT,
+            LifeRule.SEEDS, LifeRule.parse("B0/S8")};
+        for (LifeRule rule : rules) {
+            Project1 game = new Project1(70, 45);
+            game.randomInitialize(0.35);
+            game.setRule(rule);
+            assertSame(rule, game.getRule());
+            for (int g = 0; g < 40; g++) {
+                boolean[][] expected = new boolean[70][45];
+                for (int i = 0; i < 70; i++) {
+                    for (int j = 0; j < 45; j++) {
+                        expected[i][j] = rule.next(game.isAlive(i, j),
+                            game.countLiveNeighbors(i, j));
+                    }
+                }
+                game.nextGeneration();
+                for (int i = 0; i < 70; i++) {
+                    for (int j = 0; j < 45; j++) {
+                        assertEquals(rule + " generation " + g + " cell " + i + "," + j,
+                            expected[i][j], game.isAlive(i, j));
+                    }
+                }
+            }
+        }
+
+        // the center has six live neighbors, a birth only in HighLife
+        Project1 conway = new Project1();
+        Project1 high = new Project1();
+        conway.loadFromString("3 3\nOOO\n...\nOOO\n");
+        high.loadFromString("3 3\nOOO\n...\nOOO\n");
+        high.setRule(LifeRule.HIGHLIFE);
+        conway.nextGeneration();
+        high.nextGeneration();
+        assertFalse(conway.isAlive(1, 1));
+        assertTrue(high.isAlive(1, 1));
+    }
+
+    /**
+     * A blinker is found to repeat with period 2 from the start.
+     */
+    @Test
+    public void testBlinkerCycle() {
+        runner.loadFromString("3 3\n...\nOOO\n...\n");
+        assertEquals(0, runner.getCyclePeriod());
+        runner.nextGeneration();
+        assertEquals(0, runner.getCyclePeriod());
+        assertFalse(runner.isStillLife());
+        runner.nextGeneration();
+        assertEquals(2, runner.getCyclePeriod());
+        assertEquals(0, runner.getCycleStart());
+        assertEquals(2, runner.getGeneration());
+
+        // a still life has period 1
+        runner.loadFromString("3 3\nOO.\nOO.\n...\n");
+        assertEquals(0, runner.getGeneration());
+        runner.nextGeneration();
+        assertEquals(1, runner.getCyclePeriod());
+        assertTrue(runner.isStillLife());
+    }
+
+    /**
+     * A glider reaches the corner of a closed grid and settles into a
+     * block, which is reported with the generation it formed.
+     */
+    @Test
+    public void testGliderSettles() {
+        Project1 game = new Project1(40, 40);
+        game.loadFromString("40 40\n" + ".O\n..O\nOOO\n".replace("\n",
+            repeat('.', 38) + "\n") + (repeat('.', 40) + "\n").repeat(37));
+        int g = 0;
+        while (game.getCyclePeriod() == 0 && g < 500) {
+            game.nextGeneration();
+            g++;
+        }
+        assertEquals(1, game.getCyclePeriod());
+        assertEquals(g - 1, game.getCycleStart());
+        assertTrue(game.isStillLife());
+    }
+
+    /**
+     * The hash updated from flipped cells equals the hash of the same
+     * grid loaded from scratch, with and without a pool.
+     */
+    @Test
+    public void testIncrementalHash() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+                Project1 game = new Project1(130, 75);
+                game.setPool(p);
+                game.randomInitialize(0.4);
+                for (int g = 0; g < 60; g++) {
+                    game.nextGeneration();
+                    Project1 fresh = new Project1();
+                    fresh.loadFromString(toText(game));
+                    assertEquals("generation " + g, fresh.getHash(), game.getHash());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The population, births and deaths kept from the flipped cells match
+     * comparing whole grids, with and without a pool and across a torus.
+     */
+    @Test
+    public void testPopulationCounts() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+                for (Boundary b : new Boundary[] {Boundary.DEAD, Boundary.TORUS}) {
+                    Project1 game = new Project1(130, 75);
+                    game.setPool(p);
+                    game.setBoundary(b);
+                    game.randomInitialize(0.4, 7);
+                    assertEquals(population(game), game.getPopulation());
+                    assertEquals(0, game.getBirths());
+                    for (int g = 0; g < 60; g++) {
+                        Project1 before = new Project1();
+                        before.loadFromString(toText(game));
+                        game.nextGeneration();
+                        int born = 0;
+                        int died = 0;
+                        for (int i = 0; i < game.numRows(); i++) {
+                            for (int j = 0; j < game.numCols(); j++) {
+                                born += !before.isAlive(i, j) && game.isAlive(i, j) ? 1 : 0;
+                                died += before.isAlive(i, j) && !game.isAlive(i, j) ? 1 : 0;
+                            }
+                        }
+                        String at = b + " generation " + g;
+                        assertEquals(at, born, game.getBirths());
+                        assertEquals(at, died, game.getDeaths());
+                        assertEquals(at, population(game), game.getPopulation());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Project1 game = new Project1();
+        game.loadFromString("3 3\n.O.\n.O.\n.O.\n");
+        assertEquals(3, game.getPopulation());
+        game.nextGeneration();
+        assertEquals(2, game.getBirths());
+        assertEquals(2, game.getDeaths());
+        assertEquals(3, game.getPopulation());
+    }
+
+    /**
+     * A glider on an 8x8 torus crosses the edges and returns to where it
+     * started after 32 generations.
+     */
+    @Test
+    public void testTorusGlider() {
+        Project1 game = new Project1();
+        game.loadFromString("8 8\n.O......\n..O.....\nOOO.....\n"
+            + "........\n........\n........\n........\n........\n");
+        String start = toText(game);
+        game.setBoundary(Boundary.TORUS);
+        assertEquals(Boundary.TORUS, game.getBoundary());
+        for (int g = 0; g < 32; g++) {
+            assertEquals(5, population(game));
+            game.nextGeneration();
+        }
+        assertEquals(start, toText(game));
+        assertEquals(32, game.getCyclePeriod());
+        assertEquals(0, game.getCycleStart());
+
+        // on a larger grid the tiles across each edge start out quiet
+        StringBuilder big = new StringBuilder("96 96\n");
+        for (int i = 0; i < 96; i++) {
+            String row = i == 0 ? ".O" : i == 1 ? "..O" : i == 2 ? "OOO" : "";
+            big.append(row).append(repeat('.', 96 - row.length())).append('\n');
+        }
+        game.loadFromString(big.toString());
+        start = toText(game);
+        for (int g = 0; g < 4 * 96; g++) {
+            game.nextGeneration();
+            assertEquals("generation " + g, 5, population(game));
+        }
+        assertEquals(start, toText(game));
+    }
+
+    /**
+     * Wrapping boundaries step the same as looking neighbors up across
+     * the edges one cell at a time, and DEAD works again after them.
+     */
+    @Test
+    public void testBoundaries() {
+        int rows = 67;
+        int cols = 41;
+        for (Boundary b : new Boundary[] {Boundary.TORUS, Boundary.KLEIN, Boundary.DEAD}) {
+            Project1 game = new Project1(rows, cols);
+            game.setBoundary(Boundary.KLEIN);
+            game.setBoundary(b);
+            game.randomInitialize(0.3, 99);
+            for (int g = 0; g < 60; g++) {
+                boolean[][] expected = new boolean[rows][cols];
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < cols; j++) {
+                        int n = 0;
+                        for (int dr = -1; dr <= 1; dr++) {
+                            for (int dc = -1; dc <= 1; dc++) {
+                                if ((dr != 0 || dc != 0)
+                                        && across(game, b, i + dr, j + dc)) {
+                                    n++;
+                                }
+                            }
+                        }
+                        assertEquals(b + " neighbors " + i + "," + j, n,
+                            game.countLiveNeighbors(i, j));
+                        expected[i][j] = n == 3 || n == 2 && game.isAlive(i, j);
+                    }
+                }
+                game.nextGeneration();
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < cols; j++) {
+                        assertEquals(b + " generation " + g + " cell " + i + "," + j,
+                            expected[i][j], game.isAlive(i, j));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up a cell that may be across an edge.
+     * @param game grid
+     * @param b boundary
+     * @param r row, possibly -1 or numRows
+     * @param c column, possibly -1 or numCols
+     * @return whether the cell is alive
+     */
+    private static boolean across(Project1 game, Boundary b, int r, int c) {
+        int rows = game.numRows();
+        int cols = game.numCols();
+        if (b == Boundary.DEAD) {
+            return game.isAlive(r, c);
+        }
+        if (r < 0 || r >= rows) {
+            r = (r + rows) % rows;
+            if (b == Boundary.KLEIN) {
+                c = cols - 1 - c;
+            }
+        }
+        return game.isAlive(r, (c + cols) % cols);
+    }
+
+    /**
+     * Counts live cells.
+     * @param game grid
+     * @return population
+     */
+    private static int population(Project1 game) {
+        int n = 0;
+        for (int i = 0; i < game.numRows(); i++) {
+            for (int j = 0; j < game.numCols(); j++) {
+                n += game.isAlive(i, j) ? 1 : 0;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Builds a string of one repeated character.
+     * @param c character
+     * @param n length
+     * @return the string
+     */
+    private static String repeat(char c, int n) {
+        return String.valueOf(c).repeat(n);
+    }
+
+    /**
+     * Writes a grid in the loadFromString format.
+     * @param game game to describe
+     * @return text form of the grid
+     */
+    private static String toText(Project1 game) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(game.numRows()).append(' ').append(game.numCols()).append('\n');
+        for (int i = 0; i < game.numRows(); i++) {
+            for (int j = 0; j < game.numCols(); j++) {
+                sb.append(game.isAlive(i, j) ? 'O' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,305 @@
+import itsc2214.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the standard run-length encoded (RLE) Life format,
+ * streamed through NIO channels. A file is optional "#" comment lines, a
+ * header such as "x = 3, y = 3, rule = B3/S23", then runs like "2bo$3o!"
+ * where b is dead, o is alive, $ ends a row and ! ends the pattern.
+ * Dead cells at the end of a row and empty rows at the end are left out,
+ * which keeps sparse patterns small.
+ */
+public final class RleFormat {
+
+    /** Longest line written, as recommended by the format. */
+    private static final int LINE_LENGTH = 70;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private RleFormat() {
+    }
+
+    /**
+     * Writes a grid as RLE, recording the rule of a Project1 grid and
+     * B3/S23 for any other.
+     * @param game grid to save
+     * @param out channel receiving the text
+     * @throws IOException if the channel fails
+     */
+    public static void write(GameOfLife game, WritableByteChannel out) throws IOException {
+        LifeRule rule = game instanceof Project1 ? ((Project1) game).getRule() : LifeRule.CONWAY;
+        write(game, rule, out);
+    }
+
+    /**
+     * Writes a grid as RLE with the given rule in its header.
+     * @param game grid to save
+     * @param rule rule the pattern runs under
+     * @param out channel receiving the text
+     * @throws IOException if the channel fails
+     */
+    public static void write(GameOfLife game, LifeRule rule, WritableByteChannel out)
+            throws IOException {
+        Writer w = new Writer(out);
+        int rows = game.numRows();
+        int cols = game.numCols();
+        w.text("x = " + cols + ", y = " + rows + ", rule = " + rule + "\n");
+
+        int pendingRows = 0;
+        for (int r = 0; r < rows; r++) {
+            int c = 0;
+            boolean rowStarted = false;
+            while (c < cols) {
+                boolean alive = game.isAlive(r, c);
+                int run = 1;
+                while (c + run < cols && game.isAlive(r, c + run) == alive) {
+                    run++;
+                }
+                if (alive) {
+                    if (!rowStarted && pendingRows > 0) {
+                        w.run(pendingRows, '$');
+                        pendingRows = 0;
+                    }
+                    rowStarted = true;
+                    w.run(run, 'o');
+                } else if (c + run < cols) {
+                    // trailing dead cells of a row are never written
+                    if (!rowStarted && pendingRows > 0) {
+                        w.run(pendingRows, '$');
+                        pendingRows = 0;
+                    }
+                    rowStarted = true;
+                    w.run(run, 'b');
+                }
+                c += run;
+            }
+            pendingRows++;
+        }
+        w.run(1, '!');
+        w.text("\n");
+        w.flush();
+    }
+
+    /**
+     * Reads an RLE pattern into a Project1 and switches it to the rule
+     * named in the header. Generations are counted from 0, as RLE does
+     * not record them.
+     * @param in channel holding the text
+     * @param game grid to replace
+     * @return rule named in the header, B3/S23 if there is none
+     * @throws IOException if the channel fails or the pattern ends early
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    public static LifeRule read(ReadableByteChannel in, Project1 game) throws IOException {
+        LifeRule rule = read(in, game.loader());
+        game.restore(0);
+        game.setRule(rule);
+        return rule;
+    }
+
+    /**
+     * Reads an RLE pattern into a sink. The channel is read to its end.
+     * @param in channel holding the text
+     * @param sink receiver of the grid
+     * @return rule named in the header, B3/S23 if there is none
+     * @throws IOException if the channel fails or the pattern ends early
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    public static LifeRule read(ReadableByteChannel in, PatternSink sink) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        buf.limit(0);
+        int rows = -1;
+        int cols = -1;
+        LifeRule[] rule = {LifeRule.CONWAY};
+        StringBuilder header = new StringBuilder();
+        int line = 1;
+        int r = 0;
+        int c = 0;
+        int count = 0;
+        int b;
+        while ((b = next(in, buf)) >= 0) {
+            if (rows < 0) {
+                // comment and header lines are short, so they are read as text
+                if (b != '\n') {
+                    header.append((char) b);
+                    continue;
+                }
+                String text = header.toString().trim();
+                header.setLength(0);
+                if (!text.isEmpty() && !text.startsWith("#")) {
+                    int[] size = parseHeader(text, line, rule);
+                    cols = size[0];
+                    rows = size[1];
+                    sink.resize(rows, cols);
+                }
+                line++;
+            } else if (b >= '0' && b <= '9') {
+                count = count * 10 + (b - '0');
+                if (count < 0) {
+                    throw new IllegalArgumentException("line " + line + ": run too long");
+                }
+            } else if (b == 'b' || b == 'o') {
+                int run = Math.max(count, 1);
+                if (c + run > cols || r >= rows) {
+                    throw new IllegalArgumentException("line " + line
+                            + ": row " + r + " is wider than x = " + cols);
+                }
+                if (b == 'o') {
+                    for (int k = 0; k < run; k++) {
+                        sink.setAlive(r, c + k);
+                    }
+                }
+                c += run;
+                count = 0;
+            } else if (b == '$') {
+                r += Math.max(count, 1);
+                c = 0;
+                count = 0;
+            } else if (b == '!') {
+                return rule[0];
+            } else if (b == '\n') {
+                line++;
+            } else if (b > ' ') {
+                throw new IllegalArgumentException("line " + line
+                        + ": unexpected '" + (char) b + "'");
+            }
+        }
+        if (rows < 0) {
+            throw new EOFException("missing RLE header");
+        }
+        throw new EOFException("RLE pattern has no closing '!'");
+    }
+
+    /**
+     * Parses "x = 3, y = 3" with an optional rule such as "B36/S23".
+     * @param text header line
+     * @param line line number for errors
+     * @param rule receives the rule if the header has one
+     * @return columns then rows
+     */
+    private static int[] parseHeader(String text, int line, LifeRule[] rule) {
+        int[] size = {-1, -1};
+        for (String part : text.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("line " + line + ": bad header " + text);
+            }
+            String key = pair[0].trim();
+            String value = pair[1].trim();
+            if (key.equals("x") || key.equals("y")) {
+                try {
+                    size[key.equals("x") ? 0 : 1] = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("line " + line + ": bad size " + value);
+                }
+            } else if (key.equals("rule")) {
+                try {
+                    rule[0] = LifeRule.parse(value);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("line " + line + ": unsupported rule "
+                            + value, e);
+                }
+            }
+        }
+        if (size[0] < 0 || size[1] < 0) {
+            throw new IllegalArgumentException("line " + line + ": header needs x and y");
+        }
+        return size;
+    }
+
+    /**
+     * Gets the next byte, refilling the buffer from the channel.
+     * @param in channel to read
+     * @param buf buffer in read mode
+     * @return next byte, or -1 at the end of the channel
+     * @throws IOException if the channel fails
+     */
+    private static int next(ReadableByteChannel in, ByteBuffer buf) throws IOException {
+        while (!buf.hasRemaining()) {
+            buf.clear();
+            int n = in.read(buf);
+            buf.flip();
+            if (n < 0) {
+                return -1;
+            }
+        }
+        return buf.get() & 0xff;
+    }
+
+    /**
+     * Buffers RLE output and wraps it at LINE_LENGTH.
+     */
+    private static final class Writer {
+        private final WritableByteChannel out;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        private int column;
+
+        /**
+         * Creates a writer.
+         * @param out channel receiving the text
+         */
+        Writer(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes text that is not part of the runs.
+         * @param s ASCII text
+         * @throws IOException if the channel fails
+         */
+        void text(String s) throws IOException {
+            for (byte b : s.getBytes(StandardCharsets.US_ASCII)) {
+                put(b);
+            }
+            column = 0;
+        }
+
+        /**
+         * Writes one run, starting a new line first if it would not fit.
+         * @param count length of the run
+         * @param tag b, o, $ or !
+         * @throws IOException if the channel fails
+         */
+        void run(int count, char tag) throws IOException {
+            String digits = count == 1 ? "" : Integer.toString(count);
+            if (column + digits.length() + 1 > LINE_LENGTH) {
+                put((byte) '\n');
+                column = 0;
+            }
+            for (int i = 0; i < digits.length(); i++) {
+                put((byte) digits.charAt(i));
+            }
+            put((byte) tag);
+            column += digits.length() + 1;
+        }
+
+        /**
+         * Adds one byte, draining the buffer when full.
+         * @param b byte to add
+         * @throws IOException if the channel fails
+         */
+        private void put(byte b) throws IOException {
+            if (!buf.hasRemaining()) {
+                flush();
+            }
+            buf.put(b);
+        }
+
+        /**
+         * Writes out everything buffered.
+         * @throws IOException if the channel fails
+         */
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+    }
+}
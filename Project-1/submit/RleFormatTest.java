@@ -0,0 +1,181 @@
+import itsc2214.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test class for the RLE reader and writer.
+ */
+public class RleFormatTest {
+
+    /**
+     * Records what the reader reports.
+     */
+    private static class GridSink implements PatternSink {
+        boolean[][] cells;
+
+        @Override
+        public void resize(int rows, int cols) {
+            cells = new boolean[rows][cols];
+        }
+
+        @Override
+        public void setAlive(int r, int c) {
+            cells[r][c] = true;
+        }
+    }
+
+    /**
+     * Writes a game to RLE text.
+     * @param game game to write
+     * @return RLE text
+     */
+    private static String write(GameOfLife game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RleFormat.write(game, Channels.newChannel(bytes));
+        return bytes.toString("US-ASCII");
+    }
+
+    /**
+     * Reads RLE text.
+     * @param text RLE text
+     * @return cells read
+     */
+    private static boolean[][] read(String text) throws IOException {
+        GridSink sink = new GridSink();
+        RleFormat.read(Channels.newChannel(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.US_ASCII))), sink);
+        return sink.cells;
+    }
+
+    /**
+     * A glider is written in the standard compact form.
+     */
+    @Test
+    public void testWriteGlider() throws IOException {
+        Project1 game = new Project1();
+        game.loadFromString("4 3\n.O.\n..O\nOOO\n...\n");
+        assertEquals("x = 3, y = 4, rule = B3/S23\nbo$2bo$3o!\n",
+                write(game));
+    }
+
+    /**
+     * Empty rows collapse into one counted row break.
+     */
+    @Test
+    public void testEmptyRows() throws IOException {
+        Project1 game = new Project1();
+        game.loadFromString("5 2\n.O\n..\n..\nO.\n..\n");
+        String text = write(game);
+        assertEquals("x = 2, y = 5, rule = B3/S23\nbo3$o!\n", text);
+        boolean[][] cells = read(text);
+        assertEquals(5, cells.length);
+        assertTrue(cells[0][1]);
+        assertTrue(cells[3][0]);
+        assertFalse(cells[4][0]);
+    }
+
+    /**
+     * Comments, wrapped lines and CRLF are accepted when reading.
+     */
+    @Test
+    public void testReadWithComments() throws IOException {
+        boolean[][] cells = read("#N Blinker\r\n#C period 2\r\nx = 3, y = 1\r\n3\r\no!\r\n");
+        assertArrayEquals(new boolean[][] {{true, true, true}}, cells);
+    }
+
+    /**
+     * Long rows are wrapped at 70 characters and still read back.
+     */
+    @Test
+    public void testRoundTripRandom() throws IOException {
+        Project1 game = new Project1(60, 300);
+        game.randomInitialize(0.4);
+        String text = write(game);
+        for (String line : text.split("\n")) {
+            assertTrue(line, line.length() <= 70);
+        }
+        boolean[][] cells = read(text);
+        for (int i = 0; i < 60; i++) {
+            for (int j = 0; j < 300; j++) {
+                assertEquals(game.isAlive(i, j), cells[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Runs past the declared width and malformed rules are rejected.
+     */
+    @Test
+    public void testMalformed() throws IOException {
+        try {
+            read("x = 2, y = 1\n3o!\n");
+            fail("run past x should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("wider"));
+        }
+        try {
+            read("x = 2, y = 1, rule = B9/S23\no!\n");
+            fail("a count of 9 should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("rule"));
+        }
+    }
+
+    /**
+     * Another rule is written to the header and read back.
+     */
+    @Test
+    public void testHighLifeRule() throws IOException {
+        Project1 game = new Project1();
+        game.loadFromString("1 3\nOOO\n");
+        game.setRule(LifeRule.HIGHLIFE);
+        String text = write(game);
+        assertEquals("x = 3, y = 1, rule = B36/S23\n3o!\n", text);
+        LifeRule rule = RleFormat.read(Channels.newChannel(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.US_ASCII))), new GridSink());
+        assertEquals(LifeRule.HIGHLIFE, rule);
+        assertEquals(LifeRule.CONWAY, RleFormat.read(Channels.newChannel(
+                new ByteArrayInputStream("x = 1, y = 1\no!\n".getBytes(
+                StandardCharsets.US_ASCII))), new GridSink()));
+    }
+
+    /**
+     * An RLE file written from a Project1 restores into another Project1
+     * with its cells and rule, so both run the same generations after.
+     */
+    @Test
+    public void testProject1Restore() throws IOException {
+        Project1 game = new Project1(30, 50);
+        game.randomInitialize(0.35, 2214);
+        game.setRule(LifeRule.HIGHLIFE);
+        String text = write(game);
+
+        Project1 copy = new Project1();
+        assertEquals(LifeRule.HIGHLIFE, RleFormat.read(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))), copy));
+        assertEquals(LifeRule.HIGHLIFE, copy.getRule());
+        assertEquals(0, copy.getGeneration());
+        assertEquals(game.getPopulation(), copy.getPopulation());
+        for (int g = 0; g < 30; g++) {
+            for (int i = 0; i < 30; i++) {
+                for (int j = 0; j < 50; j++) {
+                    assertEquals(game.isAlive(i, j), copy.isAlive(i, j));
+                }
+            }
+            game.nextGeneration();
+            copy.nextGeneration();
+        }
+    }
+
+    /**
+     * A pattern without its closing mark is truncated.
+     */
+    @Test(expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        read("x = 2, y = 1\n2o");
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Computes one row of the next generation of a PackedLife grid. The
+ * scalar version is PackedLife.stepRow; a Vector API version is loaded
+ * when the running JDK has that module.
+ */
+interface RowStepper {
+
+    /**
+     * Computes one row. Each argument row starts at its left guard word,
+     * so word i reads its neighbors at i - 1 and i + 1.
+     * @param src current generation
+     * @param above index of the row above
+     * @param row index of the row being computed
+     * @param below index of the row below
+     * @param dst buffer receiving the new row at the same index
+     * @param words number of data words in the row
+     * @param tailMask valid bits of the last data word
+     * @return non-zero if any cell of the row changed
+     */
+    long stepRow(long[] src, int above, int row, int below,
+            long[] dst, int words, long tailMask);
+}
@@ -0,0 +1,240 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * HaloTransport over TCP, one connection per pair of nodes. Each message
+ * is written as its length followed by its bytes. A thread per connection
+ * reads messages into an unbounded queue as they arrive, so a sender never
+ * waits for the receiver to ask for them.
+ */
+public class SocketTransport implements HaloTransport {
+
+    /** How long send waits for a node that is connecting to this one. */
+    static final long LINK_TIMEOUT_MILLIS = 30_000;
+
+    // put in a queue when its connection ends, compared by identity
+    private static final byte[] LOST = new byte[0];
+
+    private final ServerSocket server;
+    private final Map<Integer, DataOutputStream> outputs = new HashMap<>();  // guarded by this
+    private final List<Socket> sockets = new ArrayList<>();                  // guarded by this
+    private final Map<Integer, BlockingQueue<byte[]>> inboxes = new ConcurrentHashMap<>();
+    private volatile int id = COORDINATOR;
+    private volatile boolean closed;
+
+    /**
+     * Listens on a loopback port.
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SocketTransport(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Listens on a port of one local address.
+     * @param bind address to listen on
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SocketTransport(InetAddress bind, int port) throws IOException {
+        server = new ServerSocket(port, 50, bind);
+        Thread acceptor = new Thread(this::acceptLoop, "transport-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public String address() {
+        return server.getInetAddress().getHostAddress() + ":" + server.getLocalPort();
+    }
+
+    @Override
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public void connect(int peer, String address) throws IOException {
+        synchronized (this) {
+            if (outputs.containsKey(peer)) {
+                return;
+            }
+        }
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IOException("expected host:port but got " + address);
+        }
+        Socket socket = new Socket(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1)));
+        DataOutputStream out = openOutput(socket);
+        out.writeInt(id);
+        out.flush();
+        link(peer, socket, out, openInput(socket));
+    }
+
+    @Override
+    public void send(int peer, byte[] message) throws IOException {
+        if (peer == id) {
+            inbox(peer).add(message);
+            return;
+        }
+        DataOutputStream out = output(peer);
+        synchronized (out) {
+            out.writeInt(message.length);
+            out.write(message);
+            out.flush();
+        }
+    }
+
+    @Override
+    public byte[] receive(int peer) throws IOException {
+        BlockingQueue<byte[]> inbox = inbox(peer);
+        try {
+            byte[] message = inbox.take();
+            if (message == LOST) {
+                inbox.add(LOST);  // later calls fail the same way
+                throw new IOException("lost connection to node " + peer);
+            }
+            return message;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for node " + peer);
+        }
+    }
+
+    /**
+     * Stops listening and closes every connection.
+     * @throws IOException if the listening socket fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        List<Socket> open;
+        synchronized (this) {
+            closed = true;
+            open = new ArrayList<>(sockets);
+            notifyAll();
+        }
+        for (Socket s : open) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        server.close();
+    }
+
+    /**
+     * Accepts connections from other nodes, each starting with its id.
+     */
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                DataInputStream in = openInput(socket);
+                link(in.readInt(), socket, openOutput(socket), in);
+            } catch (IOException e) {
+                // closed, or a node that gave up while connecting
+            }
+        }
+    }
+
+    /**
+     * Records a connection and starts reading messages from it.
+     * @param peer id of the node at the other end
+     * @param socket connection
+     * @param out its buffered output
+     * @param in its buffered input
+     */
+    private void link(int peer, Socket socket, DataOutputStream out, DataInputStream in) {
+        synchronized (this) {
+            sockets.add(socket);
+            outputs.put(peer, out);
+            notifyAll();
+        }
+        BlockingQueue<byte[]> inbox = inbox(peer);
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    byte[] message = new byte[in.readInt()];
+                    in.readFully(message);
+                    inbox.add(message);
+                }
+            } catch (IOException e) {
+                inbox.add(LOST);
+            }
+        }, "transport-read-" + peer);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Gets the output to a node, waiting a while if it is still
+     * connecting to this one.
+     * @param peer node id
+     * @return its output
+     * @throws IOException if no connection arrives in time
+     */
+    private synchronized DataOutputStream output(int peer) throws IOException {
+        long deadline = System.currentTimeMillis() + LINK_TIMEOUT_MILLIS;
+        DataOutputStream out;
+        while ((out = outputs.get(peer)) == null) {
+            long wait = deadline - System.currentTimeMillis();
+            if (closed || wait <= 0) {
+                throw new IOException("not connected to node " + peer);
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for node " + peer);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Gets the queue of messages from a node.
+     * @param peer sender id
+     * @return its queue
+     */
+    private BlockingQueue<byte[]> inbox(int peer) {
+        return inboxes.computeIfAbsent(peer, p -> new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Opens a buffered output on a new socket.
+     * @param socket connection
+     * @return output stream
+     * @throws IOException if the socket is closed
+     */
+    private static DataOutputStream openOutput(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);  // halos are small and sent once per generation
+        return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Opens a buffered input on a new socket.
+     * @param socket connection
+     * @return input stream
+     * @throws IOException if the socket is closed
+     */
+    private static DataInputStream openInput(Socket socket) throws IOException {
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+}
@@ -0,0 +1,311 @@
+import itsc2214.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Implements Conway's Game of Life on an unbounded plane by storing only
+ * the live cells. Each cell is packed into one long (row in the high 32
+ * bits, column in the low 32 bits) and kept in a LongHashSet, so memory
+ * follows the population and a step only visits live cells and their
+ * neighbors. Coordinates may be any int; patterns crossing the int range
+ * wrap around.
+ *
+ * numRows and numCols report the bounding box of the live cells, and
+ * isAlive(r, c) is relative to its top-left corner so a display follows
+ * the pattern as it moves.
+ */
+public class SparseLife implements GameOfLife {
+
+    private LongHashSet live = new LongHashSet();
+    private LongHashSet nextLive = new LongHashSet();
+    private final LongHashSet candidates = new LongHashSet();
+    private int[] counts = new int[candidates.capacity()];
+
+    private int seedRows;  // area filled by randomInitialize
+    private int seedCols;
+    private int minRow;    // bounding box of the live cells
+    private int minCol;
+    private int maxRow;
+    private int maxCol;
+    private boolean stepped;
+    private boolean changed;
+
+    /**
+     * Default constructor (3x3 seeding area).
+     */
+    public SparseLife() {
+        this(3, 3);
+    }
+
+    /**
+     * Constructor with the area randomInitialize fills.
+     * @param rows number of rows to seed
+     * @param cols number of columns to seed
+     */
+    public SparseLife(int rows, int cols) {
+        seedRows = rows;
+        seedCols = cols;
+    }
+
+    /**
+     * Packs a cell position into one key.
+     * @param r row coordinate
+     * @param c column coordinate
+     * @return packed key
+     */
+    static long pack(int r, int c) {
+        return ((long) r << 32) | (c & 0xffffffffL);
+    }
+
+    /**
+     * Gets the row of a packed key.
+     * @param key packed key
+     * @return row coordinate
+     */
+    static int rowOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Gets the column of a packed key.
+     * @param key packed key
+     * @return column coordinate
+     */
+    static int colOf(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Empties the plane before new cells are set.
+     */
+    private void reset() {
+        live.clear();
+        minRow = Integer.MAX_VALUE;
+        minCol = Integer.MAX_VALUE;
+        maxRow = Integer.MIN_VALUE;
+        maxCol = Integer.MIN_VALUE;
+        stepped = false;
+    }
+
+    /**
+     * Adds a live cell and grows the bounding box around it.
+     * @param r row coordinate
+     * @param c column coordinate
+     */
+    private void birth(int r, int c) {
+        live.add(pack(r, c));
+        minRow = Math.min(minRow, r);
+        maxRow = Math.max(maxRow, r);
+        minCol = Math.min(minCol, c);
+        maxCol = Math.max(maxCol, c);
+    }
+
+    /**
+     * Randomly initialize live cells of the seeding area based on probability.
+     * @param aliveProbability chance for each cell to be alive
+     */
+    @Override
+    public void randomInitialize(double aliveProbability) {
+        Random rand = new Random();
+        reset();
+        for (int i = 0; i < seedRows; i++) {
+            for (int j = 0; j < seedCols; j++) {
+                if (rand.nextDouble() < aliveProbability) {
+                    birth(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the plane from string values, with the first character of the
+     * first row at coordinate (0, 0).
+     * @param data string representation of the grid
+     */
+    @Override
+    public void loadFromString(String data) {
+        Scanner scan = new Scanner(data);
+
+        int rows = scan.nextInt();
+        int cols = scan.nextInt();
+        scan.nextLine();
+
+        reset();
+        seedRows = rows;
+        seedCols = cols;
+        for (int i = 0; i < rows; i++) {
+            String line = scan.nextLine().trim();
+            for (int j = 0; j < cols; j++) {
+                if (line.charAt(j) == 'O') {
+                    birth(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads file and reads it into String which then builds the grid.
+     * @param filename input file path
+     * @throws FileNotFoundException if file not found
+     */
+    @Override
+    public void loadFromFile(String filename) throws FileNotFoundException {
+        StringBuilder build = new StringBuilder();
+        Scanner scan = new Scanner(new File(filename));
+
+        while (scan.hasNextLine()) {
+            build.append(scan.nextLine()).append("\n");
+        }
+        scan.close();
+        loadFromString(build.toString());
+    }
+
+    /**
+     * Computes the next generation. Every live cell adds one to the count
+     * of each of its eight neighbors, then only the counted cells are
+     * checked against the rule.
+     */
+    @Override
+    public void nextGeneration() {
+        candidates.clear();
+        int population = live.size();
+        for (int i = 0; i < population; i++) {
+            long key = live.get(i);
+            int r = rowOf(key);
+            int c = colOf(key);
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    if (dr != 0 || dc != 0) {
+                        int index = candidates.add(pack(r + dr, c + dc));
+                        if (index >= counts.length) {
+                            counts = Arrays.copyOf(counts, candidates.capacity());
+                        }
+                        counts[index]++;
+                    }
+                }
+            }
+        }
+
+        // counts are zeroed as they are read, ready for the next step
+        LongHashSet previous = live;
+        live = nextLive;
+        reset();
+        int survivors = 0;
+        int births = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            int n = counts[i];
+            counts[i] = 0;
+            long key = candidates.get(i);
+            boolean wasAlive = previous.contains(key);
+            if (n == 3 || (n == 2 && wasAlive)) {
+                birth(rowOf(key), colOf(key));
+                if (wasAlive) {
+                    survivors++;
+                } else {
+                    births++;
+                }
+            }
+        }
+        nextLive = previous;
+        stepped = true;
+        changed = births > 0 || survivors < population;
+    }
+
+    /**
+     * Counts the amount of live neighbors around a cell.
+     * @param r row index relative to the bounding box
+     * @param c column index relative to the bounding box
+     * @return number of live neighbors
+     */
+    @Override
+    public int countLiveNeighbors(int r, int c) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0)
+                        && isAliveAt(minRow + r + dr, minCol + c + dc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the element in row r and column c of the bounding box is alive.
+     * @param r row index relative to the bounding box
+     * @param c column index relative to the bounding box
+     * @return true if alive, false if dead
+     */
+    @Override
+    public boolean isAlive(int r, int c) {
+        if (r < 0 || c < 0 || r >= numRows() || c >= numCols()) {
+            return false;
+        }
+        return isAliveAt(minRow + r, minCol + c);
+    }
+
+    /**
+     * Checks a cell by its absolute coordinates on the plane.
+     * @param r row coordinate
+     * @param c column coordinate
+     * @return true if alive, false if dead
+     */
+    public boolean isAliveAt(int r, int c) {
+        return live.contains(pack(r, c));
+    }
+
+    /**
+     * Checks if the last generation left the plane unchanged.
+     * @return true if still life, false otherwise
+     */
+    @Override
+    public boolean isStillLife() {
+        return stepped && !changed;
+    }
+
+    /**
+     * Gets the height of the bounding box of the live cells.
+     * @return number of rows, 0 when nothing is alive
+     */
+    @Override
+    public int numRows() {
+        return live.size() == 0 ? 0 : maxRow - minRow + 1;
+    }
+
+    /**
+     * Gets the width of the bounding box of the live cells.
+     * @return number of columns, 0 when nothing is alive
+     */
+    @Override
+    public int numCols() {
+        return live.size() == 0 ? 0 : maxCol - minCol + 1;
+    }
+
+    /**
+     * Gets the top row of the bounding box.
+     * @return absolute row of isAlive(0, c)
+     */
+    public int getMinRow() {
+        return minRow;
+    }
+
+    /**
+     * Gets the left column of the bounding box.
+     * @return absolute column of isAlive(r, 0)
+     */
+    public int getMinCol() {
+        return minCol;
+    }
+
+    /**
+     * Gets the number of live cells.
+     * @return live cell count
+     */
+    public int getPopulation() {
+        return live.size();
+    }
+}
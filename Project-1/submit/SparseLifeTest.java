@@ -0,0 +1,116 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/**
+ * Test class for the sparse unbounded Game of Life.
+ */
+public class SparseLifeTest {
+
+    private SparseLife runner;
+
+    /**
+     * creates a sparse game of life seeding 3x3.
+     */
+    @Before
+    public void setup() {
+        runner = new SparseLife(3, 3);
+    }
+
+    /**
+     * The dimensions follow the bounding box of the live cells.
+     */
+    @Test
+    public void testBoundingBox() {
+        assertEquals(0, runner.numRows());
+        runner.loadFromString("5 5\n.....\n.O...\n...O.\n.....\n.....\n");
+        assertEquals(2, runner.numRows());
+        assertEquals(3, runner.numCols());
+        assertEquals(1, runner.getMinRow());
+        assertEquals(1, runner.getMinCol());
+        assertTrue(runner.isAlive(0, 0));
+        assertTrue(runner.isAlive(1, 2));
+        assertFalse(runner.isAlive(0, 1));
+        assertFalse(runner.isAlive(2, 2));
+        assertTrue(runner.isAliveAt(2, 3));
+    }
+
+    /**
+     * A glider is not clipped by the edge of the loaded grid.
+     */
+    @Test
+    public void testGliderLeavesGrid() {
+        runner.loadFromString("3 3\n.O.\n..O\nOOO\n");
+        for (int g = 0; g < 400; g++) {
+            runner.nextGeneration();
+            assertFalse(runner.isStillLife());
+        }
+        assertEquals(5, runner.getPopulation());
+        assertEquals(3, runner.numRows());
+        assertEquals(3, runner.numCols());
+        assertEquals(100, runner.getMinRow());
+        assertEquals(100, runner.getMinCol());
+        assertTrue(runner.isAliveAt(100, 101));
+        assertTrue(runner.isAliveAt(102, 100));
+    }
+
+    /**
+     * Negative coordinates work and a block is a still life.
+     */
+    @Test
+    public void testStillLifeAcrossOrigin() {
+        runner.loadFromString("3 3\nOO.\nOO.\n...\n");
+        runner.nextGeneration();
+        runner.nextGeneration();
+        assertTrue(runner.isStillLife());
+        assertEquals(3, runner.countLiveNeighbors(0, 0));
+
+        runner.loadFromString("1 3\nOOO\n");
+        runner.nextGeneration();
+        assertEquals(-1, runner.getMinRow());
+        assertTrue(runner.isAliveAt(-1, 1));
+        assertFalse(runner.isStillLife());
+    }
+
+    /**
+     * Random initialization fills the seeding area.
+     */
+    @Test
+    public void testRandomInit() {
+        runner.randomInitialize(1);
+        assertEquals(9, runner.getPopulation());
+        runner.randomInitialize(0);
+        assertEquals(0, runner.getPopulation());
+    }
+
+    /**
+     * A soup evolves exactly like HashLife, which is also unbounded.
+     */
+    @Test
+    public void testMatchesHashLife() {
+        Random rand = new Random(7);
+        StringBuilder sb = new StringBuilder("40 40\n");
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                sb.append(rand.nextInt(3) == 0 ? 'O' : '.');
+            }
+            sb.append('\n');
+        }
+        runner.loadFromString(sb.toString());
+        HashLife hash = new HashLife();
+        hash.loadFromString(sb.toString());
+
+        for (int g = 0; g < 60; g++) {
+            runner.nextGeneration();
+            hash.nextGeneration();
+            assertEquals(hash.getPopulation(), runner.getPopulation());
+            assertEquals(hash.isStillLife(), runner.isStillLife());
+            for (int i = -g - 1; i < 41 + g; i++) {
+                for (int j = -g - 1; j < 41 + g; j++) {
+                    assertEquals(hash.isAliveAt(i, j), runner.isAliveAt(i, j));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the terminal renderer and its drawing thread.
+ */
+public class TerminalRendererTest {
+
+    /**
+     * Records each write call as one string, and can hold the first write
+     * until released to act as a terminal that has fallen behind.
+     */
+    private static class Terminal extends OutputStream {
+        final List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release;
+        volatile int flushes;
+
+        /**
+         * Creates a terminal.
+         * @param slow whether the first write waits for release
+         */
+        Terminal(boolean slow) {
+            release = new CountDownLatch(slow ? 1 : 0);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writes.add(new String(b, off, len, StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    /**
+     * Makes a grid from rows of 'O' and '.'.
+     * @param rows the rows
+     * @return loaded grid
+     */
+    private static Project1 grid(String... rows) {
+        Project1 game = new Project1();
+        game.loadFromString(rows.length + " " + rows[0].length() + "\n"
+                + String.join("\n", rows) + "\n");
+        return game;
+    }
+
+    /**
+     * The first frame clears the screen and draws every row; the next one
+     * only moves to and rewrites the row that changed.
+     */
+    @Test
+    public void testChangedRows() throws IOException {
+        Terminal terminal = new Terminal(false);
+        TerminalRenderer renderer = new TerminalRenderer(terminal);
+        renderer.offer(grid(".O.", "..O", "OOO"), 0, null);
+        renderer.offer(grid(".O.", "O.O", "OOO"), 1, "pop 5");
+        renderer.close();
+
+        assertEquals(3, terminal.writes.size());
+        assertEquals("\033[?25l\033[H\033[2J\033[1;1HGeneration 0\033[K"
+                + "\033[2;1H.O.\033[3;1H..O\033[4;1HOOO\033[5;1H", terminal.writes.get(0));
+        assertEquals("\033[1;1HGeneration 1  pop 5\033[K\033[3;1HO.O\033[5;1H",
+                terminal.writes.get(1));
+        assertEquals(2, renderer.framesDrawn());
+        assertEquals(0, renderer.framesDropped());
+    }
+
+    /**
+     * A new size redraws the whole screen.
+     */
+    @Test
+    public void testResize() throws IOException {
+        Terminal terminal = new Terminal(false);
+        TerminalRenderer renderer = new TerminalRenderer(terminal);
+        renderer.offer(grid("O."), 0, null);
+        renderer.offer(grid("O.", "O."), 1, null);
+        renderer.close();
+        assertEquals("\033[?25l\033[H\033[2J\033[1;1HGeneration 1\033[K"
+                + "\033[2;1HO.\033[3;1HO.\033[4;1H", terminal.writes.get(1));
+    }
+
+    /**
+     * While the terminal is stuck on one frame, only the two newest frames
+     * wait and every older one is dropped, so the newest is drawn next.
+     */
+    @Test(timeout = 10000)
+    public void testDropsWhenSlow() throws Exception {
+        Terminal terminal = new Terminal(true);
+        TerminalRenderer renderer = new TerminalRenderer(terminal);
+        Project1 game = grid("O..", ".O.", "..O");
+        renderer.offer(game, 1, null);
+        assertTrue(terminal.writing.await(5, TimeUnit.SECONDS));
+        for (int g = 2; g <= 11; g++) {
+            renderer.offer(game, g, null);
+        }
+        assertEquals(8, renderer.framesDropped());
+
+        terminal.release.countDown();
+        renderer.close();
+        assertEquals(3, renderer.framesDrawn());
+        String output = String.join("", terminal.writes);
+        assertTrue(output.contains("Generation 1\033[K"));
+        assertTrue(output.contains("Generation 10\033[K"));
+        assertTrue(output.contains("Generation 11\033[K"));
+        for (int g = 2; g <= 9; g++) {
+            assertFalse(output.contains("Generation " + g + "\033[K"));
+        }
+    }
+
+    /**
+     * Closing draws what is waiting, shows the cursor again with a flush,
+     * and stops the drawing thread.
+     */
+    @Test(timeout = 10000)
+    public void testCloseFlushesAndJoins() throws IOException {
+        Terminal terminal = new Terminal(false);
+        TerminalRenderer renderer = new TerminalRenderer(terminal);
+        renderer.offer(grid("OO", "OO"), 0, null);
+        renderer.close();
+
+        assertEquals(1, renderer.framesDrawn());
+        assertEquals("\033[?25h\n", terminal.writes.get(terminal.writes.size() - 1));
+        assertEquals(terminal.writes.size(), terminal.flushes);
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            assertNotEquals("terminal-renderer", t.getName());
+        }
+    }
+
+    /**
+     * A failed write is thrown from close.
+     */
+    @Test(timeout = 10000)
+    public void testWriteFailure() {
+        TerminalRenderer renderer = new TerminalRenderer(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("terminal gone");
+            }
+        });
+        renderer.offer(grid("O"), 0, null);
+        try {
+            renderer.close();
+            fail("close should report the failed write");
+        } catch (IOException e) {
+            assertEquals("terminal gone", e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,26 @@
 import itsc2214.*;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
 /**
  * Sample main driver, you do NOT need to submit this to web-cat.
+ *
+ * With arguments it evaluates a file of expressions instead:
+ *   java Main input [output] [threads]
+ * writing one result or error per line to output, or to standard output.
  */
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0) {
+            evaluateFile(args);
+            return;
+        }
         PackageInfo.printInfo();
 
         doExpression("10 + (20 * 3) / 2");
@@ -31,6 +48,30 @@ public class Main {
     {
         System.out.println(queueToString(q));
     }
+    /**
+     * Evaluates every line of a file on an {@link ExpressionPipeline},
+     * printing the line and error counts to standard error.
+     *
+     * @param args input file, then optionally output file and thread count
+     */
+    public static void evaluateFile(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        ExpressionPipeline pipeline = new ExpressionPipeline(threads);
+        long start = System.nanoTime();
+        ExpressionPipeline.Summary summary;
+        try (FileChannel in = FileChannel.open(Paths.get(args[0]));
+             WritableByteChannel out = args.length > 1
+                 ? FileChannel.open(Paths.get(args[1]), StandardOpenOption.CREATE,
+                       StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                 : Channels.newChannel(new FileOutputStream(FileDescriptor.out))) {
+            summary = pipeline.run(in, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%s in %.2f s (%.3g lines/s) on %d threads%n",
+            summary, seconds, summary.lines / seconds, threads);
+    }
+
     public static void doExpression(String str)
     {
         ExpressionEvaluator expr = new Project3();
@@ -0,0 +1,628 @@
+import itsc2214.*;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmarks for Project3: interpreting an infix expression token by token
+ * against evaluating its compiled plan, through the cache or directly,
+ * evaluating postfix queues, plans as written against optimized plans,
+ * the cost of parsing and compiling a formula, streaming a file of
+ * expressions through an ExpressionPipeline, and handing values between
+ * threads through ConcurrentFactory's lock-free queues and stack against
+ * locked Factory ones.
+ * Each benchmark is warmed up so the JIT has compiled it, then timed over
+ * several iterations. Time and heap bytes allocated per operation are
+ * measured on the benchmark thread, which is what a GC allocation
+ * profiler reports as alloc.rate.norm. Results print as a table and can
+ * be written as JMH-style JSON to track regressions between runs.
+ *
+ * Usage: java Project3Bench [--quick] [--threads n] [--json file] [filter]
+ *   --quick    short iterations and fewer rows, for a smoke test
+ *   --threads  evaluate columns on a ForkJoinPool of n threads, run
+ *              the pipeline with n workers, and hand values between
+ *              n producers and n consumers
+ *   --json     write results to a JSON file
+ *   filter     only run benchmarks whose name contains this text
+ */
+public class Project3Bench {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String[][] FORMULAS = {
+        {"short", "10 + 20"},
+        {"nested", "((1 + 2) * (3 + (4 * (5 - (6 / 2))))) - 7"},
+        {"long", "(12 + 7) * 3 - (45 / (2 + 3)) + 100 * (8 - 6) / 4 + (9 * 9 - 80) * 1000"},
+    };
+
+    private static final String[][] OPTIMIZABLE = {
+        {"constants", "a * (60 / 3) + (12 - 2) * 1 - b * 0 + c / 1 + 7 - 5"},
+        {"repeated", "(a * b + c) * (a * b + c) - (a * b + c) / (a - 1)"},
+    };
+
+    private static long iterationNanos = 500_000_000L;
+
+    /**
+     * One unit of benchmarked work.
+     */
+    interface Op {
+        /**
+         * Runs the work once.
+         * @throws Exception if the work fails
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * A benchmark with its parameters.
+     */
+    static final class Bench {
+        final String name;
+        final Map<String, String> params = new LinkedHashMap<>();
+        final double rowsPerOp;
+        final Op op;
+
+        /**
+         * Creates a benchmark of one expression per operation.
+         * @param name benchmark name
+         * @param op work being measured
+         */
+        Bench(String name, Op op) {
+            this(name, 1, op);
+        }
+
+        /**
+         * Creates a benchmark.
+         * @param name benchmark name
+         * @param rowsPerOp rows of values evaluated by one operation
+         * @param op work being measured
+         */
+        Bench(String name, double rowsPerOp, Op op) {
+            this.name = name;
+            this.rowsPerOp = rowsPerOp;
+            this.op = op;
+        }
+
+        /**
+         * Adds a parameter shown in the results.
+         * @param key parameter name
+         * @param value parameter value
+         * @return this benchmark
+         */
+        Bench param(String key, Object value) {
+            params.put(key, String.valueOf(value));
+            return this;
+        }
+    }
+
+    /**
+     * Measured numbers for one benchmark.
+     */
+    static final class Result {
+        final Bench bench;
+        final double opsPerSecond;
+        final double error;        // half-width of the 99.9% interval
+        final double bytesPerOp;
+
+        /**
+         * Creates a result.
+         * @param bench benchmark measured
+         * @param opsPerSecond mean throughput
+         * @param error error of the mean
+         * @param bytesPerOp heap bytes allocated per operation
+         */
+        Result(Bench bench, double opsPerSecond, double error, double bytesPerOp) {
+            this.bench = bench;
+            this.opsPerSecond = opsPerSecond;
+            this.error = error;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args options, see the class comment
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        boolean quick = false;
+        int threads = 1;
+        String json = null;
+        String filter = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--json":
+                    json = args[++i];
+                    break;
+                default:
+                    filter = args[i];
+            }
+        }
+        if (quick) {
+            iterationNanos = 100_000_000L;
+        }
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        List<Bench> benches = new ArrayList<>();
+        addEvaluateBenches(benches);
+        addParseBenches(benches);
+        addPostfixBenches(benches);
+        addOptimizeBenches(benches);
+        List<PlanCache> caches = addCacheBenches(benches);
+        addColumnBenches(benches, quick, pool);
+        addPipelineBenches(benches, quick, threads);
+        addConcurrentBenches(benches, quick, threads);
+
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-12s %-44s %14s %10s %12s %10s%n",
+            "benchmark", "params", "ops/s", "ns/op", "rows/s", "B/op");
+        for (Bench bench : benches) {
+            if (!bench.name.contains(filter)) {
+                continue;
+            }
+            Result r = measure(bench);
+            results.add(r);
+            System.out.printf("%-12s %-44s %14.2f %10.1f %12.3g %10.1f%n",
+                bench.name, bench.params, r.opsPerSecond, 1e9 / r.opsPerSecond,
+                r.opsPerSecond * bench.rowsPerOp, r.bytesPerOp);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        for (PlanCache cache : caches) {
+            if (cache.getHits() + cache.getMisses() > 0) {
+                System.out.printf("cache of %d: hit rate %.3f, %d evictions%n",
+                    cache.capacity(), cache.getHitRate(), cache.getEvictions());
+            }
+        }
+        if (json != null) {
+            writeJson(results, json, threads);
+        }
+    }
+
+    /**
+     * One formula evaluated by the token interpreter, through
+     * evaluateInfix and its cache, and as a plan that is kept interpreted
+     * or left to be compiled to bytecode once hot.
+     * @param benches list to add to
+     */
+    private static void addEvaluateBenches(List<Bench> benches) {
+        Project3 runner = new Project3();
+        long[] sink = new long[1];
+        for (String[] formula : FORMULAS) {
+            String expr = formula[1];
+            ExpressionPlan plan = runner.compile(expr);
+            benches.add(new Bench("evaluate", () -> sink[0] += runner.interpret(expr))
+                .param("formula", formula[0])
+                .param("impl", "interpret"));
+            benches.add(new Bench("evaluate", () -> sink[0] += runner.evaluateInfix(expr))
+                .param("formula", formula[0])
+                .param("impl", "evaluateInfix"));
+            ExpressionPlan interpreted = runner.compile(expr);
+            interpreted.disableJit();
+            benches.add(new Bench("evaluate", () -> sink[0] += interpreted.evaluate())
+                .param("formula", formula[0])
+                .param("impl", "plan interpreted"));
+            benches.add(new Bench("evaluate", () -> sink[0] += plan.evaluate())
+                .param("formula", formula[0])
+                .param("impl", "plan tiered"));
+        }
+    }
+
+    /**
+     * Formulas with foldable constants or repeated subexpressions,
+     * evaluated as written and optimized, both interpreted and tiered.
+     * @param benches list to add to
+     */
+    private static void addOptimizeBenches(List<Bench> benches) {
+        long[] sink = new long[1];
+        int[] values = {7, 3, 5};
+        for (String[] formula : OPTIMIZABLE) {
+            ExpressionPlan.Compiler compiler = new ExpressionPlan.Compiler(true);
+            new ExpressionScanner(formula[1]).toPostfix(compiler);
+            ExpressionPlan[] plans = new ExpressionPlan[4];
+            for (int i = 0; i < plans.length; i++) {
+                ExpressionPlan written = compiler.build();
+                plans[i] = i < 2 ? written : written.optimize();
+                if (i % 2 == 0) {
+                    plans[i].disableJit();
+                }
+            }
+            String removed = String.valueOf(plans[2].removedOperations());
+            String[] impls = {"written interpreted", "written tiered",
+                "optimized interpreted", "optimized tiered"};
+            for (int i = 0; i < plans.length; i++) {
+                ExpressionPlan plan = plans[i];
+                benches.add(new Bench("optimize", () -> sink[0] += plan.evaluate(values))
+                    .param("formula", formula[0])
+                    .param("removed", removed)
+                    .param("impl", impls[i]));
+            }
+        }
+    }
+
+    /**
+     * The work done once per formula: the parenthesis check, conversion
+     * to postfix, and compiling a plan.
+     * @param benches list to add to
+     */
+    private static void addParseBenches(List<Bench> benches) {
+        Project3 runner = new Project3();
+        long[] sink = new long[1];
+        for (String[] formula : FORMULAS) {
+            String expr = formula[1];
+            benches.add(new Bench("parse", () -> {
+                if (runner.balancedParenthesis(expr)) {
+                    sink[0] += runner.infix2Postfix(expr).size();
+                }
+            })
+                .param("formula", formula[0])
+                .param("impl", "infix2Postfix"));
+            benches.add(new Bench("parse", () -> sink[0] += runner.compile(expr).size())
+                .param("formula", formula[0])
+                .param("impl", "compile"));
+        }
+    }
+
+    /**
+     * evaluatePostfix on each formula's postfix tokens, refilling the
+     * queue every time.
+     * @param benches list to add to
+     */
+    private static void addPostfixBenches(List<Bench> benches) {
+        Project3 runner = new Project3();
+        long[] sink = new long[1];
+        for (String[] formula : FORMULAS) {
+            QueueADT<String> queue = runner.infix2Postfix(formula[1]);
+            String[] tokens = new String[queue.size()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = queue.dequeue();
+            }
+            benches.add(new Bench("postfix", () -> {
+                for (String token : tokens) {
+                    queue.enqueue(token);
+                }
+                sink[0] += runner.evaluatePostfix(queue);
+            })
+                .param("formula", formula[0]));
+        }
+    }
+
+    /**
+     * evaluateInfix cycling through a set of distinct formulas, with the
+     * set fitting in the cache and twice its size.
+     * @param benches list to add to
+     * @return the caches used, for their hit rates
+     */
+    private static List<PlanCache> addCacheBenches(List<Bench> benches) {
+        List<PlanCache> caches = new ArrayList<>();
+        int capacity = 256;
+        for (int distinct : new int[] {capacity, 2 * capacity}) {
+            String[] exprs = new String[distinct];
+            for (int i = 0; i < distinct; i++) {
+                exprs[i] = "(" + i + " + 7) * 3 - " + (i % 13) + " / 2";
+            }
+            Project3 runner = new Project3(capacity);
+            caches.add(runner.getPlanCache());
+            long[] sink = new long[1];
+            int[] next = new int[1];
+            benches.add(new Bench("cache", () -> {
+                sink[0] += runner.evaluateInfix(exprs[next[0]]);
+                next[0] = next[0] + 1 == distinct ? 0 : next[0] + 1;
+            })
+                .param("capacity", capacity)
+                .param("formulas", distinct));
+        }
+        return caches;
+    }
+
+    /**
+     * Formulas with variables over whole columns, against evaluating the
+     * plan one row at a time.
+     * @param benches list to add to
+     * @param quick use fewer rows
+     * @param pool pool to evaluate columns on, or null
+     */
+    private static void addColumnBenches(List<Bench> benches, boolean quick, ForkJoinPool pool) {
+        int rows = quick ? 1 << 20 : 1 << 24;
+        String[] formulas = {"a + b", "(a + b) * 3 - c", "(a + b) * 3 / c"};
+        Project3 runner = new Project3();
+        // filled on first use, so filtered runs do not allocate them
+        int[][][] ints = new int[1][][];
+        long[][][] longs = new long[1][][];
+        Op fill = () -> {
+            if (ints[0] == null) {
+                java.util.Random rand = new java.util.Random(rows);
+                ints[0] = new int[4][rows];
+                longs[0] = new long[4][rows];
+                for (int i = 0; i < rows; i++) {
+                    ints[0][0][i] = rand.nextInt();
+                    ints[0][1][i] = rand.nextInt();
+                    ints[0][2][i] = rand.nextInt(1000) + 1;
+                    for (int v = 0; v < 3; v++) {
+                        longs[0][v][i] = ints[0][v][i];
+                    }
+                }
+            }
+        };
+        for (String formula : formulas) {
+            ExpressionPlan plan = runner.compileFormula(formula);
+            int vars = plan.variableCount();
+            benches.add(new Bench("columns", rows, () -> {
+                fill.run();
+                int[][] in = java.util.Arrays.copyOf(ints[0], vars);
+                plan.evaluateColumns(in, ints[0][3], pool);
+            })
+                .param("formula", formula)
+                .param("type", "int"));
+            benches.add(new Bench("columns", rows, () -> {
+                fill.run();
+                long[][] in = java.util.Arrays.copyOf(longs[0], vars);
+                plan.evaluateColumns(in, longs[0][3], pool);
+            })
+                .param("formula", formula)
+                .param("type", "long"));
+            int[] values = new int[vars];
+            long[] sink = new long[1];
+            benches.add(new Bench("columns", rows, () -> {
+                fill.run();
+                int[][] in = ints[0];
+                long sum = 0;
+                for (int i = 0; i < rows; i++) {
+                    for (int v = 0; v < vars; v++) {
+                        values[v] = in[v][i];
+                    }
+                    sum += plan.evaluate(values);
+                }
+                sink[0] += sum;
+            })
+                .param("formula", formula)
+                .param("type", "int row by row"));
+        }
+    }
+
+    /**
+     * Lines of expressions streamed from memory through a pipeline to a
+     * channel that discards them, with one worker and with n. The
+     * distinct lines miss every plan cache; the repeated ones hit.
+     * @param benches list to add to
+     * @param quick use fewer lines
+     * @param threads workers for the second run
+     */
+    private static void addPipelineBenches(List<Bench> benches, boolean quick, int threads) {
+        int lines = quick ? 50_000 : 1_000_000;
+        java.util.Random rand = new java.util.Random(lines);
+        StringBuilder distinct = new StringBuilder();
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            distinct.append('(').append(rand.nextInt(1000)).append(" + ").append(i)
+                .append(") * ").append(rand.nextInt(100)).append(" / 7\n");
+            repeated.append(FORMULAS[i % FORMULAS.length][1]).append('\n');
+        }
+        String[][] inputs = {{"distinct", distinct.toString()}, {"repeated", repeated.toString()}};
+        WritableByteChannel discard = new WritableByteChannel() {
+            @Override
+            public int write(java.nio.ByteBuffer src) {
+                int n = src.remaining();
+                src.position(src.limit());
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        for (String[] input : inputs) {
+            byte[] bytes = input[1].getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+            for (int workers : threads > 1 ? new int[] {1, threads} : new int[] {1}) {
+                ExpressionPipeline pipeline = new ExpressionPipeline(workers);
+                benches.add(new Bench("pipeline", lines, () -> pipeline.run(
+                    java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream(bytes)),
+                    discard))
+                    .param("lines", input[0])
+                    .param("workers", workers));
+            }
+        }
+    }
+
+    /**
+     * Values handed from producer threads to consumer threads through each
+     * lock-free collection, and through a Factory one behind a lock. One
+     * operation starts the threads and moves every value; rows are values.
+     * @param benches list to add to
+     * @param quick move fewer values
+     * @param threads producers, and as many consumers
+     */
+    private static void addConcurrentBenches(List<Bench> benches, boolean quick, int threads) {
+        int values = quick ? 2_000 : 20_000;
+        QueueADT<Integer> node = ConcurrentFactory.makeQueueNode();
+        QueueADT<Integer> circular = ConcurrentFactory.makeQueueCircular(1024);
+        StackADT<Integer> stack = ConcurrentFactory.makeStackNode();
+        QueueADT<Integer> lockedNode = ConcurrentFactory.synchronizedQueue(Factory.makeQueueNode());
+        StackADT<Integer> lockedStack =
+            ConcurrentFactory.synchronizedStack(Factory.makeStackArrayList());
+        Object[][] queues = {{"queue node", node}, {"queue circular", circular},
+            {"locked queue node", lockedNode}};
+        for (Object[] q : queues) {
+            @SuppressWarnings("unchecked")
+            QueueADT<Integer> queue = (QueueADT<Integer>) q[1];
+            benches.add(new Bench("concurrent", values,
+                () -> handOff(threads, values, queue::enqueue, queue::dequeue))
+                .param("collection", q[0])
+                .param("threads", 2 * threads));
+        }
+        Object[][] stacks = {{"stack node", stack}, {"locked stack list", lockedStack}};
+        for (Object[] st : stacks) {
+            @SuppressWarnings("unchecked")
+            StackADT<Integer> s = (StackADT<Integer>) st[1];
+            benches.add(new Bench("concurrent", values,
+                () -> handOff(threads, values, s::push, s::pop))
+                .param("collection", st[0])
+                .param("threads", 2 * threads));
+        }
+    }
+
+    /**
+     * Moves values from producers to consumers and waits for them all.
+     * @param pairs number of producers, and of consumers
+     * @param values values to move in all
+     * @param add adds a value, returning false if there is no room
+     * @param remove removes a value, returning null if there is none
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void handOff(int pairs, int values,
+            java.util.function.Predicate<Integer> add,
+            java.util.function.Supplier<Integer> remove) throws InterruptedException {
+        java.util.concurrent.atomic.AtomicInteger left =
+            new java.util.concurrent.atomic.AtomicInteger(values);
+        Thread[] workers = new Thread[2 * pairs];
+        for (int p = 0; p < pairs; p++) {
+            int from = values * p / pairs;
+            int to = values * (p + 1) / pairs;
+            workers[p] = new Thread(() -> {
+                for (int i = from; i < to; i++) {
+                    Integer value = i;
+                    while (!add.test(value)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            workers[pairs + p] = new Thread(() -> {
+                while (left.get() > 0) {
+                    if (remove.get() != null) {
+                        left.decrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Warms up and measures one benchmark.
+     * @param bench benchmark to run
+     * @return measured result
+     * @throws Exception if the benchmark fails
+     */
+    private static Result measure(Bench bench) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(bench, null);
+        }
+        double[] rates = new double[MEASURE_ITERATIONS];
+        long[] totals = new long[2];  // operations, bytes
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            rates[i] = iteration(bench, totals);
+        }
+
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate / rates.length;
+        }
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean) / (rates.length - 1);
+        }
+        // t-distribution quantile for 99.9% with 4 degrees of freedom
+        double error = 8.610 * Math.sqrt(variance / rates.length);
+        return new Result(bench, mean, error, (double) totals[1] / totals[0]);
+    }
+
+    /**
+     * Runs operations for one iteration's time budget.
+     * @param bench benchmark to run
+     * @param totals accumulates operations and bytes, or null while warming up
+     * @return operations per second
+     * @throws Exception if the benchmark fails
+     */
+    private static double iteration(Bench bench, long[] totals) throws Exception {
+        long id = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        long ops = 0;
+        long elapsed;
+        do {
+            // checking the clock costs about as much as a small plan, so
+            // it is read once every batch of operations
+            for (int i = 0; i < 64; i++) {
+                bench.op.run();
+            }
+            ops += 64;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long bytes = THREADS.getThreadAllocatedBytes(id) - bytesBefore;
+        if (totals != null) {
+            totals[0] += ops;
+            totals[1] += bytes;
+        }
+        return ops * 1e9 / elapsed;
+    }
+
+    /**
+     * Writes results in the JSON layout JMH uses, so existing tooling can
+     * compare runs.
+     * @param results measured results
+     * @param filename output file
+     * @param threads threads used for columns
+     * @throws FileNotFoundException if the file cannot be created
+     */
+    private static void writeJson(List<Result> results, String filename, int threads)
+            throws FileNotFoundException {
+        try (PrintWriter out = new PrintWriter(filename)) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.println("  {");
+                out.println("    \"benchmark\": \"Project3Bench." + r.bench.name + "\",");
+                out.println("    \"mode\": \"thrpt\",");
+                out.println("    \"threads\": " + threads + ",");
+                out.println("    \"warmupIterations\": " + WARMUP_ITERATIONS + ",");
+                out.println("    \"measurementIterations\": " + MEASURE_ITERATIONS + ",");
+                out.print("    \"params\": {");
+                int k = 0;
+                for (Map.Entry<String, String> p : r.bench.params.entrySet()) {
+                    out.print((k++ > 0 ? ", " : "") + "\"" + p.getKey() + "\": \""
+                        + p.getValue().replace("\"", "\\\"") + "\"");
+                }
+                out.println("},");
+                out.println("    \"primaryMetric\": {\"score\": " + r.opsPerSecond
+                    + ", \"scoreError\": " + r.error + ", \"scoreUnit\": \"ops/s\"},");
+                out.println("    \"secondaryMetrics\": {");
+                out.println("      \"rows\": {\"score\": " + r.opsPerSecond * r.bench.rowsPerOp
+                    + ", \"scoreUnit\": \"rows/s\"},");
+                out.println("      \"gc.alloc.rate.norm\": {\"score\": " + r.bytesPerOp
+                    + ", \"scoreUnit\": \"B/op\"}");
+                out.println("    }");
+                out.println("  }" + (i + 1 < results.size() ? "," : ""));
+            }
+            out.println("]");
+        }
+    }
+}
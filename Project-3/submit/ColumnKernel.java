@@ -0,0 +1,364 @@
+import java.util.Arrays;
+
+/**
+ * Evaluates a well-formed {@link ExpressionPlan} over columns of values a
+ * block of rows at a time. Each opcode runs over the whole block before
+ * the next one: a push or load only points at an array of values, and an
+ * operator is one loop over two such arrays, which the JIT can unroll and
+ * vectorize. Only the block's final operator writes to the output, and a
+ * value kept in a temporary is copied out of the stack's scratch space.
+ * A block that divides by zero is evaluated again one row at a time, so
+ * the error names the lowest failing row, as evaluating row by row would.
+ */
+final class ColumnKernel {
+
+    /** Rows evaluated per opcode, sized so the blocks stay in cache. */
+    static final int BLOCK = 1024;
+
+    /**
+     * Prevents instantiation.
+     */
+    private ColumnKernel() {
+    }
+
+    /**
+     * Evaluates rows of {@code int} columns.
+     *
+     * @param code The plan's opcodes, with no failures
+     * @param constants The plan's integer literals
+     * @param depth The deepest the operand stack gets
+     * @param temps The number of temporaries
+     * @param columns The values of each variable
+     * @param out Receives the results
+     * @param from First row
+     * @param to One past the last row
+     * @throws ArithmeticException If a row divides by zero, naming the
+     *         lowest such row
+     */
+    static void evaluate(int[] code, int[] constants, int depth, int temps, int[][] columns,
+            int[] out, int from, int to) {
+        int block = Math.min(BLOCK, to - from);
+        if (block <= 0) {
+            return;
+        }
+        int[][] scratch = new int[depth][block];
+        int[][] saved = new int[temps][block];
+        int[][] filled = new int[constants.length][];
+        // operand stack: each entry is a run of values starting at an offset
+        int[][] arrays = new int[depth][];
+        int[] offsets = new int[depth];
+        int base = from;
+        try {
+            for (; base < to; base += block) {
+                int n = Math.min(block, to - base);
+                int sp = 0;
+                for (int pc = 0; pc < code.length; pc++) {
+                    int op = code[pc];
+                    if (op == ExpressionPlan.PUSH) {
+                        int k = code[++pc];
+                        if (filled[k] == null) {
+                            filled[k] = new int[block];
+                            Arrays.fill(filled[k], constants[k]);
+                        }
+                        arrays[sp] = filled[k];
+                        offsets[sp++] = 0;
+                    } else if (op == ExpressionPlan.LOAD) {
+                        arrays[sp] = columns[code[++pc]];
+                        offsets[sp++] = base;
+                    } else if (op == ExpressionPlan.STORE) {
+                        System.arraycopy(arrays[sp - 1], offsets[sp - 1], saved[code[++pc]], 0, n);
+                    } else if (op == ExpressionPlan.TEMP) {
+                        arrays[sp] = saved[code[++pc]];
+                        offsets[sp++] = 0;
+                    } else {
+                        sp--;
+                        boolean last = pc == code.length - 1;
+                        int[] dst = last ? out : scratch[sp - 1];
+                        int d = last ? base : 0;
+                        int[] l = arrays[sp - 1];
+                        int lo = offsets[sp - 1];
+                        int[] r = arrays[sp];
+                        int ro = offsets[sp];
+                        switch (op) {
+                            case ExpressionPlan.ADD:
+                                add(l, lo, r, ro, dst, d, n);
+                                break;
+                            case ExpressionPlan.SUB:
+                                sub(l, lo, r, ro, dst, d, n);
+                                break;
+                            case ExpressionPlan.MUL:
+                                mul(l, lo, r, ro, dst, d, n);
+                                break;
+                            case ExpressionPlan.DIV:
+                                div(l, lo, r, ro, dst, d, n, base);
+                                break;
+                            default:
+                                throw new IllegalStateException("Bad opcode " + op + " at " + pc);
+                        }
+                        arrays[sp - 1] = dst;
+                        offsets[sp - 1] = d;
+                    }
+                }
+                if (arrays[0] != out) {
+                    // a plan that is a single constant or variable
+                    System.arraycopy(arrays[0], offsets[0], out, base, n);
+                }
+            }
+        } catch (ArithmeticException e) {
+            if (to - from == 1) {
+                throw e;
+            }
+            // an opcode fails at the first zero it meets in the block, which
+            // may be past a zero a later opcode meets, so the block is run
+            // again a row at a time to report the lowest failing row
+            for (int row = base; row < Math.min(base + block, to); row++) {
+                evaluate(code, constants, depth, temps, columns, out, row, row + 1);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates rows of {@code long} columns in {@code long} arithmetic.
+     *
+     * @param code The plan's opcodes, with no failures
+     * @param constants The plan's integer literals
+     * @param depth The deepest the operand stack gets
+     * @param temps The number of temporaries
+     * @param columns The values of each variable
+     * @param out Receives the results
+     * @param from First row
+     * @param to One past the last row
+     * @throws ArithmeticException If a row divides by zero, naming the
+     *         lowest such row
+     */
+    static void evaluate(int[] code, int[] constants, int depth, int temps, long[][] columns,
+            long[] out, int from, int to) {
+        int block = Math.min(BLOCK, to - from);
+        if (block <= 0) {
+            return;
+        }
+        long[][] scratch = new long[depth][block];
+        long[][] saved = new long[temps][block];
+        long[][] filled = new long[constants.length][];
+        long[][] arrays = new long[depth][];
+        int[] offsets = new int[depth];
+        int base = from;
+        try {
+            for (; base < to; base += block) {
+                int n = Math.min(block, to - base);
+                int sp = 0;
+                for (int pc = 0; pc < code.length; pc++) {
+                    int op = code[pc];
+                    if (op == ExpressionPlan.PUSH) {
+                        int k = code[++pc];
+                        if (filled[k] == null) {
+                            filled[k] = new long[block];
+                            Arrays.fill(filled[k], constants[k]);
+                        }
+                        arrays[sp] = filled[k];
+                        offsets[sp++] = 0;
+                    } else if (op == ExpressionPlan.LOAD) {
+                        arrays[sp] = columns[code[++pc]];
+                        offsets[sp++] = base;
+                    } else if (op == ExpressionPlan.STORE) {
+                        System.arraycopy(arrays[sp - 1], offsets[sp - 1], saved[code[++pc]], 0, n);
+                    } else if (op == ExpressionPlan.TEMP) {
+                        arrays[sp] = saved[code[++pc]];
+                        offsets[sp++] = 0;
+                    } else {
+                        sp--;
+                        boolean last = pc == code.length - 1;
+                        long[] dst = last ? out : scratch[sp - 1];
+                        int d = last ? base : 0;
+                        long[] l = arrays[sp - 1];
+                        int lo = offsets[sp - 1];
+                        long[] r = arrays[sp];
+                        int ro = offsets[sp];
+                        switch (op) {
+                            case ExpressionPlan.ADD:
+                                add(l, lo, r, ro, dst, d, n);
+                                break;
+                            case ExpressionPlan.SUB:
+                                sub(l, lo, r, ro, dst, d, n);
+                                break;
+                            case ExpressionPlan.MUL:
+                                mul(l, lo, r, ro, dst, d, n);
+                                break;
+                            case ExpressionPlan.DIV:
+                                div(l, lo, r, ro, dst, d, n, base);
+                                break;
+                            default:
+                                throw new IllegalStateException("Bad opcode " + op + " at " + pc);
+                        }
+                        arrays[sp - 1] = dst;
+                        offsets[sp - 1] = d;
+                    }
+                }
+                if (arrays[0] != out) {
+                    System.arraycopy(arrays[0], offsets[0], out, base, n);
+                }
+            }
+        } catch (ArithmeticException e) {
+            if (to - from == 1) {
+                throw e;
+            }
+            // an opcode fails at the first zero it meets in the block, which
+            // may be past a zero a later opcode meets, so the block is run
+            // again a row at a time to report the lowest failing row
+            for (int row = base; row < Math.min(base + block, to); row++) {
+                evaluate(code, constants, depth, temps, columns, out, row, row + 1);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     */
+    private static void add(int[] l, int lo, int[] r, int ro, int[] dst, int d, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[d + i] = l[lo + i] + r[ro + i];
+        }
+    }
+
+    /**
+     * Subtracts two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     */
+    private static void sub(int[] l, int lo, int[] r, int ro, int[] dst, int d, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[d + i] = l[lo + i] - r[ro + i];
+        }
+    }
+
+    /**
+     * Multiplies two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     */
+    private static void mul(int[] l, int lo, int[] r, int ro, int[] dst, int d, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[d + i] = l[lo + i] * r[ro + i];
+        }
+    }
+
+    /**
+     * Divides two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     * @param row Row of the first value, for the error message
+     * @throws ArithmeticException If a right value is zero
+     */
+    private static void div(int[] l, int lo, int[] r, int ro, int[] dst, int d, int n, int row) {
+        for (int i = 0; i < n; i++) {
+            int divisor = r[ro + i];
+            if (divisor == 0) {
+                throw new ArithmeticException("Division by zero at row " + (row + i));
+            }
+            dst[d + i] = l[lo + i] / divisor;
+        }
+    }
+
+    /**
+     * Adds two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     */
+    private static void add(long[] l, int lo, long[] r, int ro, long[] dst, int d, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[d + i] = l[lo + i] + r[ro + i];
+        }
+    }
+
+    /**
+     * Subtracts two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     */
+    private static void sub(long[] l, int lo, long[] r, int ro, long[] dst, int d, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[d + i] = l[lo + i] - r[ro + i];
+        }
+    }
+
+    /**
+     * Multiplies two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     */
+    private static void mul(long[] l, int lo, long[] r, int ro, long[] dst, int d, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[d + i] = l[lo + i] * r[ro + i];
+        }
+    }
+
+    /**
+     * Divides two runs of values.
+     *
+     * @param l Left values
+     * @param lo Offset of the first left value
+     * @param r Right values
+     * @param ro Offset of the first right value
+     * @param dst Receives the results
+     * @param d Offset of the first result
+     * @param n Number of values
+     * @param row Row of the first value, for the error message
+     * @throws ArithmeticException If a right value is zero
+     */
+    private static void div(long[] l, int lo, long[] r, int ro, long[] dst, int d, int n,
+            int row) {
+        for (int i = 0; i < n; i++) {
+            long divisor = r[ro + i];
+            if (divisor == 0) {
+                throw new ArithmeticException("Division by zero at row " + (row + i));
+            }
+            dst[d + i] = l[lo + i] / divisor;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import itsc2214.*;
+
+/**
+ * Makes queues and stacks that can be shared between threads, as
+ * {@link Factory} makes ones for a single thread.
+ *
+ * The lock-free ones never block a thread while another holds a lock:
+ *
+ *   {@link #makeQueueNode()}, a linked queue after Michael and Scott;
+ *   {@link #makeQueueCircular(int)}, a bounded ring for many producers
+ *   and consumers;
+ *   {@link #makeStackNode()}, a linked stack after Treiber.
+ *
+ * Adding, removing, peeking and checking for empty are linearizable: each
+ * takes effect at one instant between its call and return. Sizes and
+ * listings walk the values while other threads change them, so they are
+ * only snapshots. The synchronized wrappers make any queue or
+ * stack safe by locking it for every call, which is simpler but lets only
+ * one thread in at a time.
+ *
+ * As with {@code Factory}, an empty collection dequeues, pops and peeks
+ * {@code null}, so the lock-free collections do not take {@code null}
+ * values.
+ */
+public final class ConcurrentFactory {
+
+    /**
+     * Prevents instantiation.
+     */
+    private ConcurrentFactory() {
+    }
+
+    /**
+     * Makes an unbounded lock-free linked queue.
+     *
+     * @param <E> The type of values
+     * @return An empty queue
+     */
+    public static <E> QueueADT<E> makeQueueNode() {
+        return new ConcurrentQueueNode<>();
+    }
+
+    /**
+     * Makes a bounded queue in a circular array, for any number of
+     * producers and consumers. Enqueuing returns {@code false} when it is
+     * full, so a producer can back off.
+     *
+     * @param <E> The type of values
+     * @param capacity The most values it holds, rounded up to a power of two
+     * @return An empty queue
+     * @throws IllegalArgumentException If {@code capacity} is less than 1 or
+     *         more than {@code 1 << 30}
+     */
+    public static <E> QueueADT<E> makeQueueCircular(int capacity) {
+        return new ConcurrentQueueCircular<>(capacity);
+    }
+
+    /**
+     * Makes an unbounded lock-free linked stack.
+     *
+     * @param <E> The type of values
+     * @return An empty stack
+     */
+    public static <E> StackADT<E> makeStackNode() {
+        return new ConcurrentStackNode<>();
+    }
+
+    /**
+     * Wraps a queue so every call holds its lock.
+     *
+     * @param <E> The type of values
+     * @param queue The queue, which must not be used except through the wrapper
+     * @return The synchronized queue
+     */
+    public static <E> QueueADT<E> synchronizedQueue(QueueADT<E> queue) {
+        return new SynchronizedQueue<>(queue);
+    }
+
+    /**
+     * Wraps a stack so every call holds its lock.
+     *
+     * @param <E> The type of values
+     * @param stack The stack, which must not be used except through the wrapper
+     * @return The synchronized stack
+     */
+    public static <E> StackADT<E> synchronizedStack(StackADT<E> stack) {
+        return new SynchronizedStack<>(stack);
+    }
+
+    /**
+     * A queue that holds a lock for every call.
+     *
+     * @param <E> The type of values
+     */
+    private static final class SynchronizedQueue<E> implements QueueADT<E> {
+        private final QueueADT<E> queue;
+
+        /**
+         * Wraps a queue.
+         *
+         * @param queue The queue
+         */
+        SynchronizedQueue(QueueADT<E> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public synchronized boolean enqueue(E value) {
+            return queue.enqueue(value);
+        }
+
+        @Override
+        public synchronized E dequeue() {
+            return queue.dequeue();
+        }
+
+        @Override
+        @Deprecated
+        public synchronized E frontValue() {
+            return queue.peek();
+        }
+
+        @Override
+        public synchronized E peek() {
+            return queue.peek();
+        }
+
+        @Override
+        public synchronized int size() {
+            return queue.size();
+        }
+
+        @Override
+        public synchronized boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        public synchronized void clear() {
+            queue.clear();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return queue.toString();
+        }
+    }
+
+    /**
+     * A stack that holds a lock for every call.
+     *
+     * @param <E> The type of values
+     */
+    private static final class SynchronizedStack<E> implements StackADT<E> {
+        private final StackADT<E> stack;
+
+        /**
+         * Wraps a stack.
+         *
+         * @param stack The stack
+         */
+        SynchronizedStack(StackADT<E> stack) {
+            this.stack = stack;
+        }
+
+        @Override
+        public synchronized boolean push(E value) {
+            return stack.push(value);
+        }
+
+        @Override
+        public synchronized E pop() {
+            return stack.pop();
+        }
+
+        @Override
+        @Deprecated
+        public synchronized E topValue() {
+            return stack.peek();
+        }
+
+        @Override
+        public synchronized E peek() {
+            return stack.peek();
+        }
+
+        @Override
+        public synchronized int size() {
+            return stack.size();
+        }
+
+        @Override
+        public synchronized boolean isEmpty() {
+            return stack.isEmpty();
+        }
+
+        @Override
+        public synchronized void clear() {
+            stack.clear();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return stack.toString();
+        }
+    }
+}
@@ -0,0 +1,484 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import itsc2214.*;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Unit and stress tests for the collections made by {@link ConcurrentFactory}.
+ *
+ * Besides checking each value is handed over exactly once under load, the
+ * tests record short histories of threads racing on one collection, with
+ * the time each call started and returned, and search for an order of the
+ * calls that respects those times and gives the same results one at a
+ * time. A collection that is not linearizable fails when no order exists.
+ */
+public class ConcurrentFactoryTest {
+
+    private static final int ADD = 0;
+    private static final int REMOVE = 1;
+    private static final int PEEK = 2;
+    private static final int EMPTY = 3;
+
+    /**
+     * Tests the queues hand values over in order, one thread at a time.
+     */
+    @Test
+    public void testQueues() {
+        testQueue(ConcurrentFactory.makeQueueNode());
+        testQueue(ConcurrentFactory.makeQueueCircular(8));
+        testQueue(ConcurrentFactory.synchronizedQueue(Factory.makeQueueNode()));
+    }
+
+    /**
+     * Tests one queue, one thread at a time.
+     *
+     * @param queue An empty queue holding at least 3 values
+     */
+    private static void testQueue(QueueADT<String> queue) {
+        assertTrue(queue.isEmpty());
+        assertNull(queue.dequeue());
+        assertNull(queue.peek());
+        assertTrue(queue.enqueue("a"));
+        assertTrue(queue.enqueue("b"));
+        assertTrue(queue.enqueue("c"));
+        assertEquals(3, queue.size());
+        assertEquals("a", queue.peek());
+        assertEquals("a", queue.dequeue());
+        assertEquals("b", queue.peek());
+        assertEquals(2, queue.size());
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.dequeue());
+        for (int i = 0; i < 100; i++) {
+            queue.enqueue("x" + i);
+            assertEquals("x" + i, queue.dequeue());
+        }
+    }
+
+    /**
+     * Tests the stacks, one thread at a time.
+     */
+    @Test
+    public void testStacks() {
+        for (StackADT<String> stack : java.util.Arrays.asList(
+                ConcurrentFactory.<String>makeStackNode(),
+                ConcurrentFactory.synchronizedStack(Factory.<String>makeStackArrayList()))) {
+            assertTrue(stack.isEmpty());
+            assertNull(stack.pop());
+            assertNull(stack.peek());
+            assertTrue(stack.push("a"));
+            assertTrue(stack.push("b"));
+            assertTrue(stack.push("c"));
+            assertEquals(3, stack.size());
+            assertEquals("c", stack.peek());
+            assertEquals("c", stack.pop());
+            assertEquals("b", stack.peek());
+            stack.clear();
+            assertTrue(stack.isEmpty());
+            assertNull(stack.pop());
+        }
+        StackADT<Integer> stack = ConcurrentFactory.makeStackNode();
+        stack.push(1);
+        stack.push(2);
+        stack.push(3);
+        assertEquals("[1, 2, 3]", stack.toString());
+    }
+
+    /**
+     * Tests the ring's capacity and that it wraps around.
+     */
+    @Test
+    public void testCircular() {
+        QueueADT<Integer> queue = ConcurrentFactory.makeQueueCircular(3);
+        assertEquals(4, ((ConcurrentQueueCircular<Integer>) queue).capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.enqueue(i));
+        }
+        assertFalse(queue.enqueue(4));
+        assertEquals(4, queue.size());
+        assertEquals("[0, 1, 2, 3]", queue.toString());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), queue.dequeue());
+            assertTrue(queue.enqueue(i + 4));
+            assertFalse(queue.enqueue(-1));
+        }
+        try {
+            ConcurrentFactory.makeQueueCircular(0);
+            fail("no capacity");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Queue capacity out of range: 0", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests null values are rejected, as null means empty.
+     */
+    @Test
+    public void testNulls() {
+        try {
+            ConcurrentFactory.makeQueueNode().enqueue(null);
+            fail("null value");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Null value passed to enqueue", e.getMessage());
+        }
+        try {
+            ConcurrentFactory.makeQueueCircular(2).enqueue(null);
+            fail("null value");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Null value passed to enqueue", e.getMessage());
+        }
+        try {
+            ConcurrentFactory.makeStackNode().push(null);
+            fail("null value");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Null value passed to push", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests producers and consumers sharing a queue: every value arrives
+     * once, and each consumer sees each producer's values in order.
+     *
+     * @throws Exception If a thread fails
+     */
+    @Test(timeout = 60000)
+    public void testQueueTransfer() throws Exception {
+        transfer(ConcurrentFactory::makeQueueNode, true);
+        transfer(() -> ConcurrentFactory.makeQueueCircular(64), true);
+    }
+
+    /**
+     * Tests pushers and poppers sharing a stack: every value arrives once.
+     *
+     * @throws Exception If a thread fails
+     */
+    @Test(timeout = 60000)
+    public void testStackTransfer() throws Exception {
+        StackADT<Integer> stack = ConcurrentFactory.makeStackNode();
+        transfer(() -> new QueueADT<Integer>() {
+            public boolean enqueue(Integer value) {
+                return stack.push(value);
+            }
+
+            public Integer dequeue() {
+                return stack.pop();
+            }
+
+            @Deprecated
+            public Integer frontValue() {
+                return stack.peek();
+            }
+
+            public Integer peek() {
+                return stack.peek();
+            }
+
+            public int size() {
+                return stack.size();
+            }
+
+            public void clear() {
+                stack.clear();
+            }
+        }, false);
+    }
+
+    /**
+     * Runs 3 producers and 3 consumers over one collection.
+     *
+     * @param make Makes the collection, as a queue
+     * @param fifo Whether each producer's values must arrive in order
+     * @throws Exception If a thread fails
+     */
+    private static void transfer(Supplier<QueueADT<Integer>> make, boolean fifo)
+            throws Exception {
+        int producers = 3;
+        int perProducer = 100_000;
+        QueueADT<Integer> queue = make.get();
+        int[][] seen = new int[producers][perProducer];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        java.util.concurrent.atomic.AtomicInteger received =
+                new java.util.concurrent.atomic.AtomicInteger();
+        Thread[] threads = new Thread[2 * producers];
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.enqueue(id * perProducer + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[producers + p] = new Thread(() -> {
+                int[] last = new int[producers];
+                java.util.Arrays.fill(last, -1);
+                try {
+                    while (received.get() < producers * perProducer) {
+                        Integer value = queue.dequeue();
+                        if (value == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        received.incrementAndGet();
+                        int from = value / perProducer;
+                        int index = value % perProducer;
+                        synchronized (seen) {
+                            seen[from][index]++;
+                        }
+                        assertTrue("out of order", !fifo || index > last[from]);
+                        last[from] = index;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    received.set(Integer.MAX_VALUE);
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        for (int[] counts : seen) {
+            for (int count : counts) {
+                assertEquals(1, count);
+            }
+        }
+        assertNull(queue.dequeue());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Tests histories of racing calls on each collection are linearizable.
+     *
+     * @throws Exception If a thread fails
+     */
+    @Test(timeout = 60000)
+    public void testLinearizable() throws Exception {
+        checkHistories("queue node", () -> new Subject(ConcurrentFactory.makeQueueNode()),
+                Integer.MAX_VALUE, true);
+        // a small ring, so histories hit full as well as empty
+        checkHistories("queue circular", () -> new Subject(ConcurrentFactory.makeQueueCircular(2)),
+                2, true);
+        checkHistories("stack node", () -> new Subject(ConcurrentFactory.makeStackNode()),
+                Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * A queue or stack under test.
+     */
+    private static final class Subject {
+        private final QueueADT<Integer> queue;
+        private final StackADT<Integer> stack;
+
+        /**
+         * Wraps a queue.
+         *
+         * @param queue The queue
+         */
+        Subject(QueueADT<Integer> queue) {
+            this.queue = queue;
+            this.stack = null;
+        }
+
+        /**
+         * Wraps a stack.
+         *
+         * @param stack The stack
+         */
+        Subject(StackADT<Integer> stack) {
+            this.queue = null;
+            this.stack = stack;
+        }
+
+        /**
+         * Calls an operation.
+         *
+         * @param kind {@code ADD}, {@code REMOVE}, {@code PEEK} or {@code EMPTY}
+         * @param value The value to add
+         * @return What the call returned
+         */
+        Object call(int kind, int value) {
+            if (kind == ADD) {
+                return queue != null ? queue.enqueue(value) : stack.push(value);
+            } else if (kind == REMOVE) {
+                return queue != null ? queue.dequeue() : stack.pop();
+            } else if (kind == EMPTY) {
+                return queue != null ? queue.isEmpty() : stack.isEmpty();
+            }
+            return queue != null ? queue.peek() : stack.peek();
+        }
+    }
+
+    /**
+     * One call in a history.
+     */
+    private static final class Call {
+        int kind;
+        int value;
+        Object result;
+        long start;
+        long end;
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "] "
+                    + new String[] {"add", "remove", "peek", "isEmpty"}[kind]
+                    + (kind == ADD ? "(" + value + ")" : "()") + " = " + result;
+        }
+    }
+
+    /**
+     * Races 3 threads making 3 calls each on fresh collections, and checks
+     * every history.
+     *
+     * @param name The collection, for messages
+     * @param make Makes a fresh collection
+     * @param capacity The most values it holds
+     * @param fifo Whether it is a queue rather than a stack
+     * @throws Exception If a thread fails
+     */
+    private static void checkHistories(String name, Supplier<Subject> make, int capacity,
+            boolean fifo) throws Exception {
+        int threads = 3;
+        int calls = 3;
+        int rounds = 3000;
+        Call[][] history = new Call[threads][calls];
+        for (Call[] row : history) {
+            for (int c = 0; c < calls; c++) {
+                row[c] = new Call();
+            }
+        }
+        Subject[] subject = new Subject[1];
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Call[] mine = history[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    for (int round = 0; round < rounds; round++) {
+                        barrier.await();
+                        Subject s = subject[0];
+                        for (Call call : mine) {
+                            call.start = System.nanoTime();
+                            call.result = s.call(call.kind, call.value);
+                            call.end = System.nanoTime();
+                        }
+                        barrier.await();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    barrier.reset();
+                }
+            });
+            workers[t].start();
+        }
+        Random rand = new Random(2214);
+        int next = 0;
+        try {
+            for (int round = 0; round < rounds; round++) {
+                subject[0] = make.get();
+                ArrayDeque<Integer> model = new ArrayDeque<>();
+                for (int n = rand.nextInt(3); n > 0 && model.size() < capacity; n--) {
+                    subject[0].call(ADD, ++next);
+                    model.addLast(next);
+                }
+                for (Call[] row : history) {
+                    for (Call call : row) {
+                        int pick = rand.nextInt(10);
+                        call.kind = pick < 4 ? ADD : pick < 5 ? PEEK : pick < 6 ? EMPTY : REMOVE;
+                        call.value = ++next;
+                    }
+                }
+                barrier.await();
+                barrier.await();
+                Call[] all = new Call[threads * calls];
+                for (int t = 0; t < threads; t++) {
+                    System.arraycopy(history[t], 0, all, t * calls, calls);
+                }
+                if (!linearizable(all, (1 << all.length) - 1, model, capacity, fifo)) {
+                    fail(name + " history is not linearizable from " + model + ": "
+                            + java.util.Arrays.toString(all));
+                }
+            }
+        } finally {
+            for (Thread t : workers) {
+                t.interrupt();
+                t.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    /**
+     * Searches for an order of the remaining calls that respects their
+     * times and gives their results when made one at a time.
+     *
+     * @param calls Every call
+     * @param remaining Bit set of the calls not yet placed
+     * @param model The collection's values, front or bottom first
+     * @param capacity The most values it holds
+     * @param fifo Whether it is a queue rather than a stack
+     * @return {@code true} if such an order exists
+     */
+    private static boolean linearizable(Call[] calls, int remaining, ArrayDeque<Integer> model,
+            int capacity, boolean fifo) {
+        if (remaining == 0) {
+            return true;
+        }
+        for (int i = 0; i < calls.length; i++) {
+            if ((remaining & (1 << i)) == 0 || !canGoFirst(calls, remaining, i)) {
+                continue;
+            }
+            Call call = calls[i];
+            ArrayDeque<Integer> after = new ArrayDeque<>(model);
+            Object expected;
+            if (call.kind == ADD) {
+                expected = after.size() < capacity;
+                if (after.size() < capacity) {
+                    after.addLast(call.value);
+                }
+            } else if (call.kind == REMOVE) {
+                expected = fifo ? after.pollFirst() : after.pollLast();
+            } else if (call.kind == EMPTY) {
+                expected = after.isEmpty();
+            } else {
+                expected = fifo ? after.peekFirst() : after.peekLast();
+            }
+            if (java.util.Objects.equals(expected, call.result)
+                    && linearizable(calls, remaining & ~(1 << i), after, capacity, fifo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that no remaining call returned before a call started.
+     *
+     * @param calls Every call
+     * @param remaining Bit set of the calls not yet placed
+     * @param i The call
+     * @return {@code true} if the call may be placed next
+     */
+    private static boolean canGoFirst(Call[] calls, int remaining, int i) {
+        for (int j = 0; j < calls.length; j++) {
+            if (j != i && (remaining & (1 << j)) != 0 && calls[j].end < calls[i].start) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,251 @@
+import itsc2214.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+
+/**
+ * A bounded lock-free queue in a circular array, for any number of
+ * producers and consumers, after Dmitry Vyukov's bounded MPMC queue.
+ *
+ * Every slot has a sequence number saying whose turn it is. A producer
+ * claims position {@code p} with one CAS on the tail once the slot's
+ * sequence is {@code p}, writes the value and publishes it by setting the
+ * sequence to {@code p + 1}; a consumer claims it the same way on the head
+ * and frees the slot for the next lap by setting the sequence to
+ * {@code p + capacity}. Producers and consumers only meet on a slot, and
+ * the head and tail are padded onto separate cache lines so they do not
+ * slow each other down. Nothing is allocated once the queue is made.
+ *
+ * A slot claimed but not yet written holds up the threads that come to it
+ * next: rather than report the queue empty or full when it is not, they
+ * spin until the value is published or taken. That keeps every operation
+ * linearizable, at the cost of the queue not being strictly lock-free.
+ *
+ * As with {@code Factory.makeQueueCircular()}, {@link #enqueue} returns
+ * {@code false} when the queue is full, and an empty queue dequeues and
+ * peeks {@code null}, so {@code null} values are rejected.
+ *
+ * @param <E> The type of values
+ */
+final class ConcurrentQueueCircular<E> implements QueueADT<E> {
+
+    private static final VarHandle SEQUENCE =
+            MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ITEM = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle POSITION;
+
+    static {
+        try {
+            POSITION = MethodHandles.lookup().findVarHandle(Position.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A counter padded to fill its own cache lines.
+     */
+    @SuppressWarnings("unused")
+    private static final class Position {
+        long p1, p2, p3, p4, p5, p6, p7;
+        volatile long value;
+        long q1, q2, q3, q4, q5, q6, q7;
+    }
+
+    private final long[] sequences;
+    private final Object[] items;
+    private final int mask;
+    private final Position head = new Position();
+    private final Position tail = new Position();
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity The most values it holds, rounded up to a power of two
+     * @throws IllegalArgumentException If {@code capacity} is less than 1 or
+     *         more than {@code 1 << 30}
+     */
+    ConcurrentQueueCircular(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Queue capacity out of range: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        sequences = new long[size];
+        items = new Object[size];
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    /**
+     * Adds a value at the back of the queue if there is room.
+     *
+     * @param value The value
+     * @return {@code true} if it was added, {@code false} if the queue is full
+     * @throws IllegalArgumentException If {@code value} is null
+     */
+    @Override
+    public boolean enqueue(E value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value passed to enqueue");
+        }
+        long pos = (long) POSITION.getVolatile(tail);
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = (long) SEQUENCE.getAcquire(sequences, index) - pos;
+            if (diff == 0) {
+                if (POSITION.compareAndSet(tail, pos, pos + 1)) {
+                    ITEM.set(items, index, value);
+                    SEQUENCE.setRelease(sequences, index, pos + 1);
+                    return true;
+                }
+                pos = (long) POSITION.getVolatile(tail);
+            } else if (diff < 0) {
+                // the slot still holds the value from a lap ago, which is
+                // full unless a consumer has claimed it and not yet freed it
+                if (pos - mask - 1 == (long) POSITION.getVolatile(head)) {
+                    return false;
+                }
+                Thread.onSpinWait();
+            } else {
+                pos = (long) POSITION.getVolatile(tail);
+            }
+        }
+    }
+
+    /**
+     * Removes the value at the front of the queue.
+     *
+     * @return The value removed, or null if the queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E dequeue() {
+        long pos = (long) POSITION.getVolatile(head);
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = (long) SEQUENCE.getAcquire(sequences, index) - (pos + 1);
+            if (diff == 0) {
+                if (POSITION.compareAndSet(head, pos, pos + 1)) {
+                    E item = (E) ITEM.get(items, index);
+                    ITEM.set(items, index, null);
+                    SEQUENCE.setRelease(sequences, index, pos + mask + 1);
+                    return item;
+                }
+                pos = (long) POSITION.getVolatile(head);
+            } else if (diff < 0) {
+                // nothing published in the slot yet, which is empty unless
+                // a producer has claimed it and not yet written it
+                if (pos == (long) POSITION.getVolatile(tail)) {
+                    return null;
+                }
+                Thread.onSpinWait();
+            } else {
+                pos = (long) POSITION.getVolatile(head);
+            }
+        }
+    }
+
+    /**
+     * Gets the value at the front of the queue without removing it.
+     *
+     * @return The front value, or null if the queue is empty
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        while (true) {
+            long pos = (long) POSITION.getVolatile(head);
+            int index = (int) pos & mask;
+            long diff = (long) SEQUENCE.getAcquire(sequences, index) - (pos + 1);
+            if (diff < 0 && pos == (long) POSITION.getVolatile(tail)) {
+                return null;
+            }
+            E item = (E) ITEM.getAcquire(items, index);
+            if (diff == 0 && item != null && pos == (long) POSITION.getVolatile(head)) {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Gets the value at the front of the queue without removing it.
+     *
+     * @return The front value, or null if the queue is empty
+     */
+    @Override
+    @Deprecated
+    public E frontValue() {
+        return peek();
+    }
+
+    /**
+     * Gets the number of values in the queue, which is only a snapshot
+     * while other threads change it.
+     *
+     * @return The number of values
+     */
+    @Override
+    public int size() {
+        while (true) {
+            long first = (long) POSITION.getVolatile(head);
+            long last = (long) POSITION.getVolatile(tail);
+            if (first == (long) POSITION.getVolatile(head)) {
+                return (int) Math.max(0, Math.min(last - first, mask + 1));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the queue is empty: no value has been claimed at the
+     * back that has not also been claimed at the front.
+     *
+     * @return {@code true} if the head has caught up with the tail
+     */
+    @Override
+    public boolean isEmpty() {
+        return (long) POSITION.getVolatile(head) >= (long) POSITION.getVolatile(tail);
+    }
+
+    /**
+     * Gets the most values the queue holds.
+     *
+     * @return The capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Removes values until the queue is empty.
+     */
+    @Override
+    public void clear() {
+        while (dequeue() != null) {
+            // keep going
+        }
+    }
+
+    /**
+     * Lists the values from front to back, as they are while it runs.
+     *
+     * @return The values as text, such as {@code "[1, 2, 3]"}
+     */
+    @Override
+    public String toString() {
+        ArrayList<Object> values = new ArrayList<>();
+        long first = (long) POSITION.getVolatile(head);
+        long last = (long) POSITION.getVolatile(tail);
+        for (long pos = first; pos < last && pos - first <= mask; pos++) {
+            Object item = ITEM.getAcquire(items, (int) pos & mask);
+            if (item != null) {
+                values.add(item);
+            }
+        }
+        return values.toString();
+    }
+}
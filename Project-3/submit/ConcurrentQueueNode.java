@@ -0,0 +1,213 @@
+import itsc2214.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+
+/**
+ * An unbounded lock-free queue of linked nodes, after Michael and Scott,
+ * "Simple, Fast, and Practical Non-Blocking and Blocking Concurrent Queue
+ * Algorithms" (1996).
+ *
+ * The head always points at a dummy node whose successor holds the front
+ * value. Enqueuing links a node after the last one with one CAS and then
+ * swings the tail to it with another; a thread that finds the tail lagging
+ * swings it first, so no thread ever waits for another. Dequeuing moves
+ * the head along with one CAS. Nodes are never reused, so the garbage
+ * collector rules out the ABA problem the paper uses counted pointers for.
+ *
+ * Like {@code Factory.makeQueueNode()}, an empty queue dequeues and peeks
+ * {@code null} rather than throwing, so {@code null} values are rejected.
+ * {@link #size()} counts the nodes, so it takes time proportional to the
+ * length and is only a snapshot while other threads change the queue.
+ *
+ * @param <E> The type of values
+ */
+final class ConcurrentQueueNode<E> implements QueueADT<E> {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ConcurrentQueueNode.class, "head", Node.class);
+            TAIL = lookup.findVarHandle(ConcurrentQueueNode.class, "tail", Node.class);
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A value and the link to the node after it.
+     *
+     * @param <E> The type of the value
+     */
+    private static final class Node<E> {
+        volatile E item;
+        volatile Node<E> next;
+
+        /**
+         * Creates an unlinked node.
+         *
+         * @param item The value, or null for the dummy
+         */
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    private volatile Node<E> head;
+    private volatile Node<E> tail;
+
+    /**
+     * Creates an empty queue.
+     */
+    ConcurrentQueueNode() {
+        head = new Node<>(null);
+        tail = head;
+    }
+
+    /**
+     * Adds a value at the back of the queue.
+     *
+     * @param value The value
+     * @return {@code true}, as the queue is never full
+     * @throws IllegalArgumentException If {@code value} is null
+     */
+    @Override
+    public boolean enqueue(E value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value passed to enqueue");
+        }
+        Node<E> node = new Node<>(value);
+        while (true) {
+            Node<E> last = tail;
+            Node<E> next = last.next;
+            if (last != tail) {
+                continue;
+            }
+            if (next != null) {
+                // another enqueue linked a node but has not moved the tail yet
+                TAIL.compareAndSet(this, last, next);
+            } else if (NEXT.compareAndSet(last, null, node)) {
+                TAIL.compareAndSet(this, last, node);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the value at the front of the queue.
+     *
+     * @return The value removed, or null if the queue is empty
+     */
+    @Override
+    public E dequeue() {
+        while (true) {
+            Node<E> first = head;
+            Node<E> last = tail;
+            Node<E> next = first.next;
+            if (first != head) {
+                continue;
+            }
+            if (next == null) {
+                return null;
+            }
+            if (first == last) {
+                // the tail lags behind a node being enqueued
+                TAIL.compareAndSet(this, last, next);
+            } else {
+                E item = next.item;
+                if (HEAD.compareAndSet(this, first, next)) {
+                    // next is the dummy now; drop the value for the collector
+                    next.item = null;
+                    return item;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the value at the front of the queue without removing it.
+     *
+     * @return The front value, or null if the queue is empty
+     */
+    @Override
+    public E peek() {
+        while (true) {
+            Node<E> first = head;
+            Node<E> next = first.next;
+            if (next == null) {
+                return null;
+            }
+            E item = next.item;
+            if (first == head) {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Gets the value at the front of the queue without removing it.
+     *
+     * @return The front value, or null if the queue is empty
+     */
+    @Override
+    @Deprecated
+    public E frontValue() {
+        return peek();
+    }
+
+    /**
+     * Counts the values in the queue.
+     *
+     * @return The number of values
+     */
+    @Override
+    public int size() {
+        int n = 0;
+        for (Node<E> node = head.next; node != null && n < Integer.MAX_VALUE; node = node.next) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Checks whether the queue is empty, without counting its values.
+     *
+     * @return {@code true} if there is no front value
+     */
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * Removes values until the queue is empty.
+     */
+    @Override
+    public void clear() {
+        while (dequeue() != null) {
+            // keep going
+        }
+    }
+
+    /**
+     * Lists the values from front to back.
+     *
+     * @return The values as text, such as {@code "[1, 2, 3]"}
+     */
+    @Override
+    public String toString() {
+        ArrayList<E> values = new ArrayList<>();
+        for (Node<E> node = head.next; node != null; node = node.next) {
+            E item = node.item;
+            if (item != null) {
+                values.add(item);
+            }
+        }
+        return values.toString();
+    }
+}
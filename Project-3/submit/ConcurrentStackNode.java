@@ -0,0 +1,170 @@
+import itsc2214.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * An unbounded lock-free stack of linked nodes, after R. Kent Treiber,
+ * "Systems Programming: Coping with Parallelism" (1986).
+ *
+ * The top is one reference. Pushing links a new node to the current top
+ * and swings the top to it with a CAS; popping swings the top to the next
+ * node. A thread whose CAS fails just reads the top again, so some thread
+ * always gets through. A node's link is only written before the CAS that
+ * publishes it, and nodes are never reused, so the garbage collector rules
+ * out the ABA problem.
+ *
+ * Like {@code Factory.makeStackNode()}, an empty stack pops and peeks
+ * {@code null} rather than throwing, so {@code null} values are rejected.
+ * {@link #size()} counts the nodes, so it takes time proportional to the
+ * depth, but the nodes it counts are one consistent snapshot.
+ *
+ * @param <E> The type of values
+ */
+final class ConcurrentStackNode<E> implements StackADT<E> {
+
+    private static final VarHandle TOP;
+
+    static {
+        try {
+            TOP = MethodHandles.lookup().findVarHandle(ConcurrentStackNode.class, "top",
+                    Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A value and the node below it.
+     *
+     * @param <E> The type of the value
+     */
+    private static final class Node<E> {
+        final E item;
+        Node<E> next;   // written only before the node is published
+
+        /**
+         * Creates an unlinked node.
+         *
+         * @param item The value
+         */
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    private volatile Node<E> top;
+
+    /**
+     * Creates an empty stack.
+     */
+    ConcurrentStackNode() {
+    }
+
+    /**
+     * Pushes a value onto the top of the stack.
+     *
+     * @param value The value
+     * @return {@code true}, as the stack is never full
+     * @throws IllegalArgumentException If {@code value} is null
+     */
+    @Override
+    public boolean push(E value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value passed to push");
+        }
+        Node<E> node = new Node<>(value);
+        do {
+            node.next = top;
+        } while (!TOP.compareAndSet(this, node.next, node));
+        return true;
+    }
+
+    /**
+     * Removes the value on top of the stack.
+     *
+     * @return The value removed, or null if the stack is empty
+     */
+    @Override
+    public E pop() {
+        while (true) {
+            Node<E> old = top;
+            if (old == null) {
+                return null;
+            }
+            if (TOP.compareAndSet(this, old, old.next)) {
+                return old.item;
+            }
+        }
+    }
+
+    /**
+     * Gets the value on top of the stack without removing it.
+     *
+     * @return The top value, or null if the stack is empty
+     */
+    @Override
+    public E peek() {
+        Node<E> node = top;
+        return node == null ? null : node.item;
+    }
+
+    /**
+     * Gets the value on top of the stack without removing it.
+     *
+     * @return The top value, or null if the stack is empty
+     */
+    @Override
+    @Deprecated
+    public E topValue() {
+        return peek();
+    }
+
+    /**
+     * Counts the values on the stack.
+     *
+     * @return The number of values
+     */
+    @Override
+    public int size() {
+        int n = 0;
+        for (Node<E> node = top; node != null && n < Integer.MAX_VALUE; node = node.next) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Checks whether the stack is empty, without counting its values.
+     *
+     * @return {@code true} if there is no top value
+     */
+    @Override
+    public boolean isEmpty() {
+        return top == null;
+    }
+
+    /**
+     * Removes every value at once.
+     */
+    @Override
+    public void clear() {
+        top = null;
+    }
+
+    /**
+     * Lists the values from the bottom of the stack to the top.
+     *
+     * @return The values as text, such as {@code "[1, 2, 3]"}
+     */
+    @Override
+    public String toString() {
+        ArrayList<E> values = new ArrayList<>();
+        for (Node<E> node = top; node != null; node = node.next) {
+            values.add(node.item);
+        }
+        Collections.reverse(values);
+        return values.toString();
+    }
+}
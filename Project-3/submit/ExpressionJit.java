@@ -0,0 +1,392 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a well-formed {@link ExpressionPlan} into a hidden class whose
+ * {@code evaluate} method is the expression as straight-line bytecode: one
+ * push per literal, one array load per variable, one arithmetic
+ * instruction per operator, and a local variable per temporary. There is
+ * no opcode dispatch left, so once the JIT compiles the method the
+ * expression runs as native code.
+ *
+ * The class file is written by hand, since the JDK this builds on has no
+ * class-file API. The generated method has no branches, so it needs no
+ * stack map frames: a division calls {@link #divide(int, int)}, which
+ * raises the same {@code "Division by zero"} error as the interpreter and
+ * is inlined by the JIT.
+ */
+final class ExpressionJit {
+
+    /** An expression compiled to a class. */
+    interface Compiled {
+        /**
+         * Evaluates the expression.
+         *
+         * @param values The value of each variable, or null if there are none
+         * @return The value of the expression
+         * @throws ArithmeticException If division by zero occurs
+         */
+        int evaluate(int[] values);
+    }
+
+    /** Longest bytecode generated; HotSpot does not compile larger methods. */
+    static final int MAX_CODE_BYTES = 8000;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final String NAME = "ExpressionJit$Generated";
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int IALOAD = 0x2e;
+    private static final int ISTORE = 0x36;
+    private static final int DUP = 0x59;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+
+    /**
+     * Prevents instantiation.
+     */
+    private ExpressionJit() {
+    }
+
+    /**
+     * Divides as the interpreter does. Called by generated code.
+     *
+     * @param left The dividend
+     * @param right The divisor
+     * @return The quotient
+     * @throws ArithmeticException If {@code right} is zero
+     */
+    static int divide(int left, int right) {
+        if (right == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        return left / right;
+    }
+
+    /**
+     * Compiles a plan into a hidden class and creates an instance of it.
+     * The class can be unloaded once the instance is no longer used.
+     *
+     * @param code The plan's opcodes, with no failures
+     * @param constants The plan's integer literals
+     * @param maxDepth The deepest the operand stack gets
+     * @param temps The number of temporaries
+     * @return The compiled expression, or null if it is too large
+     * @throws IllegalStateException If the class cannot be loaded
+     */
+    static Compiled compile(int[] code, int[] constants, int maxDepth, int temps) {
+        byte[] bytes = generate(code, constants, maxDepth, temps);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            Class<?> type = LOOKUP.defineHiddenClass(bytes, true).lookupClass();
+            return (Compiled) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Cannot load compiled expression", e);
+        }
+    }
+
+    /**
+     * Writes the class file for a plan.
+     *
+     * @param code The plan's opcodes, with no failures
+     * @param constants The plan's integer literals
+     * @param maxDepth The deepest the operand stack gets
+     * @param temps The number of temporaries
+     * @return The class file, or null if the method would be too large
+     */
+    static byte[] generate(int[] code, int[] constants, int maxDepth, int temps) {
+        Pool pool = new Pool();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case ExpressionPlan.PUSH:
+                    pushInt(body, pool, constants[code[++pc]]);
+                    break;
+                case ExpressionPlan.LOAD:
+                    body.write(ALOAD_1);
+                    pushInt(body, pool, code[++pc]);
+                    body.write(IALOAD);
+                    break;
+                case ExpressionPlan.STORE:
+                    body.write(DUP);
+                    local(body, ISTORE, code[++pc]);
+                    break;
+                case ExpressionPlan.TEMP:
+                    local(body, ILOAD, code[++pc]);
+                    break;
+                case ExpressionPlan.ADD:
+                    body.write(IADD);
+                    break;
+                case ExpressionPlan.SUB:
+                    body.write(ISUB);
+                    break;
+                case ExpressionPlan.MUL:
+                    body.write(IMUL);
+                    break;
+                case ExpressionPlan.DIV:
+                    body.write(INVOKESTATIC);
+                    writeShort(body, pool.method("ExpressionJit", "divide", "(II)I"));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot compile opcode " + code[pc]);
+            }
+            if (body.size() > MAX_CODE_BYTES) {
+                return null;
+            }
+        }
+        body.write(IRETURN);
+
+        ByteArrayOutputStream init = new ByteArrayOutputStream();
+        init.write(ALOAD_0);
+        init.write(INVOKESPECIAL);
+        writeShort(init, pool.method("java/lang/Object", "<init>", "()V"));
+        init.write(RETURN);
+
+        try {
+            int thisClass = pool.type(NAME);
+            int superClass = pool.type("java/lang/Object");
+            int face = pool.type("ExpressionJit$Compiled");
+            int initName = pool.utf8("<init>");
+            int initType = pool.utf8("()V");
+            int evalName = pool.utf8("evaluate");
+            int evalType = pool.utf8("([I)I");
+            int codeName = pool.utf8("Code");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61);    // Java 17
+            pool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(face);
+            out.writeShort(0);     // fields
+            out.writeShort(2);     // methods
+            writeMethod(out, initName, initType, codeName, 1, 1, init.toByteArray());
+            // an array load briefly needs the array and index above the operands;
+            // locals are this, the values, then the temporaries
+            writeMethod(out, evalName, evalType, codeName, Math.max(1, maxDepth) + 2, 2 + temps,
+                    body.toByteArray());
+            out.writeShort(0);     // attributes
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a public method with a {@code Code} attribute.
+     *
+     * @param out The class file being written
+     * @param name Pool index of the method name
+     * @param type Pool index of the descriptor
+     * @param codeName Pool index of {@code "Code"}
+     * @param maxStack Deepest the operand stack gets
+     * @param maxLocals Number of local variable slots
+     * @param code The bytecode
+     * @throws IOException Never, for a byte array
+     */
+    private static void writeMethod(DataOutputStream out, int name, int type, int codeName,
+            int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(type);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);     // exception table
+        out.writeShort(0);     // attributes
+    }
+
+    /**
+     * Writes the shortest instruction that pushes an {@code int}.
+     *
+     * @param body The bytecode being written
+     * @param pool The constant pool
+     * @param value The value
+     */
+    private static void pushInt(ByteArrayOutputStream body, Pool pool, int value) {
+        if (value >= -1 && value <= 5) {
+            body.write(ICONST_0 + value);
+        } else if (value == (byte) value) {
+            body.write(BIPUSH);
+            body.write(value);
+        } else if (value == (short) value) {
+            body.write(SIPUSH);
+            writeShort(body, value);
+        } else {
+            body.write(LDC_W);
+            writeShort(body, pool.integer(value));
+        }
+    }
+
+    /**
+     * Writes a load or store of a temporary's local variable.
+     *
+     * @param body The bytecode being written
+     * @param op {@code ILOAD} or {@code ISTORE}
+     * @param temp The temporary
+     */
+    private static void local(ByteArrayOutputStream body, int op, int temp) {
+        int slot = temp + 2;
+        if (slot <= 0xff) {
+            body.write(op);
+            body.write(slot);
+        } else {
+            body.write(WIDE);
+            body.write(op);
+            writeShort(body, slot);
+        }
+    }
+
+    /**
+     * Writes a big-endian 16-bit value.
+     *
+     * @param body The bytes being written
+     * @param value The value
+     */
+    private static void writeShort(ByteArrayOutputStream body, int value) {
+        body.write(value >>> 8);
+        body.write(value);
+    }
+
+    /**
+     * A class file constant pool, adding each entry once.
+     */
+    private static final class Pool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        /**
+         * Adds a UTF-8 string.
+         *
+         * @param s The string
+         * @return Its pool index
+         */
+        int utf8(String s) {
+            return add("U" + s, 1, () -> out.writeUTF(s));
+        }
+
+        /**
+         * Adds an integer.
+         *
+         * @param value The value
+         * @return Its pool index
+         */
+        int integer(int value) {
+            return add("I" + value, 3, () -> out.writeInt(value));
+        }
+
+        /**
+         * Adds a class reference.
+         *
+         * @param name The internal class name
+         * @return Its pool index
+         */
+        int type(String name) {
+            int utf = utf8(name);
+            return add("C" + name, 7, () -> out.writeShort(utf));
+        }
+
+        /**
+         * Adds a method reference.
+         *
+         * @param owner The internal name of the declaring class
+         * @param name The method name
+         * @param type The method descriptor
+         * @return Its pool index
+         */
+        int method(String owner, String name, String type) {
+            int cls = type(owner);
+            int n = utf8(name);
+            int t = utf8(type);
+            int nameAndType = add("N" + name + type, 12, () -> {
+                out.writeShort(n);
+                out.writeShort(t);
+            });
+            return add("M" + owner + "." + name + type, 10, () -> {
+                out.writeShort(cls);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        /**
+         * Adds an entry unless an equal one is already in the pool.
+         *
+         * @param key Identifies the entry
+         * @param tag The constant pool tag
+         * @param body Writes the entry after its tag
+         * @return Its pool index
+         */
+        private int add(String key, int tag, Entry body) {
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(tag);
+                body.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            indexes.put(key, count);
+            return count++;
+        }
+
+        /**
+         * Writes the pool count and entries.
+         *
+         * @param dest The class file being written
+         * @throws IOException Never, for a byte array
+         */
+        void writeTo(DataOutputStream dest) throws IOException {
+            dest.writeShort(count);
+            bytes.writeTo(dest);
+        }
+    }
+
+    /**
+     * Writes the body of one pool entry.
+     */
+    private interface Entry {
+        /**
+         * Writes it.
+         *
+         * @throws IOException Never, for a byte array
+         */
+        void write() throws IOException;
+    }
+}
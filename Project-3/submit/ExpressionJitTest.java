@@ -0,0 +1,160 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link ExpressionJit} class.
+ *
+ * Compiled plans must give exactly what interpreted plans give.
+ */
+public class ExpressionJitTest {
+
+    private Project3 runner;
+
+    /**
+     * Initializes a fresh {@code Project3} instance before each test.
+     */
+    @Before
+    public void setup() {
+        runner = new Project3();
+    }
+
+    /**
+     * Tests that a plan is compiled once it has been evaluated enough times.
+     */
+    @Test
+    public void testTiers() {
+        ExpressionPlan plan = runner.compile("((1 + 2) * (3 + (4 * (5 - (6 / 2))))) - 7");
+        for (int i = 1; i < ExpressionPlan.JIT_THRESHOLD; i++) {
+            assertEquals(26, plan.evaluate());
+        }
+        assertFalse(plan.isCompiled());
+        assertEquals(26, plan.evaluate());
+        assertTrue(plan.isCompiled());
+        assertEquals(26, plan.evaluate());
+
+        // malformed plans always throw, so are never compiled
+        ExpressionPlan bad = runner.compile("1 +");
+        for (int i = 0; i <= ExpressionPlan.JIT_THRESHOLD; i++) {
+            try {
+                bad.evaluate();
+                fail("missing operand");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Missing operand for operator +", e.getMessage());
+            }
+        }
+        assertFalse(bad.isCompiled());
+        assertNull(bad.compileNow());
+    }
+
+    /**
+     * Tests literals and variable indexes of every size the bytecode
+     * pushes differently, and division by zero.
+     */
+    @Test
+    public void testOperands() {
+        // literals between variables, so the optimizer cannot fold them together
+        ExpressionPlan plan = runner.compileFormula(
+                "0 - a + 5 - b + 6 - c + 127 - d + 128 - e + 32767 - f + 32768 - g + 2147483647"
+                + " - h * (i / j)");
+        assertNotNull(plan.compileNow());
+        int[] values = {1, 2, 3, 4, 5, 6, 7, 8, 90, 9};
+        int expected = 0 - 1 + 5 - 2 + 6 - 3 + 127 - 4 + 128 - 5 + 32767 - 6 + 32768 - 7
+                + 2147483647;
+        expected = (expected - 8) * (90 / 9);
+        assertEquals(expected, plan.evaluate(values));
+
+        ExpressionPlan div = runner.compileFormula("a / b");
+        div.compileNow();
+        assertEquals(-3, div.evaluate(7, -2));
+        try {
+            div.evaluate(7, 0);
+            fail("division by zero");
+        } catch (ArithmeticException e) {
+            assertEquals("Division by zero", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests random formulas compiled and interpreted give the same results.
+     */
+    @Test
+    public void testMatchesInterpreter() {
+        String[] operands = {"0", "1", "7", "300", "70000", "2147483647", "a", "b", "c"};
+        String[] operators = {" + ", " - ", " * ", " / "};
+        Random rand = new Random(2214);
+        int[] values = new int[3];
+        for (int i = 0; i < 2000; i++) {
+            String formula = randomFormula(rand, operands, operators, 4);
+            ExpressionPlan compiled = runner.compileFormula(formula);
+            ExpressionPlan interpreted = runner.compileFormula(formula);
+            interpreted.disableJit();
+            assertNotNull(formula, compiled.compileNow());
+            for (int k = 0; k < 5; k++) {
+                int[] row = java.util.Arrays.copyOf(values, compiled.variableCount());
+                for (int v = 0; v < row.length; v++) {
+                    row[v] = rand.nextInt(5) == 0 ? 0 : rand.nextInt();
+                }
+                assertEquals(formula, outcome(interpreted, row), outcome(compiled, row));
+            }
+            assertFalse(interpreted.isCompiled());
+        }
+    }
+
+    /**
+     * Tests that a plan too large to compile stays interpreted.
+     */
+    @Test
+    public void testTooLarge() {
+        StringBuilder sb = new StringBuilder("1");
+        for (int i = 0; i < 5000; i++) {
+            sb.append(" + 1000");
+        }
+        ExpressionPlan plan = runner.compile(sb.toString());
+        assertNull(plan.compileNow());
+        assertFalse(plan.isCompiled());
+        assertEquals(5_000_001, plan.evaluate());
+    }
+
+    /**
+     * Makes a random formula.
+     *
+     * @param rand The random source
+     * @param operands Literals and variables to use
+     * @param operators Operators to use
+     * @param depth How deep parentheses may nest
+     * @return The formula
+     */
+    private static String randomFormula(Random rand, String[] operands, String[] operators,
+            int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int n = rand.nextInt(4); n >= 0; n--) {
+            if (depth > 0 && rand.nextInt(3) == 0) {
+                sb.append('(').append(randomFormula(rand, operands, operators, depth - 1))
+                        .append(')');
+            } else {
+                sb.append(operands[rand.nextInt(operands.length)]);
+            }
+            if (n > 0) {
+                sb.append(operators[rand.nextInt(operators.length)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Evaluates a plan, describing the result or the exception.
+     *
+     * @param plan The plan
+     * @param values The variable values
+     * @return The outcome as text
+     */
+    private static String outcome(ExpressionPlan plan, int[] values) {
+        try {
+            return "= " + plan.evaluate(values);
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,466 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Evaluates a stream of infix expressions, one per line, writing one line
+ * of output for each: the result, or {@code error: } and the message of
+ * the exception the expression raised. A malformed line is reported in
+ * its place and the run carries on.
+ *
+ * The work is split over threads joined by bounded queues:
+ *
+ *   a reader fills chunks of the input with whole lines;
+ *   workers evaluate the lines of a chunk, each with its own
+ *   {@link Project3} and plan cache, into the chunk's output;
+ *   a writer writes the chunks back in input order.
+ *
+ * Chunks are taken from a fixed set and returned once written, so the
+ * reader waits whenever the writer falls behind and memory stays bounded
+ * however large the input is. Only the workers parse and evaluate, so the
+ * run scales with the number of workers until the reader or writer
+ * saturates its channel.
+ */
+public final class ExpressionPipeline {
+
+    /** Bytes of input read into a chunk at a time, unless set otherwise. */
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 16;
+
+    private static final byte[] ERROR = "error: ".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Lines counted by a run.
+     */
+    public static final class Summary {
+        /** Lines evaluated. */
+        public final long lines;
+        /** Lines reported as errors. */
+        public final long errors;
+
+        /**
+         * Creates a summary.
+         *
+         * @param lines The lines evaluated
+         * @param errors The lines reported as errors
+         */
+        Summary(long lines, long errors) {
+            this.lines = lines;
+            this.errors = errors;
+        }
+
+        @Override
+        public String toString() {
+            return lines + " lines, " + errors + " errors";
+        }
+    }
+
+    /**
+     * Some whole lines of input and, once evaluated, their output.
+     */
+    private static final class Chunk {
+        long sequence;
+        byte[] in;
+        int inLength;
+        byte[] out = new byte[64];
+        int outLength;
+        long lines;
+        long errors;
+
+        /**
+         * Creates an empty chunk.
+         *
+         * @param bytes The initial input capacity
+         */
+        Chunk(int bytes) {
+            in = new byte[bytes];
+        }
+    }
+
+    private final int workers;
+    private int chunkBytes = DEFAULT_CHUNK_BYTES;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param workers The number of threads evaluating lines, at least 1
+     * @throws IllegalArgumentException If {@code workers} is less than 1
+     */
+    public ExpressionPipeline(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * Sets how many bytes of input are read into a chunk at a time. A line
+     * longer than this still fits, as its chunk grows to hold it.
+     *
+     * @param chunkBytes The chunk size, at least 1
+     * @throws IllegalArgumentException If {@code chunkBytes} is less than 1
+     */
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkBytes);
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Evaluates every line of the input, writing a line of output for each.
+     * Lines end with {@code \n} or {@code \r\n}, and are read as UTF-8. If
+     * a channel fails, the other threads are interrupted, which closes an
+     * interruptible channel, and its exception is thrown once they stop.
+     *
+     * @param in The expressions, one per line
+     * @param out Receives the results, one per line
+     * @return The number of lines and errors
+     * @throws IOException If reading or writing fails
+     * @throws InterruptedException If interrupted while waiting for the run
+     */
+    public Summary run(ReadableByteChannel in, WritableByteChannel out)
+            throws IOException, InterruptedException {
+        return new Run(in, out).call();
+    }
+
+    /**
+     * The threads and queues of one run.
+     */
+    private final class Run {
+        private final ReadableByteChannel in;
+        private final WritableByteChannel out;
+        private final BlockingQueue<Chunk> free;
+        private final BlockingQueue<Chunk> read;
+        private final BlockingQueue<Chunk> evaluated;
+        private final Chunk end = new Chunk(0);
+        private final int chunks;
+        private final List<Thread> threads = new ArrayList<>();
+        private Throwable failure;
+        private long lines;
+        private long errors;
+
+        /**
+         * Sets up a run.
+         *
+         * @param in The expressions
+         * @param out Receives the results
+         */
+        Run(ReadableByteChannel in, WritableByteChannel out) {
+            this.in = in;
+            this.out = out;
+            // enough for each worker to hold one while the next waits for it
+            chunks = 2 * workers + 2;
+            free = new ArrayBlockingQueue<>(chunks);
+            read = new ArrayBlockingQueue<>(chunks + workers);
+            evaluated = new ArrayBlockingQueue<>(chunks + workers);
+            for (int i = 0; i < chunks; i++) {
+                free.add(new Chunk(chunkBytes));
+            }
+        }
+
+        /**
+         * Starts the threads and waits for them to finish.
+         *
+         * @return The number of lines and errors
+         * @throws IOException If reading or writing fails
+         * @throws InterruptedException If interrupted while waiting
+         */
+        Summary call() throws IOException, InterruptedException {
+            threads.add(new Thread(() -> stage(this::readLoop), "pipeline-reader"));
+            for (int i = 0; i < workers; i++) {
+                threads.add(new Thread(() -> stage(this::evaluateLoop), "pipeline-worker-" + i));
+            }
+            threads.add(new Thread(() -> stage(this::writeLoop), "pipeline-writer"));
+            for (Thread t : threads) {
+                t.setDaemon(true);
+                t.start();
+            }
+            try {
+                for (Thread t : threads) {
+                    t.join();
+                }
+            } catch (InterruptedException e) {
+                stop(null);
+                throw e;
+            }
+            synchronized (this) {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                } else if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                } else if (failure != null) {
+                    throw (Error) failure;
+                }
+            }
+            return new Summary(lines, errors);
+        }
+
+        /**
+         * Runs the loop of one thread, stopping the others if it fails.
+         *
+         * @param loop The loop
+         */
+        private void stage(Loop loop) {
+            try {
+                loop.run();
+            } catch (InterruptedException e) {
+                // stopped because another thread failed
+            } catch (IOException | RuntimeException | Error e) {
+                stop(e);
+            }
+        }
+
+        /**
+         * Records the first failure and interrupts every thread.
+         *
+         * @param e The failure, or null if the run was interrupted
+         */
+        private synchronized void stop(Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+            for (Thread t : threads) {
+                if (t != Thread.currentThread()) {
+                    t.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Fills chunks with whole lines until the input ends, then tells
+         * each worker there is no more.
+         *
+         * @throws IOException If reading fails
+         * @throws InterruptedException If stopped
+         */
+        private void readLoop() throws IOException, InterruptedException {
+            byte[] carry = new byte[0];   // a partial line left from the last chunk
+            int carryLength = 0;
+            long sequence = 0;
+            boolean eof = false;
+            while (!eof) {
+                Chunk chunk = free.take();
+                if (chunk.in.length < carryLength + chunkBytes) {
+                    chunk.in = new byte[carryLength + chunkBytes];
+                }
+                System.arraycopy(carry, 0, chunk.in, 0, carryLength);
+                int length = carryLength;
+                int lineEnd = -1;
+                // read until the chunk is full, growing it if it holds no line
+                // end; the carried bytes never hold one
+                while (true) {
+                    ByteBuffer buf = ByteBuffer.wrap(chunk.in, length, chunk.in.length - length);
+                    while (buf.hasRemaining()) {
+                        if (in.read(buf) < 0) {
+                            eof = true;
+                            break;
+                        }
+                    }
+                    int start = length;
+                    length = buf.position();
+                    lineEnd = lastNewline(chunk.in, start, length);
+                    if (eof || lineEnd >= 0) {
+                        break;
+                    }
+                    chunk.in = Arrays.copyOf(chunk.in, 2 * chunk.in.length);
+                }
+                if (eof) {
+                    lineEnd = length;
+                }
+                carryLength = length - lineEnd;
+                if (carry.length < carryLength) {
+                    carry = new byte[Math.max(carryLength, 2 * carry.length)];
+                }
+                System.arraycopy(chunk.in, lineEnd, carry, 0, carryLength);
+                chunk.inLength = lineEnd;
+                chunk.sequence = sequence++;
+                read.put(chunk);
+            }
+            for (int i = 0; i < workers; i++) {
+                read.put(end);
+            }
+        }
+
+        /**
+         * Evaluates the lines of each chunk until the reader is done, then
+         * tells the writer this worker is done.
+         *
+         * @throws InterruptedException If stopped
+         */
+        private void evaluateLoop() throws InterruptedException {
+            Project3 runner = new Project3();
+            for (Chunk chunk = read.take(); chunk != end; chunk = read.take()) {
+                evaluate(runner, chunk);
+                evaluated.put(chunk);
+            }
+            evaluated.put(end);
+        }
+
+        /**
+         * Writes the chunks in input order until every worker is done.
+         *
+         * @throws IOException If writing fails
+         * @throws InterruptedException If stopped
+         */
+        private void writeLoop() throws IOException, InterruptedException {
+            // chunks evaluated ahead of their turn, by sequence
+            Chunk[] waiting = new Chunk[chunks];
+            long next = 0;
+            int done = 0;
+            while (done < workers) {
+                Chunk chunk = evaluated.take();
+                if (chunk == end) {
+                    done++;
+                    continue;
+                }
+                waiting[(int) (chunk.sequence % chunks)] = chunk;
+                for (int slot = (int) (next % chunks); waiting[slot] != null;
+                        slot = (int) (next % chunks)) {
+                    Chunk ready = waiting[slot];
+                    waiting[slot] = null;
+                    ByteBuffer buf = ByteBuffer.wrap(ready.out, 0, ready.outLength);
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                    lines += ready.lines;
+                    errors += ready.errors;
+                    next++;
+                    free.put(ready);
+                }
+            }
+        }
+    }
+
+    /**
+     * The body of one thread of a run.
+     */
+    private interface Loop {
+        /**
+         * Runs it.
+         *
+         * @throws IOException If a channel fails
+         * @throws InterruptedException If stopped
+         */
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Finds the position after the last line end in some bytes.
+     *
+     * @param bytes The bytes
+     * @param from First position to look at
+     * @param to One past the last position to look at
+     * @return The position after the last {@code \n}, or -1 if there is none
+     */
+    private static int lastNewline(byte[] bytes, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Evaluates every line of a chunk into its output.
+     *
+     * @param runner The evaluator of this worker
+     * @param chunk The chunk
+     */
+    private static void evaluate(Project3 runner, Chunk chunk) {
+        chunk.outLength = 0;
+        chunk.lines = 0;
+        chunk.errors = 0;
+        byte[] in = chunk.in;
+        int start = 0;
+        while (start < chunk.inLength) {
+            int end = start;
+            while (end < chunk.inLength && in[end] != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && in[end - 1] == '\r') {
+                end--;
+            }
+            String expr = new String(in, start, end - start, StandardCharsets.UTF_8);
+            chunk.lines++;
+            try {
+                appendInt(chunk, runner.evaluateInfix(expr));
+            } catch (RuntimeException e) {
+                chunk.errors++;
+                append(chunk, ERROR);
+                append(chunk, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            }
+            append(chunk, (byte) '\n');
+            start = next;
+        }
+    }
+
+    /**
+     * Appends the decimal digits of a value to a chunk's output.
+     *
+     * @param chunk The chunk
+     * @param value The value
+     */
+    private static void appendInt(Chunk chunk, int value) {
+        ensure(chunk, 11);
+        byte[] out = chunk.out;
+        long v = value;
+        if (v < 0) {
+            out[chunk.outLength++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long p = 10; p <= v; p *= 10) {
+            digits++;
+        }
+        for (int i = chunk.outLength + digits - 1; i >= chunk.outLength; i--) {
+            out[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        chunk.outLength += digits;
+    }
+
+    /**
+     * Appends bytes to a chunk's output.
+     *
+     * @param chunk The chunk
+     * @param bytes The bytes
+     */
+    private static void append(Chunk chunk, byte[] bytes) {
+        ensure(chunk, bytes.length);
+        System.arraycopy(bytes, 0, chunk.out, chunk.outLength, bytes.length);
+        chunk.outLength += bytes.length;
+    }
+
+    /**
+     * Appends a byte to a chunk's output.
+     *
+     * @param chunk The chunk
+     * @param b The byte
+     */
+    private static void append(Chunk chunk, byte b) {
+        ensure(chunk, 1);
+        chunk.out[chunk.outLength++] = b;
+    }
+
+    /**
+     * Grows a chunk's output to fit more bytes.
+     *
+     * @param chunk The chunk
+     * @param more The bytes to fit
+     */
+    private static void ensure(Chunk chunk, int more) {
+        if (chunk.outLength + more > chunk.out.length) {
+            chunk.out = Arrays.copyOf(chunk.out, Math.max(2 * chunk.out.length,
+                    chunk.outLength + more));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link ExpressionPipeline} class.
+ */
+public class ExpressionPipelineTest {
+
+    /**
+     * Tests results and inline errors, with every kind of line ending.
+     *
+     * @throws Exception If the run fails
+     */
+    @Test(timeout = 10000)
+    public void testLines() throws Exception {
+        String input = "10 + (20 * 3) / 2\n(1 + 2\r\n5 / 0\n\n1 +\n"
+                + "99999999999 + 1\n2147483647 + 1\n((7))";
+        String expected = "35\nerror: Unbalanced parentheses\nerror: Division by zero\n"
+                + "error: No result after evaluation\nerror: Missing operand for operator +\n"
+                + "error: For input string: \"99999999999\"\n-2147483648\n7\n";
+        ExpressionPipeline pipeline = new ExpressionPipeline(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExpressionPipeline.Summary summary = pipeline.run(channel(input), Channels.newChannel(out));
+        assertEquals(expected, out.toString("UTF-8"));
+        assertEquals(8, summary.lines);
+        assertEquals(5, summary.errors);
+        assertEquals("8 lines, 5 errors", summary.toString());
+    }
+
+    /**
+     * Tests an empty input gives no output.
+     *
+     * @throws Exception If the run fails
+     */
+    @Test(timeout = 10000)
+    public void testEmpty() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExpressionPipeline.Summary summary = new ExpressionPipeline(3)
+                .run(channel(""), Channels.newChannel(out));
+        assertEquals(0, out.size());
+        assertEquals(0, summary.lines);
+    }
+
+    /**
+     * Tests that many random lines over small chunks and several workers
+     * come out in order, as evaluating them one by one gives.
+     *
+     * @throws Exception If the run fails
+     */
+    @Test(timeout = 60000)
+    public void testOrder() throws Exception {
+        String[] tokens = {"0", "1", "2", "7", "300", "+", "-", "*", "/", "(", ")", " "};
+        Random rand = new Random(2214);
+        Project3 runner = new Project3();
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder line = new StringBuilder();
+            int length = i % 1000 == 0 ? 200 : rand.nextInt(12);
+            for (int n = 0; n < length; n++) {
+                line.append(tokens[rand.nextInt(tokens.length)]);
+            }
+            input.append(line).append('\n');
+            try {
+                expected.append(runner.interpret(line.toString()));
+            } catch (RuntimeException e) {
+                expected.append("error: ").append(e.getMessage());
+            }
+            expected.append('\n');
+        }
+        for (int chunk : new int[] {1, 7, 100, ExpressionPipeline.DEFAULT_CHUNK_BYTES}) {
+            ExpressionPipeline pipeline = new ExpressionPipeline(4);
+            pipeline.setChunkBytes(chunk);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ExpressionPipeline.Summary summary = pipeline.run(channel(input.toString()),
+                    Channels.newChannel(out));
+            assertEquals("chunk " + chunk, expected.toString(), out.toString("UTF-8"));
+            assertEquals(20000, summary.lines);
+        }
+    }
+
+    /**
+     * Tests that a failing output stops the run with its exception.
+     *
+     * @throws Exception If the run fails other than expected
+     */
+    @Test(timeout = 10000)
+    public void testWriteFailure() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            input.append(i).append(" + 1\n");
+        }
+        WritableByteChannel broken = new WritableByteChannel() {
+            private int written;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                if (written > 1000) {
+                    throw new IOException("disk full");
+                }
+                int n = src.remaining();
+                src.position(src.limit());
+                written += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ExpressionPipeline pipeline = new ExpressionPipeline(2);
+        pipeline.setChunkBytes(256);
+        try {
+            pipeline.run(channel(input.toString()), broken);
+            fail("write should fail");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a failing input stops the run with its exception.
+     *
+     * @throws Exception If the run fails other than expected
+     */
+    @Test(timeout = 10000)
+    public void testReadFailure() throws Exception {
+        ReadableByteChannel broken = new ReadableByteChannel() {
+            private int reads;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (reads++ > 3) {
+                    throw new IOException("read error");
+                }
+                dst.put("1 + 1\n".getBytes(StandardCharsets.US_ASCII));
+                return 6;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            new ExpressionPipeline(1).run(broken, Channels.newChannel(new ByteArrayOutputStream()));
+            fail("read should fail");
+        } catch (IOException e) {
+            assertEquals("read error", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests the settings are checked.
+     */
+    @Test
+    public void testSettings() {
+        try {
+            new ExpressionPipeline(0);
+            fail("no workers");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Worker count must be positive: 0", e.getMessage());
+        }
+        try {
+            new ExpressionPipeline(1).setChunkBytes(0);
+            fail("empty chunks");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Chunk size must be positive: 0", e.getMessage());
+        }
+    }
+
+    /**
+     * Makes a channel reading some text.
+     *
+     * @param text The text
+     * @return The channel
+     */
+    private static ReadableByteChannel channel(String text) {
+        return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
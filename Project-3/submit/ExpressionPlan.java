@@ -0,0 +1,890 @@
+import itsc2214.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An expression compiled once into an immutable plan that can be evaluated
+ * any number of times without tokenizing, parsing or allocating.
+ *
+ * A plan is an {@code int} opcode array over an operand stack, with the
+ * integer literals in a constant pool. Malformed input is compiled too:
+ * whatever error {@link Project3#evaluatePostfix(QueueADT)} would report
+ * is found while compiling and becomes an opcode that throws it at the
+ * same point. Operations before it still run first, so an earlier
+ * division by zero is reported ahead of a missing operand, just as it is
+ * when the tokens are interpreted one by one.
+ *
+ * A formula compiled with variables, such as {@code (a + b) * 3 / c},
+ * loads their values by index. It can be evaluated for one row of values,
+ * or over whole columns of them with
+ * {@link #evaluateColumns(int[][], int[], ForkJoinPool)}, which runs each
+ * opcode over a block of rows at a time.
+ *
+ * A well-formed plan can be {@link #optimize() optimized}: constants are
+ * folded, identities such as {@code x * 1} removed and repeated
+ * subexpressions computed once, without changing any result or error.
+ *
+ * Evaluation is tiered. A plan starts out interpreted, which costs a
+ * dispatch per opcode; once it has been evaluated {@link #JIT_THRESHOLD}
+ * times it is compiled by {@link ExpressionJit} into a hidden class with
+ * the expression as straight-line bytecode, which HotSpot then compiles to
+ * native code. Malformed plans and very large ones stay interpreted.
+ *
+ * Apart from the call count and the compiled class, which only ever
+ * change the speed, plans are immutable and can be shared between threads.
+ */
+public final class ExpressionPlan {
+
+    /** Pushes {@code constants[operand]}. */
+    static final int PUSH = 0;
+    /** Replaces the top two values with their sum. */
+    static final int ADD = 1;
+    /** Replaces the top two values with their difference. */
+    static final int SUB = 2;
+    /** Replaces the top two values with their product. */
+    static final int MUL = 3;
+    /** Replaces the top two values with their quotient. */
+    static final int DIV = 4;
+    /** Throws an {@code IllegalArgumentException} with {@code strings[operand]}. */
+    static final int FAIL = 5;
+    /** Throws the {@code NumberFormatException} of parsing {@code strings[operand]}. */
+    static final int PARSE = 6;
+    /** Pushes the value of variable {@code operand}. */
+    static final int LOAD = 7;
+    /** Copies the top value into temporary {@code operand}, leaving it on the stack. */
+    static final int STORE = 8;
+    /** Pushes the value of temporary {@code operand}. */
+    static final int TEMP = 9;
+
+    /** Evaluations before a plan is compiled to bytecode. */
+    public static final int JIT_THRESHOLD = 10_000;
+
+    /** Fewest rows a parallel band of columns is split into. */
+    private static final int MIN_BAND_ROWS = 1 << 14;
+
+    // operand stack of each thread, grown to the deepest plan it has run
+    private static final ThreadLocal<int[]> STACK = ThreadLocal.withInitial(() -> new int[16]);
+
+    private final int[] code;
+    private final int[] constants;
+    private final String[] strings;
+    private final String[] variables;
+    private final int maxDepth;
+    private final int temps;
+    private final int removed;
+    private final boolean optimized;
+    private int calls;    // racy, as an exact count is not needed
+    private volatile boolean interpretOnly;
+    private volatile ExpressionJit.Compiled compiled;
+
+    /**
+     * Creates a plan from its parts, which are not copied.
+     *
+     * @param code opcodes, each followed by its operand if it has one
+     * @param constants integer literals
+     * @param strings error messages and literals too large for an int
+     * @param variables variable names, by index
+     * @param maxDepth deepest the operand stack gets
+     * @param removed operations removed by optimizing
+     * @param optimized whether the plan was made by optimizing
+     */
+    private ExpressionPlan(int[] code, int[] constants, String[] strings, String[] variables,
+            int maxDepth, int removed, boolean optimized) {
+        this.code = code;
+        this.constants = constants;
+        this.strings = strings;
+        this.variables = variables;
+        this.maxDepth = maxDepth;
+        this.removed = removed;
+        int slots = 0;
+        for (int pc = 0; pc < code.length; pc += hasOperand(code[pc]) ? 2 : 1) {
+            if (code[pc] == FAIL || code[pc] == PARSE) {
+                interpretOnly = true;
+            } else if (code[pc] == STORE) {
+                slots = Math.max(slots, code[pc + 1] + 1);
+            }
+        }
+        this.temps = slots;
+        // a malformed plan is left as it is
+        this.optimized = optimized || interpretOnly;
+    }
+
+    /**
+     * Makes a plan that always throws an {@code IllegalArgumentException}.
+     *
+     * @param message The exception message
+     * @return A plan that fails with the message
+     */
+    static ExpressionPlan failing(String message) {
+        return new ExpressionPlan(new int[] {FAIL, 0}, new int[0], new String[] {message},
+                new String[0], 0, 0, false);
+    }
+
+    /**
+     * Compiles an expression while it is converted to postfix, following
+     * the checks of {@link Project3#evaluatePostfix(QueueADT)} in the same
+     * order. Evaluation never gets past the first error, so tokens after
+     * it are ignored.
+     *
+     * Words are skipped, as {@link Project3#infix2Postfix(String)} skips
+     * them, unless the compiler takes variables.
+     */
+    static final class Compiler implements ExpressionScanner.Sink {
+        private final boolean takesVariables;
+        private final List<String> variables = new ArrayList<>();
+        private int[] code = new int[16];
+        private int length;
+        private final List<Integer> constants = new ArrayList<>();
+        private final List<String> strings = new ArrayList<>();
+        // for each stack slot, the literal it holds if that does not fit in an int
+        private final List<String> tooLarge = new ArrayList<>();
+        private int maxDepth;
+        private boolean stopped;
+
+        /**
+         * Creates a compiler.
+         *
+         * @param takesVariables Whether words are variables rather than skipped
+         */
+        Compiler(boolean takesVariables) {
+            this.takesVariables = takesVariables;
+        }
+
+        /**
+         * Emits a push of a number.
+         *
+         * @param scanner The scanner, positioned on the number
+         */
+        @Override
+        public void operand(ExpressionScanner scanner) {
+            if (stopped) {
+                return;
+            }
+            if (!scanner.fitsInt()) {
+                // fails only once popped, as it would when interpreted; until
+                // then nothing reads its slot, so nothing is pushed for it
+                tooLarge.add(scanner.text());
+                return;
+            }
+            int value = scanner.intValue();
+            int index = constants.indexOf(value);
+            if (index < 0) {
+                index = constants.size();
+                constants.add(value);
+            }
+            emit(PUSH, index);
+            tooLarge.add(null);
+            maxDepth = Math.max(maxDepth, tooLarge.size());
+        }
+
+        /**
+         * Emits a load of a variable, if the compiler takes variables.
+         *
+         * @param scanner The scanner, positioned on the word
+         */
+        @Override
+        public void word(ExpressionScanner scanner) {
+            if (!takesVariables || stopped) {
+                return;
+            }
+            String name = scanner.text();
+            if (!isVariableName(name)) {
+                fail("Invalid variable name: " + name);
+                return;
+            }
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(name);
+            }
+            emit(LOAD, index);
+            tooLarge.add(null);
+            maxDepth = Math.max(maxDepth, tooLarge.size());
+        }
+
+        /**
+         * Emits an operator, or the error it would raise.
+         *
+         * @param symbol One of {@code + - * /}, or {@code '('} which is invalid
+         */
+        @Override
+        public void operator(char symbol) {
+            if (stopped) {
+                return;
+            }
+            if (symbol == '(') {
+                fail("Invalid token in postfix expression: (");
+                return;
+            }
+            for (int operand = 0; operand < 2; operand++) {
+                if (tooLarge.isEmpty()) {
+                    fail("Missing operand for operator " + symbol);
+                    return;
+                }
+                String large = tooLarge.remove(tooLarge.size() - 1);
+                if (large != null) {
+                    parse(large);
+                    return;
+                }
+            }
+            emit("+-*/".indexOf(symbol) + ADD);
+            tooLarge.add(null);
+        }
+
+        /**
+         * Emits the checks made on the stack once every token is used.
+         */
+        private void finish() {
+            if (tooLarge.isEmpty()) {
+                fail("No result after evaluation");
+            } else if (tooLarge.get(tooLarge.size() - 1) != null) {
+                parse(tooLarge.get(tooLarge.size() - 1));
+            } else if (tooLarge.size() > 1) {
+                fail("Extra operands left after evaluation");
+            }
+        }
+
+        /**
+         * Emits a throw of an {@code IllegalArgumentException} and stops.
+         *
+         * @param message The exception message
+         */
+        private void fail(String message) {
+            emit(FAIL, string(message));
+            stopped = true;
+        }
+
+        /**
+         * Emits a throw of the exception parsing a literal gives and stops.
+         *
+         * @param literal Digits that do not fit in an {@code int}
+         */
+        private void parse(String literal) {
+            emit(PARSE, string(literal));
+            stopped = true;
+        }
+
+        /**
+         * Adds a string to the pool.
+         *
+         * @param s The string
+         * @return Its index in the pool
+         */
+        private int string(String s) {
+            strings.add(s);
+            return strings.size() - 1;
+        }
+
+        /**
+         * Appends opcodes and operands.
+         *
+         * @param ints The values to append
+         */
+        private void emit(int... ints) {
+            if (length + ints.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(2 * code.length, length + ints.length));
+            }
+            for (int i : ints) {
+                code[length++] = i;
+            }
+        }
+
+        /**
+         * Makes the plan once the whole expression has been received.
+         *
+         * @return The compiled plan
+         */
+        ExpressionPlan build() {
+            if (!stopped) {
+                finish();
+            }
+            int[] pool = new int[constants.size()];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = constants.get(i);
+            }
+            return new ExpressionPlan(Arrays.copyOf(code, length), pool,
+                    strings.toArray(new String[0]), variables.toArray(new String[0]), maxDepth,
+                    0, false);
+        }
+    }
+
+    /**
+     * Makes a plan that gives the same result or error with fewer
+     * operations, as described by {@link PlanOptimizer}. A malformed plan
+     * is returned as it is, since it always fails.
+     *
+     * @return The optimized plan, or this one if it is malformed
+     */
+    public ExpressionPlan optimize() {
+        for (int pc = 0; pc < code.length; pc += hasOperand(code[pc]) ? 2 : 1) {
+            if (code[pc] == FAIL || code[pc] == PARSE) {
+                return this;
+            }
+        }
+        int[][] optimized = PlanOptimizer.optimize(code, constants);
+        int[] newCode = optimized[0];
+        int depth = 0;
+        int deepest = 0;
+        for (int pc = 0; pc < newCode.length; pc++) {
+            int op = newCode[pc];
+            if (op == PUSH || op == LOAD || op == TEMP) {
+                deepest = Math.max(deepest, ++depth);
+            } else if (op != STORE) {
+                depth--;
+            }
+            if (hasOperand(op)) {
+                pc++;
+            }
+        }
+        return new ExpressionPlan(newCode, optimized[1], strings, variables, deepest,
+                operationCount(code) - operationCount(newCode), true);
+    }
+
+    /**
+     * Checks whether {@link #optimize()} has nothing left to do, as the
+     * plan was made by it or is malformed.
+     *
+     * @return {@code true} if the plan is optimized or malformed
+     */
+    public boolean isOptimized() {
+        return optimized;
+    }
+
+    /**
+     * Gets the number of arithmetic operations the optimizer removed in
+     * making this plan.
+     *
+     * @return The operations removed, or 0 if the plan was not optimized
+     */
+    public int removedOperations() {
+        return removed;
+    }
+
+    /**
+     * Gets the number of arithmetic operations one evaluation does.
+     *
+     * @return The count of {@code + - * /} opcodes
+     */
+    public int operationCount() {
+        return operationCount(code);
+    }
+
+    /**
+     * Counts the arithmetic opcodes in some code.
+     *
+     * @param code The opcodes
+     * @return The count of {@code + - * /} opcodes
+     */
+    private static int operationCount(int[] code) {
+        int n = 0;
+        for (int pc = 0; pc < code.length; pc += hasOperand(code[pc]) ? 2 : 1) {
+            if (code[pc] >= ADD && code[pc] <= DIV) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Evaluates the plan. Allocates nothing unless it throws.
+     *
+     * @return The value of the expression
+     * @throws ArithmeticException If division by zero occurs
+     * @throws IllegalArgumentException If the expression is malformed or
+     *         has variables
+     * @throws NumberFormatException If a literal does not fit in an {@code int}
+     */
+    public int evaluate() {
+        if (variables.length > 0) {
+            throw new IllegalArgumentException("No values given for " + variableNames());
+        }
+        return tiered(null);
+    }
+
+    /**
+     * Evaluates the plan for one row of variable values. Allocates nothing
+     * unless it throws.
+     *
+     * @param values The value of each variable, by index
+     * @return The value of the expression
+     * @throws ArithmeticException If division by zero occurs
+     * @throws IllegalArgumentException If the expression is malformed or the
+     *         number of values is not the number of variables
+     * @throws NumberFormatException If a literal does not fit in an {@code int}
+     */
+    public int evaluate(int... values) {
+        if (values.length != variables.length) {
+            throw new IllegalArgumentException("Expected " + variables.length
+                    + " values for " + variableNames() + " but got " + values.length);
+        }
+        return tiered(values);
+    }
+
+    /**
+     * Evaluates with the compiled class if there is one, compiling it once
+     * the plan has been interpreted enough times.
+     *
+     * @param values The value of each variable, or null if there are none
+     * @return The value of the expression
+     */
+    private int tiered(int[] values) {
+        ExpressionJit.Compiled c = compiled;
+        if (c != null) {
+            return c.evaluate(values);
+        }
+        if (!interpretOnly && ++calls >= JIT_THRESHOLD) {
+            c = compileNow();
+            if (c != null) {
+                return c.evaluate(values);
+            }
+        }
+        return interpret(values);
+    }
+
+    /**
+     * Compiles the plan to bytecode now rather than after
+     * {@link #JIT_THRESHOLD} evaluations.
+     *
+     * @return The compiled expression, or null if the plan stays interpreted
+     */
+    synchronized ExpressionJit.Compiled compileNow() {
+        if (compiled == null && !interpretOnly) {
+            try {
+                compiled = ExpressionJit.compile(code, constants, maxDepth, temps);
+            } catch (IllegalStateException e) {
+                // the interpreter gives the same results, only slower
+                compiled = null;
+            }
+            interpretOnly = compiled == null;
+        }
+        return compiled;
+    }
+
+    /**
+     * Keeps the plan interpreted, for comparing the tiers.
+     */
+    void disableJit() {
+        interpretOnly = true;
+    }
+
+    /**
+     * Checks whether the plan has been compiled to bytecode.
+     *
+     * @return {@code true} once evaluation runs the compiled class
+     */
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /**
+     * Interprets the opcodes on this thread's operand stack, with the
+     * temporaries kept just above the deepest operand.
+     *
+     * @param values The value of each variable, or null if there are none
+     * @return The value of the expression
+     */
+    private int interpret(int[] values) {
+        int[] stack = STACK.get();
+        if (stack.length < maxDepth + temps) {
+            stack = new int[Math.max(maxDepth + temps, 2 * stack.length)];
+            STACK.set(stack);
+        }
+        int sp = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case PUSH:
+                    stack[sp++] = constants[code[++pc]];
+                    break;
+                case LOAD:
+                    stack[sp++] = values[code[++pc]];
+                    break;
+                case STORE:
+                    stack[maxDepth + code[++pc]] = stack[sp - 1];
+                    break;
+                case TEMP:
+                    stack[sp++] = stack[maxDepth + code[++pc]];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case SUB:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case MUL:
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    break;
+                case DIV:
+                    sp--;
+                    if (stack[sp] == 0) {
+                        throw new ArithmeticException("Division by zero");
+                    }
+                    stack[sp - 1] /= stack[sp];
+                    break;
+                case FAIL:
+                    throw new IllegalArgumentException(strings[code[++pc]]);
+                case PARSE:
+                    throw parseError(strings[code[++pc]]);
+                default:
+                    throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Evaluates the plan for every row of {@code int} columns, one column
+     * per variable, writing row {@code i} of the result to {@code out[i]}.
+     * Arithmetic wraps on overflow just as {@link #evaluate(int...)} does.
+     *
+     * Each opcode runs over a block of rows before the next, so the work
+     * is a few simple loops over arrays rather than a dispatch per row.
+     * With a pool, bands of rows are evaluated in parallel.
+     *
+     * @param columns The values of each variable, by index, each at least
+     *        as long as {@code out}
+     * @param out Receives the results
+     * @param pool Pool to evaluate bands of rows on, or null for this thread
+     * @throws ArithmeticException If a row divides by zero; {@code out} is
+     *         then only partly written
+     * @throws IllegalArgumentException If the expression is malformed or
+     *         the columns do not match the variables
+     * @throws NumberFormatException If a literal does not fit in an {@code int}
+     */
+    public void evaluateColumns(int[][] columns, int[] out, ForkJoinPool pool) {
+        checkColumns(columns.length);
+        for (int[] column : columns) {
+            checkColumn(column.length, out.length);
+        }
+        evaluateRows(new ColumnBand(columns, out, null, null, 0, out.length), pool);
+    }
+
+    /**
+     * Evaluates the plan for every row of {@code long} columns, one column
+     * per variable, in {@code long} arithmetic. Otherwise the same as
+     * {@link #evaluateColumns(int[][], int[], ForkJoinPool)}.
+     *
+     * @param columns The values of each variable, by index, each at least
+     *        as long as {@code out}
+     * @param out Receives the results
+     * @param pool Pool to evaluate bands of rows on, or null for this thread
+     * @throws ArithmeticException If a row divides by zero; {@code out} is
+     *         then only partly written
+     * @throws IllegalArgumentException If the expression is malformed or
+     *         the columns do not match the variables
+     * @throws NumberFormatException If a literal does not fit in an {@code int}
+     */
+    public void evaluateColumns(long[][] columns, long[] out, ForkJoinPool pool) {
+        checkColumns(columns.length);
+        for (long[] column : columns) {
+            checkColumn(column.length, out.length);
+        }
+        evaluateRows(new ColumnBand(null, null, columns, out, 0, out.length), pool);
+    }
+
+    /**
+     * Checks the plan can run over columns.
+     *
+     * @param count The number of columns
+     */
+    private void checkColumns(int count) {
+        check();
+        if (count != variables.length) {
+            throw new IllegalArgumentException("Expected " + variables.length
+                    + " columns for " + variableNames() + " but got " + count);
+        }
+    }
+
+    /**
+     * Checks a column has a value for every row.
+     *
+     * @param length The column length
+     * @param rows The number of rows
+     */
+    private static void checkColumn(int length, int rows) {
+        if (length < rows) {
+            throw new IllegalArgumentException("Column of " + length
+                    + " values is shorter than " + rows + " rows");
+        }
+    }
+
+    /**
+     * Runs a band of all the rows, split into smaller bands on a pool.
+     *
+     * @param all The band covering every row
+     * @param pool Pool to run bands on, or null for this thread
+     */
+    private void evaluateRows(ColumnBand all, ForkJoinPool pool) {
+        int rows = all.to;
+        if (pool == null || rows < 2 * MIN_BAND_ROWS) {
+            all.compute();
+        } else {
+            int bands = pool.getParallelism() * 4;
+            all.band = Math.max(MIN_BAND_ROWS, rows / bands);
+            pool.invoke(all);
+        }
+        if (all.failure != null) {
+            throw all.failure;
+        }
+    }
+
+    /**
+     * Evaluates a range of rows of {@code int} or {@code long} columns,
+     * splitting it in half until it is one band.
+     *
+     * A division by zero is kept on the task for all the rows rather than
+     * thrown through the pool, which would replace it with a copy without
+     * its message. Each band names its lowest failing row, and if several
+     * bands fail, the one for the lowest rows wins, so the row reported is
+     * the lowest failing row with or without a pool.
+     */
+    private final class ColumnBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] intColumns;
+        private final int[] intOut;
+        private final long[][] longColumns;
+        private final long[] longOut;
+        private final int from;
+        private final int to;
+        private int band = Integer.MAX_VALUE;
+        private ColumnBand root = this;
+        private ArithmeticException failure;
+        private int failureFrom;
+
+        /**
+         * Creates a task for rows [from, to) of one kind of columns.
+         *
+         * @param intColumns {@code int} columns, or null
+         * @param intOut {@code int} results, or null
+         * @param longColumns {@code long} columns, or null
+         * @param longOut {@code long} results, or null
+         * @param from First row
+         * @param to One past the last row
+         */
+        ColumnBand(int[][] intColumns, int[] intOut, long[][] longColumns, long[] longOut,
+                int from, int to) {
+            this.intColumns = intColumns;
+            this.intOut = intOut;
+            this.longColumns = longColumns;
+            this.longOut = longOut;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Evaluates the rows, splitting in half when above the band size.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= band) {
+                try {
+                    if (intOut != null) {
+                        ColumnKernel.evaluate(code, constants, maxDepth, temps, intColumns,
+                                intOut, from, to);
+                    } else {
+                        ColumnKernel.evaluate(code, constants, maxDepth, temps, longColumns,
+                                longOut, from, to);
+                    }
+                } catch (ArithmeticException e) {
+                    root.fail(from, e);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(split(from, mid), split(mid, to));
+            }
+        }
+
+        /**
+         * Makes a task for part of this one's rows.
+         *
+         * @param from First row
+         * @param to One past the last row
+         * @return The task
+         */
+        private ColumnBand split(int from, int to) {
+            ColumnBand part = new ColumnBand(intColumns, intOut, longColumns, longOut, from, to);
+            part.band = band;
+            part.root = root;
+            return part;
+        }
+
+        /**
+         * Records a band's division by zero, keeping the lowest band's.
+         *
+         * @param bandFrom First row of the band
+         * @param e The exception
+         */
+        private synchronized void fail(int bandFrom, ArithmeticException e) {
+            if (failure == null || bandFrom < failureFrom) {
+                failure = e;
+                failureFrom = bandFrom;
+            }
+        }
+    }
+
+    /**
+     * Throws the error the plan would raise whatever its values are, if it
+     * is malformed.
+     *
+     * @throws IllegalArgumentException If the expression is malformed
+     * @throws NumberFormatException If a literal does not fit in an {@code int}
+     */
+    public void check() {
+        for (int pc = 0; pc < code.length; pc++) {
+            if (code[pc] == FAIL) {
+                throw new IllegalArgumentException(strings[code[pc + 1]]);
+            } else if (code[pc] == PARSE) {
+                throw parseError(strings[code[pc + 1]]);
+            }
+            if (hasOperand(code[pc])) {
+                pc++;
+            }
+        }
+    }
+
+    /**
+     * Gets the exception {@code Integer.parseInt} throws for a literal.
+     *
+     * @param literal Digits that do not fit in an {@code int}
+     * @return The exception to throw
+     */
+    private static NumberFormatException parseError(String literal) {
+        try {
+            Integer.parseInt(literal);
+        } catch (NumberFormatException e) {
+            return e;
+        }
+        throw new IllegalStateException(literal + " fits in an int");
+    }
+
+    /**
+     * Checks whether a word can name a variable: a letter or underscore
+     * followed by letters, digits and underscores.
+     *
+     * @param word The word
+     * @return {@code true} if it is a valid name
+     */
+    static boolean isVariableName(String word) {
+        if (!Character.isLetter(word.charAt(0)) && word.charAt(0) != '_') {
+            return false;
+        }
+        for (int i = 1; i < word.length(); i++) {
+            char ch = word.charAt(i);
+            if (!Character.isLetterOrDigit(ch) && ch != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an opcode is followed by an operand.
+     *
+     * @param op The opcode
+     * @return {@code true} for pushes, loads, temporaries and failures
+     */
+    private static boolean hasOperand(int op) {
+        return op == PUSH || op == LOAD || op == FAIL || op == PARSE || op == STORE
+                || op == TEMP;
+    }
+
+    /**
+     * Gets the number of variables the plan reads.
+     *
+     * @return The variable count
+     */
+    public int variableCount() {
+        return variables.length;
+    }
+
+    /**
+     * Gets the name of a variable.
+     *
+     * @param index The variable index, in order of first use
+     * @return Its name
+     */
+    public String variable(int index) {
+        return variables[index];
+    }
+
+    /**
+     * Gets the index of a variable.
+     *
+     * @param name The variable name
+     * @return Its index, or -1 if the plan does not read it
+     */
+    public int indexOf(String name) {
+        return Arrays.asList(variables).indexOf(name);
+    }
+
+    /**
+     * Lists the variable names for messages.
+     *
+     * @return The names, such as {@code "[a, b]"}
+     */
+    private String variableNames() {
+        return Arrays.toString(variables);
+    }
+
+    /**
+     * Gets the number of opcodes in the plan, not counting operands.
+     *
+     * @return The opcode count
+     */
+    public int size() {
+        int n = 0;
+        for (int pc = 0; pc < code.length; pc++, n++) {
+            if (hasOperand(code[pc])) {
+                pc++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Lists the plan in postfix form, with a failure shown as
+     * {@code fail("message")}, a literal too large as
+     * {@code parse(digits)}, and a value stored to temporary 0 and loaded
+     * from it as {@code =$0} and {@code $0}.
+     *
+     * @return The plan as text, such as {@code "10 20 + 5 *"}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc++) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            switch (code[pc]) {
+                case PUSH:
+                    sb.append(constants[code[++pc]]);
+                    break;
+                case LOAD:
+                    sb.append(variables[code[++pc]]);
+                    break;
+                case FAIL:
+                    sb.append("fail(\"").append(strings[code[++pc]]).append("\")");
+                    break;
+                case PARSE:
+                    sb.append("parse(").append(strings[code[++pc]]).append(')');
+                    break;
+                case STORE:
+                    sb.append("=$").append(code[++pc]);
+                    break;
+                case TEMP:
+                    sb.append('$').append(code[++pc]);
+                    break;
+                default:
+                    sb.append("+-*/".charAt(code[pc] - ADD));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,362 @@
+import itsc2214.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for the {@link ExpressionPlan} class.
+ *
+ * Plans must give exactly what {@link Project3#interpret(String)} gives:
+ * the same value, or an exception of the same class with the same message.
+ */
+public class ExpressionPlanTest {
+
+    private Project3 runner;
+
+    /**
+     * Initializes a fresh {@code Project3} instance before each test.
+     */
+    @Before
+    public void setup() {
+        runner = new Project3();
+    }
+
+    /**
+     * Tests plans of well-formed expressions and their listing.
+     */
+    @Test
+    public void testCompile() {
+        ExpressionPlan plan = runner.compile("10 + 20 * 5");
+        assertEquals("10 20 + 5 *", plan.toString());
+        assertEquals(5, plan.size());
+        assertEquals(150, plan.evaluate());
+        assertEquals(150, plan.evaluate());
+
+        assertEquals(70, runner.compile("10 + (20 * 3)").evaluate());
+        assertEquals(-2, runner.compile("7 - 9").evaluate());
+        assertEquals(3, runner.compile("7 / 2").evaluate());
+        assertEquals(Integer.MIN_VALUE, runner.compile("2147483647 + 1").evaluate());
+    }
+
+    /**
+     * Tests that errors are raised in the order evaluation would meet them.
+     */
+    @Test
+    public void testErrorOrder() {
+        assertThrows("Unbalanced parentheses", "(1 / 0");
+        assertThrows("No result after evaluation", "");
+        assertThrows("No result after evaluation", "( )");
+        assertThrows("Missing operand for operator +", "+ 1");
+        assertThrows("Extra operands left after evaluation", "(1)(2)");
+        // the division runs before the missing operand is reached
+        assertThrows("Division by zero", "(1 / 0) * (+)");
+        assertThrows("Missing operand for operator +", "(1 / 1) * (+)");
+        // a literal too large for an int fails once it is used
+        ExpressionPlan plan = runner.compile("1 + 99999999999");
+        assertEquals("1 parse(99999999999)", plan.toString());
+        assertSameOutcome("1 + 99999999999");
+        assertSameOutcome("99999999999");
+        assertSameOutcome("99999999999 (1)");
+        assertSameOutcome("(1 / 0) - 99999999999");
+        assertSameOutcome("+ 99999999999");
+    }
+
+    /**
+     * Tests random expressions, well-formed or not, against the interpreter.
+     */
+    @Test
+    public void testMatchesInterpreter() {
+        String[] pieces = {"(", ")", "+", "-", "*", "/", " ", "0", "1", "7", "12",
+            "345", "2147483647", "99999999999", "x", "4a"};
+        Random rand = new Random(2214);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int n = rand.nextInt(12); n > 0; n--) {
+                sb.append(pieces[rand.nextInt(pieces.length)]);
+            }
+            assertSameOutcome(sb.toString());
+        }
+    }
+
+    /**
+     * Tests that evaluating a plan allocates nothing.
+     */
+    @Test
+    public void testNoAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExpressionPlan plan = runner.compile("((1 + 2) * (3 + (4 * (5 - (6 / 2))))) - 7");
+        long sum = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sum += plan.evaluate();
+        }
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100_000; i++) {
+            sum += plan.evaluate();
+        }
+        long bytes = threads.getThreadAllocatedBytes(id) - before;
+        assertEquals(200_000L * 26, sum);
+        assertTrue(bytes + " bytes for 100000 evaluations", bytes < 10_000);
+    }
+
+    /**
+     * Tests formulas with variables evaluated one row at a time.
+     */
+    @Test
+    public void testVariables() {
+        ExpressionPlan plan = runner.compileFormula("(a + b) * 3 / c");
+        assertEquals("a b + 3 * c /", plan.toString());
+        assertEquals(3, plan.variableCount());
+        assertEquals("b", plan.variable(1));
+        assertEquals(2, plan.indexOf("c"));
+        assertEquals(-1, plan.indexOf("d"));
+        assertEquals(3, plan.evaluate(1, 2, 3));
+        assertEquals(-9, plan.evaluate(-5, 2, 1));
+
+        ExpressionPlan square = runner.compileFormula("x_1 * x_1 + x_1");
+        assertEquals(1, square.variableCount());
+        assertEquals(20, square.evaluate(4));
+        try {
+            plan.evaluate();
+            fail("values are needed");
+        } catch (IllegalArgumentException e) {
+            assertEquals("No values given for [a, b, c]", e.getMessage());
+        }
+        try {
+            plan.evaluate(1, 2);
+            fail("too few values");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Expected 3 values"));
+        }
+
+        assertFormulaFails("Unbalanced parentheses", "(a + b");
+        assertFormulaFails("Missing operand for operator +", "a +");
+        assertFormulaFails("Invalid variable name: 4a", "4a + 1");
+        assertFormulaFails("Extra operands left after evaluation", "a b");
+        try {
+            runner.compileFormula("a + 99999999999");
+            fail("literal too large");
+        } catch (NumberFormatException e) {
+            assertTrue(e.getMessage().contains("99999999999"));
+        }
+
+        // without variables, words are still dropped
+        assertEquals("3 fail(\"Missing operand for operator +\")",
+                runner.compile("a + 3").toString());
+        QueueADT<String> postfix = runner.infix2Postfix("(a + b) * 3");
+        assertEquals(3, postfix.size());
+        assertEquals("+", postfix.dequeue());
+    }
+
+    /**
+     * Tests formulas evaluated over {@code int} and {@code long} columns
+     * against evaluating them one row at a time.
+     */
+    @Test
+    public void testColumns() {
+        String[] formulas = {"(a + b) * 3 / c", "a", "7", "a - b * c + 2147483647",
+            "c / (b - b + 1) - a * a", "((a - 1) - (b - 2)) - ((c - 3) - (a * 4))"};
+        int rows = 3 * ColumnKernel.BLOCK + 7;
+        Random rand = new Random(21);
+        int[][] columns = new int[3][rows];
+        long[][] wide = new long[3][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = rand.nextInt();
+            columns[1][i] = rand.nextInt(2001) - 1000;
+            columns[2][i] = rand.nextInt(50) + 1;
+            for (int v = 0; v < 3; v++) {
+                wide[v][i] = columns[v][i];
+            }
+        }
+        for (String formula : formulas) {
+            ExpressionPlan plan = runner.compileFormula(formula);
+            int[][] used = new int[plan.variableCount()][];
+            for (int v = 0; v < used.length; v++) {
+                used[v] = columns[plan.variable(v).charAt(0) - 'a'];
+            }
+            int[] out = new int[rows];
+            plan.evaluateColumns(used, out, null);
+            int[] row = new int[used.length];
+            for (int i = 0; i < rows; i++) {
+                for (int v = 0; v < used.length; v++) {
+                    row[v] = used[v][i];
+                }
+                assertEquals(formula + " row " + i, plan.evaluate(row), out[i]);
+            }
+        }
+
+        // long columns do not wrap where int ones would
+        ExpressionPlan product = runner.compileFormula("a * b * c");
+        long[] out = new long[rows];
+        product.evaluateColumns(wide, out, null);
+        for (int i = 0; i < rows; i++) {
+            assertEquals(wide[0][i] * wide[1][i] * wide[2][i], out[i]);
+        }
+    }
+
+    /**
+     * Tests column errors, and that a pool gives the same results.
+     */
+    @Test
+    public void testColumnsParallel() {
+        ExpressionPlan plan = runner.compileFormula("(a + b) * 3 / c");
+        int rows = 200_003;
+        int[][] columns = new int[3][rows];
+        long[][] wide = new long[3][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = i;
+            columns[1][i] = -7 * i;
+            columns[2][i] = i % 13 + 1;
+            for (int v = 0; v < 3; v++) {
+                wide[v][i] = columns[v][i];
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[] expected = new int[rows];
+            plan.evaluateColumns(columns, expected, null);
+            int[] out = new int[rows];
+            plan.evaluateColumns(columns, out, pool);
+            assertArrayEquals(expected, out);
+            long[] wideOut = new long[rows];
+            plan.evaluateColumns(wide, wideOut, pool);
+            for (int i = 0; i < rows; i++) {
+                assertEquals(expected[i], wideOut[i]);
+            }
+
+            columns[2][150_000] = 0;
+            try {
+                plan.evaluateColumns(columns, out, pool);
+                fail("division by zero");
+            } catch (ArithmeticException e) {
+                assertEquals("Division by zero at row 150000", e.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            plan.evaluateColumns(new int[2][rows], new int[rows], null);
+            fail("a column is missing");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Expected 3 columns"));
+        }
+        try {
+            plan.evaluateColumns(new int[][] {new int[5], new int[5], new int[4]}, new int[5],
+                    null);
+            fail("a column is short");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("shorter"));
+        }
+        try {
+            runner.compile("1 / (2").evaluateColumns(new int[0][], new int[3], null);
+            fail("malformed");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unbalanced parentheses", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Tests the lowest failing row is reported when zeros in different
+     * divisions fail in one block and on either side of a band boundary,
+     * with and without a pool. With 4 threads the 100,000 rows split into
+     * bands at 12,500.
+     */
+    @Test
+    public void testColumnsLowestFailure() {
+        ExpressionPlan plan = runner.compileFormula("a / b / c");
+        int rows = 100_000;
+        int[][][] zeros = {{{2, 12_400}, {1, 12_600}}, {{1, 12_400}, {2, 12_600}},
+            {{2, 5}, {1, 7}}, {{2, 99_999}, {1, 99_998}}};
+        int[] lowest = {12_400, 12_400, 5, 99_998};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int k = 0; k < zeros.length; k++) {
+                int[][] columns = new int[3][rows];
+                long[][] wide = new long[3][rows];
+                for (int v = 0; v < 3; v++) {
+                    Arrays.fill(columns[v], v + 1);
+                    Arrays.fill(wide[v], v + 1);
+                }
+                for (int[] zero : zeros[k]) {
+                    columns[zero[0]][zero[1]] = 0;
+                    wide[zero[0]][zero[1]] = 0;
+                }
+                String expected = "Division by zero at row " + lowest[k];
+                for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+                    try {
+                        plan.evaluateColumns(columns, new int[rows], p);
+                        fail("division by zero");
+                    } catch (ArithmeticException e) {
+                        assertEquals(expected, e.getMessage());
+                    }
+                    try {
+                        plan.evaluateColumns(wide, new long[rows], p);
+                        fail("division by zero");
+                    } catch (ArithmeticException e) {
+                        assertEquals(expected, e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    /**
+     * Checks a formula is rejected when it is compiled.
+     *
+     * @param message The expected exception message
+     * @param expr The formula
+     */
+    private void assertFormulaFails(String message, String expr) {
+        try {
+            runner.compileFormula(expr);
+            fail("\"" + expr + "\" should fail");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks a plan and the interpreter end the same way.
+     *
+     * @param expr The infix expression
+     */
+    private void assertSameOutcome(String expr) {
+        String expected;
+        try {
+            expected = "= " + runner.interpret(expr);
+        } catch (RuntimeException e) {
+            expected = e.getClass().getName() + ": " + e.getMessage();
+        }
+        String actual;
+        try {
+            actual = "= " + runner.compile(expr).evaluate();
+        } catch (RuntimeException e) {
+            actual = e.getClass().getName() + ": " + e.getMessage();
+        }
+        assertEquals("\"" + expr + "\"", expected, actual);
+    }
+
+    /**
+     * Checks a plan and the interpreter both fail with a message.
+     *
+     * @param message The expected exception message
+     * @param expr The infix expression
+     */
+    private void assertThrows(String message, String expr) {
+        try {
+            runner.compile(expr).evaluate();
+            fail("\"" + expr + "\" should fail");
+        } catch (RuntimeException e) {
+            assertEquals(message, e.getMessage());
+        }
+        assertSameOutcome(expr);
+    }
+}
@@ -0,0 +1,359 @@
+import java.util.Arrays;
+
+/**
+ * A scanner that splits an expression into tokens straight from its
+ * characters, with no substrings, regular expressions or string compares.
+ *
+ * Tokens are the ones a {@code StringTokenizer} returning its delimiters
+ * (space and {@code + - * / ( )}) gives after {@code trim()}: each of
+ * {@code + - * / ( )} on its own, and runs of other characters with
+ * leading and trailing control characters removed. Spaces and runs that
+ * are empty once trimmed are skipped. A run of ASCII digits is a number,
+ * anything else is a word.
+ *
+ * One scanner reads one expression at a time and is not thread-safe.
+ */
+final class ExpressionScanner {
+
+    /** No tokens are left. */
+    static final int END = 0;
+    /** A run of digits; see {@link #intValue()} and {@link #fitsInt()}. */
+    static final int NUMBER = 1;
+    /** One of {@code + - * /}; see {@link #operator()}. */
+    static final int OPERATOR = 2;
+    /** An opening parenthesis. */
+    static final int LEFT = 3;
+    /** A closing parenthesis. */
+    static final int RIGHT = 4;
+    /** Any other run of characters. */
+    static final int WORD = 5;
+
+    /**
+     * Receives an expression in postfix order as it is scanned.
+     */
+    interface Sink {
+        /**
+         * Receives a number.
+         *
+         * @param scanner The scanner, positioned on the number
+         */
+        void operand(ExpressionScanner scanner);
+
+        /**
+         * Receives an operator, or a {@code '('} left open at the end of
+         * an unbalanced expression.
+         *
+         * @param symbol One of {@code + - * / (}
+         */
+        void operator(char symbol);
+
+        /**
+         * Receives a word, which is skipped unless the sink uses it.
+         *
+         * @param scanner The scanner, positioned on the word
+         */
+        default void word(ExpressionScanner scanner) {
+        }
+    }
+
+    private String text;
+    private int pos;
+    private int start;
+    private int end;
+    private long value;
+    // operators and open parentheses waiting while converting to postfix
+    private char[] pending;
+
+    /**
+     * Creates a scanner over an expression.
+     *
+     * @param text The expression
+     */
+    ExpressionScanner(String text) {
+        reset(text);
+    }
+
+    /**
+     * Starts scanning another expression.
+     *
+     * @param text The expression
+     * @return This scanner
+     */
+    ExpressionScanner reset(String text) {
+        this.text = text;
+        pos = 0;
+        start = 0;
+        end = 0;
+        return this;
+    }
+
+    /**
+     * Moves to the next token.
+     *
+     * @return The type of the token, or {@link #END}
+     */
+    int next() {
+        int n = text.length();
+        while (pos < n) {
+            char ch = text.charAt(pos);
+            if (ch == ' ') {
+                pos++;
+                continue;
+            }
+            int type = symbolType(ch);
+            if (type != WORD) {
+                start = pos++;
+                end = pos;
+                return type;
+            }
+            int from = pos;
+            while (pos < n && !isDelimiter(text.charAt(pos))) {
+                pos++;
+            }
+            int to = pos;
+            // what String.trim() removes
+            while (from < to && text.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && text.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            if (from < to) {
+                start = from;
+                end = to;
+                return digits() ? NUMBER : WORD;
+            }
+        }
+        start = n;
+        end = n;
+        return END;
+    }
+
+    /**
+     * Scans a token that must stand alone, such as one taken from a postfix
+     * queue, so that {@code "1 2"} is not read as two numbers.
+     *
+     * @param token The token text
+     * @return The type of its only token, {@link #END} if it is blank, or
+     *         {@link #WORD} if it holds more than one token
+     */
+    int single(String token) {
+        reset(token);
+        int type = next();
+        if (type == END) {
+            return END;
+        }
+        int s = start;
+        int e = end;
+        long v = value;
+        if (next() != END) {
+            return WORD;
+        }
+        start = s;
+        end = e;
+        value = v;
+        return type;
+    }
+
+    /**
+     * Checks the current token is all digits and works out its value.
+     *
+     * @return {@code true} if it is a number
+     */
+    private boolean digits() {
+        long v = 0;
+        for (int i = start; i < end; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return false;
+            }
+            // stops growing once too large for an int, so it cannot overflow
+            v = Math.min(v * 10 + d, Integer.MAX_VALUE + 1L);
+        }
+        value = v;
+        return true;
+    }
+
+    /**
+     * Checks whether the current number fits in an {@code int}.
+     *
+     * @return {@code false} if {@code Integer.parseInt} would reject it
+     */
+    boolean fitsInt() {
+        return value <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the value of the current number.
+     *
+     * @return The value, valid only if {@link #fitsInt()}
+     */
+    int intValue() {
+        return (int) value;
+    }
+
+    /**
+     * Gets the current operator or parenthesis.
+     *
+     * @return Its character
+     */
+    char operator() {
+        return text.charAt(start);
+    }
+
+    /**
+     * Gets the text of the current token. This is the only method that
+     * makes a string, and it is needed only at the {@code String} API.
+     *
+     * @return The token, trimmed
+     */
+    String text() {
+        return text.substring(start, end);
+    }
+
+    /**
+     * Scans the rest of the expression once, passing it to a sink in
+     * postfix order while checking its parentheses.
+     *
+     * Operators have no precedence: an operator first sends on every
+     * operator since the innermost open parenthesis, and a {@code ')'}
+     * does the same and then drops its {@code '('}. Words go to the sink
+     * where they stand, in case it takes them as operands; an
+     * unmatched {@code ')'} closes nothing, and parentheses still open at
+     * the end are sent with the operators left over.
+     *
+     * @param sink Receives the postfix tokens
+     * @return {@code true} if the parentheses are balanced
+     */
+    boolean toPostfix(Sink sink) {
+        if (pending == null) {
+            pending = new char[16];
+        }
+        int top = 0;
+        boolean balanced = true;
+        for (int type = next(); type != END; type = next()) {
+            switch (type) {
+                case NUMBER:
+                    sink.operand(this);
+                    break;
+                case OPERATOR:
+                case LEFT:
+                    if (type == OPERATOR) {
+                        top = flush(sink, top);
+                    }
+                    if (top == pending.length) {
+                        pending = Arrays.copyOf(pending, 2 * top);
+                    }
+                    pending[top++] = operator();
+                    break;
+                case RIGHT:
+                    top = flush(sink, top);
+                    if (top > 0) {
+                        top--;
+                    } else {
+                        balanced = false;
+                    }
+                    break;
+                default:
+                    sink.word(this);
+                    break;
+            }
+        }
+        while (top > 0) {
+            char symbol = pending[--top];
+            balanced &= symbol != '(';
+            sink.operator(symbol);
+        }
+        return balanced;
+    }
+
+    /**
+     * Sends on the pending operators down to the innermost open parenthesis.
+     *
+     * @param sink Receives the operators
+     * @param top The number of pending symbols
+     * @return The number left
+     */
+    private int flush(Sink sink, int top) {
+        while (top > 0 && pending[top - 1] != '(') {
+            sink.operator(pending[--top]);
+        }
+        return top;
+    }
+
+    /**
+     * Scans the rest of the expression for parentheses only.
+     *
+     * @return {@code true} if every {@code ')'} closes an earlier {@code '('}
+     *         and none is left open
+     */
+    boolean balanced() {
+        int depth = 0;
+        for (int type = next(); type != END; type = next()) {
+            if (type == LEFT) {
+                depth++;
+            } else if (type == RIGHT && --depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * Gets the string of an operator or parenthesis without allocating.
+     *
+     * @param symbol One of {@code + - * / ( )}
+     * @return The symbol as a string
+     */
+    static String symbol(char symbol) {
+        switch (symbol) {
+            case '+':
+                return "+";
+            case '-':
+                return "-";
+            case '*':
+                return "*";
+            case '/':
+                return "/";
+            case '(':
+                return "(";
+            case ')':
+                return ")";
+            default:
+                throw new IllegalArgumentException("Not a symbol: " + symbol);
+        }
+    }
+
+    /**
+     * Gets the token type of a delimiter.
+     *
+     * @param ch A character
+     * @return {@link #OPERATOR}, {@link #LEFT} or {@link #RIGHT}, or
+     *         {@link #WORD} if it starts a run
+     */
+    private static int symbolType(char ch) {
+        switch (ch) {
+            case '+':
+            case '-':
+            case '*':
+            case '/':
+                return OPERATOR;
+            case '(':
+                return LEFT;
+            case ')':
+                return RIGHT;
+            default:
+                return WORD;
+        }
+    }
+
+    /**
+     * Checks whether a character ends a run.
+     *
+     * @param ch A character
+     * @return {@code true} for a space, an operator or a parenthesis
+     */
+    private static boolean isDelimiter(char ch) {
+        return ch == ' ' || symbolType(ch) != WORD;
+    }
+}
@@ -0,0 +1,200 @@
+import itsc2214.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/**
+ * Unit tests for the {@link ExpressionScanner} class.
+ *
+ * The scanner must split expressions exactly as {@code StringTokenizer}
+ * with {@code trim()} and a digits regex did, so the methods built on it
+ * are checked against that tokenizer on random input.
+ */
+public class ExpressionScannerTest {
+
+    private static final String[] PIECES = {"(", ")", "+", "-", "*", "/", " ", "  ",
+        "\t", "\n", "0", "1", "007", "12", "2147483647", "2147483648", "99999999999",
+        "x", "4a", "\u0000", "\u00a0", "\u0663"};
+
+    private Project3 runner;
+
+    /**
+     * Initializes a fresh {@code Project3} instance before each test.
+     */
+    @Before
+    public void setup() {
+        runner = new Project3();
+    }
+
+    /**
+     * Tests token types, values and text.
+     */
+    @Test
+    public void testTokens() {
+        ExpressionScanner s = new ExpressionScanner(" (12+\t007 )*x4 99999999999/");
+        assertEquals(ExpressionScanner.LEFT, s.next());
+        assertEquals(ExpressionScanner.NUMBER, s.next());
+        assertEquals(12, s.intValue());
+        assertEquals(ExpressionScanner.OPERATOR, s.next());
+        assertEquals('+', s.operator());
+        assertEquals(ExpressionScanner.NUMBER, s.next());
+        assertTrue(s.fitsInt());
+        assertEquals(7, s.intValue());
+        assertEquals("007", s.text());
+        assertEquals(ExpressionScanner.RIGHT, s.next());
+        assertEquals(ExpressionScanner.OPERATOR, s.next());
+        assertEquals(ExpressionScanner.WORD, s.next());
+        assertEquals("x4", s.text());
+        assertEquals(ExpressionScanner.NUMBER, s.next());
+        assertFalse(s.fitsInt());
+        assertEquals(ExpressionScanner.OPERATOR, s.next());
+        assertEquals('/', s.operator());
+        assertEquals(ExpressionScanner.END, s.next());
+        assertEquals(ExpressionScanner.END, s.next());
+
+        assertEquals(ExpressionScanner.NUMBER, s.single(" 42\t"));
+        assertEquals("42", s.text());
+        assertEquals(ExpressionScanner.WORD, s.single("1 2"));
+        assertEquals(ExpressionScanner.WORD, s.single("1+"));
+        assertEquals(ExpressionScanner.END, s.single(" \n"));
+        assertEquals(ExpressionScanner.OPERATOR, s.single(" - "));
+    }
+
+    /**
+     * Tests the one-pass conversion and parenthesis check against the
+     * tokenizer they replace, on random input.
+     */
+    @Test
+    public void testMatchesTokenizer() {
+        Random rand = new Random(2214);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int n = rand.nextInt(14); n > 0; n--) {
+                sb.append(PIECES[rand.nextInt(PIECES.length)]);
+            }
+            String expr = sb.toString();
+            assertEquals(expr, tokenizerBalanced(expr), runner.balancedParenthesis(expr));
+            assertEquals(expr, tokenizerPostfix(expr), drain(runner.infix2Postfix(expr)));
+        }
+    }
+
+    /**
+     * Tests postfix tokens that need trimming or are not single tokens.
+     */
+    @Test
+    public void testPostfixTokens() {
+        assertEquals(7, runner.evaluatePostfix(queue(" 3 ", "\t4", " + ", "", null)));
+        assertInvalid("1 2", queue("1 2"));
+        assertInvalid("1+", queue("1+"));
+        assertInvalid("(", queue("1", " ( "));
+        assertInvalid("x", queue("x"));
+        try {
+            runner.evaluatePostfix(queue("99999999999", "1", "+"));
+            fail("too large for an int");
+        } catch (NumberFormatException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("99999999999"));
+        }
+    }
+
+    /**
+     * Checks evaluating a postfix queue reports an invalid token.
+     *
+     * @param token The token reported, trimmed
+     * @param postfix The postfix queue
+     */
+    private void assertInvalid(String token, QueueADT<String> postfix) {
+        try {
+            runner.evaluatePostfix(postfix);
+            fail(token + " should be invalid");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid token in postfix expression: " + token, e.getMessage());
+        }
+    }
+
+    /**
+     * Makes a queue of tokens.
+     *
+     * @param tokens The tokens in order
+     * @return The queue
+     */
+    private static QueueADT<String> queue(String... tokens) {
+        QueueADT<String> q = Factory.makeQueueArrayList();
+        for (String t : tokens) {
+            q.enqueue(t);
+        }
+        return q;
+    }
+
+    /**
+     * Empties a queue into a list.
+     *
+     * @param q The queue
+     * @return Its tokens in order
+     */
+    private static List<String> drain(QueueADT<String> q) {
+        List<String> tokens = new ArrayList<>();
+        while (!q.isEmpty()) {
+            tokens.add(q.dequeue());
+        }
+        return tokens;
+    }
+
+    /**
+     * Checks parentheses with the tokenizer, as Project3 first did.
+     *
+     * @param expr The infix expression
+     * @return {@code true} if balanced
+     */
+    private static boolean tokenizerBalanced(String expr) {
+        int depth = 0;
+        StringTokenizer st = new StringTokenizer(expr, " +-*/()", true);
+        while (st.hasMoreTokens()) {
+            String token = st.nextToken().trim();
+            if (token.equals("(")) {
+                depth++;
+            } else if (token.equals(")") && --depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * Converts to postfix with the tokenizer, as Project3 first did.
+     *
+     * @param expr The infix expression
+     * @return The postfix tokens
+     */
+    private static List<String> tokenizerPostfix(String expr) {
+        List<String> out = new ArrayList<>();
+        List<String> stack = new ArrayList<>();
+        StringTokenizer st = new StringTokenizer(expr, " +-*/()", true);
+        while (st.hasMoreTokens()) {
+            String token = st.nextToken().trim();
+            if (token.matches("[0-9]+")) {
+                out.add(token);
+            } else if (token.equals("(")) {
+                stack.add(token);
+            } else if (token.equals(")") || token.matches("[-+*/]")) {
+                while (!stack.isEmpty() && !stack.get(stack.size() - 1).equals("(")) {
+                    out.add(stack.remove(stack.size() - 1));
+                }
+                if (token.equals(")")) {
+                    if (!stack.isEmpty()) {
+                        stack.remove(stack.size() - 1);
+                    }
+                } else {
+                    stack.add(token);
+                }
+            }
+        }
+        while (!stack.isEmpty()) {
+            out.add(stack.remove(stack.size() - 1));
+        }
+        return out;
+    }
+}
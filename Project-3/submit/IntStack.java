@@ -0,0 +1,101 @@
+import itsc2214.*;
+import java.util.Arrays;
+
+/**
+ * A stack of {@code int} values kept in a growable array, for evaluating
+ * expressions without boxing values or converting them to strings.
+ *
+ * It follows {@link StackADT} where it can: {@link #pop()} of an empty
+ * stack throws an {@code IllegalStateException}, and so does
+ * {@link #peek()}, since there is no {@code null} to return.
+ */
+public final class IntStack implements SizedCollection {
+
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates an empty stack.
+     */
+    public IntStack() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty stack with room for some values before it grows.
+     *
+     * @param capacity The initial capacity, at least 1
+     * @throws IllegalArgumentException If {@code capacity} is less than 1
+     */
+    public IntStack(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Stack capacity must be positive: " + capacity);
+        }
+        values = new int[capacity];
+    }
+
+    /**
+     * Pushes a value onto the top of the stack.
+     *
+     * @param value The value to push
+     */
+    public void push(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * size);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Removes the value on top of the stack.
+     *
+     * @return The value removed
+     * @throws IllegalStateException If the stack is empty
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new IllegalStateException("Pop from an empty stack");
+        }
+        return values[--size];
+    }
+
+    /**
+     * Gets the value on top of the stack without removing it.
+     *
+     * @return The top value
+     * @throws IllegalStateException If the stack is empty
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Peek at an empty stack");
+        }
+        return values[size - 1];
+    }
+
+    /**
+     * Gets the number of values on the stack.
+     *
+     * @return The size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every value, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Lists the values from the bottom of the stack to the top.
+     *
+     * @return The values as text, such as {@code "[1, 2, 3]"}
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(values, size));
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link IntStack} class.
+ */
+public class IntStackTest {
+
+    /**
+     * Tests values come off in reverse order and the stack grows.
+     */
+    @Test
+    public void testPushPop() {
+        IntStack stack = new IntStack(1);
+        assertTrue(stack.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            stack.push(i * i);
+        }
+        assertEquals(100, stack.size());
+        assertEquals(99 * 99, stack.peek());
+        for (int i = 99; i >= 0; i--) {
+            assertEquals(i * i, stack.pop());
+        }
+        assertTrue(stack.isEmpty());
+
+        stack.push(1);
+        stack.push(-2);
+        stack.push(3);
+        assertEquals("[1, -2, 3]", stack.toString());
+        stack.clear();
+        assertEquals(0, stack.size());
+        assertEquals("[]", stack.toString());
+    }
+
+    /**
+     * Tests an empty stack cannot be popped or peeked at.
+     */
+    @Test
+    public void testEmpty() {
+        IntStack stack = new IntStack();
+        try {
+            stack.pop();
+            fail("pop of an empty stack");
+        } catch (IllegalStateException e) {
+            assertEquals(0, stack.size());
+        }
+        try {
+            stack.peek();
+            fail("peek at an empty stack");
+        } catch (IllegalStateException e) {
+            assertEquals(0, stack.size());
+        }
+    }
+
+    /**
+     * Tests a stack must have room for a value.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity() {
+        new IntStack(0);
+    }
+}
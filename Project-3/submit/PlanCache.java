@@ -0,0 +1,132 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded cache of compiled {@link ExpressionPlan}s keyed by expression
+ * text. When full, the plan used least recently is evicted.
+ *
+ * Hits, misses and evictions are counted so the hit rate can be checked
+ * against the workload: a low rate means the cache is too small for the
+ * set of formulas in use. All methods are thread-safe.
+ */
+public class PlanCache {
+
+    private final int capacity;
+    // access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, ExpressionPlan> plans =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity The most plans kept, at least 1
+     * @throws IllegalArgumentException If {@code capacity} is less than 1
+     */
+    public PlanCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Looks up the plan for an expression and counts a hit or a miss.
+     *
+     * @param expr The expression text
+     * @return The cached plan, or {@code null} if there is none
+     */
+    public synchronized ExpressionPlan get(String expr) {
+        ExpressionPlan plan = plans.get(expr);
+        if (plan == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return plan;
+    }
+
+    /**
+     * Caches the plan for an expression, evicting the least recently used
+     * plan if the cache is full.
+     *
+     * @param expr The expression text
+     * @param plan Its compiled plan
+     */
+    public synchronized void put(String expr, ExpressionPlan plan) {
+        plans.put(expr, plan);
+        if (plans.size() > capacity) {
+            Iterator<String> eldest = plans.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Gets the number of lookups that found a plan.
+     *
+     * @return The hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no plan.
+     *
+     * @return The miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of plans dropped to make room.
+     *
+     * @return The eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the fraction of lookups that found a plan.
+     *
+     * @return The hit rate from 0 to 1, or 0 before any lookup
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Gets the number of plans cached.
+     *
+     * @return The current size
+     */
+    public synchronized int size() {
+        return plans.size();
+    }
+
+    /**
+     * Gets the most plans kept.
+     *
+     * @return The capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Drops every plan and resets the counters.
+     */
+    public synchronized void clear() {
+        plans.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link PlanCache} class.
+ */
+public class PlanCacheTest {
+
+    /**
+     * Tests that the least recently used plan is the one evicted.
+     */
+    @Test
+    public void testLeastRecentlyUsed() {
+        Project3 runner = new Project3();
+        PlanCache cache = new PlanCache(2);
+        cache.put("1", runner.compile("1"));
+        cache.put("2", runner.compile("2"));
+        assertNotNull(cache.get("1"));    // 2 is now the eldest
+        cache.put("3", runner.compile("3"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("2"));
+        assertEquals(1, cache.get("1").evaluate());
+        assertEquals(3, cache.get("3").evaluate());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitRate(), 0);
+    }
+
+    /**
+     * Tests that {@link Project3#evaluateInfix(String)} compiles each
+     * expression once and keeps errors cached too.
+     */
+    @Test
+    public void testEvaluatorHitRate() {
+        Project3 runner = new Project3(2);
+        assertEquals(2, runner.getPlanCache().capacity());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(30, runner.evaluateInfix("10 + 20"));
+            try {
+                runner.evaluateInfix("10 / 0");
+                fail("division by zero");
+            } catch (ArithmeticException e) {
+                assertEquals("Division by zero", e.getMessage());
+            }
+        }
+        PlanCache cache = runner.getPlanCache();
+        assertEquals(2, cache.getMisses());
+        assertEquals(18, cache.getHits());
+        assertEquals(0.9, cache.getHitRate(), 1e-9);
+
+        // a third formula pushes out the one used least recently
+        assertEquals(5, runner.evaluateInfix("5"));
+        assertEquals(30, runner.evaluateInfix("10 + 20"));
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    /**
+     * Tests that a cache must hold at least one plan.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity() {
+        new PlanCache(0);
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a well-formed {@link ExpressionPlan} into one that does fewer
+ * operations and gives exactly the same results, including every
+ * {@code "Division by zero"}.
+ *
+ * The plan is turned back into an expression tree, simplified bottom-up
+ * as each operator is built:
+ *
+ *   Operators on constants are folded, except a division by zero.
+ *   {@code x + 0}, {@code x - 0}, {@code x * 1} and {@code x / 1} become
+ *   {@code x}, and chains such as {@code (x + 1) + 2} become {@code x + 3}.
+ *   {@code x * 0} and {@code x - x} become {@code 0} only if {@code x}
+ *   cannot divide by zero, so no error is ever hidden.
+ *
+ * A plan is evaluated in {@code int} arithmetic, or in {@code long} over
+ * long columns, so constants are only folded or merged when the exact
+ * result fits in an {@code int}. Then it is the same in both, and the
+ * rewrites hold for every value however the plan is evaluated. Equal
+ * subtrees are built as one node, and an operator used more than once is
+ * computed once into a temporary and then reloaded. Since every error is
+ * the same division by zero, computing shared or reordered subtrees once
+ * cannot change which exception is thrown.
+ */
+final class PlanOptimizer {
+
+    /**
+     * A node of the expression tree. Equal nodes are built only once, so
+     * children compare by identity.
+     */
+    private static final class Node {
+        final int op;
+        final int value;          // literal or variable index
+        final Node left;
+        final Node right;
+        final boolean canThrow;   // might divide by zero
+        int refs;
+        int temp = -1;
+
+        /**
+         * Creates a node.
+         *
+         * @param op The opcode
+         * @param value The literal or variable index, or 0
+         * @param left The left operand, or null for a leaf
+         * @param right The right operand, or null for a leaf
+         */
+        Node(int op, int value, Node left, Node right) {
+            this.op = op;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            boolean risky = op == ExpressionPlan.DIV
+                    && (right.op != ExpressionPlan.PUSH || right.value == 0);
+            this.canThrow = risky || (left != null && (left.canThrow || right.canThrow));
+        }
+
+        /**
+         * Checks whether this is a given literal.
+         *
+         * @param v The literal
+         * @return {@code true} if it is that constant
+         */
+        boolean is(int v) {
+            return op == ExpressionPlan.PUSH && value == v;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node n = (Node) o;
+            return op == n.op && value == n.value && left == n.left && right == n.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((op * 31 + value) * 31 + System.identityHashCode(left)) * 31
+                    + System.identityHashCode(right);
+        }
+    }
+
+    private final Map<Node, Node> nodes = new HashMap<>();
+
+    /**
+     * Prevents use except through {@link #optimize}.
+     */
+    private PlanOptimizer() {
+    }
+
+    /**
+     * Optimizes the opcodes of a plan.
+     *
+     * @param code The plan's opcodes, with no failures
+     * @param constants The plan's integer literals
+     * @return The optimized opcodes, followed by the new literals as the
+     *         second element
+     */
+    static int[][] optimize(int[] code, int[] constants) {
+        PlanOptimizer optimizer = new PlanOptimizer();
+        Node root = optimizer.build(code, constants);
+        return optimizer.emit(root);
+    }
+
+    /**
+     * Rebuilds the expression tree from opcodes, simplifying as it goes.
+     *
+     * @param code The opcodes
+     * @param constants The literals
+     * @return The root of the tree
+     */
+    private Node build(int[] code, int[] constants) {
+        Deque<Node> stack = new ArrayDeque<>();
+        List<Node> temps = new ArrayList<>();
+        for (int pc = 0; pc < code.length; pc++) {
+            int op = code[pc];
+            switch (op) {
+                case ExpressionPlan.PUSH:
+                    stack.push(leaf(op, constants[code[++pc]]));
+                    break;
+                case ExpressionPlan.LOAD:
+                    stack.push(leaf(op, code[++pc]));
+                    break;
+                case ExpressionPlan.STORE:
+                    int slot = code[++pc];
+                    while (temps.size() <= slot) {
+                        temps.add(null);
+                    }
+                    temps.set(slot, stack.peek());
+                    break;
+                case ExpressionPlan.TEMP:
+                    stack.push(temps.get(code[++pc]));
+                    break;
+                default:
+                    Node right = stack.pop();
+                    Node left = stack.pop();
+                    stack.push(operator(op, left, right));
+            }
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Gets the one node for a literal or variable.
+     *
+     * @param op {@code PUSH} or {@code LOAD}
+     * @param value The literal or variable index
+     * @return The node
+     */
+    private Node leaf(int op, int value) {
+        return intern(new Node(op, value, null, null));
+    }
+
+    /**
+     * Gets the simplest node for an operator on two simplified operands.
+     *
+     * @param op The operator
+     * @param l The left operand
+     * @param r The right operand
+     * @return The node
+     */
+    private Node operator(int op, Node l, Node r) {
+        if (l.op == ExpressionPlan.PUSH && r.op == ExpressionPlan.PUSH
+                && (op != ExpressionPlan.DIV || r.value != 0)) {
+            long folded = apply(op, l.value, r.value);
+            if (folded == (int) folded) {
+                return leaf(ExpressionPlan.PUSH, (int) folded);
+            }
+        }
+        // constants go on the right of + and *, to meet the rules below
+        if ((op == ExpressionPlan.ADD || op == ExpressionPlan.MUL)
+                && l.op == ExpressionPlan.PUSH) {
+            Node t = l;
+            l = r;
+            r = t;
+        }
+        boolean constant = r.op == ExpressionPlan.PUSH;
+        switch (op) {
+            case ExpressionPlan.ADD:
+            case ExpressionPlan.SUB:
+                if (r.is(0)) {
+                    return l;
+                }
+                if (op == ExpressionPlan.SUB && l == r && !l.canThrow) {
+                    return leaf(ExpressionPlan.PUSH, 0);
+                }
+                if (constant && (l.op == ExpressionPlan.ADD || l.op == ExpressionPlan.SUB)
+                        && l.right.op == ExpressionPlan.PUSH) {
+                    // (x +- c1) +- c2 is x + (+-c1 +- c2)
+                    long c1 = l.op == ExpressionPlan.ADD ? l.right.value : -(long) l.right.value;
+                    long c2 = op == ExpressionPlan.ADD ? r.value : -(long) r.value;
+                    if (c1 + c2 == (int) (c1 + c2)) {
+                        return operator(ExpressionPlan.ADD, l.left,
+                                leaf(ExpressionPlan.PUSH, (int) (c1 + c2)));
+                    }
+                }
+                break;
+            case ExpressionPlan.MUL:
+                if (r.is(1)) {
+                    return l;
+                }
+                if (r.is(0) && !l.canThrow) {
+                    return r;
+                }
+                if (constant && l.op == ExpressionPlan.MUL && l.right.op == ExpressionPlan.PUSH) {
+                    long c = (long) l.right.value * r.value;
+                    if (c == (int) c) {
+                        return operator(ExpressionPlan.MUL, l.left,
+                                leaf(ExpressionPlan.PUSH, (int) c));
+                    }
+                }
+                break;
+            case ExpressionPlan.DIV:
+                if (r.is(1)) {
+                    return l;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot optimize opcode " + op);
+        }
+        return intern(new Node(op, 0, l, r));
+    }
+
+    /**
+     * Applies an operator to two literals that do not divide by zero.
+     *
+     * @param op The operator
+     * @param l The left value
+     * @param r The right value
+     * @return The exact result, which may not fit in an {@code int}
+     */
+    private static long apply(int op, int l, int r) {
+        switch (op) {
+            case ExpressionPlan.ADD:
+                return (long) l + r;
+            case ExpressionPlan.SUB:
+                return (long) l - r;
+            case ExpressionPlan.MUL:
+                return (long) l * r;
+            default:
+                return (long) l / r;
+        }
+    }
+
+    /**
+     * Gets the node equal to a new one, keeping the new one if there is none.
+     *
+     * @param n The new node
+     * @return The one node equal to it
+     */
+    private Node intern(Node n) {
+        Node old = nodes.putIfAbsent(n, n);
+        return old == null ? n : old;
+    }
+
+    /**
+     * Writes opcodes for a tree, computing each operator used more than
+     * once into a temporary the first time.
+     *
+     * @param root The root of the tree
+     * @return The opcodes and the literals
+     */
+    private int[][] emit(Node root) {
+        // count the uses of every node reached from the root
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            Node n = todo.pop();
+            if (n.refs++ == 0 && n.left != null) {
+                todo.push(n.right);
+                todo.push(n.left);
+            }
+        }
+
+        Map<Integer, Integer> pool = new HashMap<>();
+        int[] out = new int[16];
+        int length = 0;
+        int temps = 0;
+        // post-order walk: a node is pushed once to enter it, then again
+        // marked as exiting, once its operands are written
+        Deque<Node> walk = new ArrayDeque<>();
+        Deque<Boolean> exiting = new ArrayDeque<>();
+        walk.push(root);
+        exiting.push(false);
+        while (!walk.isEmpty()) {
+            Node n = walk.pop();
+            boolean exit = exiting.pop();
+            if (out.length < length + 3) {
+                out = Arrays.copyOf(out, 2 * out.length);
+            }
+            if (!exit && n.temp >= 0) {
+                out[length++] = ExpressionPlan.TEMP;
+                out[length++] = n.temp;
+            } else if (n.op == ExpressionPlan.PUSH) {
+                out[length++] = ExpressionPlan.PUSH;
+                out[length++] = pool.computeIfAbsent(n.value, v -> pool.size());
+            } else if (n.op == ExpressionPlan.LOAD) {
+                out[length++] = ExpressionPlan.LOAD;
+                out[length++] = n.value;
+            } else if (!exit) {
+                walk.push(n);
+                exiting.push(true);
+                walk.push(n.right);
+                exiting.push(false);
+                walk.push(n.left);
+                exiting.push(false);
+            } else {
+                out[length++] = n.op;
+                if (n.refs > 1) {
+                    n.temp = temps++;
+                    out[length++] = ExpressionPlan.STORE;
+                    out[length++] = n.temp;
+                }
+            }
+        }
+        int[] literals = new int[pool.size()];
+        for (Map.Entry<Integer, Integer> e : pool.entrySet()) {
+            literals[e.getValue()] = e.getKey();
+        }
+        return new int[][] {Arrays.copyOf(out, length), literals};
+    }
+}
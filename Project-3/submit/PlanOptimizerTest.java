@@ -0,0 +1,327 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link PlanOptimizer} class.
+ *
+ * An optimized plan must give exactly what the plan as written gives,
+ * including which exception is thrown and, over columns, at which row.
+ */
+public class PlanOptimizerTest {
+
+    private Project3 runner;
+
+    /**
+     * Initializes a fresh {@code Project3} instance before each test.
+     */
+    @Before
+    public void setup() {
+        runner = new Project3();
+    }
+
+    /**
+     * Tests that constant subexpressions are folded.
+     */
+    @Test
+    public void testFolding() {
+        ExpressionPlan plan = runner.compile("(20 * 3) + 4").optimize();
+        assertEquals("64", plan.toString());
+        assertEquals(2, plan.removedOperations());
+        assertEquals(0, plan.operationCount());
+        assertEquals(64, plan.evaluate());
+
+        // overflow wraps as it does when evaluated
+        plan = runner.compile("2147483647 + 1").optimize();
+        assertEquals(Integer.MIN_VALUE, plan.evaluate());
+        assertEquals(-3, runner.compile("7 / (0 - 2)").optimize().evaluate());
+
+        plan = runner.compileFormula("a * (20 * 3)");
+        assertEquals("a 60 *", plan.toString());
+        assertEquals(1, plan.removedOperations());
+        assertEquals(0, runner.compile("1 + 2").removedOperations());
+    }
+
+    /**
+     * Tests that constants whose result overflows an {@code int} are left
+     * for evaluation, so {@code long} columns still get the exact value.
+     */
+    @Test
+    public void testLongColumns() {
+        String[] formulas = {"a * 65536 * 65536", "a + 2147483647 + 1", "(65536 * 65536) + a",
+            "a - 2147483647 - 2", "(0 - 2147483647 - 1) / (0 - 1) + a"};
+        long[] results = {12884901888L, 2147483651L, 4294967299L, -2147483646L, 2147483651L};
+        for (int i = 0; i < formulas.length; i++) {
+            ExpressionPlan plan = runner.compileFormula(formulas[i]);
+            long[] out = new long[1];
+            plan.evaluateColumns(new long[][] {{3}}, out, null);
+            assertEquals(formulas[i], results[i], out[0]);
+            assertEquals(formulas[i], (int) results[i], plan.evaluate(3));
+        }
+        assertEquals("a 65536 * 65536 *", runner.compileFormula("a * 65536 * 65536").toString());
+        assertEquals("a 2147483647 + 1 +", runner.compileFormula("a + 2147483647 + 1").toString());
+        assertEquals("a 2147483646 +", runner.compileFormula("a + 2147483647 - 1").toString());
+    }
+
+    /**
+     * Tests the algebraic identities and the merging of constant chains.
+     */
+    @Test
+    public void testIdentities() {
+        ExpressionPlan plan = runner.compileFormula("a * 1 + 0 - 0 / 1");
+        assertEquals("a", plan.toString());
+        assertEquals(4, plan.removedOperations());
+        assertEquals(-9, plan.evaluate(-9));
+
+        assertEquals("a", runner.compileFormula("1 * (0 + a)").toString());
+        assertEquals("a 3 +", runner.compileFormula("a + 1 + 2").toString());
+        assertEquals("a 1 +", runner.compileFormula("a + 3 - 2").toString());
+        assertEquals("a", runner.compileFormula("a - 3 + 3").toString());
+        assertEquals("a 24 *", runner.compileFormula("2 * a * 3 * 4").toString());
+        assertEquals("0", runner.compileFormula("a * 0").toString());
+        assertEquals("0", runner.compileFormula("(a + b) - (a + b)").toString());
+
+        // x * 0 and x - x keep x if it might divide by zero
+        assertEquals("a b / 0 *", runner.compileFormula("(a / b) * 0").toString());
+        assertEquals("0", runner.compileFormula("(a / 2) * 0").toString());
+        assertEquals("a b / =$0 $0 -", runner.compileFormula("(a / b) - (a / b)").toString());
+
+        // no identity for a division by a variable
+        assertEquals("0 a /", runner.compileFormula("0 / a").toString());
+    }
+
+    /**
+     * Tests that a division by zero is never folded or multiplied away.
+     */
+    @Test
+    public void testDivisionByZero() {
+        String[] exprs = {"5 / 0", "(1 / 0) * 0", "0 * (1 / 0)", "(7 / (3 - 3)) - (7 / (3 - 3))",
+            "(1 / 0) + 1 + 1"};
+        for (String expr : exprs) {
+            ExpressionPlan plan = runner.compile(expr).optimize();
+            try {
+                plan.evaluate();
+                fail(expr);
+            } catch (ArithmeticException e) {
+                assertEquals("Division by zero", e.getMessage());
+            }
+            try {
+                runner.evaluateInfix(expr);
+                fail(expr);
+            } catch (ArithmeticException e) {
+                assertEquals("Division by zero", e.getMessage());
+            }
+        }
+        assertEquals("0", runner.compile("(4 / 2) * 0").optimize().toString());
+    }
+
+    /**
+     * Tests that a repeated subexpression is computed once, in every tier.
+     */
+    @Test
+    public void testCommonSubexpressions() {
+        ExpressionPlan plan = runner.compileFormula("(a + b) * (a + b) - (a + b) / c");
+        // no precedence: ((a + b) * (a + b) - (a + b)) / c
+        assertEquals("a b + =$0 $0 * $0 - c /", plan.toString());
+        assertEquals(2, plan.removedOperations());
+        assertEquals(4, plan.evaluate(2, 3, 5));
+
+        int[][] columns = {{2, 1, 0}, {3, 1, 0}, {5, 1, 1}};
+        int[] out = new int[3];
+        plan.evaluateColumns(columns, out, null);
+        assertArrayEquals(new int[] {4, 2, 0}, out);
+        long[] longOut = new long[3];
+        plan.evaluateColumns(new long[][] {{2, 1, 0}, {3, 1, 0}, {5, 1, 1}}, longOut, null);
+        assertArrayEquals(new long[] {4, 2, 0}, longOut);
+
+        assertNotNull(plan.compileNow());
+        assertEquals(4, plan.evaluate(2, 3, 5));
+        try {
+            plan.evaluate(2, 3, 0);
+            fail("division by zero");
+        } catch (ArithmeticException e) {
+            assertEquals("Division by zero", e.getMessage());
+        }
+        // optimizing again reads the temporaries back
+        ExpressionPlan again = plan.optimize();
+        assertEquals(plan.toString(), again.toString());
+        assertEquals(0, again.removedOperations());
+    }
+
+    /**
+     * Tests that malformed plans are left as they are.
+     */
+    @Test
+    public void testMalformed() {
+        ExpressionPlan plan = runner.compile("(1 / 0) + (2 * 3) +");
+        assertTrue(plan.isOptimized());
+        assertSame(plan, plan.optimize());
+        plan = runner.compile("99999999999 + 1");
+        assertSame(plan, plan.optimize());
+    }
+
+    /**
+     * Tests that evaluateInfix optimizes a cached plan once it is reused.
+     */
+    @Test
+    public void testCachedPlans() {
+        String expr = "(20 * 3) + 4";
+        assertEquals(64, runner.evaluateInfix(expr));
+        ExpressionPlan first = runner.getPlanCache().get(expr);
+        assertFalse(first.isOptimized());
+        assertEquals("20 3 * 4 +", first.toString());
+        assertEquals(64, runner.evaluateInfix(expr));
+        ExpressionPlan second = runner.getPlanCache().get(expr);
+        assertTrue(second.isOptimized());
+        assertEquals("64", second.toString());
+        assertEquals(64, runner.evaluateInfix(expr));
+        assertSame(second, runner.getPlanCache().get(expr));
+    }
+
+    /**
+     * Tests random expressions, well-formed or not, evaluate through the
+     * cache of optimized plans just as they are interpreted.
+     */
+    @Test
+    public void testMatchesInterpreter() {
+        String[] tokens = {"0", "1", "2", "7", "0", "1", "2147483647", "99999999999", "+", "-",
+            "*", "/", "+", "-", "*", "/", "(", ")", "(", ")"};
+        Random rand = new Random(2214);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int n = rand.nextInt(14); n >= 0; n--) {
+                sb.append(tokens[rand.nextInt(tokens.length)]).append(' ');
+            }
+            String expr = sb.toString();
+            assertEquals(expr, outcome(() -> runner.interpret(expr)),
+                    outcome(() -> runner.evaluateInfix(expr)));
+        }
+    }
+
+    /**
+     * Tests random formulas give the same results optimized as written,
+     * interpreted, compiled and over columns.
+     */
+    @Test
+    public void testMatchesUnoptimized() {
+        String[] operands = {"0", "1", "2", "3", "2147483647", "a", "b", "(a + b)", "(a / b)",
+            "(b - 1)"};
+        String[] operators = {" + ", " - ", " * ", " / "};
+        Random rand = new Random(2214);
+        int rows = 64;
+        for (int i = 0; i < 3000; i++) {
+            String formula = randomFormula(rand, operands, operators, 3);
+            ExpressionPlan.Compiler compiler = new ExpressionPlan.Compiler(true);
+            new ExpressionScanner(formula).toPostfix(compiler);
+            ExpressionPlan written = compiler.build();
+            written.disableJit();
+            ExpressionPlan optimized = written.optimize();
+            ExpressionPlan compiled = written.optimize();
+            assertNotNull(formula, compiled.compileNow());
+            assertEquals(formula, written.operationCount(),
+                    optimized.operationCount() + optimized.removedOperations());
+
+            int[][] columns = new int[written.variableCount()][rows];
+            for (int[] column : columns) {
+                for (int r = 0; r < rows; r++) {
+                    column[r] = rand.nextInt(4) == 0 ? rand.nextInt(3) - 1 : rand.nextInt();
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                int[] row = new int[columns.length];
+                for (int v = 0; v < row.length; v++) {
+                    row[v] = columns[v][r];
+                }
+                String expected = outcome(() -> written.evaluate(row));
+                assertEquals(formula, expected, outcome(() -> optimized.evaluate(row)));
+                assertEquals(formula, expected, outcome(() -> compiled.evaluate(row)));
+            }
+            int[] expected = new int[rows];
+            int[] actual = new int[rows];
+            String failure = outcome(() -> {
+                written.evaluateColumns(columns, expected, null);
+                return 0;
+            });
+            assertEquals(formula, failure, outcome(() -> {
+                optimized.evaluateColumns(columns, actual, null);
+                return 0;
+            }));
+            if (failure.equals("= 0")) {
+                assertArrayEquals(formula, expected, actual);
+            }
+
+            long[][] longColumns = new long[columns.length][rows];
+            for (int v = 0; v < columns.length; v++) {
+                for (int r = 0; r < rows; r++) {
+                    longColumns[v][r] = r % 2 == 0 ? columns[v][r] : rand.nextLong() >> 16;
+                }
+            }
+            long[] longExpected = new long[rows];
+            long[] longActual = new long[rows];
+            failure = outcome(() -> {
+                written.evaluateColumns(longColumns, longExpected, null);
+                return 0;
+            });
+            assertEquals(formula, failure, outcome(() -> {
+                optimized.evaluateColumns(longColumns, longActual, null);
+                return 0;
+            }));
+            if (failure.equals("= 0")) {
+                assertArrayEquals(formula, longExpected, longActual);
+            }
+        }
+    }
+
+    /**
+     * Something evaluated for a test.
+     */
+    private interface Evaluation {
+        /**
+         * Runs it.
+         *
+         * @return The value
+         */
+        int run();
+    }
+
+    /**
+     * Runs an evaluation, describing the result or the exception.
+     *
+     * @param evaluation The evaluation
+     * @return The outcome as text
+     */
+    private static String outcome(Evaluation evaluation) {
+        try {
+            return "= " + evaluation.run();
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * Makes a random formula.
+     *
+     * @param rand The random source
+     * @param operands Literals, variables and subexpressions to use
+     * @param operators Operators to use
+     * @param depth How deep parentheses may nest
+     * @return The formula
+     */
+    private static String randomFormula(Random rand, String[] operands, String[] operators,
+            int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int n = rand.nextInt(4); n >= 0; n--) {
+            if (depth > 0 && rand.nextInt(3) == 0) {
+                sb.append('(').append(randomFormula(rand, operands, operators, depth - 1))
+                        .append(')');
+            } else {
+                sb.append(operands[rand.nextInt(operands.length)]);
+            }
+            if (n > 0) {
+                sb.append(operators[rand.nextInt(operators.length)]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,5 +1,5 @@
-import java.util.StringTokenizer;
 import itsc2214.*;
+import java.util.ArrayList;
 
 /**
  * Project3 implements the {@link ExpressionEvaluator} interface for ITSC 2214 Fall 2025.
@@ -10,7 +10,16 @@ import itsc2214.*;
  *   Convert infix expressions to postfix notation
  *   Evaluate postfix expressions
  *   Evaluate infix expressions by combining both processes
- * 
+ *
+ * Expressions are read by an {@link ExpressionScanner} straight from their
+ * characters, and the parentheses are checked during the same pass that
+ * converts to postfix. Infix expressions are compiled once into an {@link ExpressionPlan} and
+ * kept in a {@link PlanCache}, so evaluating the same formula again skips
+ * tokenizing and parsing and allocates nothing. A plan is optimized once
+ * its expression comes up again, so constant parts of a formula that is
+ * reused are worked out only once, while one-off expressions skip the cost.
+ * Formulas with variables
+ * compile the same way and can be evaluated over whole columns of values.
  *
  *
  *
@@ -19,6 +28,28 @@ import itsc2214.*;
  */
 public class Project3 implements ExpressionEvaluator {
 
+    /** Number of compiled plans kept by default. */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final PlanCache plans;
+
+    /**
+     * Creates an evaluator caching up to {@link #DEFAULT_CACHE_SIZE} plans.
+     */
+    public Project3() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an evaluator with a plan cache of the given size.
+     *
+     * @param cacheSize The most compiled plans kept, at least 1
+     * @throws IllegalArgumentException If {@code cacheSize} is less than 1
+     */
+    public Project3(int cacheSize) {
+        plans = new PlanCache(cacheSize);
+    }
+
     /**
      * Checks whether the parentheses in a given infix expression are balanced.
      *
@@ -27,27 +58,7 @@ public class Project3 implements ExpressionEvaluator {
      */
     @Override
     public boolean balancedParenthesis(String expr) {
-        StackADT<String> stack = Factory.makeStackArrayList();
-        StringTokenizer st = new StringTokenizer(expr, " +-*/()", true);
-
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken().trim();
-            if (token.isEmpty()) {
-                continue;
-            }
-
-            if (token.equals("(")) {
-                stack.push(token);
-            } else if (token.equals(")")) {
-                if (stack.isEmpty()) {
-                    return false;
-                } else {
-                    stack.pop();
-                }
-            }
-        }
-
-        return stack.isEmpty();
+        return new ExpressionScanner(expr).balanced();
     }
 
     /**
@@ -63,45 +74,55 @@ public class Project3 implements ExpressionEvaluator {
     @Override
     public QueueADT<String> infix2Postfix(String expr) {
         QueueADT<String> queue = Factory.makeQueueArrayList();
-        StackADT<String> stack = Factory.makeStackArrayList();
-        StringTokenizer st = new StringTokenizer(expr, " +-*/()", true);
+        new ExpressionScanner(expr).toPostfix(new QueueSink(queue));
+        return queue;
+    }
 
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken().trim();
-            if (token.isEmpty()) {
-                continue;
-            }
+    /**
+     * Enqueues postfix tokens as strings.
+     */
+    private static final class QueueSink implements ExpressionScanner.Sink {
+        private final QueueADT<String> queue;
 
-            if (token.matches("[0-9]+")) {
-                queue.enqueue(token);
-            } else if (token.equals("(")) {
-                stack.push(token);
-            } else if (token.equals(")")) {
-                while (!stack.isEmpty() && !stack.peek().equals("(")) {
-                    queue.enqueue(stack.pop());
-                }
-                if (!stack.isEmpty() && stack.peek().equals("(")) {
-                    stack.pop();
-                }
-            } else if (token.equals("+") || token.equals("-")
-                    || token.equals("*") || token.equals("/")) {
-                while (!stack.isEmpty() && !stack.peek().equals("(")) {
-                    queue.enqueue(stack.pop());
-                }
-                stack.push(token);
-            }
+        /**
+         * Creates a sink.
+         *
+         * @param queue The queue receiving the tokens
+         */
+        QueueSink(QueueADT<String> queue) {
+            this.queue = queue;
         }
 
-        while (!stack.isEmpty()) {
-            queue.enqueue(stack.pop());
+        /**
+         * Enqueues the text of a number.
+         *
+         * @param scanner The scanner, positioned on the number
+         */
+        @Override
+        public void operand(ExpressionScanner scanner) {
+            queue.enqueue(scanner.text());
         }
 
-        return queue;
+        /**
+         * Enqueues an operator or parenthesis.
+         *
+         * @param symbol The symbol
+         */
+        @Override
+        public void operator(char symbol) {
+            queue.enqueue(ExpressionScanner.symbol(symbol));
+        }
     }
 
     /**
      * Evaluates a postfix (Reverse Polish) expression and returns the integer result.
      *
+     * Tokens are converted from strings once, as they are dequeued, and the
+     * operands are kept on an {@link IntStack}. A number too large for an
+     * {@code int} is parsed only when it is popped, which throws the same
+     * {@code NumberFormatException} at the same point as parsing it from a
+     * stack of strings.
+     *
      * @param expr A {@code QueueADT<String>} representing the postfix expression
      * @return The result of evaluating the postfix expression
      * @throws ArithmeticException If division by zero occurs
@@ -115,7 +136,9 @@ public class Project3 implements ExpressionEvaluator {
             throw new IllegalArgumentException("Null queue passed to evaluatePostfix");
         }
 
-        StackADT<String> stack = Factory.makeStackArrayList();
+        IntStack stack = new IntStack();
+        ExpressionScanner scanner = new ExpressionScanner("");
+        Operands operands = new Operands(stack);
 
         while (!expr.isEmpty()) {
             String token = expr.dequeue();
@@ -123,54 +146,54 @@ public class Project3 implements ExpressionEvaluator {
                 continue;
             }
 
-            token = token.trim();
-            if (token.isEmpty()) {
+            int type = scanner.single(token);
+            if (type == ExpressionScanner.END) {
                 continue;
             }
 
-            if (token.matches("[0-9]+")) {
-                stack.push(token);
-            } else if (token.equals("+") || token.equals("-")
-                    || token.equals("*") || token.equals("/")) {
+            if (type == ExpressionScanner.NUMBER) {
+                operands.push(scanner);
+            } else if (type == ExpressionScanner.OPERATOR) {
+                char operator = scanner.operator();
 
                 if (stack.isEmpty()) {
                     throw new IllegalArgumentException(
-                            "Missing operand for operator " + token);
+                            "Missing operand for operator " + operator);
                 }
 
-                int right = Integer.parseInt(stack.pop());
+                int right = operands.pop();
                 if (stack.isEmpty()) {
                     throw new IllegalArgumentException(
-                            "Missing operand for operator " + token);
+                            "Missing operand for operator " + operator);
                 }
 
-                int left = Integer.parseInt(stack.pop());
+                int left = operands.pop();
                 int result;
 
-                switch (token) {
-                    case "+":
+                switch (operator) {
+                    case '+':
                         result = left + right;
                         break;
-                    case "-":
+                    case '-':
                         result = left - right;
                         break;
-                    case "*":
+                    case '*':
                         result = left * right;
                         break;
-                    case "/":
+                    case '/':
                         if (right == 0) {
                             throw new ArithmeticException("Division by zero");
                         }
                         result = left / right;
                         break;
                     default:
-                        throw new IllegalArgumentException("Unknown operator: " + token);
+                        throw new IllegalArgumentException("Unknown operator: " + operator);
                 }
 
-                stack.push(Integer.toString(result));
+                stack.push(result);
             } else {
                 throw new IllegalArgumentException(
-                        "Invalid token in postfix expression: " + token);
+                        "Invalid token in postfix expression: " + token.trim());
             }
         }
 
@@ -178,7 +201,7 @@ public class Project3 implements ExpressionEvaluator {
             throw new IllegalArgumentException("No result after evaluation");
         }
 
-        int finalResult = Integer.parseInt(stack.pop());
+        int finalResult = operands.pop();
 
         if (!stack.isEmpty()) {
             throw new IllegalArgumentException("Extra operands left after evaluation");
@@ -187,10 +210,67 @@ public class Project3 implements ExpressionEvaluator {
         return finalResult;
     }
 
+    /**
+     * The operand stack of {@link #evaluatePostfix(QueueADT)}, remembering
+     * which entries are numbers too large for an {@code int}. Only such
+     * numbers make it allocate.
+     */
+    private static final class Operands {
+        private final IntStack stack;
+        // stack positions of numbers too large, lowest first, and their digits
+        private IntStack largeAt;
+        private ArrayList<String> large;
+
+        /**
+         * Creates the operands over an empty stack.
+         *
+         * @param stack The stack holding the values
+         */
+        Operands(IntStack stack) {
+            this.stack = stack;
+        }
+
+        /**
+         * Pushes the number a scanner is on.
+         *
+         * @param scanner The scanner, positioned on a number
+         */
+        void push(ExpressionScanner scanner) {
+            if (!scanner.fitsInt()) {
+                if (largeAt == null) {
+                    largeAt = new IntStack();
+                    large = new ArrayList<>();
+                }
+                largeAt.push(stack.size());
+                large.add(scanner.text());
+            }
+            stack.push(scanner.intValue());
+        }
+
+        /**
+         * Pops a value, parsing it first if it was too large.
+         *
+         * @return The value
+         * @throws NumberFormatException If it does not fit in an {@code int}
+         */
+        int pop() {
+            if (largeAt != null && !largeAt.isEmpty()
+                    && largeAt.peek() == stack.size() - 1) {
+                return Integer.parseInt(large.get(large.size() - 1));
+            }
+            return stack.pop();
+        }
+    }
+
     /**
      * Evaluates an infix expression by checking for balanced parentheses, converting to
      * postfix notation, and evaluating the resulting postfix expression.
      *
+     * The work up to evaluation is done once per distinct expression: the compiled
+     * plan is cached and reused, giving the same result or exception. It is
+     * optimized the second time it is used, as most expressions seen once
+     * are never seen again.
+     *
      * @param expr The infix expression as a String
      * @return The integer result of evaluation
      * @throws ArithmeticException If division by zero occurs
@@ -204,11 +284,97 @@ public class Project3 implements ExpressionEvaluator {
             throw new IllegalArgumentException("Null expression passed to evaluateInfix");
         }
 
-        if (!balancedParenthesis(expr)) {
+        ExpressionPlan plan = plans.get(expr);
+        if (plan == null) {
+            plan = compile(expr);
+            plans.put(expr, plan);
+        } else if (!plan.isOptimized()) {
+            plan = plan.optimize();
+            plans.put(expr, plan);
+        }
+        return plan.evaluate();
+    }
+
+    /**
+     * Compiles an infix expression into a plan that evaluates it like
+     * {@link #evaluateInfix(String)}, without using the cache. The plan
+     * follows the expression as written; {@link ExpressionPlan#optimize()}
+     * gives the faster one that is cached once the expression is reused.
+     *
+     * @param expr The infix expression as a String
+     * @return The compiled plan
+     * @throws IllegalArgumentException If {@code expr} is null
+     */
+    public ExpressionPlan compile(String expr) {
+        if (expr == null) {
+            throw new IllegalArgumentException("Null expression passed to compile");
+        }
+        ExpressionPlan.Compiler compiler = new ExpressionPlan.Compiler(false);
+        if (!new ExpressionScanner(expr).toPostfix(compiler)) {
+            return ExpressionPlan.failing("Unbalanced parentheses");
+        }
+        return compiler.build();
+    }
+
+    /**
+     * Compiles a formula with named variables, such as {@code (a + b) * 3 / c}.
+     * Names start with a letter or underscore, and each is given an index in
+     * order of first use. Operators have no precedence, as in
+     * {@link #evaluateInfix(String)}.
+     *
+     * Unlike {@link #compile(String)}, a malformed formula is rejected here
+     * rather than when it is evaluated, and the plan is already optimized.
+     * It can then be evaluated for one row with
+     * {@link ExpressionPlan#evaluate(int...)}, or over columns of
+     * {@code int} or {@code long} values with
+     * {@link ExpressionPlan#evaluateColumns(int[][], int[], java.util.concurrent.ForkJoinPool)}.
+     *
+     * @param expr The formula as a String
+     * @return The compiled plan
+     * @throws IllegalArgumentException If {@code expr} is null or malformed
+     * @throws NumberFormatException If a literal does not fit in an {@code int}
+     */
+    public ExpressionPlan compileFormula(String expr) {
+        if (expr == null) {
+            throw new IllegalArgumentException("Null expression passed to compileFormula");
+        }
+        ExpressionPlan.Compiler compiler = new ExpressionPlan.Compiler(true);
+        if (!new ExpressionScanner(expr).toPostfix(compiler)) {
             throw new IllegalArgumentException("Unbalanced parentheses");
         }
+        ExpressionPlan plan = compiler.build();
+        plan.check();
+        return plan.optimize();
+    }
 
-        QueueADT<String> postfix = infix2Postfix(expr);
+    /**
+     * Gets the cache of compiled plans, for its hit rate.
+     *
+     * @return The plan cache
+     */
+    public PlanCache getPlanCache() {
+        return plans;
+    }
+
+    /**
+     * Evaluates an infix expression token by token without compiling it, as
+     * {@link #evaluateInfix(String)} did before plans. Kept as the reference
+     * the plans are tested and benchmarked against.
+     *
+     * @param expr The infix expression as a String
+     * @return The integer result of evaluation
+     * @throws ArithmeticException If division by zero occurs
+     * @throws IllegalArgumentException If parentheses are unbalanced or the expression is invalid
+     */
+    int interpret(String expr) {
+        if (expr == null) {
+            throw new IllegalArgumentException("Null expression passed to evaluateInfix");
+        }
+
+        QueueADT<String> postfix = Factory.makeQueueArrayList();
+        if (!new ExpressionScanner(expr).toPostfix(new QueueSink(postfix))) {
+            throw new IllegalArgumentException("Unbalanced parentheses");
+        }
         return evaluatePostfix(postfix);
     }
 }
@@ -86,6 +86,36 @@ public class Project3Test {
         assertEquals(30, runner.evaluatePostfix(q));
     }
 
+    /**
+     * Tests that a number too large for an {@code int} fails only once it
+     * is used, as it did when operands were kept as strings.
+     */
+    @Test
+    public void testEvaluatePostfixLargeNumbers() {
+        QueueADT<String> q = Factory.makeQueueArrayList();
+        q.enqueue("99999999999");
+        q.enqueue("1");
+        q.enqueue("2");
+        q.enqueue("+");
+        q.enqueue("4");
+        try {
+            runner.evaluatePostfix(q);
+            fail("extra operands");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Extra operands left after evaluation", e.getMessage());
+        }
+
+        q.enqueue("99999999999");
+        q.enqueue("3");
+        q.enqueue("-");
+        try {
+            runner.evaluatePostfix(q);
+            fail("too large for an int");
+        } catch (NumberFormatException e) {
+            assertEquals("For input string: \"99999999999\"", e.getMessage());
+        }
+    }
+
     /**
      * Tests the full {@link Project3#evaluateInfix(String)} method
      * which combines parenthesis checking, infix-to-postfix conversion,